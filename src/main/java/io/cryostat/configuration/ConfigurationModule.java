@@ -50,6 +50,7 @@ import io.cryostat.core.sys.FileSystem;
 import io.cryostat.discovery.DiscoveryStorage;
 import io.cryostat.rules.MatchExpressionEvaluator;
 import io.cryostat.rules.MatchExpressionValidator;
+import io.cryostat.rules.TargetAttributeIndex;
 
 import com.google.gson.Gson;
 import dagger.Lazy;
@@ -77,6 +78,7 @@ public abstract class ConfigurationModule {
             MatchExpressionValidator matchExpressionValidator,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
             DiscoveryStorage discovery,
+            TargetAttributeIndex targetAttributeIndex,
             StoredCredentialsDao dao,
             FileSystem fs,
             Gson gson,
@@ -87,6 +89,7 @@ public abstract class ConfigurationModule {
                 matchExpressionValidator,
                 matchExpressionEvaluator,
                 discovery,
+                targetAttributeIndex,
                 dao,
                 fs,
                 gson,
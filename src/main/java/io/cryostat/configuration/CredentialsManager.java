@@ -38,6 +38,7 @@
 package io.cryostat.configuration;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -49,6 +50,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import javax.script.ScriptException;
 
@@ -60,6 +64,7 @@ import io.cryostat.platform.ServiceRef;
 import io.cryostat.rules.MatchExpressionEvaluator;
 import io.cryostat.rules.MatchExpressionValidationException;
 import io.cryostat.rules.MatchExpressionValidator;
+import io.cryostat.rules.TargetAttributeIndex;
 import io.cryostat.util.events.AbstractEventEmitter;
 import io.cryostat.util.events.EventType;
 
@@ -75,16 +80,23 @@ public class CredentialsManager
     private final MatchExpressionValidator matchExpressionValidator;
     private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
     private final PlatformClient platformClient;
+    private final TargetAttributeIndex targetAttributeIndex;
     private final StoredCredentialsDao dao;
     private final FileSystem fs;
     private final Gson gson;
     private final Logger logger;
+    // the credentials resolved for each target, or empty if none match. This is invalidated
+    // whenever the stored credentials change, and per target when that target changes or is lost.
+    private final Map<ServiceRef, Optional<Credentials>> resolvedCredentials =
+            new ConcurrentHashMap<>();
+    private final AtomicLong resolutionGeneration = new AtomicLong();
 
     CredentialsManager(
             Path credentialsDir,
             MatchExpressionValidator matchExpressionValidator,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
             PlatformClient platformClient,
+            TargetAttributeIndex targetAttributeIndex,
             StoredCredentialsDao dao,
             FileSystem fs,
             Gson gson,
@@ -93,10 +105,27 @@ public class CredentialsManager
         this.matchExpressionValidator = matchExpressionValidator;
         this.matchExpressionEvaluator = matchExpressionEvaluator;
         this.platformClient = platformClient;
+        this.targetAttributeIndex = targetAttributeIndex;
         this.dao = dao;
         this.fs = fs;
         this.gson = gson;
         this.logger = logger;
+
+        this.addListener(event -> invalidateResolvedCredentials(r -> true));
+        platformClient.addTargetDiscoveryListener(
+                tde -> {
+                    switch (tde.getEventKind()) {
+                        case MODIFIED:
+                        case LOST:
+                            URI serviceUri = tde.getServiceRef().getServiceUri();
+                            invalidateResolvedCredentials(
+                                    r -> Objects.equals(serviceUri, r.getServiceUri()));
+                            break;
+                        default:
+                            // ignore
+                            break;
+                    }
+                });
     }
 
     // TODO remove after 2.2 release
@@ -182,15 +211,30 @@ public class CredentialsManager
     }
 
     public Credentials getCredentialsByTargetId(String targetId) throws ScriptException {
-        for (ServiceRef service : this.platformClient.listDiscoverableServices()) {
-            if (Objects.equals(targetId, service.getServiceUri().toString())) {
-                return getCredentials(service);
-            }
+        Optional<ServiceRef> service = targetAttributeIndex.getTarget(targetId);
+        if (service.isEmpty()) {
+            return null;
         }
-        return null;
+        return getCredentials(service.get());
     }
 
     public Credentials getCredentials(ServiceRef serviceRef) throws ScriptException {
+        Optional<Credentials> cached = resolvedCredentials.get(serviceRef);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        long generation = resolutionGeneration.get();
+        Optional<Credentials> credentials = Optional.ofNullable(resolveCredentials(serviceRef));
+        ServiceRef key = new ServiceRef(serviceRef);
+        resolvedCredentials.put(key, credentials);
+        if (resolutionGeneration.get() != generation) {
+            // invalidated while resolving, so this may already be stale
+            resolvedCredentials.remove(key, credentials);
+        }
+        return credentials.orElse(null);
+    }
+
+    private Credentials resolveCredentials(ServiceRef serviceRef) throws ScriptException {
         for (StoredCredentials sc : dao.getAll()) {
             if (matchExpressionEvaluator.get().applies(sc.getMatchExpression(), serviceRef)) {
                 return sc.getCredentials();
@@ -228,7 +272,7 @@ public class CredentialsManager
 
     public Set<ServiceRef> resolveMatchingTargets(String matchExpression) {
         Set<ServiceRef> matchedTargets = new HashSet<>();
-        for (ServiceRef target : platformClient.listDiscoverableServices()) {
+        for (ServiceRef target : targetAttributeIndex.getCandidates(matchExpression)) {
             try {
                 if (matchExpressionEvaluator.get().applies(matchExpression, target)) {
                     matchedTargets.add(target);
@@ -245,7 +289,16 @@ public class CredentialsManager
         dao.get(id)
                 .map(StoredCredentials::getMatchExpression)
                 .ifPresent(c -> emit(CredentialsEvent.REMOVED, c));
-        return dao.delete(id);
+        boolean deleted = dao.delete(id);
+        // the REMOVED event is emitted before the deletion, so results resolved in between may
+        // still include the deleted credentials
+        invalidateResolvedCredentials(r -> true);
+        return deleted;
+    }
+
+    private void invalidateResolvedCredentials(Predicate<ServiceRef> targets) {
+        resolutionGeneration.incrementAndGet();
+        resolvedCredentials.keySet().removeIf(targets);
     }
 
     public Map<Integer, String> getAll() {
@@ -49,10 +49,17 @@ public final class Variables {
     public static final String REPORT_GENERATOR_ENV = "CRYOSTAT_REPORT_GENERATOR";
     public static final String SUBPROCESS_MAX_HEAP_ENV = "CRYOSTAT_REPORT_GENERATION_MAX_HEAP";
     public static final String REPORT_STATS_PATH = "CRYOSTAT_REPORT_STATS_PATH";
+    public static final String REPORT_WORKER_POOL_SIZE = "CRYOSTAT_REPORT_WORKER_POOL_SIZE";
+    public static final String REPORT_WORKER_MAX_JOBS = "CRYOSTAT_REPORT_WORKER_MAX_JOBS";
+    public static final String REPORT_BATCH_PARALLELISM = "CRYOSTAT_REPORT_BATCH_PARALLELISM";
     public static final String ACTIVE_REPORTS_CACHE_EXPIRY_ENV =
             "CRYOSTAT_ACTIVE_REPORTS_CACHE_EXPIRY_SECONDS";
     public static final String ACTIVE_REPORTS_CACHE_REFRESH_ENV =
             "CRYOSTAT_ACTIVE_REPORTS_CACHE_REFRESH_SECONDS";
+    public static final String ACTIVE_REPORTS_CACHE_MAX_SIZE_ENV =
+            "CRYOSTAT_ACTIVE_REPORTS_CACHE_MAX_SIZE_MB";
+    public static final String ARCHIVED_REPORTS_CACHE_MAX_SIZE_ENV =
+            "CRYOSTAT_ARCHIVED_REPORTS_CACHE_MAX_SIZE_MB";
 
     // agent configuration
     public static final String PUSH_MAX_FILES_ENV = "CRYOSTAT_PUSH_MAX_FILES";
@@ -71,6 +78,8 @@ public final class Variables {
     public static final String DISCOVERY_PING_PERIOD_MS = "CRYOSTAT_DISCOVERY_PING_PERIOD";
     public static final String K8S_NAMESPACES = "CRYOSTAT_K8S_NAMESPACES";
     public static final String VERTX_POOL_SIZE = "CRYOSTAT_VERTX_POOL_SIZE";
+    public static final String MATCH_EXPRESSION_CACHE_SIZE = "CRYOSTAT_MATCH_EXPRESSION_CACHE_SIZE";
+    public static final String MAX_CONCURRENT_ARCHIVALS = "CRYOSTAT_MAX_CONCURRENT_ARCHIVALS";
 
     // webserver configuration
     public static final String WEBSERVER_HOST = "CRYOSTAT_WEB_HOST";
@@ -86,13 +95,31 @@ public final class Variables {
     // JMX connections configuration
     public static final String TARGET_MAX_CONCURRENT_CONNECTIONS =
             "CRYOSTAT_TARGET_MAX_CONCURRENT_CONNECTIONS";
+    public static final String TARGET_MAX_AUTOMATED_RULE_CONNECTIONS =
+            "CRYOSTAT_TARGET_MAX_AUTOMATED_RULE_CONNECTIONS";
+    public static final String TARGET_MAX_DISCOVERY_CONNECTIONS =
+            "CRYOSTAT_TARGET_MAX_DISCOVERY_CONNECTIONS";
+    public static final String TARGET_CONNECTION_ADMISSION_TIMEOUT =
+            "CRYOSTAT_TARGET_CONNECTION_ADMISSION_TIMEOUT_SECONDS";
     public static final String TARGET_CACHE_TTL = "CRYOSTAT_TARGET_CACHE_TTL";
+    public static final String TARGET_MAX_QUEUED_TASKS = "CRYOSTAT_TARGET_MAX_QUEUED_TASKS";
+    public static final String TARGET_CACHE_PREWARM = "CRYOSTAT_TARGET_CACHE_PREWARM";
+    public static final String TARGET_CACHE_SIZE = "CRYOSTAT_TARGET_CACHE_SIZE";
+    public static final String TARGET_CACHE_PROBE_PERIOD = "CRYOSTAT_TARGET_CACHE_PROBE_PERIOD";
     public static final String JMX_CONNECTION_TIMEOUT = "CRYOSTAT_JMX_CONNECTION_TIMEOUT_SECONDS";
 
     // paths configuration
     public static final String ARCHIVE_PATH = "CRYOSTAT_ARCHIVE_PATH";
     public static final String CONFIG_PATH = "CRYOSTAT_CONFIG_PATH";
 
+    // archive configuration
+    public static final String ARCHIVE_WRITE_BUFFER_SIZE = "CRYOSTAT_ARCHIVE_WRITE_BUFFER_SIZE";
+    public static final String ARCHIVE_MAX_CONCURRENT_WRITES =
+            "CRYOSTAT_ARCHIVE_MAX_CONCURRENT_WRITES";
+    public static final String ARCHIVE_CHECKSUM_ALGORITHM = "CRYOSTAT_ARCHIVE_CHECKSUM_ALGORITHM";
+    public static final String ARCHIVE_COMPRESSION = "CRYOSTAT_ARCHIVE_COMPRESSION";
+    public static final String ARCHIVE_DEDUPLICATION = "CRYOSTAT_ARCHIVE_DEDUPLICATION";
+
     // database configuration
     public static final String JDBC_DRIVER = "CRYOSTAT_JDBC_DRIVER";
     public static final String JDBC_URL = "CRYOSTAT_JDBC_URL";
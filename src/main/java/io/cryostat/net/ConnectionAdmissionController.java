@@ -0,0 +1,220 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Limits the number of concurrently open target connections, both overall and per {@link
+ * ConnectionPriority}. Waiting requests are admitted in priority order, so a burst of background
+ * work cannot starve interactive requests of connection slots, and no request waits longer than the
+ * configured timeout. When an {@link ConnectionPriority#INTERACTIVE} request cannot be admitted
+ * the controller asks its {@link Evictor} to close an idle connection held by lower priority work.
+ */
+class ConnectionAdmissionController {
+
+    private final int maxConnections;
+    private final Map<ConnectionPriority, Integer> quotas;
+    private final Duration timeout;
+    private final Evictor evictor;
+
+    private final ReentrantLock lock;
+    private final Condition released;
+    private final Map<ConnectionDescriptor, ConnectionPriority> holders;
+    private final Map<ConnectionPriority, Integer> held;
+    private final Map<ConnectionPriority, Integer> waiting;
+
+    ConnectionAdmissionController(
+            int maxConnections,
+            Map<ConnectionPriority, Integer> quotas,
+            Duration timeout,
+            Evictor evictor) {
+        this.maxConnections = maxConnections;
+        this.quotas = new EnumMap<>(quotas);
+        this.timeout = timeout;
+        this.evictor = evictor;
+
+        this.lock = new ReentrantLock(true);
+        this.released = lock.newCondition();
+        this.holders = new HashMap<>();
+        this.held = new EnumMap<>(ConnectionPriority.class);
+        this.waiting = new EnumMap<>(ConnectionPriority.class);
+        for (ConnectionPriority priority : ConnectionPriority.values()) {
+            held.put(priority, 0);
+            waiting.put(priority, 0);
+        }
+    }
+
+    void acquire(ConnectionDescriptor connectionDescriptor)
+            throws InterruptedException, ConnectionAdmissionTimeoutException {
+        ConnectionPriority priority = connectionDescriptor.getPriority();
+        long remaining = timeout.toNanos();
+        boolean evictionAttempted = false;
+        lock.lock();
+        try {
+            if (holders.containsKey(connectionDescriptor)) {
+                return;
+            }
+            waiting.merge(priority, 1, Integer::sum);
+            try {
+                while (!canAdmit(priority)) {
+                    if (!evictionAttempted && priority == ConnectionPriority.INTERACTIVE) {
+                        evictionAttempted = true;
+                        // the evictor closes connections, which calls back into release(), so
+                        // don't hold the lock while it runs
+                        lock.unlock();
+                        try {
+                            evictor.evictIdle(priority);
+                        } finally {
+                            lock.lock();
+                        }
+                        continue;
+                    }
+                    if (remaining <= 0) {
+                        throw new ConnectionAdmissionTimeoutException(
+                                connectionDescriptor.getTargetId(), priority, timeout);
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } finally {
+                waiting.merge(priority, -1, Integer::sum);
+            }
+            holders.put(connectionDescriptor, priority);
+            held.merge(priority, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(ConnectionDescriptor connectionDescriptor) {
+        lock.lock();
+        try {
+            ConnectionPriority priority = holders.remove(connectionDescriptor);
+            if (priority == null) {
+                return;
+            }
+            held.merge(priority, -1, Integer::sum);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean hasCapacity(ConnectionPriority priority) {
+        lock.lock();
+        try {
+            return canAdmit(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getHeldCount(ConnectionPriority priority) {
+        lock.lock();
+        try {
+            return held.get(priority);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find a connection held by work of lower priority than the given one, preferring the lowest
+     * priority holders, which the caller considers idle and safe to close.
+     */
+    Optional<ConnectionDescriptor> findEvictionCandidate(
+            ConnectionPriority priority, Predicate<ConnectionDescriptor> idle) {
+        lock.lock();
+        try {
+            ConnectionDescriptor candidate = null;
+            ConnectionPriority candidatePriority = priority;
+            for (Map.Entry<ConnectionDescriptor, ConnectionPriority> entry : holders.entrySet()) {
+                if (entry.getValue().compareTo(candidatePriority) > 0
+                        && idle.test(entry.getKey())) {
+                    candidate = entry.getKey();
+                    candidatePriority = entry.getValue();
+                }
+            }
+            return Optional.ofNullable(candidate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Duration getTimeout() {
+        return timeout;
+    }
+
+    private boolean canAdmit(ConnectionPriority priority) {
+        int quota = quotas.getOrDefault(priority, -1);
+        if (quota > 0 && held.get(priority) >= quota) {
+            return false;
+        }
+        if (maxConnections <= 0) {
+            return true;
+        }
+        int total = held.values().stream().mapToInt(Integer::intValue).sum();
+        if (total >= maxConnections) {
+            return false;
+        }
+        // leave free slots to waiting higher priority requests, unless those are only waiting
+        // because their own class quota is exhausted
+        int reserved = 0;
+        for (ConnectionPriority higher : ConnectionPriority.values()) {
+            if (higher.compareTo(priority) >= 0) {
+                break;
+            }
+            int higherQuota = quotas.getOrDefault(higher, -1);
+            if (higherQuota <= 0 || held.get(higher) < higherQuota) {
+                reserved += waiting.get(higher);
+            }
+        }
+        return maxConnections - total > reserved;
+    }
+
+    interface Evictor {
+        void evictIdle(ConnectionPriority priority);
+    }
+}
@@ -49,6 +49,7 @@ public class ConnectionDescriptor {
 
     private final String targetId;
     private final Optional<Credentials> credentials;
+    private final ConnectionPriority priority;
 
     public ConnectionDescriptor(ServiceRef serviceRef) {
         this(serviceRef.getServiceUri().toString());
@@ -63,8 +64,24 @@ public class ConnectionDescriptor {
     }
 
     public ConnectionDescriptor(String targetId, Credentials credentials) {
+        this(targetId, credentials, ConnectionPriority.INTERACTIVE);
+    }
+
+    public ConnectionDescriptor(
+            ServiceRef serviceRef, Credentials credentials, ConnectionPriority priority) {
+        this(serviceRef.getServiceUri().toString(), credentials, priority);
+    }
+
+    /**
+     * @param priority the class of work this connection is requested for. This is used for
+     *     admission control only and does not take part in equality, so descriptors differing only
+     *     by priority share the same cached connection.
+     */
+    public ConnectionDescriptor(
+            String targetId, Credentials credentials, ConnectionPriority priority) {
         this.targetId = targetId;
         this.credentials = Optional.ofNullable(credentials);
+        this.priority = priority;
     }
 
     public String getTargetId() {
@@ -75,6 +92,10 @@ public class ConnectionDescriptor {
         return credentials;
     }
 
+    public ConnectionPriority getPriority() {
+        return priority;
+    }
+
     @Override
     public boolean equals(Object other) {
         if (other == null) {
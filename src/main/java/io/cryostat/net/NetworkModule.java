@@ -41,6 +41,7 @@ import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Map;
 import java.util.concurrent.ForkJoinPool;
 
 import javax.inject.Named;
@@ -83,6 +84,8 @@ import io.vertx.ext.web.client.WebClientOptions;
         })
 public abstract class NetworkModule {
 
+    public static final String CONNECTION_PRIORITY_QUOTAS = "CONNECTION_PRIORITY_QUOTAS";
+
     @Provides
     @Singleton
     static HttpServer provideHttpServer(
@@ -109,6 +112,32 @@ public abstract class NetworkModule {
         return Integer.parseInt(env.getEnv(Variables.TARGET_MAX_CONCURRENT_CONNECTIONS, "-1"));
     }
 
+    @Provides
+    @Named(CONNECTION_PRIORITY_QUOTAS)
+    static Map<ConnectionPriority, Integer> provideConnectionPriorityQuotas(Environment env) {
+        return Map.of(
+                ConnectionPriority.AUTOMATED_RULE,
+                Integer.parseInt(env.getEnv(Variables.TARGET_MAX_AUTOMATED_RULE_CONNECTIONS, "-1")),
+                ConnectionPriority.DISCOVERY,
+                Integer.parseInt(env.getEnv(Variables.TARGET_MAX_DISCOVERY_CONNECTIONS, "-1")));
+    }
+
+    @Provides
+    @Named(Variables.TARGET_CONNECTION_ADMISSION_TIMEOUT)
+    static Duration provideConnectionAdmissionTimeout(Environment env) {
+        return Duration.ofSeconds(
+                Math.max(
+                        1,
+                        Integer.parseInt(
+                                env.getEnv(Variables.TARGET_CONNECTION_ADMISSION_TIMEOUT, "30"))));
+    }
+
+    @Provides
+    @Named(Variables.TARGET_MAX_QUEUED_TASKS)
+    static int provideMaxQueuedTasks(Environment env) {
+        return Integer.parseInt(env.getEnv(Variables.TARGET_MAX_QUEUED_TASKS, "128"));
+    }
+
     @Provides
     @Named(Variables.TARGET_CACHE_TTL)
     static Duration provideMaxTargetTTL(Environment env) {
@@ -116,6 +145,27 @@ public abstract class NetworkModule {
                 Math.max(1, Integer.parseInt(env.getEnv(Variables.TARGET_CACHE_TTL, "10"))));
     }
 
+    @Provides
+    @Named(Variables.TARGET_CACHE_PREWARM)
+    static boolean providePrewarmTargetConnections(Environment env) {
+        return Boolean.parseBoolean(env.getEnv(Variables.TARGET_CACHE_PREWARM, "false"));
+    }
+
+    @Provides
+    @Named(Variables.TARGET_CACHE_SIZE)
+    static int provideMaxCachedTargetConnections(Environment env) {
+        return Math.max(1, Integer.parseInt(env.getEnv(Variables.TARGET_CACHE_SIZE, "64")));
+    }
+
+    @Provides
+    @Named(Variables.TARGET_CACHE_PROBE_PERIOD)
+    static Duration provideTargetConnectionProbePeriod(Environment env) {
+        return Duration.ofSeconds(
+                Math.max(
+                        1,
+                        Integer.parseInt(env.getEnv(Variables.TARGET_CACHE_PROBE_PERIOD, "30"))));
+    }
+
     @Provides
     @Singleton
     static AgentConnection.Factory provideAgentConnectionFactory(
@@ -141,18 +191,32 @@ public abstract class NetworkModule {
     static TargetConnectionManager provideTargetConnectionManager(
             Lazy<JFRConnectionToolkit> connectionToolkit,
             Lazy<AgentConnection.Factory> agentConnectionFactory,
+            Lazy<CredentialsManager> credentialsManager,
             DiscoveryStorage storage,
             @Named(Variables.TARGET_CACHE_TTL) Duration maxTargetTtl,
             @Named(Variables.TARGET_MAX_CONCURRENT_CONNECTIONS) int maxTargetConnections,
+            @Named(CONNECTION_PRIORITY_QUOTAS) Map<ConnectionPriority, Integer> priorityQuotas,
+            @Named(Variables.TARGET_CONNECTION_ADMISSION_TIMEOUT) Duration admissionTimeout,
+            @Named(Variables.TARGET_MAX_QUEUED_TASKS) int maxQueuedTasks,
+            @Named(Variables.TARGET_CACHE_PREWARM) boolean prewarm,
+            @Named(Variables.TARGET_CACHE_SIZE) int maxCachedConnections,
+            @Named(Variables.TARGET_CACHE_PROBE_PERIOD) Duration probePeriod,
             Logger logger) {
         return new TargetConnectionManager(
                 connectionToolkit,
                 agentConnectionFactory,
+                credentialsManager,
                 storage,
                 ForkJoinPool.commonPool(),
                 Scheduler.systemScheduler(),
                 maxTargetTtl,
                 maxTargetConnections,
+                priorityQuotas,
+                admissionTimeout,
+                maxQueuedTasks,
+                prewarm,
+                maxCachedConnections,
+                probePeriod,
                 logger);
     }
 
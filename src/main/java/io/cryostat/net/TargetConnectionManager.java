@@ -41,26 +41,32 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.management.remote.JMXServiceURL;
+import javax.script.ScriptException;
 
+import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
 import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.net.JFRConnectionToolkit;
 import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
 import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
 
 import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
@@ -81,33 +87,69 @@ public class TargetConnectionManager {
 
     private final Lazy<JFRConnectionToolkit> jfrConnectionToolkit;
     private final Lazy<AgentConnection.Factory> agentConnectionFactory;
+    private final Lazy<CredentialsManager> credentialsManager;
     private final Executor executor;
+    private final Scheduler scheduler;
     private final Logger logger;
 
     private final AsyncLoadingCache<ConnectionDescriptor, JFRConnection> connections;
-    private final Map<String, Object> targetLocks;
-    private final Optional<Semaphore> semaphore;
+    private final Map<String, Set<ConnectionDescriptor>> descriptorsByTarget;
+    private final Map<String, TargetTaskQueue> taskQueues;
+    private final ThreadLocal<Set<String>> activeTargets;
+    private final int maxQueuedTasks;
+    private final ConnectionAdmissionController admissionController;
+
+    private final boolean prewarm;
+    private final int maxCachedConnections;
+    private final Duration probePeriod;
+    private final LongAdder cacheHits;
+    private final LongAdder cacheMisses;
+    private final LongAdder prewarmedConnections;
+    private final LongAdder handshakes;
+    private final LongAdder handshakeNanos;
 
     TargetConnectionManager(
             Lazy<JFRConnectionToolkit> jfrConnectionToolkit,
             Lazy<AgentConnection.Factory> agentConnectionFactory,
+            Lazy<CredentialsManager> credentialsManager,
             PlatformClient platform,
             Executor executor,
             Scheduler scheduler,
             Duration ttl,
             int maxTargetConnections,
+            Map<ConnectionPriority, Integer> priorityQuotas,
+            Duration admissionTimeout,
+            int maxQueuedTasks,
+            boolean prewarm,
+            int maxCachedConnections,
+            Duration probePeriod,
             Logger logger) {
         this.jfrConnectionToolkit = jfrConnectionToolkit;
         this.agentConnectionFactory = agentConnectionFactory;
+        this.credentialsManager = credentialsManager;
         this.executor = executor;
+        this.scheduler = scheduler;
+        this.maxQueuedTasks = maxQueuedTasks;
+        this.prewarm = prewarm;
+        this.maxCachedConnections = maxCachedConnections;
+        this.probePeriod = probePeriod;
         this.logger = logger;
 
-        this.targetLocks = new ConcurrentHashMap<>();
-        if (maxTargetConnections > 0) {
-            this.semaphore = Optional.of(new Semaphore(maxTargetConnections, true));
-        } else {
-            this.semaphore = Optional.empty();
-        }
+        this.cacheHits = new LongAdder();
+        this.cacheMisses = new LongAdder();
+        this.prewarmedConnections = new LongAdder();
+        this.handshakes = new LongAdder();
+        this.handshakeNanos = new LongAdder();
+
+        this.descriptorsByTarget = new ConcurrentHashMap<>();
+        this.taskQueues = new ConcurrentHashMap<>();
+        this.activeTargets = ThreadLocal.withInitial(HashSet::new);
+        this.admissionController =
+                new ConnectionAdmissionController(
+                        maxTargetConnections,
+                        priorityQuotas,
+                        admissionTimeout,
+                        this::evictIdleConnection);
 
         Caffeine<ConnectionDescriptor, JFRConnection> cacheBuilder =
                 Caffeine.newBuilder()
@@ -117,6 +159,22 @@ public class TargetConnectionManager {
         if (ttl.isZero() || ttl.isNegative()) {
             throw new IllegalArgumentException(
                     "TTL must be a positive integer in seconds, was " + ttl.toSeconds());
+        } else if (prewarm) {
+            if (maxCachedConnections < 1) {
+                throw new IllegalArgumentException(
+                        "Connection cache size must be a positive integer, was "
+                                + maxCachedConnections);
+            }
+            if (probePeriod.isZero() || probePeriod.isNegative()) {
+                throw new IllegalArgumentException(
+                        "Probe period must be a positive integer in seconds, was "
+                                + probePeriod.toSeconds());
+            }
+            // rather than expiring idle connections after a flat TTL, keep connections open up to
+            // the configured budget and let Caffeine's size-based (W-TinyLFU) policy evict the
+            // least recently and least frequently used ones when it is exceeded. Dead connections
+            // are removed by the periodic liveness probe instead.
+            cacheBuilder = cacheBuilder.maximumSize(maxCachedConnections);
         } else {
             cacheBuilder = cacheBuilder.expireAfterAccess(ttl);
         }
@@ -128,44 +186,270 @@ public class TargetConnectionManager {
         // connection doesn't immediately report itself as closed
         platform.addTargetDiscoveryListener(
                 tde -> {
+                    if (prewarm && EventKind.FOUND.equals(tde.getEventKind())) {
+                        prewarmConnection(tde.getServiceRef());
+                    }
                     if (EventKind.LOST.equals(tde.getEventKind())) {
-                        for (ConnectionDescriptor cd : connections.asMap().keySet()) {
-                            if (Objects.equals(
-                                    cd.getTargetId(),
-                                    tde.getServiceRef().getServiceUri().toString())) {
-                                connections.synchronous().invalidate(cd);
-                            }
+                        Set<ConnectionDescriptor> descriptors =
+                                descriptorsByTarget.get(
+                                        tde.getServiceRef().getServiceUri().toString());
+                        if (descriptors != null) {
+                            connections.synchronous().invalidateAll(Set.copyOf(descriptors));
                         }
                     }
                 });
+
+        if (prewarm) {
+            scheduleLivenessProbe();
+        }
     }
 
+    /**
+     * Execute a task against the target's connection. Tasks for the same target are queued and
+     * executed one at a time in submission order, while tasks for different targets never contend
+     * with each other. No thread is held while a task waits for its turn. If the target already has
+     * {@code CRYOSTAT_TARGET_MAX_QUEUED_TASKS} tasks outstanding then the returned future fails
+     * immediately with a {@link TaskQueueFullException}. Tasks submitted from within a task already
+     * executing against the same target are run directly rather than queued behind it.
+     */
     public <T> CompletableFuture<T> executeConnectedTaskAsync(
             ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task) {
-        synchronized (
-                targetLocks.computeIfAbsent(
-                        connectionDescriptor.getTargetId(), k -> new Object())) {
-            return connections
-                    .get(connectionDescriptor)
+        if (isTaskActive(connectionDescriptor)) {
+            return getConnection(connectionDescriptor)
                     .thenApplyAsync(
-                            conn -> {
-                                try {
-                                    return task.execute(conn);
-                                } catch (Exception e) {
-                                    logger.error(e);
-                                    throw new CompletionException(e);
-                                }
-                            },
-                            executor);
+                            conn -> runTaskUnchecked(connectionDescriptor, task, conn), executor);
         }
+        return enqueue(connectionDescriptor)
+                .thenCompose(
+                        ticket ->
+                                getConnection(connectionDescriptor)
+                                        .thenApplyAsync(
+                                                conn ->
+                                                        runTaskUnchecked(
+                                                                connectionDescriptor, task, conn),
+                                                executor)
+                                        .whenComplete((v, t) -> ticket.release()));
     }
 
+    /**
+     * Execute a task against the target's connection on the calling thread, once all previously
+     * queued tasks for the same target have completed. Unlike {@link
+     * #executeConnectedTaskAsync(ConnectionDescriptor, ConnectedTask)}, the calling thread is
+     * blocked while the task waits for its turn, so this should not be used from threads which
+     * must not block or where many tasks may queue up against a slow target.
+     */
     public <T> T executeConnectedTask(
             ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task) throws Exception {
-        synchronized (
-                targetLocks.computeIfAbsent(
-                        connectionDescriptor.getTargetId(), k -> new Object())) {
-            return task.execute(connections.get(connectionDescriptor).get());
+        if (isTaskActive(connectionDescriptor)) {
+            return runTask(connectionDescriptor, task, getConnection(connectionDescriptor).get());
+        }
+        CompletableFuture<TargetTaskQueue.Ticket> turn = enqueue(connectionDescriptor);
+        TargetTaskQueue.Ticket ticket;
+        try {
+            ticket = turn.get();
+        } catch (InterruptedException ie) {
+            // we're giving up our place in line, so hand it on as soon as it would have been ours
+            turn.thenAccept(TargetTaskQueue.Ticket::release);
+            throw ie;
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof Exception) {
+                throw (Exception) ee.getCause();
+            }
+            throw ee;
+        }
+        try {
+            return runTask(connectionDescriptor, task, getConnection(connectionDescriptor).get());
+        } finally {
+            ticket.release();
+        }
+    }
+
+    /**
+     * @return the number of tasks currently queued or executing against the specified target
+     */
+    public int getQueuedTaskCount(String targetId) {
+        TargetTaskQueue queue = taskQueues.get(targetId);
+        return queue == null ? 0 : queue.getDepth();
+    }
+
+    /**
+     * @return counters describing how effective the connection cache has been at sparing callers
+     *     from opening new connections, and how long opening a new connection takes on average
+     */
+    public ConnectionCacheStats getConnectionCacheStats() {
+        long count = handshakes.sum();
+        return new ConnectionCacheStats(
+                cacheHits.sum(),
+                cacheMisses.sum(),
+                prewarmedConnections.sum(),
+                count,
+                count == 0 ? Duration.ZERO : Duration.ofNanos(handshakeNanos.sum() / count));
+    }
+
+    private CompletableFuture<JFRConnection> getConnection(
+            ConnectionDescriptor connectionDescriptor) {
+        CompletableFuture<JFRConnection> cached = connections.getIfPresent(connectionDescriptor);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        return connections.get(connectionDescriptor);
+    }
+
+    private void prewarmConnection(ServiceRef serviceRef) {
+        if (connections.synchronous().estimatedSize() >= maxCachedConnections) {
+            return;
+        }
+        if (!admissionController.hasCapacity(ConnectionPriority.DISCOVERY)) {
+            // don't let speculative connections take slots away from real requests
+            return;
+        }
+        executor.execute(
+                () -> {
+                    ConnectionDescriptor cd;
+                    try {
+                        cd =
+                                new ConnectionDescriptor(
+                                        serviceRef,
+                                        credentialsManager.get().getCredentials(serviceRef),
+                                        ConnectionPriority.DISCOVERY);
+                    } catch (ScriptException e) {
+                        logger.warn(e);
+                        return;
+                    }
+                    if (connections.getIfPresent(cd) != null) {
+                        return;
+                    }
+                    logger.trace("Pre-warming connection for {}", cd.getTargetId());
+                    connections
+                            .get(cd)
+                            .whenComplete(
+                                    (conn, t) -> {
+                                        if (t == null) {
+                                            prewarmedConnections.increment();
+                                        } else {
+                                            logger.warn(
+                                                    "Could not pre-warm connection for {}: {}",
+                                                    cd.getTargetId(),
+                                                    t.getMessage());
+                                        }
+                                    });
+                });
+    }
+
+    private void scheduleLivenessProbe() {
+        scheduler.schedule(
+                executor,
+                () -> {
+                    try {
+                        probeConnections();
+                    } catch (Exception e) {
+                        logger.error(e);
+                    } finally {
+                        scheduleLivenessProbe();
+                    }
+                },
+                probePeriod.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void probeConnections() {
+        for (Map.Entry<ConnectionDescriptor, CompletableFuture<JFRConnection>> entry :
+                connections.asMap().entrySet()) {
+            CompletableFuture<JFRConnection> future = entry.getValue();
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                continue;
+            }
+            if (!future.join().isConnected()) {
+                logger.info("Liveness probe failed for {}", entry.getKey().getTargetId());
+                connections.synchronous().invalidate(entry.getKey());
+            }
+        }
+        logger.debug("Connection cache: {}", getConnectionCacheStats());
+    }
+
+    private void indexDescriptor(ConnectionDescriptor descriptor) {
+        descriptorsByTarget.compute(
+                descriptor.getTargetId(),
+                (k, descriptors) -> {
+                    if (descriptors == null) {
+                        descriptors = ConcurrentHashMap.newKeySet();
+                    }
+                    descriptors.add(descriptor);
+                    return descriptors;
+                });
+    }
+
+    private void unindexDescriptor(ConnectionDescriptor descriptor) {
+        descriptorsByTarget.computeIfPresent(
+                descriptor.getTargetId(),
+                (k, descriptors) -> {
+                    // a new connection for an equal descriptor may already have replaced the one
+                    // being removed, in which case it must remain indexed
+                    if (!connections.asMap().containsKey(descriptor)) {
+                        descriptors.remove(descriptor);
+                    }
+                    return descriptors.isEmpty() ? null : descriptors;
+                });
+    }
+
+    private void evictIdleConnection(ConnectionPriority priority) {
+        admissionController
+                .findEvictionCandidate(priority, cd -> getQueuedTaskCount(cd.getTargetId()) == 0)
+                .ifPresent(
+                        cd -> {
+                            logger.info(
+                                    "Closing idle {} connection for {} to admit {} request",
+                                    cd.getPriority(),
+                                    cd.getTargetId(),
+                                    priority);
+                            connections.synchronous().invalidate(cd);
+                        });
+    }
+
+    // the queue is looked up and the task enqueued atomically with respect to closeConnection
+    // discarding idle queues, so that a task can never be enqueued onto a discarded queue while a
+    // replacement queue admits other tasks for the same target
+    private CompletableFuture<TargetTaskQueue.Ticket> enqueue(
+            ConnectionDescriptor connectionDescriptor) {
+        AtomicReference<CompletableFuture<TargetTaskQueue.Ticket>> turn = new AtomicReference<>();
+        taskQueues.compute(
+                connectionDescriptor.getTargetId(),
+                (k, queue) -> {
+                    if (queue == null) {
+                        queue = new TargetTaskQueue(k, maxQueuedTasks);
+                    }
+                    turn.set(queue.enqueue());
+                    return queue;
+                });
+        return turn.get();
+    }
+
+    private boolean isTaskActive(ConnectionDescriptor connectionDescriptor) {
+        return activeTargets.get().contains(connectionDescriptor.getTargetId());
+    }
+
+    private <T> T runTask(
+            ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task, JFRConnection conn)
+            throws Exception {
+        boolean nested = !activeTargets.get().add(connectionDescriptor.getTargetId());
+        try {
+            return task.execute(conn);
+        } finally {
+            if (!nested) {
+                activeTargets.get().remove(connectionDescriptor.getTargetId());
+            }
+        }
+    }
+
+    private <T> T runTaskUnchecked(
+            ConnectionDescriptor connectionDescriptor, ConnectedTask<T> task, JFRConnection conn) {
+        try {
+            return runTask(connectionDescriptor, task, conn);
+        } catch (Exception e) {
+            logger.error(e);
+            throw new CompletionException(e);
         }
     }
 
@@ -196,6 +480,7 @@ public class TargetConnectionManager {
             logger.error("Connection eviction triggered with null connection");
             return;
         }
+        unindexDescriptor(descriptor);
         try {
             JMXConnectionClosed evt =
                     new JMXConnectionClosed(descriptor.getTargetId(), cause.name());
@@ -203,7 +488,8 @@ public class TargetConnectionManager {
             evt.begin();
             try {
                 connection.close();
-                targetLocks.remove(descriptor.getTargetId());
+                taskQueues.computeIfPresent(
+                        descriptor.getTargetId(), (k, q) -> q.isIdle() ? null : q);
             } catch (RuntimeException e) {
                 evt.setExceptionThrown(true);
                 throw e;
@@ -216,10 +502,7 @@ public class TargetConnectionManager {
         } catch (Exception e) {
             logger.error(e);
         } finally {
-            if (semaphore.isPresent()) {
-                semaphore.get().release();
-                logger.trace("Semaphore released! Permits: {}", semaphore.get().availablePermits());
-            }
+            admissionController.release(descriptor);
         }
     }
 
@@ -269,10 +552,13 @@ public class TargetConnectionManager {
         JMXConnectionOpened evt = new JMXConnectionOpened(url.toString());
         logger.info("Creating connection for {}", url);
         evt.begin();
+        boolean admitted = false;
+        long start = 0;
         try {
-            if (semaphore.isPresent()) {
-                semaphore.get().acquire();
-            }
+            admissionController.acquire(cacheKey);
+            admitted = true;
+            // only the handshake itself is measured, not the wait for admission
+            start = System.nanoTime();
             return jfrConnectionToolkit
                     .get()
                     .connect(
@@ -285,11 +571,15 @@ public class TargetConnectionManager {
                                     }));
         } catch (Exception e) {
             evt.setExceptionThrown(true);
-            if (semaphore.isPresent()) {
-                semaphore.get().release();
+            if (admitted) {
+                admissionController.release(cacheKey);
             }
             throw e;
         } finally {
+            if (admitted) {
+                handshakes.increment();
+                handshakeNanos.add(System.nanoTime() - start);
+            }
             evt.end();
             if (evt.shouldCommit()) {
                 evt.commit();
@@ -306,7 +596,9 @@ public class TargetConnectionManager {
             return CompletableFuture.supplyAsync(
                     () -> {
                         try {
-                            return connect(key);
+                            JFRConnection connection = connect(key);
+                            indexDescriptor(key);
+                            return connection;
                         } catch (Exception e) {
                             throw new CompletionException(e);
                         }
@@ -329,6 +621,13 @@ public class TargetConnectionManager {
         T execute(JFRConnection connection) throws Exception;
     }
 
+    public static record ConnectionCacheStats(
+            long hits,
+            long misses,
+            long prewarmed,
+            long handshakes,
+            Duration averageHandshakeTime) {}
+
     @Name("io.cryostat.net.TargetConnectionManager.JMXConnectionOpened")
     @Label("JMX Connection Status")
     @Category("Cryostat")
@@ -0,0 +1,147 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Serializes work against a single target without holding any lock or thread while waiting. Each
+ * call to {@link #enqueue()} returns a future {@link Ticket} which completes once every previously
+ * issued ticket has been released, so callers are granted access to the target strictly in FIFO
+ * order. The number of outstanding tickets is bounded, and requests beyond that bound fail fast
+ * with a {@link TaskQueueFullException}.
+ */
+class TargetTaskQueue {
+
+    private final String targetId;
+    private final int maxDepth;
+    private final AtomicInteger depth;
+    private CompletableFuture<Void> tail;
+
+    TargetTaskQueue(String targetId, int maxDepth) {
+        this.targetId = targetId;
+        this.maxDepth = maxDepth;
+        this.depth = new AtomicInteger();
+        this.tail = CompletableFuture.completedFuture(null);
+    }
+
+    CompletableFuture<Ticket> enqueue() {
+        int queued = depth.incrementAndGet();
+        ConnectedTaskQueued evt = new ConnectedTaskQueued(targetId, queued);
+        evt.begin();
+        if (maxDepth > 0 && queued > maxDepth) {
+            depth.decrementAndGet();
+            evt.setRejected(true);
+            commit(evt);
+            return CompletableFuture.failedFuture(new TaskQueueFullException(targetId, maxDepth));
+        }
+        CompletableFuture<Void> prev;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        synchronized (this) {
+            prev = tail;
+            tail = done;
+        }
+        return prev.thenApply(
+                v -> {
+                    commit(evt);
+                    return new Ticket(done);
+                });
+    }
+
+    int getDepth() {
+        return depth.get();
+    }
+
+    boolean isIdle() {
+        return depth.get() == 0;
+    }
+
+    private static void commit(ConnectedTaskQueued evt) {
+        evt.end();
+        if (evt.shouldCommit()) {
+            evt.commit();
+        }
+    }
+
+    class Ticket {
+        private final CompletableFuture<Void> done;
+        private final AtomicBoolean released;
+
+        private Ticket(CompletableFuture<Void> done) {
+            this.done = done;
+            this.released = new AtomicBoolean();
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                depth.decrementAndGet();
+                done.complete(null);
+            }
+        }
+    }
+
+    @Name("io.cryostat.net.TargetConnectionManager.ConnectedTaskQueued")
+    @Label("Connected Task Queue Wait")
+    @Category("Cryostat")
+    @SuppressFBWarnings(
+            value = "URF_UNREAD_FIELD",
+            justification = "The event fields are recorded with JFR instead of accessed directly")
+    public static class ConnectedTaskQueued extends Event {
+        String serviceUri;
+        int queueDepth;
+        boolean rejected;
+
+        ConnectedTaskQueued(String serviceUri, int queueDepth) {
+            this.serviceUri = serviceUri;
+            this.queueDepth = queueDepth;
+            this.rejected = false;
+        }
+
+        void setRejected(boolean rejected) {
+            this.rejected = rejected;
+        }
+    }
+}
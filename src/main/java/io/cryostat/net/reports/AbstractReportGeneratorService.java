@@ -45,6 +45,7 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
 
@@ -58,6 +59,7 @@ import io.cryostat.recordings.RecordingNotFoundException;
 abstract class AbstractReportGeneratorService implements ReportGeneratorService {
 
     static final int READ_BUFFER_SIZE = 64 * 1024; // 64 KB
+    static final long MARK_IN_USE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
 
     protected final TargetConnectionManager targetConnectionManager;
     protected final FileSystem fs;
@@ -74,57 +76,138 @@ abstract class AbstractReportGeneratorService implements ReportGeneratorService
     public final CompletableFuture<Path> exec(
             RecordingDescriptor recordingDescriptor, String filter, boolean formatted)
             throws Exception {
-        Path recording =
-                getRecordingFromLiveTarget(
-                        recordingDescriptor.recordingName,
-                        recordingDescriptor.connectionDescriptor);
-        Path saveFile = fs.createTempFile(null, null);
+        return exec(recordingDescriptor, null, fs.createTempFile(null, null), filter, formatted);
+    }
 
+    // generators which can only read a recording from a file stage it in one first
+    @Override
+    public CompletableFuture<Path> exec(
+            RecordingDescriptor recordingDescriptor,
+            Path copy,
+            Path saveFile,
+            String filter,
+            boolean formatted)
+            throws Exception {
+        Path recording = copy != null ? copy : fs.createTempFile(null, null);
+        try (OutputStream out =
+                new BufferedOutputStream(new FileOutputStream(recording.toFile()))) {
+            streamRecording(recordingDescriptor, out, null);
+        } catch (Exception e) {
+            if (copy == null) {
+                deleteQuietly(recording);
+            }
+            throw e;
+        }
         CompletableFuture<Path> cf = exec(recording, saveFile, filter, formatted);
-        return cf.whenComplete(
-                (p, t) -> {
-                    try {
-                        fs.deleteIfExists(recording);
-                    } catch (IOException e) {
-                        logger.warn(e);
-                    }
-                });
+        if (copy != null) {
+            return cf;
+        }
+        return cf.whenComplete((p, t) -> deleteQuietly(recording));
     }
 
-    Path getRecordingFromLiveTarget(String recordingName, ConnectionDescriptor cd)
+    // generators which can only read a recording from a file stage it in a temporary one first
+    @Override
+    public CompletableFuture<Path> exec(
+            String recordingName,
+            RecordingSource recording,
+            Path saveFile,
+            String filter,
+            boolean formatted)
             throws Exception {
-        return this.targetConnectionManager.executeConnectedTask(
-                cd,
-                conn ->
-                        copyRecordingToFile(
-                                conn, cd, recordingName, fs.createTempFile(null, null)));
+        Path staged = fs.createTempFile(null, null);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(staged.toFile()))) {
+            recording.writeTo(out);
+        } catch (Exception e) {
+            deleteQuietly(staged);
+            throw e;
+        }
+        return exec(staged, saveFile, filter, formatted)
+                .whenComplete((p, t) -> deleteQuietly(staged));
     }
 
-    Path copyRecordingToFile(
-            JFRConnection conn, ConnectionDescriptor cd, String recordingName, Path path)
+    /**
+     * Reads the recording from its target into {@code out}, and also into {@code copy} if it is
+     * not null, so that a consumer of the stream does not have to wait for the whole recording to
+     * be written to and read back from a file. The recording is only looked up on the target if the
+     * caller has not already resolved it.
+     */
+    void streamRecording(RecordingDescriptor recordingDescriptor, OutputStream out, Path copy)
             throws Exception {
-        for (IRecordingDescriptor rec : conn.getService().getAvailableRecordings()) {
-            if (!Objects.equals(rec.getName(), recordingName)) {
-                continue;
-            }
-            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path.toFile()))) {
-                try (conn;
-                        InputStream in = conn.getService().openStream(rec, false)) {
-                    byte[] buff = new byte[READ_BUFFER_SIZE];
-                    int n = 0;
-                    while ((n = in.read(buff)) != -1) {
-                        out.write(buff, 0, n);
-                        if (!targetConnectionManager.markConnectionInUse(cd)) {
-                            throw new IOException(
-                                    "Target connection unexpectedly closed while streaming"
-                                            + " recording");
-                        }
+        ConnectionDescriptor cd = recordingDescriptor.connectionDescriptor;
+        String recordingName = recordingDescriptor.recordingName;
+        this.targetConnectionManager.executeConnectedTask(
+                cd,
+                conn -> {
+                    IRecordingDescriptor rec = recordingDescriptor.resolved;
+                    if (rec == null) {
+                        rec = findRecording(conn, cd, recordingName);
                     }
-                    out.flush();
-                    return path;
+                    try (conn;
+                            InputStream in = conn.getService().openStream(rec, false);
+                            OutputStream tee =
+                                    copy == null
+                                            ? OutputStream.nullOutputStream()
+                                            : new BufferedOutputStream(
+                                                    new FileOutputStream(copy.toFile()))) {
+                        transfer(cd, in, out, tee);
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Looks the recording up on its target if the caller has not already done so, so that a
+     * generator can fail on a recording which does not exist before it starts any work for it.
+     */
+    RecordingDescriptor resolve(RecordingDescriptor recordingDescriptor) throws Exception {
+        if (recordingDescriptor.resolved != null) {
+            return recordingDescriptor;
+        }
+        ConnectionDescriptor cd = recordingDescriptor.connectionDescriptor;
+        String recordingName = recordingDescriptor.recordingName;
+        IRecordingDescriptor rec =
+                this.targetConnectionManager.executeConnectedTask(
+                        cd, conn -> findRecording(conn, cd, recordingName));
+        return new RecordingDescriptor(cd, recordingName, rec);
+    }
+
+    private static IRecordingDescriptor findRecording(
+            JFRConnection conn, ConnectionDescriptor cd, String recordingName) throws Exception {
+        return conn.getService().getAvailableRecordings().stream()
+                .filter(r -> Objects.equals(r.getName(), recordingName))
+                .findFirst()
+                .orElseThrow(() -> new RecordingNotFoundException(cd.getTargetId(), recordingName));
+    }
+
+    private void transfer(
+            ConnectionDescriptor cd, InputStream in, OutputStream out, OutputStream tee)
+            throws IOException {
+        byte[] buff = new byte[READ_BUFFER_SIZE];
+        long lastMarked = System.nanoTime();
+        int n;
+        while ((n = in.read(buff)) != -1) {
+            out.write(buff, 0, n);
+            tee.write(buff, 0, n);
+            // keeping the connection alive only needs to happen well within its idle timeout, not
+            // once per chunk
+            long now = System.nanoTime();
+            if (now - lastMarked >= MARK_IN_USE_INTERVAL_NANOS) {
+                if (!targetConnectionManager.markConnectionInUse(cd)) {
+                    throw new IOException(
+                            "Target connection unexpectedly closed while streaming recording");
                 }
+                lastMarked = now;
             }
         }
-        throw new RecordingNotFoundException(cd.getTargetId(), recordingName);
+        out.flush();
+        tee.flush();
+    }
+
+    protected void deleteQuietly(Path path) {
+        try {
+            fs.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn(e);
+        }
     }
 }
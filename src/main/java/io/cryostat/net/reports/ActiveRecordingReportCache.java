@@ -37,19 +37,29 @@
  */
 package io.cryostat.net.reports;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.openjdk.jmc.common.unit.IQuantity;
+import org.openjdk.jmc.common.unit.UnitLookup;
 import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
+import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor.RecordingState;
 
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.sys.FileSystem;
@@ -60,172 +70,479 @@ import io.cryostat.net.ConnectionDescriptor;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.recordings.RecordingTargetHelper;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.Scheduler;
 
 class ActiveRecordingReportCache implements NotificationListener<Map<String, Object>> {
     protected final Provider<ReportGeneratorService> reportGeneratorServiceProvider;
     protected final FileSystem fs;
-    protected final LoadingCache<RecordingDescriptor, String> htmlCache;
-    protected final LoadingCache<RecordingDescriptor, String> jsonCache;
+    protected final ReportFiles reportFiles;
+    protected final LoadingCache<ReportKey, ActiveReport> cache;
     protected final TargetConnectionManager targetConnectionManager;
     protected final long generationTimeoutSeconds;
     protected final long cacheExpirySeconds;
     protected final long cacheRefreshSeconds;
+    protected final long cacheMaxSizeBytes;
 
     protected final Logger logger;
 
     protected static final String EMPTY_FILTERS = "";
+    private static final int MAX_LEASE_ATTEMPTS = 3;
+    // HTML reports are rendered on demand and have always been refreshed less often than the rule
+    // evaluations, so a refresh keeps an HTML report rendered within this long
+    private static final long HTML_REFRESH_NANOS = TimeUnit.MINUTES.toNanos(5);
+    // marks the HTML report of an entry which has been removed from the cache
+    private static final CompletableFuture<Html> DISCARDED =
+            CompletableFuture.failedFuture(new IOException("Report was evicted"));
 
     ActiveRecordingReportCache(
             Provider<ReportGeneratorService> reportGeneratorServiceProvider,
             FileSystem fs,
+            ReportFiles reportFiles,
             TargetConnectionManager targetConnectionManager,
             @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             @Named(ReportsModule.ACTIVE_REPORT_CACHE_EXPIRY_SECONDS) long cacheExpirySeconds,
             @Named(ReportsModule.ACTIVE_REPORT_CACHE_REFRESH_SECONDS) long cacheRefreshSeconds,
+            @Named(ReportsModule.ACTIVE_REPORT_CACHE_MAX_SIZE_BYTES) long cacheMaxSizeBytes,
             Logger logger) {
         this.reportGeneratorServiceProvider = reportGeneratorServiceProvider;
         this.fs = fs;
+        this.reportFiles = reportFiles;
         this.targetConnectionManager = targetConnectionManager;
         this.generationTimeoutSeconds = generationTimeoutSeconds;
         this.cacheExpirySeconds = cacheExpirySeconds;
         this.cacheRefreshSeconds = cacheRefreshSeconds;
+        this.cacheMaxSizeBytes = cacheMaxSizeBytes;
         this.logger = logger;
-        this.htmlCache =
-                Caffeine.newBuilder()
-                        .scheduler(Scheduler.systemScheduler())
-                        .expireAfterWrite(30, TimeUnit.MINUTES)
-                        .refreshAfterWrite(5, TimeUnit.MINUTES)
-                        .softValues()
-                        .build((k) -> getReport(k, true));
-        this.jsonCache =
+        // generated reports are kept as files and weighed by their size on disk, rather than held
+        // on the heap as soft values which are evicted unpredictably under GC pressure. An entry
+        // weighs its copy of the recording along with its reports
+        ReportLoader loader = new ReportLoader();
+        this.cache =
                 Caffeine.newBuilder()
                         .scheduler(Scheduler.systemScheduler())
                         .expireAfterWrite(cacheExpirySeconds, TimeUnit.SECONDS)
                         .refreshAfterWrite(cacheRefreshSeconds, TimeUnit.SECONDS)
-                        .softValues()
-                        .build((k) -> getReport(k, false));
+                        .maximumWeight(cacheMaxSizeBytes)
+                        .weigher((ReportKey k, ActiveReport v) -> weigh(v))
+                        .removalListener(loader::onRemoval)
+                        .build(loader);
+        loader.cache = this.cache;
     }
 
-    Future<String> get(
+    Future<Path> get(
             ConnectionDescriptor connectionDescriptor,
             String recordingName,
             String filter,
             boolean formatted) {
-        CompletableFuture<String> f = new CompletableFuture<>();
+        CompletableFuture<Path> f = new CompletableFuture<>();
         try {
-            if (formatted) {
-                if (filter.isBlank()) {
-                    f.complete(
-                            htmlCache.get(
-                                    new RecordingDescriptor(connectionDescriptor, recordingName)));
-                } else {
-                    f.complete(
-                            getReport(
-                                    new RecordingDescriptor(connectionDescriptor, recordingName),
-                                    filter,
-                                    true));
-                }
-            } else {
-                if (filter.isBlank()) {
-                    f.complete(
-                            jsonCache.get(
-                                    new RecordingDescriptor(connectionDescriptor, recordingName)));
-                } else {
-                    f.complete(
-                            getReport(
-                                    new RecordingDescriptor(connectionDescriptor, recordingName),
-                                    filter,
-                                    false));
-                }
-            }
-
+            ReportKey key =
+                    new ReportKey(
+                            new RecordingDescriptor(connectionDescriptor, recordingName),
+                            filter.isBlank() ? EMPTY_FILTERS : filter);
+            f.complete(lease(key, formatted));
         } catch (Exception e) {
             f.completeExceptionally(e);
         }
         return f;
     }
 
-    boolean delete(
-            ConnectionDescriptor connectionDescriptor, String recordingName, boolean formatted) {
-        RecordingDescriptor key = new RecordingDescriptor(connectionDescriptor, recordingName);
-        boolean hasKey =
-                formatted ? htmlCache.asMap().containsKey(key) : jsonCache.asMap().containsKey(key);
+    boolean delete(ConnectionDescriptor connectionDescriptor, String recordingName) {
+        RecordingDescriptor recording =
+                new RecordingDescriptor(connectionDescriptor, recordingName);
+        // invalidates the unfiltered report along with any filtered reports of the recording
+        boolean hasKey = cache.asMap().keySet().removeIf(k -> k.recording().equals(recording));
         if (hasKey) {
             logger.trace("Invalidated active report cache for {}", recordingName);
-            if (formatted) {
-                htmlCache.invalidate(key);
-            } else {
-                jsonCache.invalidate(key);
-            }
         } else {
             logger.trace("No cache entry for {} to invalidate", recordingName);
         }
         return hasKey;
     }
 
-    protected String getReport(RecordingDescriptor recordingDescriptor, boolean formatted)
+    // the report is leased to the caller, so that its file outlives an eviction until it has been
+    // sent. An entry evicted between the lookup and the lease is looked up again
+    private Path lease(ReportKey key, boolean formatted) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            Path report = formatted ? getHtml(key) : cache.get(key).json;
+            if (report != null && reportFiles.lease(report)) {
+                return report;
+            }
+            if (attempt >= MAX_LEASE_ATTEMPTS) {
+                throw new IOException(
+                        "Report for " + key.recording().recordingName + " was evicted before use");
+            }
+        }
+    }
+
+    // the HTML report is rendered from the entry's copy of the recording the first time it is
+    // requested, so clients which only ask for rule evaluations never pay for rendering it.
+    // Concurrent requests wait for the same rendering. Returns null if the entry was evicted or
+    // refreshed since it was looked up, as its copy of the recording is then gone
+    private Path getHtml(ReportKey key) throws Exception {
+        ActiveReport report = cache.get(key);
+        CompletableFuture<Html> rendering = new CompletableFuture<>();
+        CompletableFuture<Html> html = report.html.compareAndExchange(null, rendering);
+        if (html == null) {
+            html = rendering;
+            render(key, report, rendering);
+        }
+        if (html == DISCARDED) {
+            return null;
+        }
+        try {
+            return html.get(generationTimeoutSeconds, TimeUnit.SECONDS).report();
+        } catch (ExecutionException e) {
+            if (report.html.get() == DISCARDED) {
+                return null;
+            }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private void render(ReportKey key, ActiveReport report, CompletableFuture<Html> rendering) {
+        try {
+            Path html =
+                    generate(
+                            key.recording(),
+                            (generator, saveFile) ->
+                                    generator.exec(
+                                            report.recording, saveFile, key.filter(), true));
+            rendering.complete(new Html(html, System.nanoTime()));
+            // entries are weighed when they are written, so the entry is written again to count
+            // its HTML report. This does nothing if the entry has been removed meanwhile
+            cache.asMap().replace(key, report, report);
+        } catch (Exception e) {
+            // a later request renders it again
+            report.html.compareAndSet(rendering, null);
+            rendering.completeExceptionally(e);
+        }
+    }
+
+    protected ActiveReport getReport(
+            RecordingDescriptor recordingDescriptor, IRecordingDescriptor resolved, String filter)
             throws Exception {
-        return getReport(recordingDescriptor, EMPTY_FILTERS, formatted);
+        logger.trace("Active report cache miss for {}", recordingDescriptor.recordingName);
+        // the recording is copied to the entry's file while the generator reads it from the target
+        Path recording = fs.createTempFile(null, null);
+        try {
+            return new ActiveReport(
+                    recording,
+                    generate(
+                            recordingDescriptor,
+                            (generator, saveFile) ->
+                                    generator.exec(
+                                            new RecordingDescriptor(
+                                                    recordingDescriptor.connectionDescriptor,
+                                                    recordingDescriptor.recordingName,
+                                                    resolved),
+                                            recording,
+                                            saveFile,
+                                            filter,
+                                            false)));
+        } catch (Exception e) {
+            deleteQuietly(recording);
+            throw e;
+        }
     }
 
-    protected String getReport(
-            RecordingDescriptor recordingDescriptor, String filter, boolean formatted)
+    private Path generate(RecordingDescriptor recordingDescriptor, Generation generation)
             throws Exception {
-        Path saveFile = null;
+        Path saveFile = fs.createTempFile(null, null);
         try {
-            /* NOTE: Not always a cache miss since if a filter is specified or we want a JSON response, we do not even check the cache */
-            logger.trace("Active report cache miss for {}", recordingDescriptor.recordingName);
-            try {
-                saveFile =
-                        reportGeneratorServiceProvider
-                                .get()
-                                .exec(recordingDescriptor, filter, formatted)
-                                .get(generationTimeoutSeconds, TimeUnit.SECONDS);
-                return fs.readString(saveFile);
-            } catch (ExecutionException | CompletionException e) {
-                logger.error(e);
-
-                delete(
-                        recordingDescriptor.connectionDescriptor,
-                        recordingDescriptor.recordingName,
-                        formatted);
-
-                if (e.getCause()
-                        instanceof SubprocessReportGenerator.SubprocessReportGenerationException) {
-                    SubprocessReportGenerator.SubprocessReportGenerationException
-                            generationException =
-                                    (SubprocessReportGenerator.SubprocessReportGenerationException)
-                                            e.getCause();
-
-                    SubprocessReportGenerator.ExitStatus status = generationException.getStatus();
-                    if (status == SubprocessReportGenerator.ExitStatus.OUT_OF_MEMORY) {
-                        // subprocess OOM'd and therefore most likely did not properly clean up
-                        // the cloned recording stream before exiting, so we do it here
-                        String cloneName = "Clone of " + recordingDescriptor.recordingName;
-                        targetConnectionManager.executeConnectedTask(
-                                recordingDescriptor.connectionDescriptor,
-                                conn -> {
-                                    Optional<IRecordingDescriptor> clone =
-                                            conn.getService().getAvailableRecordings().stream()
-                                                    .filter(r -> r.getName().equals(cloneName))
-                                                    .findFirst();
-                                    if (clone.isPresent()) {
-                                        conn.getService().close(clone.get());
-                                        logger.trace("Cleaned dangling recording {}", cloneName);
-                                    }
-                                    return null;
-                                });
-                    }
+            Path report =
+                    generation
+                            .start(reportGeneratorServiceProvider.get(), saveFile)
+                            .get(generationTimeoutSeconds, TimeUnit.SECONDS);
+            reportFiles.add(report);
+            return report;
+        } catch (ExecutionException | CompletionException e) {
+            logger.error(e);
+            deleteQuietly(saveFile);
+
+            if (e.getCause()
+                    instanceof SubprocessReportGenerator.SubprocessReportGenerationException) {
+                SubprocessReportGenerator.SubprocessReportGenerationException generationException =
+                        (SubprocessReportGenerator.SubprocessReportGenerationException)
+                                e.getCause();
+
+                SubprocessReportGenerator.ExitStatus status = generationException.getStatus();
+                if (status == SubprocessReportGenerator.ExitStatus.OUT_OF_MEMORY) {
+                    // subprocess OOM'd and therefore most likely did not properly clean up
+                    // the cloned recording stream before exiting, so we do it here
+                    String cloneName = "Clone of " + recordingDescriptor.recordingName;
+                    targetConnectionManager.executeConnectedTask(
+                            recordingDescriptor.connectionDescriptor,
+                            conn -> {
+                                Optional<IRecordingDescriptor> clone =
+                                        conn.getService().getAvailableRecordings().stream()
+                                                .filter(r -> r.getName().equals(cloneName))
+                                                .findFirst();
+                                if (clone.isPresent()) {
+                                    conn.getService().close(clone.get());
+                                    logger.trace("Cleaned dangling recording {}", cloneName);
+                                }
+                                return null;
+                            });
                 }
-                throw e;
             }
-        } finally {
-            if (saveFile != null) {
-                fs.deleteIfExists(saveFile);
+            throw e;
+        } catch (Exception e) {
+            deleteQuietly(saveFile);
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Generation {
+        CompletableFuture<Path> start(ReportGeneratorService generator, Path saveFile)
+                throws Exception;
+    }
+
+    private int weigh(ActiveReport report) {
+        long size = reportFiles.size(report.recording) + reportFiles.size(report.json);
+        Html html = rendered(report.html.get());
+        if (html != null) {
+            size += reportFiles.size(html.report());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static Html rendered(CompletableFuture<Html> html) {
+        if (html == null || !html.isDone() || html.isCompletedExceptionally()) {
+            return null;
+        }
+        return html.join();
+    }
+
+    // a recently rendered HTML report is handed over from the previous entry to the entry which
+    // replaces it, so that it is kept, and not deleted, when the previous entry is removed
+    private static CompletableFuture<Html> takeRecentHtml(ActiveReport previous) {
+        CompletableFuture<Html> html = previous.html.get();
+        Html rendered = rendered(html);
+        if (rendered == null || System.nanoTime() - rendered.renderedNanos() > HTML_REFRESH_NANOS) {
+            return null;
+        }
+        return previous.html.compareAndSet(html, null) ? html : null;
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            fs.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn(e);
+        }
+    }
+
+    protected IRecordingDescriptor lookup(RecordingDescriptor recordingDescriptor) {
+        String recordingName = recordingDescriptor.recordingName;
+        try {
+            return targetConnectionManager.executeConnectedTask(
+                    recordingDescriptor.connectionDescriptor,
+                    conn ->
+                            conn.getService().getAvailableRecordings().stream()
+                                    .filter(r -> r.getName().equals(recordingName))
+                                    .findFirst()
+                                    .orElse(null));
+        } catch (Exception e) {
+            logger.warn(e);
+            return null;
+        }
+    }
+
+    /**
+     * Extend a copy of the previous recording with the chunks the target has completed since, then
+     * analyze the extended copy. Only the new chunks are read from the target, selected by their
+     * start times so that a chunk already in the previous copy is never duplicated.
+     *
+     * @return the updated report, the previous report if the target has no new chunks, or null if
+     *     the previous copy cannot be extended and the recording must be copied in full
+     */
+    private ActiveReport update(
+            ReportKey key, ActiveReport previous, IRecordingDescriptor descriptor)
+            throws Exception {
+        Optional<RecordingChunks.Header> last;
+        try (InputStream in = fs.newInputStream(previous.recording)) {
+            last = RecordingChunks.last(in);
+        }
+        if (last.isEmpty()) {
+            return null;
+        }
+        IQuantity start = UnitLookup.EPOCH_NS.quantity(last.get().endNanos());
+        IQuantity end = UnitLookup.EPOCH_MS.quantity(System.currentTimeMillis());
+        Path recording = fs.createTempFile(null, null);
+        try {
+            boolean updated =
+                    targetConnectionManager.executeConnectedTask(
+                            key.recording().connectionDescriptor,
+                            conn -> {
+                                try (RecordingChunks.NewChunksInputStream chunks =
+                                        RecordingChunks.startedAfter(
+                                                conn.getService()
+                                                        .openStream(descriptor, start, end, false),
+                                                last.get().startNanos())) {
+                                    if (!chunks.hasChunk()) {
+                                        return false;
+                                    }
+                                    try (InputStream previousChunks =
+                                            fs.newInputStream(previous.recording)) {
+                                        fs.copy(
+                                                new SequenceInputStream(previousChunks, chunks),
+                                                recording,
+                                                StandardCopyOption.REPLACE_EXISTING);
+                                    }
+                                    return true;
+                                }
+                            });
+            if (!updated) {
+                deleteQuietly(recording);
+                return previous;
+            }
+            Path json =
+                    generate(
+                            key.recording(),
+                            (generator, saveFile) ->
+                                    generator.exec(recording, saveFile, key.filter(), false));
+            return new ActiveReport(recording, json, takeRecentHtml(previous));
+        } catch (Exception e) {
+            deleteQuietly(recording);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads reports into the cache and decides how much of a recording a scheduled refresh needs to
+     * read from the target again. A recording's data is known to be final once it has stopped, so a
+     * refresh of a report for a recording which was already stopped when that report was generated
+     * keeps the previous report. Otherwise only the chunks completed since the previous copy of the
+     * recording are read from the target and appended to that copy, which is then analyzed again.
+     * The rules have no intermediate state that could be carried over, so each refresh still
+     * analyzes the whole recording, but only from the local copy. An HTML report rendered within
+     * the last few minutes is kept for the refreshed entry.
+     */
+    private class ReportLoader implements CacheLoader<ReportKey, ActiveReport> {
+        private final Map<ReportKey, RecordingFingerprint> fingerprints =
+                new ConcurrentHashMap<>();
+        private LoadingCache<ReportKey, ActiveReport> cache;
+
+        @Override
+        public ActiveReport load(ReportKey key) throws Exception {
+            return load(key, lookup(key.recording()));
+        }
+
+        // the fingerprint is taken before generation, so that data written while the report is
+        // being generated always causes the next refresh to regenerate
+        private ActiveReport load(ReportKey key, IRecordingDescriptor descriptor)
+                throws Exception {
+            ActiveReport report = getReport(key.recording(), descriptor, key.filter());
+            remember(key, descriptor);
+            return report;
+        }
+
+        @Override
+        public ActiveReport reload(ReportKey key, ActiveReport oldValue) throws Exception {
+            RecordingFingerprint previous = fingerprints.get(key);
+            IRecordingDescriptor descriptor = lookup(key.recording());
+            if (previous == null
+                    || descriptor == null
+                    || !Objects.equals(previous.id(), descriptor.getId())) {
+                return load(key, descriptor);
+            }
+            if (previous.isFinal() && previous.equals(RecordingFingerprint.of(descriptor))) {
+                logger.trace(
+                        "Active report for {} is up to date, skipping refresh",
+                        key.recording().recordingName);
+                return oldValue;
             }
+            ActiveReport report;
+            try {
+                report = update(key, oldValue, descriptor);
+            } catch (Exception e) {
+                logger.warn(e);
+                report = null;
+            }
+            if (report == null) {
+                return load(key, descriptor);
+            }
+            remember(key, descriptor);
+            return report;
+        }
+
+        private void remember(ReportKey key, IRecordingDescriptor descriptor) {
+            if (descriptor != null) {
+                fingerprints.put(key, RecordingFingerprint.of(descriptor));
+            } else {
+                fingerprints.remove(key);
+            }
+        }
+
+        void onRemoval(ReportKey key, ActiveReport value, RemovalCause cause) {
+            if (key != null && cause != RemovalCause.REPLACED) {
+                fingerprints.remove(key);
+            }
+            // a refresh which kept the previous report replaces the entry with the same report,
+            // which must then be kept
+            if (value == null || value == cache.asMap().get(key)) {
+                return;
+            }
+            reportFiles.delete(value.json);
+            // an HTML report still being rendered is deleted, along with the copy of the
+            // recording it is rendered from, once the rendering finishes
+            CompletableFuture<Html> html = value.html.getAndSet(DISCARDED);
+            if (html == null) {
+                deleteQuietly(value.recording);
+                return;
+            }
+            html.whenComplete(
+                    (rendered, e) -> {
+                        if (rendered != null) {
+                            reportFiles.delete(rendered.report());
+                        }
+                        deleteQuietly(value.recording);
+                    });
+        }
+    }
+
+    /**
+     * The output of one analysis of an active recording: the rule evaluations, and the HTML report
+     * once it has been requested. The copy of the recording is retained only as long as the entry
+     * so that the HTML report can be rendered without copying the recording from the target again.
+     */
+    static class ActiveReport {
+        final Path recording;
+        final Path json;
+        final AtomicReference<CompletableFuture<Html>> html;
+
+        ActiveReport(Path recording, Path json) {
+            this(recording, json, null);
+        }
+
+        ActiveReport(Path recording, Path json, CompletableFuture<Html> html) {
+            this.recording = recording;
+            this.json = json;
+            this.html = new AtomicReference<>(html);
+        }
+    }
+
+    static record Html(Path report, long renderedNanos) {}
+
+    static record ReportKey(RecordingDescriptor recording, String filter) {}
+
+    static record RecordingFingerprint(Long id, RecordingState state, IQuantity dataEndTime) {
+        static RecordingFingerprint of(IRecordingDescriptor descriptor) {
+            return new RecordingFingerprint(
+                    descriptor.getId(), descriptor.getState(), descriptor.getDataEndTime());
+        }
+
+        boolean isFinal() {
+            return state == RecordingState.STOPPED;
         }
     }
 
@@ -239,7 +556,7 @@ class ActiveRecordingReportCache implements NotificationListener<Map<String, Obj
                         ((HyperlinkedSerializableRecordingDescriptor)
                                         notification.getMessage().get("recording"))
                                 .getName();
-                delete(new ConnectionDescriptor(targetId), recordingName, true);
+                delete(new ConnectionDescriptor(targetId), recordingName);
                 break;
             default:
                 break;
@@ -38,42 +38,73 @@
 package io.cryostat.net.reports;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Named;
 import javax.inject.Provider;
 
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.sys.FileSystem;
+import io.cryostat.messaging.notifications.Notification;
+import io.cryostat.messaging.notifications.NotificationListener;
 import io.cryostat.recordings.RecordingArchiveHelper;
+import io.cryostat.rules.ArchivedRecordingInfo;
 
-class ArchivedRecordingReportCache {
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+class ArchivedRecordingReportCache implements NotificationListener<Map<String, Object>> {
 
     protected final FileSystem fs;
+    protected final ReportFiles reportFiles;
     protected final Provider<ReportGeneratorService> reportGeneratorServiceProvider;
     protected final RecordingArchiveHelper recordingArchiveHelper;
     protected final long generationTimeoutSeconds;
     protected final Logger logger;
 
+    private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    // cached report file -> the archived recording it was generated from
+    private final Cache<Path, ReportSource> index;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final int MAX_LEASE_ATTEMPTS = 3;
+
     ArchivedRecordingReportCache(
             FileSystem fs,
+            ReportFiles reportFiles,
             Provider<ReportGeneratorService> reportGeneratorServiceProvider,
             RecordingArchiveHelper recordingArchiveHelper,
             @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
+            @Named(ReportsModule.ARCHIVED_REPORT_CACHE_MAX_SIZE_BYTES) long cacheMaxSizeBytes,
             Logger logger) {
         this.fs = fs;
+        this.reportFiles = reportFiles;
         this.reportGeneratorServiceProvider = reportGeneratorServiceProvider;
         this.recordingArchiveHelper = recordingArchiveHelper;
         this.generationTimeoutSeconds = generationTimeoutSeconds;
         this.logger = logger;
+        this.index =
+                Caffeine.newBuilder()
+                        .maximumWeight(cacheMaxSizeBytes)
+                        .weigher((Path report, ReportSource source) -> weigh(report))
+                        .removalListener(this::onRemoval)
+                        .build();
     }
 
-    Future<Path> getFromPath(
+    CompletableFuture<Path> getFromPath(
             String subdirectoryName, String recordingName, String filter, boolean formatted) {
-        CompletableFuture<Path> f = new CompletableFuture<>();
         Path dest = null;
         try {
             dest =
@@ -81,70 +112,245 @@ class ArchivedRecordingReportCache {
                             .getCachedReportPathFromPath(
                                     subdirectoryName, recordingName, filter, formatted)
                             .get();
-            if (fs.isReadable(dest) && fs.isRegularFile(dest)) {
-                f.complete(dest);
-                logger.trace("Archived report cache hit for {}", recordingName);
-                return f;
-            }
-            logger.trace("Archived report cache miss for {}", recordingName);
-            Path archivedRecording =
-                    recordingArchiveHelper
-                            .getRecordingPathFromPath(subdirectoryName, recordingName)
-                            .get();
-
-            Path saveFile =
-                    reportGeneratorServiceProvider
-                            .get()
-                            .exec(archivedRecording, dest, filter, formatted)
-                            .get(generationTimeoutSeconds, TimeUnit.SECONDS);
-            f.complete(saveFile);
+            // only uploaded recordings can be told apart by their source target here. Reports of
+            // other recordings are invalidated whichever target a recording of that name is
+            // deleted from
+            String sourceTarget =
+                    RecordingArchiveHelper.UPLOADED_RECORDINGS_SUBDIRECTORY.equals(subdirectoryName)
+                            ? subdirectoryName
+                            : null;
+            return getOrGenerate(
+                    new ReportSource(sourceTarget, recordingName),
+                    dest,
+                    () ->
+                            recordingArchiveHelper
+                                    .getRecordingPathFromPath(subdirectoryName, recordingName)
+                                    .get(),
+                    filter,
+                    formatted,
+                    1);
         } catch (Exception e) {
-            logger.error(e);
-            f.completeExceptionally(e);
-            try {
-                fs.deleteIfExists(dest);
-            } catch (IOException ioe) {
-                logger.warn(ioe);
-            }
+            return failed(dest, e);
         }
-        return f;
     }
 
-    Future<Path> get(String recordingName, String filter, boolean formatted) {
+    CompletableFuture<Path> get(String recordingName, String filter, boolean formatted) {
         return this.get(null, recordingName, filter, formatted);
     }
 
-    Future<Path> get(String sourceTarget, String recordingName, String filter, boolean formatted) {
-        CompletableFuture<Path> f = new CompletableFuture<>();
+    CompletableFuture<Path> get(
+            String sourceTarget, String recordingName, String filter, boolean formatted) {
         Path dest = null;
         try {
             dest =
                     recordingArchiveHelper
                             .getCachedReportPath(sourceTarget, recordingName, filter, formatted)
                             .get();
-            if (fs.isReadable(dest) && fs.isRegularFile(dest)) {
-                f.complete(dest);
-                logger.trace("Archived report cache hit for {}", recordingName);
+            return getOrGenerate(
+                    new ReportSource(sourceTarget, recordingName),
+                    dest,
+                    () ->
+                            recordingArchiveHelper
+                                    .getRecordingPath(sourceTarget, recordingName)
+                                    .get(),
+                    filter,
+                    formatted,
+                    1);
+        } catch (Exception e) {
+            return failed(dest, e);
+        }
+    }
+
+    // returns the report only if it has already been generated, without ever generating it. The
+    // report is leased to the caller like those returned by get()
+    Optional<Path> getIfPresent(
+            String sourceTarget, String recordingName, String filter, boolean formatted)
+            throws Exception {
+        Path dest =
+                recordingArchiveHelper
+                        .getCachedReportPath(sourceTarget, recordingName, filter, formatted)
+                        .get();
+        if (!isCached(dest)) {
+            return Optional.empty();
+        }
+        return Optional.of(hit(new ReportSource(sourceTarget, recordingName), dest));
+    }
+
+    ReportService.ArchivedReportCacheStats getCacheStats() {
+        long sizeBytes =
+                index.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+        return new ReportService.ArchivedReportCacheStats(
+                hits.sum(),
+                generations.sum(),
+                coalescedRequests.sum(),
+                evictions.sum(),
+                sizeBytes);
+    }
+
+    @Override
+    public void onNotification(Notification<Map<String, Object>> notification) {
+        if (!RecordingArchiveHelper.DELETE_NOTIFICATION_CATEGORY.equals(
+                notification.getCategory())) {
+            return;
+        }
+        ArchivedRecordingInfo recording =
+                (ArchivedRecordingInfo) notification.getMessage().get("recording");
+        Object target = notification.getMessage().get("target");
+        invalidate(target == null ? null : target.toString(), recording.getName());
+    }
+
+    // drops every cached report of the recording, whichever filter or format it was generated
+    // with. Reports of recordings of the same name archived from other targets are kept
+    void invalidate(String sourceTarget, String recordingName) {
+        if (index.asMap()
+                .values()
+                .removeIf(source -> source.matches(sourceTarget, recordingName))) {
+            logger.trace("Invalidated archived report cache for {}", recordingName);
+        }
+    }
+
+    // the cached report destination is unique per (recording, filter, formatted), so it also
+    // serves as the key for deduplicating concurrent generations of the same report. The report is
+    // leased to each caller, so that its file outlives an eviction until it has been sent
+    private CompletableFuture<Path> getOrGenerate(
+            ReportSource source,
+            Path dest,
+            Callable<Path> archivedRecording,
+            String filter,
+            boolean formatted,
+            int attempt) {
+        String recordingName = source.recordingName();
+        if (isCached(dest)) {
+            return CompletableFuture.completedFuture(hit(source, dest));
+        }
+        CompletableFuture<Path> f = new CompletableFuture<>();
+        CompletableFuture<Path> inProgress = inFlight.putIfAbsent(dest, f);
+        if (inProgress != null) {
+            coalescedRequests.increment();
+            logger.trace("Archived report generation already in progress for {}", recordingName);
+            // a report evicted before this request could lease it is looked up, or generated,
+            // again
+            return inProgress.thenCompose(
+                    report -> {
+                        if (reportFiles.lease(report)) {
+                            return CompletableFuture.completedFuture(report);
+                        }
+                        if (attempt >= MAX_LEASE_ATTEMPTS) {
+                            return CompletableFuture.failedFuture(
+                                    new IOException(
+                                            "Report for "
+                                                    + recordingName
+                                                    + " was evicted before use"));
+                        }
+                        return getOrGenerate(
+                                source, dest, archivedRecording, filter, formatted, attempt + 1);
+                    });
+        }
+        try {
+            // another generation may have completed between the cache check and claiming the key
+            if (isCached(dest)) {
+                f.complete(hit(source, dest));
                 return f;
             }
             logger.trace("Archived report cache miss for {}", recordingName);
-            Path archivedRecording =
-                    recordingArchiveHelper.getRecordingPath(sourceTarget, recordingName).get();
-            Path saveFile =
-                    reportGeneratorServiceProvider
-                            .get()
-                            .exec(archivedRecording, dest, filter, formatted)
-                            .get(generationTimeoutSeconds, TimeUnit.SECONDS);
-            f.complete(saveFile);
+            generations.increment();
+            Path report = generate(archivedRecording.call(), dest, filter, formatted);
+            // leased before it is indexed, as indexing it may evict it straight away
+            reportFiles.addLeased(report);
+            index.put(report, source);
+            f.complete(report);
         } catch (Exception e) {
             logger.error(e);
             f.completeExceptionally(e);
-            try {
-                fs.deleteIfExists(dest);
-            } catch (IOException ioe) {
-                logger.warn(ioe);
-            }
+            deleteQuietly(dest);
+        } finally {
+            inFlight.remove(dest, f);
+            logger.debug("Archived report cache: {}", getCacheStats());
         }
         return f;
     }
+
+    private Path hit(ReportSource source, Path dest) {
+        logger.trace("Archived report cache hit for {}", source.recordingName());
+        hits.increment();
+        // marks the report as recently used, and adopts reports already on disk but not yet
+        // indexed so that they count against the size budget too
+        reportFiles.addLeased(dest);
+        index.get(dest, k -> source);
+        return dest;
+    }
+
+    private boolean isCached(Path dest) {
+        return fs.isReadable(dest) && fs.isRegularFile(dest);
+    }
+
+    private CompletableFuture<Path> failed(Path dest, Exception e) {
+        logger.error(e);
+        deleteQuietly(dest);
+        return CompletableFuture.failedFuture(e);
+    }
+
+    private int weigh(Path report) {
+        return (int) Math.min(Integer.MAX_VALUE, reportFiles.size(report));
+    }
+
+    private void onRemoval(Path report, ReportSource source, RemovalCause cause) {
+        // a regenerated report replaces its entry with the same file, which must then be kept
+        if (report == null || cause == RemovalCause.REPLACED) {
+            return;
+        }
+        if (cause.wasEvicted()) {
+            evictions.increment();
+            logger.trace("Evicted archived report {} for {}", report, source.recordingName());
+        }
+        reportFiles.delete(report);
+    }
+
+    private void deleteQuietly(Path dest) {
+        try {
+            fs.deleteIfExists(dest);
+        } catch (IOException ioe) {
+            logger.warn(ioe);
+        }
+    }
+
+    // compressed recordings are decompressed as the generator reads them, rather than into a file
+    // which would take up as much disk space as the recording uncompressed
+    private Path generate(Path archivedRecording, Path dest, String filter, boolean formatted)
+            throws Exception {
+        ReportGeneratorService generator = reportGeneratorServiceProvider.get();
+        CompletableFuture<Path> report;
+        if (recordingArchiveHelper.isCompressed(archivedRecording)) {
+            report =
+                    generator.exec(
+                            String.valueOf(archivedRecording.getFileName()),
+                            out -> {
+                                try (InputStream in =
+                                        recordingArchiveHelper.openUncompressed(
+                                                archivedRecording)) {
+                                    in.transferTo(out);
+                                }
+                            },
+                            dest,
+                            filter,
+                            formatted);
+        } else {
+            report = generator.exec(archivedRecording, dest, filter, formatted);
+        }
+        return report.get(generationTimeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * The archived recording a cached report was generated from. The source target is null if the
+     * recording was requested without one, in which case its reports are invalidated when a
+     * recording of the same name is deleted from any target.
+     */
+    static record ReportSource(String sourceTarget, String recordingName) {
+        boolean matches(String deletedFrom, String deletedName) {
+            return recordingName.equals(deletedName)
+                    && (sourceTarget == null
+                            || deletedFrom == null
+                            || sourceTarget.equals(deletedFrom));
+        }
+    }
 }
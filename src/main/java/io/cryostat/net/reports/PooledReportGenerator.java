@@ -0,0 +1,126 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.reports.InterruptibleReportGenerator.ReportGenerationEvent;
+import io.cryostat.core.reports.InterruptibleReportGenerator.ReportStats;
+import io.cryostat.core.reports.ReportTransformer;
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.net.reports.ReportWorker.Job;
+import io.cryostat.net.reports.SubprocessReportGenerator.SubprocessReportGenerationException;
+import io.cryostat.recordings.RecordingNotFoundException;
+
+class PooledReportGenerator extends AbstractReportGeneratorService {
+
+    private final Set<ReportTransformer> reportTransformers;
+    private final ReportWorkerPool workerPool;
+
+    PooledReportGenerator(
+            FileSystem fs,
+            TargetConnectionManager targetConnectionManager,
+            Set<ReportTransformer> reportTransformers,
+            ReportWorkerPool workerPool,
+            Logger logger) {
+        super(targetConnectionManager, fs, logger);
+        this.reportTransformers = reportTransformers;
+        this.workerPool = workerPool;
+    }
+
+    @Override
+    public CompletableFuture<Path> exec(
+            Path recording, Path saveFile, String filter, boolean formatted) {
+        if (recording == null) {
+            throw new IllegalArgumentException("Recording may not be null");
+        }
+        if (saveFile == null) {
+            throw new IllegalArgumentException("Destination may not be null");
+        }
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter may not be null");
+        }
+        Job job =
+                new Job(
+                        recording.toAbsolutePath().toString(),
+                        saveFile.toAbsolutePath().toString(),
+                        filter,
+                        formatted,
+                        SubprocessReportGenerator.serializeTransformers(reportTransformers));
+        ReportGenerationEvent evt = new ReportGenerationEvent(recording.toString());
+        evt.begin();
+        return workerPool
+                .submit(job)
+                .thenApply(
+                        result -> {
+                            ReportStats stats = result.stats();
+                            if (stats != null) {
+                                evt.setRecordingSizeBytes(stats.getRecordingSizeBytes());
+                                evt.setRulesEvaluated(stats.getRulesEvaluated());
+                                evt.setRulesApplicable(stats.getRulesApplicable());
+                            }
+                            switch (result.status()) {
+                                case OK:
+                                    return saveFile;
+                                case NO_SUCH_RECORDING:
+                                    throw new CompletionException(
+                                            new RecordingNotFoundException(
+                                                    "archives", recording.toString()));
+                                default:
+                                    throw new CompletionException(
+                                            new SubprocessReportGenerationException(
+                                                    result.status()));
+                            }
+                        })
+                .whenComplete(
+                        (p, t) -> {
+                            if (t != null) {
+                                logger.error(t);
+                            }
+                            evt.end();
+                            if (evt.shouldCommit()) {
+                                evt.commit();
+                            }
+                        });
+    }
+}
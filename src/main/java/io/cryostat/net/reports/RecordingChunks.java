@@ -0,0 +1,176 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Reads the chunk headers of JFR recordings. A recording is a sequence of self-contained chunks,
+ * so chunks read from a target later on can be appended to an earlier copy of the same recording.
+ */
+final class RecordingChunks {
+
+    // magic, major and minor version, chunk size, constant pool and metadata offsets, then the
+    // chunk start time and duration in nanoseconds since the epoch, all big-endian
+    static final int HEADER_SIZE = 48;
+    private static final int MAGIC = 0x464c5200;
+
+    private RecordingChunks() {}
+
+    /** The header of the last chunk of the recording, or empty if it contains no chunks. */
+    static Optional<Header> last(InputStream in) throws IOException {
+        byte[] bytes = new byte[HEADER_SIZE];
+        Header last = null;
+        Header header;
+        while ((header = readHeader(in, bytes)) != null) {
+            in.skipNBytes(header.size() - HEADER_SIZE);
+            last = header;
+        }
+        return Optional.ofNullable(last);
+    }
+
+    /** Pass through only the chunks of the recording which started after the given time. */
+    static NewChunksInputStream startedAfter(InputStream in, long startNanos) {
+        return new NewChunksInputStream(in, startNanos);
+    }
+
+    private static Header readHeader(InputStream in, byte[] bytes) throws IOException {
+        int n = in.readNBytes(bytes, 0, HEADER_SIZE);
+        if (n == 0) {
+            return null;
+        }
+        if (n < HEADER_SIZE) {
+            throw new EOFException("Truncated JFR chunk header");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a JFR chunk");
+        }
+        Header header = new Header(buffer.getLong(8), buffer.getLong(32), buffer.getLong(40));
+        if (header.size() < HEADER_SIZE) {
+            throw new IOException("Invalid JFR chunk size " + header.size());
+        }
+        return header;
+    }
+
+    static record Header(long size, long startNanos, long durationNanos) {
+        long endNanos() {
+            return startNanos + durationNanos;
+        }
+    }
+
+    static class NewChunksInputStream extends InputStream {
+        private final InputStream in;
+        private final long startNanos;
+        private byte[] header = new byte[0];
+        private int headerPosition;
+        private long remaining;
+        private boolean eof;
+
+        private NewChunksInputStream(InputStream in, long startNanos) {
+            this.in = in;
+            this.startNanos = startNanos;
+        }
+
+        /** Whether any further chunk started after the given time, reading ahead if needed. */
+        boolean hasChunk() throws IOException {
+            while (headerPosition >= header.length && remaining == 0) {
+                if (!nextChunk()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!hasChunk()) {
+                return -1;
+            }
+            if (headerPosition < header.length) {
+                int n = Math.min(len, header.length - headerPosition);
+                System.arraycopy(header, headerPosition, b, off, n);
+                headerPosition += n;
+                return n;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Truncated JFR chunk");
+            }
+            remaining -= n;
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException {
+            while (!eof) {
+                byte[] bytes = new byte[HEADER_SIZE];
+                Header next = readHeader(in, bytes);
+                if (next == null) {
+                    eof = true;
+                    break;
+                }
+                if (next.startNanos() > startNanos) {
+                    header = bytes;
+                    headerPosition = 0;
+                    remaining = next.size() - HEADER_SIZE;
+                    return true;
+                }
+                in.skipNBytes(next.size() - HEADER_SIZE);
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
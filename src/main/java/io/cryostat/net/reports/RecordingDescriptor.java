@@ -39,6 +39,8 @@ package io.cryostat.net.reports;
 
 import java.util.Objects;
 
+import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
+
 import io.cryostat.net.ConnectionDescriptor;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -47,10 +49,21 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 class RecordingDescriptor {
     final ConnectionDescriptor connectionDescriptor;
     final String recordingName;
+    // the target's descriptor of the recording, if the caller has already looked it up. Not part
+    // of the identity of the recording
+    final IRecordingDescriptor resolved;
 
     RecordingDescriptor(ConnectionDescriptor connectionDescriptor, String recordingName) {
+        this(connectionDescriptor, recordingName, null);
+    }
+
+    RecordingDescriptor(
+            ConnectionDescriptor connectionDescriptor,
+            String recordingName,
+            IRecordingDescriptor resolved) {
         this.connectionDescriptor = Objects.requireNonNull(connectionDescriptor);
         this.recordingName = Objects.requireNonNull(recordingName);
+        this.resolved = resolved;
     }
 
     @Override
@@ -37,7 +37,9 @@
  */
 package io.cryostat.net.reports;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -50,10 +52,15 @@ import io.cryostat.core.sys.FileSystem;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.util.HttpStatusCodeIdentifier;
+import io.cryostat.util.OutputToReadStream;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.multipart.MultipartForm;
 
@@ -95,41 +102,116 @@ class RemoteReportGenerator extends AbstractReportGeneratorService {
                                 HttpMimeType.OCTET_STREAM.mime());
 
         var f = new CompletableFuture<Path>();
+        request(formatted)
+                .sendMultipartForm(form, ar -> handleResponse(ar, recording, destination, f));
+        return f;
+    }
+
+    // the recording is uploaded with chunked transfer encoding as it is read from the target,
+    // rather than being written to a file and uploaded from there once complete
+    @Override
+    public CompletableFuture<Path> exec(
+            RecordingDescriptor recordingDescriptor,
+            Path copy,
+            Path destination,
+            String filter,
+            boolean formatted) {
+        String reportGenerator = env.getEnv(Variables.REPORT_GENERATOR_ENV);
+        String recordingName = recordingDescriptor.recordingName;
+        // an upload is not worth starting for a recording which does not exist
+        RecordingDescriptor resolved;
+        try {
+            resolved = resolve(recordingDescriptor);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        logger.trace("Streaming {} to {}", recordingName, reportGenerator);
+        String boundary = "cryostat-" + UUID.randomUUID();
+        var body = new OutputToReadStream(vertx);
+        // held until the client starts consuming the body, so no data is written before then
+        body.pause();
+
+        var f = new CompletableFuture<Path>();
+        request(formatted)
+                .putHeader(
+                        HttpHeaders.CONTENT_TYPE.toString(),
+                        String.format(
+                                "%s; boundary=%s", HttpMimeType.MULTIPART_FORM.mime(), boundary))
+                .sendStream(body, ar -> handleResponse(ar, recordingName, destination, f));
+        vertx.<Void>executeBlocking(
+                promise -> {
+                    try (body) {
+                        body.write(multipartPreamble(boundary, filter, recordingName));
+                        streamRecording(resolved, body, copy);
+                        body.write(multipartEpilogue(boundary));
+                    } catch (Exception e) {
+                        // fail first, so that the response to the truncated upload is ignored
+                        f.completeExceptionally(e);
+                        body.sendError(e);
+                    } finally {
+                        promise.complete();
+                    }
+                },
+                false,
+                ar -> {});
+        return f;
+    }
+
+    private HttpRequest<Buffer> request(boolean formatted) {
+        String reportGenerator = env.getEnv(Variables.REPORT_GENERATOR_ENV);
         String acceptHeader = formatted ? HttpMimeType.HTML.mime() : HttpMimeType.JSON.mime();
-        this.http
+        return this.http
                 .postAbs(String.format("%s/report", reportGenerator))
                 .putHeader(HttpHeaders.ACCEPT.toString(), acceptHeader)
-                .timeout(TimeUnit.SECONDS.toMillis(generationTimeoutSeconds))
-                .sendMultipartForm(
-                        form,
-                        ar -> {
-                            if (ar.failed()) {
+                .timeout(TimeUnit.SECONDS.toMillis(generationTimeoutSeconds));
+    }
+
+    private void handleResponse(
+            AsyncResult<HttpResponse<Buffer>> ar,
+            Object recording,
+            Path destination,
+            CompletableFuture<Path> f) {
+        if (ar.failed()) {
+            f.completeExceptionally(ar.cause());
+            return;
+        }
+        if (!HttpStatusCodeIdentifier.isSuccessCode(ar.result().statusCode())) {
+            f.completeExceptionally(
+                    new ReportGenerationException(
+                            ar.result().statusCode(), ar.result().statusMessage()));
+            return;
+        }
+        var body = ar.result().bodyAsBuffer();
+        vertx.fileSystem()
+                .writeFile(
+                        destination.toString(),
+                        body,
+                        ar2 -> {
+                            if (ar2.failed()) {
                                 f.completeExceptionally(ar.cause());
                                 return;
                             }
-                            if (!HttpStatusCodeIdentifier.isSuccessCode(ar.result().statusCode())) {
-                                f.completeExceptionally(
-                                        new ReportGenerationException(
-                                                ar.result().statusCode(),
-                                                ar.result().statusMessage()));
-                                return;
-                            }
-                            var body = ar.result().bodyAsBuffer();
-                            vertx.fileSystem()
-                                    .writeFile(
-                                            destination.toString(),
-                                            body,
-                                            ar2 -> {
-                                                if (ar2.failed()) {
-                                                    f.completeExceptionally(ar.cause());
-                                                    return;
-                                                }
-                                                f.complete(destination);
-                                                logger.info(
-                                                        "Report response for {}" + " success",
-                                                        recording);
-                                            });
+                            f.complete(destination);
+                            logger.info("Report response for {}" + " success", recording);
                         });
-        return f;
+    }
+
+    private static byte[] multipartPreamble(String boundary, String filter, String recordingName) {
+        return String.format(
+                        "--%1$s\r\n"
+                                + "Content-Disposition: form-data; name=\"filter\"\r\n"
+                                + "\r\n"
+                                + "%2$s\r\n"
+                                + "--%1$s\r\n"
+                                + "Content-Disposition: form-data; name=\"file\";"
+                                + " filename=\"%3$s.jfr\"\r\n"
+                                + "Content-Type: %4$s\r\n"
+                                + "\r\n",
+                        boundary, filter, recordingName, HttpMimeType.OCTET_STREAM.mime())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] multipartEpilogue(String boundary) {
+        return String.format("\r\n--%s--\r\n", boundary).getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+
+/**
+ * Tracks the report files kept on disk by the report caches. A cached report may be evicted while
+ * it is still being sent to a client, so the caches lease a report file to each caller they return
+ * it to. Deleting a leased file is deferred until its last lease is released.
+ */
+class ReportFiles {
+
+    private final FileSystem fs;
+    private final Logger logger;
+    // tracked report file -> number of outstanding leases
+    private final Map<Path, Integer> leases = new HashMap<>();
+    // tracked report files which have been deleted while leased
+    private final Set<Path> deleted = new HashSet<>();
+
+    ReportFiles(FileSystem fs, Logger logger) {
+        this.fs = fs;
+        this.logger = logger;
+    }
+
+    /** Start tracking a report file, which replaces any deleted file at the same path. */
+    synchronized void add(Path report) {
+        leases.putIfAbsent(report, 0);
+        deleted.remove(report);
+    }
+
+    /** Start tracking a report file, leased to the caller it is first returned to. */
+    synchronized void addLeased(Path report) {
+        add(report);
+        lease(report);
+    }
+
+    /**
+     * Lease a tracked report file, which must then be released once it has been read or sent.
+     *
+     * @return false if the file is not tracked or has already been deleted
+     */
+    synchronized boolean lease(Path report) {
+        Integer count = leases.get(report);
+        if (count == null || deleted.contains(report)) {
+            return false;
+        }
+        leases.put(report, count + 1);
+        return true;
+    }
+
+    synchronized void release(Path report) {
+        Integer count = leases.get(report);
+        if (count == null || count == 0) {
+            return;
+        }
+        if (count > 1 || !deleted.contains(report)) {
+            leases.put(report, count - 1);
+            return;
+        }
+        leases.remove(report);
+        deleted.remove(report);
+        deleteQuietly(report);
+    }
+
+    /** Delete a report file now, or once its last lease is released. */
+    synchronized void delete(Path report) {
+        Integer count = leases.get(report);
+        if (count != null && count > 0) {
+            deleted.add(report);
+            return;
+        }
+        leases.remove(report);
+        deleteQuietly(report);
+    }
+
+    long size(Path file) {
+        // skipping through a file's stream seeks to its end rather than reading it
+        try (InputStream stream = fs.newInputStream(file)) {
+            long size = 0;
+            long skipped;
+            while ((skipped = stream.skip(Long.MAX_VALUE)) > 0) {
+                size += skipped;
+            }
+            return size;
+        } catch (IOException e) {
+            logger.warn(e);
+            return 0;
+        }
+    }
+
+    private void deleteQuietly(Path report) {
+        try {
+            fs.deleteIfExists(report);
+        } catch (IOException e) {
+            logger.warn(e);
+        }
+    }
+}
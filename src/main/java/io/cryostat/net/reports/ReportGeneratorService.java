@@ -37,6 +37,7 @@
  */
 package io.cryostat.net.reports;
 
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
 
@@ -46,4 +47,32 @@ interface ReportGeneratorService {
 
     CompletableFuture<Path> exec(RecordingDescriptor rd, String filter, boolean formatted)
             throws Exception;
+
+    /**
+     * Generate a report of an active recording, feeding the recording into the generator as it is
+     * read from the target rather than staging it in a file first where the generator allows. If
+     * {@code copy} is not null, the recording is also written there as it is read, for callers
+     * which keep the recording for later use.
+     */
+    CompletableFuture<Path> exec(
+            RecordingDescriptor rd, Path copy, Path out, String filter, boolean formatted)
+            throws Exception;
+
+    /**
+     * Generate a report of a recording which {@code recording} writes out while the generator
+     * reads it, such as an archived recording which is decompressed on the fly, rather than
+     * staging it in a file first where the generator allows.
+     */
+    CompletableFuture<Path> exec(
+            String recordingName,
+            RecordingSource recording,
+            Path out,
+            String filter,
+            boolean formatted)
+            throws Exception;
+
+    @FunctionalInterface
+    interface RecordingSource {
+        void writeTo(OutputStream out) throws Exception;
+    }
 }
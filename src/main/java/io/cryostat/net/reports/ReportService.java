@@ -38,7 +38,13 @@
 package io.cryostat.net.reports;
 
 import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import io.cryostat.net.ConnectionDescriptor;
 
@@ -46,28 +52,87 @@ public class ReportService {
 
     private final ActiveRecordingReportCache activeCache;
     private final ArchivedRecordingReportCache archivedCache;
+    private final ReportFiles reportFiles;
+    private final ExecutorService batchExecutor;
+    private final long generationTimeoutSeconds;
 
     ReportService(
-            ActiveRecordingReportCache activeCache, ArchivedRecordingReportCache archivedCache) {
+            ActiveRecordingReportCache activeCache,
+            ArchivedRecordingReportCache archivedCache,
+            ReportFiles reportFiles,
+            ExecutorService batchExecutor,
+            long generationTimeoutSeconds) {
         this.activeCache = activeCache;
         this.archivedCache = archivedCache;
+        this.reportFiles = reportFiles;
+        this.batchExecutor = batchExecutor;
+        this.generationTimeoutSeconds = generationTimeoutSeconds;
     }
 
+    /**
+     * Get an archived recording report. As with every report this service returns, the report
+     * file is leased to the caller, who must {@link #release(Path)} it once it has been sent.
+     * Archived reports which are not ready within the report generation timeout fail with a {@link
+     * TimeoutException}, so callers should not apply a timeout of their own.
+     */
     public Future<Path> getFromPath(
             String subdirectoryName, String recordingName, String filter, boolean formatted) {
-        return archivedCache.getFromPath(subdirectoryName, recordingName, filter, formatted);
+        return withDeadline(
+                archivedCache.getFromPath(subdirectoryName, recordingName, filter, formatted),
+                recordingName);
     }
 
     public Future<Path> get(String recordingName, String filter, boolean formatted) {
-        return archivedCache.get(recordingName, filter, formatted);
+        return withDeadline(archivedCache.get(recordingName, filter, formatted), recordingName);
     }
 
     public Future<Path> get(
             String sourceTarget, String recordingName, String filter, boolean formatted) {
-        return archivedCache.get(sourceTarget, recordingName, filter, formatted);
+        return withDeadline(
+                archivedCache.get(sourceTarget, recordingName, filter, formatted), recordingName);
     }
 
-    public Future<String> get(
+    /**
+     * Get an archived recording report as one of many requested together. Reports that have
+     * already been generated are returned immediately, while generations are queued on an executor
+     * of bounded size so that a large batch cannot occupy every report generator at once. A
+     * generation that takes longer than the report generation timeout fails with a {@link
+     * TimeoutException}. The report file is leased to the caller, who must {@link #release(Path)}
+     * it once it has been read.
+     */
+    public CompletableFuture<Path> getBatched(
+            String sourceTarget, String recordingName, String filter, boolean formatted) {
+        try {
+            Optional<Path> cached =
+                    archivedCache.getIfPresent(sourceTarget, recordingName, filter, formatted);
+            if (cached.isPresent()) {
+                return CompletableFuture.completedFuture(cached.get());
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Path> report =
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                return archivedCache
+                                        .get(sourceTarget, recordingName, filter, formatted)
+                                        .get();
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        },
+                        batchExecutor);
+        // the deadline also covers the time spent queued behind the rest of the batch
+        return withDeadline(report, recordingName);
+    }
+
+    /**
+     * Get an active recording report. The report file is leased to the caller, who must {@link
+     * #release(Path)} it once it has been sent so that the cache can delete it if it has since
+     * been evicted.
+     */
+    public Future<Path> get(
             ConnectionDescriptor connectionDescriptor,
             String recordingName,
             String filter,
@@ -75,8 +140,46 @@ public class ReportService {
         return activeCache.get(connectionDescriptor, recordingName, filter, formatted);
     }
 
-    public boolean delete(
-            ConnectionDescriptor connectionDescriptor, String recordingName, boolean formatted) {
-        return activeCache.delete(connectionDescriptor, recordingName, formatted);
+    public void release(Path report) {
+        reportFiles.release(report);
+    }
+
+    public boolean delete(ConnectionDescriptor connectionDescriptor, String recordingName) {
+        return activeCache.delete(connectionDescriptor, recordingName);
     }
+
+    /**
+     * @return counters describing how effective the archived report cache has been at sparing
+     *     callers from generating reports, and how much disk space the cached reports take up
+     */
+    public ArchivedReportCacheStats getArchivedReportCacheStats() {
+        return archivedCache.getCacheStats();
+    }
+
+    // a report which only becomes ready after its deadline has nobody left waiting to release it,
+    // so its lease is let go as soon as it is ready. It stays cached for the next request
+    private CompletableFuture<Path> withDeadline(
+            CompletableFuture<Path> report, String recordingName) {
+        if (report.isDone()) {
+            return report;
+        }
+        return report.copy()
+                .orTimeout(generationTimeoutSeconds, TimeUnit.SECONDS)
+                .exceptionallyCompose(
+                        t -> {
+                            if (!(t instanceof TimeoutException)) {
+                                return CompletableFuture.failedFuture(t);
+                            }
+                            report.thenAccept(reportFiles::release);
+                            return CompletableFuture.failedFuture(
+                                    new TimeoutException(
+                                            String.format(
+                                                    "Report generation for %s timed out after %d"
+                                                            + " seconds",
+                                                    recordingName, generationTimeoutSeconds)));
+                        });
+    }
+
+    public static record ArchivedReportCacheStats(
+            long hits, long generated, long coalesced, long evicted, long sizeBytes) {}
 }
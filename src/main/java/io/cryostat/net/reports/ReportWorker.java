@@ -0,0 +1,189 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmc.rjmx.ConnectionException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.reports.InterruptibleReportGenerator.ReportResult;
+import io.cryostat.core.reports.InterruptibleReportGenerator.ReportStats;
+import io.cryostat.core.reports.InterruptibleReportGenerator.RuleEvaluation;
+import io.cryostat.core.reports.ReportTransformer;
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.net.reports.SubprocessReportGenerator.ExitStatus;
+import io.cryostat.net.reports.SubprocessReportGenerator.SubprocessReportGenerationException;
+
+import com.google.gson.Gson;
+
+/**
+ * Long-lived counterpart to {@link SubprocessReportGenerator#main(String[])}. Rather than
+ * generating a single report and exiting, a worker reads {@link Job}s from its stdin one per line
+ * and answers each with a {@link Result} line on its stdout, until stdin is closed by the parent.
+ */
+public class ReportWorker {
+
+    private final FileSystem fs;
+    private final Gson gson;
+    private String serializedTransformers;
+    private Set<ReportTransformer> transformers = Set.of();
+
+    ReportWorker(FileSystem fs, Gson gson) {
+        this.fs = fs;
+        this.gson = gson;
+    }
+
+    public static void main(String[] args) {
+        // stdout carries the job protocol, so anything else the worker prints (ex. logging) must
+        // go to stderr. This must happen before anything else has a chance to capture System.out
+        PrintStream protocol = System.out;
+        System.setOut(System.err);
+
+        long startTime = System.nanoTime();
+        Logger.INSTANCE.info(ReportWorker.class.getName() + " starting");
+        Runtime.getRuntime()
+                .addShutdownHook(
+                        new Thread(
+                                () -> {
+                                    long elapsedTime = System.nanoTime() - startTime;
+                                    Logger.INSTANCE.info(
+                                            "{} shutting down after {}ms",
+                                            ReportWorker.class.getName(),
+                                            TimeUnit.NANOSECONDS.toMillis(elapsedTime));
+                                }));
+
+        var fs = new FileSystem();
+        var gson = new Gson();
+        try {
+            SubprocessReportGenerator.initializeSubprocess(fs);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(ExitStatus.OTHER.code);
+        }
+
+        ReportWorker worker = new ReportWorker(fs, gson);
+        try (BufferedReader in =
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                Result result = worker.process(gson.fromJson(line, Job.class));
+                protocol.println(gson.toJson(result));
+                protocol.flush();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(ExitStatus.OTHER.code);
+        }
+        System.exit(ExitStatus.OK.code);
+    }
+
+    Result process(Job job) {
+        try {
+            Logger.INSTANCE.info(ReportWorker.class.getName() + " processing report");
+            Path recording = Paths.get(job.recording());
+            Path saveFile = Paths.get(job.saveFile());
+            Set<ReportTransformer> transformers = getTransformers(job.transformers());
+            if (job.formatted()) {
+                ReportResult reportResult =
+                        SubprocessReportGenerator.generateReportFromFile(
+                                recording, transformers, job.filter());
+                write(saveFile, reportResult.getHtml());
+                return new Result(ExitStatus.OK, reportResult.getReportStats());
+            } else {
+                Map<String, RuleEvaluation> evalMapResult =
+                        SubprocessReportGenerator.generateEvalMapFromFile(
+                                recording, transformers, job.filter());
+                write(saveFile, gson.toJson(evalMapResult));
+                return new Result(ExitStatus.OK, null);
+            }
+        } catch (SubprocessReportGenerationException e) {
+            e.printStackTrace();
+            return new Result(e.getStatus(), null);
+        } catch (ConnectionException e) {
+            e.printStackTrace();
+            return new Result(ExitStatus.TARGET_CONNECTION_FAILURE, null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new Result(ExitStatus.IO_EXCEPTION, null);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new Result(ExitStatus.OTHER, null);
+        }
+    }
+
+    private Set<ReportTransformer> getTransformers(String serial) throws Exception {
+        // the transformer set is fixed for the lifetime of the parent, so in practice this is
+        // only deserialized once per worker
+        if (!Objects.equals(serial, serializedTransformers)) {
+            transformers = SubprocessReportGenerator.deserializeTransformers(serial);
+            serializedTransformers = serial;
+        }
+        return transformers;
+    }
+
+    private void write(Path saveFile, String content) throws IOException {
+        fs.writeString(
+                saveFile,
+                content,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.DSYNC,
+                StandardOpenOption.WRITE);
+    }
+
+    static record Job(
+            String recording,
+            String saveFile,
+            String filter,
+            boolean formatted,
+            String transformers) {}
+
+    static record Result(ExitStatus status, ReportStats stats) {}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Provider;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.net.reports.ReportWorker.Job;
+import io.cryostat.net.reports.ReportWorker.Result;
+import io.cryostat.net.reports.SubprocessReportGenerator.ExitStatus;
+import io.cryostat.net.reports.SubprocessReportGenerator.SubprocessReportGenerationException;
+import io.cryostat.util.JavaProcess;
+
+import com.google.gson.Gson;
+import io.vertx.core.Vertx;
+
+/**
+ * A fixed-size pool of {@link ReportWorker} subprocesses. Each job is handed to an idle worker
+ * over its stdin pipe, so report generation no longer pays JVM startup and rule class loading per
+ * report, and up to {@code size} reports may be generated in parallel. Workers still run in their
+ * own memory-capped JVMs, so a worker which runs out of memory or exceeds the generation timeout
+ * only fails its own job. Such workers, and workers which have completed {@code maxJobsPerWorker}
+ * jobs, are discarded and replaced on demand.
+ */
+class ReportWorkerPool {
+
+    private final int maxJobsPerWorker;
+    private final Provider<JavaProcess.Builder> javaProcessBuilderProvider;
+    private final List<String> jvmArgs;
+    private final long generationTimeoutSeconds;
+    private final Vertx vertx;
+    private final Gson gson;
+    private final Logger logger;
+
+    private final ExecutorService executor;
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+
+    ReportWorkerPool(
+            int size,
+            int maxJobsPerWorker,
+            Provider<JavaProcess.Builder> javaProcessBuilderProvider,
+            List<String> jvmArgs,
+            long generationTimeoutSeconds,
+            Vertx vertx,
+            Gson gson,
+            Logger logger) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Worker pool size must be positive");
+        }
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        this.javaProcessBuilderProvider = javaProcessBuilderProvider;
+        this.jvmArgs = List.copyOf(jvmArgs);
+        this.generationTimeoutSeconds = generationTimeoutSeconds;
+        this.vertx = vertx;
+        this.gson = gson;
+        this.logger = logger;
+        // one thread per worker: each thread blocks on its worker's response, so at most size
+        // jobs are in progress at once and the rest queue here
+        this.executor =
+                Executors.newFixedThreadPool(
+                        size,
+                        r -> {
+                            Thread t = new Thread(r, ReportWorkerPool.class.getSimpleName());
+                            t.setDaemon(true);
+                            return t;
+                        });
+    }
+
+    CompletableFuture<Result> submit(Job job) {
+        return CompletableFuture.supplyAsync(() -> run(job), executor);
+    }
+
+    private Result run(Job job) {
+        Worker worker = idleWorkers.poll();
+        if (worker == null || !worker.isAlive()) {
+            try {
+                worker = spawn();
+            } catch (IOException | InterruptedException e) {
+                logger.error(e);
+                throw new CompletionException(
+                        new SubprocessReportGenerationException(ExitStatus.OTHER));
+            }
+        }
+        Worker w = worker;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        long timerId =
+                vertx.setTimer(
+                        TimeUnit.SECONDS.toMillis(Math.max(1, generationTimeoutSeconds - 1)),
+                        id -> {
+                            timedOut.set(true);
+                            w.destroy();
+                        });
+        try {
+            Result result = worker.execute(job);
+            if (result != null) {
+                return result;
+            }
+            // the worker closed its stdout before answering, so it has exited or been killed
+            ExitStatus status = timedOut.get() ? ExitStatus.TIMED_OUT : worker.exitStatus();
+            throw new CompletionException(new SubprocessReportGenerationException(status));
+        } catch (IOException e) {
+            logger.error(e);
+            worker.destroy();
+            throw new CompletionException(e);
+        } finally {
+            vertx.cancelTimer(timerId);
+            if (worker.isAlive() && worker.jobs < maxJobsPerWorker) {
+                idleWorkers.offer(worker);
+            } else {
+                logger.trace("Retiring report worker after {} jobs", worker.jobs);
+                worker.destroy();
+            }
+        }
+    }
+
+    private Worker spawn() throws IOException, InterruptedException {
+        logger.trace("Spawning report worker");
+        Process proc =
+                javaProcessBuilderProvider
+                        .get()
+                        .klazz(ReportWorker.class)
+                        .jvmArgs(jvmArgs)
+                        .inheritIO(false)
+                        .exec();
+        return new Worker(proc);
+    }
+
+    private class Worker {
+        private final Process proc;
+        private final BufferedWriter in;
+        private final BufferedReader out;
+        private int jobs;
+
+        Worker(Process proc) {
+            this.proc = proc;
+            this.in =
+                    new BufferedWriter(
+                            new OutputStreamWriter(proc.getOutputStream(), StandardCharsets.UTF_8));
+            this.out =
+                    new BufferedReader(
+                            new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        Result execute(Job job) throws IOException {
+            jobs++;
+            in.write(gson.toJson(job));
+            in.newLine();
+            in.flush();
+            String line = out.readLine();
+            if (line == null) {
+                return null;
+            }
+            return gson.fromJson(line, Result.class);
+        }
+
+        boolean isAlive() {
+            return proc.isAlive();
+        }
+
+        ExitStatus exitStatus() {
+            try {
+                if (proc.waitFor(1, TimeUnit.SECONDS)) {
+                    return ExitStatus.byExitCode(proc.exitValue());
+                }
+            } catch (InterruptedException e) {
+                logger.warn(e);
+            }
+            return ExitStatus.TERMINATED;
+        }
+
+        void destroy() {
+            proc.destroyForcibly();
+        }
+    }
+}
@@ -38,6 +38,7 @@
 package io.cryostat.net.reports;
 
 import java.util.Set;
+import java.util.concurrent.Executors;
 
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -74,6 +75,11 @@ public abstract class ReportsModule {
             "ACTIVE_REPORT_CACHE_EXPIRY_SECONDS";
     public static final String ACTIVE_REPORT_CACHE_REFRESH_SECONDS =
             "ACTIVE_REPORT_CACHE_REFRESH_SECONDS";
+    public static final String ACTIVE_REPORT_CACHE_MAX_SIZE_BYTES =
+            "ACTIVE_REPORT_CACHE_MAX_SIZE_BYTES";
+    public static final String ARCHIVED_REPORT_CACHE_MAX_SIZE_BYTES =
+            "ARCHIVED_REPORT_CACHE_MAX_SIZE_BYTES";
+    public static final String REPORT_BATCH_PARALLELISM = "REPORT_BATCH_PARALLELISM";
 
     @Provides
     @Named(REPORT_GENERATION_TIMEOUT_SECONDS)
@@ -94,23 +100,59 @@ public abstract class ReportsModule {
         return Long.parseLong(env.getEnv(Variables.ACTIVE_REPORTS_CACHE_REFRESH_ENV, "10"));
     }
 
+    @Provides
+    @Named(ACTIVE_REPORT_CACHE_MAX_SIZE_BYTES)
+    static long provideActiveReportCacheMaxSizeBytes(Environment env) {
+        return Long.parseLong(env.getEnv(Variables.ACTIVE_REPORTS_CACHE_MAX_SIZE_ENV, "50"))
+                * 1024
+                * 1024;
+    }
+
+    @Provides
+    @Named(ARCHIVED_REPORT_CACHE_MAX_SIZE_BYTES)
+    static long provideArchivedReportCacheMaxSizeBytes(Environment env) {
+        return Long.parseLong(env.getEnv(Variables.ARCHIVED_REPORTS_CACHE_MAX_SIZE_ENV, "100"))
+                * 1024
+                * 1024;
+    }
+
+    @Provides
+    @Named(REPORT_BATCH_PARALLELISM)
+    static int provideReportBatchParallelism(Environment env) {
+        int poolSize = Integer.parseInt(env.getEnv(Variables.REPORT_WORKER_POOL_SIZE, "0"));
+        return Integer.parseInt(
+                env.getEnv(
+                        Variables.REPORT_BATCH_PARALLELISM,
+                        String.valueOf(Math.max(1, poolSize))));
+    }
+
+    @Provides
+    @Singleton
+    static ReportFiles provideReportFiles(FileSystem fs, Logger logger) {
+        return new ReportFiles(fs, logger);
+    }
+
     @Provides
     @Singleton
     static ActiveRecordingReportCache provideActiveRecordingReportCache(
             Provider<ReportGeneratorService> reportGeneratorServiceProvider,
             FileSystem fs,
+            ReportFiles reportFiles,
             TargetConnectionManager targetConnectionManager,
             @Named(REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             @Named(ACTIVE_REPORT_CACHE_EXPIRY_SECONDS) long cacheExpirySeconds,
             @Named(ACTIVE_REPORT_CACHE_REFRESH_SECONDS) long cacheRefreshSeconds,
+            @Named(ACTIVE_REPORT_CACHE_MAX_SIZE_BYTES) long cacheMaxSizeBytes,
             Logger logger) {
         return new ActiveRecordingReportCache(
                 reportGeneratorServiceProvider,
                 fs,
+                reportFiles,
                 targetConnectionManager,
                 generationTimeoutSeconds,
                 cacheExpirySeconds,
                 cacheRefreshSeconds,
+                cacheMaxSizeBytes,
                 logger);
     }
 
@@ -122,18 +164,27 @@ public abstract class ReportsModule {
     @Singleton
     static ArchivedRecordingReportCache provideArchivedRecordingReportCache(
             FileSystem fs,
+            ReportFiles reportFiles,
             Provider<ReportGeneratorService> reportGeneratorServiceProvider,
             RecordingArchiveHelper recordingArchiveHelper,
             @Named(REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
+            @Named(ARCHIVED_REPORT_CACHE_MAX_SIZE_BYTES) long cacheMaxSizeBytes,
             Logger logger) {
         return new ArchivedRecordingReportCache(
                 fs,
+                reportFiles,
                 reportGeneratorServiceProvider,
                 recordingArchiveHelper,
                 generationTimeoutSeconds,
+                cacheMaxSizeBytes,
                 logger);
     }
 
+    @Binds
+    @IntoSet
+    abstract NotificationListener bindArchivedRecordingReportCache(
+            ArchivedRecordingReportCache cache);
+
     @Provides
     static JavaProcess.Builder provideJavaProcessBuilder() {
         return new JavaProcess.Builder();
@@ -143,13 +194,49 @@ public abstract class ReportsModule {
     static ReportGeneratorService provideReportGeneratorService(
             Environment env,
             RemoteReportGenerator remoteGenerator,
-            SubprocessReportGenerator subprocessGenerator) {
+            SubprocessReportGenerator subprocessGenerator,
+            Provider<PooledReportGenerator> pooledGenerator) {
         if (env.hasEnv(Variables.REPORT_GENERATOR_ENV)) {
             return remoteGenerator;
         }
+        if (Integer.parseInt(env.getEnv(Variables.REPORT_WORKER_POOL_SIZE, "0")) > 0) {
+            return pooledGenerator.get();
+        }
         return subprocessGenerator;
     }
 
+    @Provides
+    static PooledReportGenerator providePooledReportGenerator(
+            FileSystem fs,
+            TargetConnectionManager targetConnectionManager,
+            Set<ReportTransformer> reportTransformers,
+            ReportWorkerPool workerPool,
+            Logger logger) {
+        return new PooledReportGenerator(
+                fs, targetConnectionManager, reportTransformers, workerPool, logger);
+    }
+
+    @Provides
+    @Singleton
+    static ReportWorkerPool provideReportWorkerPool(
+            Environment env,
+            Provider<JavaProcess.Builder> javaProcessBuilder,
+            @Named(REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
+            Vertx vertx,
+            Gson gson,
+            Logger logger) {
+        return new ReportWorkerPool(
+                Integer.parseInt(env.getEnv(Variables.REPORT_WORKER_POOL_SIZE, "0")),
+                Integer.parseInt(env.getEnv(Variables.REPORT_WORKER_MAX_JOBS, "50")),
+                javaProcessBuilder,
+                SubprocessReportGenerator.createJvmArgs(
+                        Integer.parseInt(env.getEnv(Variables.SUBPROCESS_MAX_HEAP_ENV, "0"))),
+                generationTimeoutSeconds,
+                vertx,
+                gson,
+                logger);
+    }
+
     @Provides
     static RemoteReportGenerator provideRemoteReportGenerator(
             TargetConnectionManager targetConnectionManager,
@@ -187,7 +274,22 @@ public abstract class ReportsModule {
     @Provides
     @Singleton
     static ReportService provideReportService(
-            ActiveRecordingReportCache activeCache, ArchivedRecordingReportCache archivedCache) {
-        return new ReportService(activeCache, archivedCache);
+            ActiveRecordingReportCache activeCache,
+            ArchivedRecordingReportCache archivedCache,
+            ReportFiles reportFiles,
+            @Named(REPORT_BATCH_PARALLELISM) int batchParallelism,
+            @Named(REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds) {
+        return new ReportService(
+                activeCache,
+                archivedCache,
+                reportFiles,
+                Executors.newFixedThreadPool(
+                        batchParallelism,
+                        r -> {
+                            Thread t = new Thread(r, "ReportBatch");
+                            t.setDaemon(true);
+                            return t;
+                        }),
+                generationTimeoutSeconds);
     }
 }
@@ -40,6 +40,7 @@ package io.cryostat.net.reports;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -54,8 +55,10 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Predicate;
 
 import javax.inject.Named;
@@ -85,6 +88,9 @@ import org.apache.commons.lang3.tuple.Pair;
 
 public class SubprocessReportGenerator extends AbstractReportGeneratorService {
 
+    // passed in place of a recording file path to make the subprocess read the recording from stdin
+    static final String STDIN_RECORDING = "-";
+
     private final Environment env;
     private final Gson gson;
     private final Set<ReportTransformer> reportTransformers;
@@ -117,6 +123,68 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
         if (recording == null) {
             throw new IllegalArgumentException("Recording may not be null");
         }
+        return generate(
+                recording.toString(),
+                recording.toAbsolutePath().toString(),
+                null,
+                saveFile,
+                filter,
+                formatted);
+    }
+
+    // the subprocess reads the recording from its stdin as it is copied out of the target, so
+    // analysis overlaps with the transfer and the recording never has to be read back from disk
+    @Override
+    public synchronized CompletableFuture<Path> exec(
+            RecordingDescriptor recordingDescriptor,
+            Path copy,
+            Path saveFile,
+            String filter,
+            boolean formatted)
+            throws Exception {
+        if (recordingDescriptor == null) {
+            throw new IllegalArgumentException("Recording may not be null");
+        }
+        // a subprocess is not worth starting for a recording which does not exist
+        RecordingDescriptor resolved;
+        try {
+            resolved = resolve(recordingDescriptor);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return generate(
+                recordingDescriptor.recordingName,
+                STDIN_RECORDING,
+                stdin -> streamRecording(resolved, stdin, copy),
+                saveFile,
+                filter,
+                formatted);
+    }
+
+    // an archived recording is decompressed straight into the subprocess's stdin, rather than into
+    // a file for the subprocess to read back
+    @Override
+    public synchronized CompletableFuture<Path> exec(
+            String recordingName,
+            RecordingSource recording,
+            Path saveFile,
+            String filter,
+            boolean formatted)
+            throws Exception {
+        if (recording == null) {
+            throw new IllegalArgumentException("Recording may not be null");
+        }
+        return generate(recordingName, STDIN_RECORDING, recording, saveFile, filter, formatted);
+    }
+
+    private CompletableFuture<Path> generate(
+            String recordingName,
+            String recordingArg,
+            RecordingSource source,
+            Path saveFile,
+            String filter,
+            boolean formatted)
+            throws IOException {
         if (saveFile == null) {
             throw new IllegalArgumentException("Destination may not be null");
         }
@@ -125,7 +193,7 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
         }
         fs.writeString(
                 saveFile,
-                serializeTransformersSet(),
+                serializeTransformers(reportTransformers),
                 StandardOpenOption.CREATE,
                 StandardOpenOption.TRUNCATE_EXISTING,
                 StandardOpenOption.DSYNC,
@@ -139,20 +207,48 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
                                         Integer.parseInt(
                                                 env.getEnv(
                                                         Variables.SUBPROCESS_MAX_HEAP_ENV, "0"))))
-                        .processArgs(createProcessArgs(recording, saveFile, filter, formatted));
+                        .processArgs(
+                                createProcessArgs(recordingArg, saveFile, filter, formatted));
+        if (source != null) {
+            procBuilder.pipeInput(true);
+        }
         return CompletableFuture.supplyAsync(
                 () -> {
                     Process proc = null;
-                    ReportGenerationEvent evt = new ReportGenerationEvent(recording.toString());
+                    ReportGenerationEvent evt = new ReportGenerationEvent(recordingName);
                     evt.begin();
                     Path reportStatsPath = Paths.get(Variables.REPORT_STATS_PATH);
 
                     try {
                         proc = procBuilder.exec();
+                        long deadline =
+                                System.nanoTime()
+                                        + TimeUnit.SECONDS.toNanos(generationTimeoutSeconds - 1);
+                        // the recording is fed in on a task of its own, so that a stalled target
+                        // or subprocess cannot hold this one past the deadline. Destroying the
+                        // subprocess once time is up breaks the pipe and ends the feeding task
+                        CompletableFuture<Void> feeding =
+                                source == null
+                                        ? CompletableFuture.completedFuture(null)
+                                        : feed(source, proc.getOutputStream());
                         proc.waitFor(generationTimeoutSeconds - 1, TimeUnit.SECONDS);
 
+                        Throwable sourceFailure = null;
+                        boolean fed = true;
+                        if (!proc.isAlive()) {
+                            try {
+                                feeding.get(
+                                        Math.max(0, deadline - System.nanoTime()),
+                                        TimeUnit.NANOSECONDS);
+                            } catch (ExecutionException e) {
+                                sourceFailure = e.getCause();
+                            } catch (TimeoutException e) {
+                                fed = false;
+                            }
+                        }
+
                         ExitStatus status =
-                                proc.isAlive()
+                                proc.isAlive() || !fed
                                         ? ExitStatus.TIMED_OUT
                                         : ExitStatus.byExitCode(proc.exitValue());
 
@@ -165,12 +261,19 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
                             }
                         }
 
+                        // a subprocess which ran out of memory or time breaks the pipe feeding it,
+                        // otherwise it is the subprocess which failed because its input did
+                        if (sourceFailure != null
+                                && status != ExitStatus.OUT_OF_MEMORY
+                                && status != ExitStatus.TIMED_OUT) {
+                            throw new CompletionException(sourceFailure);
+                        }
+
                         switch (status) {
                             case OK:
                                 return saveFile;
                             case NO_SUCH_RECORDING:
-                                throw new RecordingNotFoundException(
-                                        "archives", recording.toString());
+                                throw new RecordingNotFoundException("archives", recordingName);
                             default:
                                 throw new SubprocessReportGenerationException(status);
                         }
@@ -204,7 +307,23 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
                 });
     }
 
-    private List<String> createJvmArgs(int maxHeapMegabytes) throws IOException {
+    private static CompletableFuture<Void> feed(RecordingSource source, OutputStream stdin) {
+        return CompletableFuture.runAsync(
+                () -> {
+                    try (stdin) {
+                        source.writeTo(stdin);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                r -> {
+                    Thread t = new Thread(r, "ReportSubprocessInput");
+                    t.setDaemon(true);
+                    t.start();
+                });
+    }
+
+    static List<String> createJvmArgs(int maxHeapMegabytes) {
         List<String> args = new ArrayList<>();
         if (maxHeapMegabytes > 0) {
             args.add(String.format("-Xms%dM", maxHeapMegabytes));
@@ -220,15 +339,15 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
     }
 
     private List<String> createProcessArgs(
-            Path recording, Path saveFile, String filter, boolean formatted) {
+            String recording, Path saveFile, String filter, boolean formatted) {
         return List.of(
-                recording.toAbsolutePath().toString(),
+                recording,
                 saveFile.toAbsolutePath().toString(),
                 filter,
                 String.valueOf(formatted));
     }
 
-    private String serializeTransformersSet() {
+    static String serializeTransformers(Set<ReportTransformer> reportTransformers) {
         var sb = new StringBuilder();
         for (var rt : reportTransformers) {
             sb.append(rt.getClass().getCanonicalName());
@@ -271,21 +390,7 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
         var gson = new Gson();
 
         try {
-            CryostatCore.initialize();
-            // If we're on a system that supports it, set our own OOM score adjustment to
-            // +1000 to ensure we're killed first if memory runs out
-            Path selfProc = fs.pathOf("/proc/self");
-            if (fs.isDirectory(selfProc)) {
-                Logger.INSTANCE.info(
-                        SubprocessReportGenerator.class.getName()
-                                + " adjusting subprocess OOM score");
-                Path oomScoreAdj = selfProc.resolve("oom_score_adj");
-                fs.writeString(oomScoreAdj, "1000");
-            } else {
-                Logger.INSTANCE.info(
-                        SubprocessReportGenerator.class.getName()
-                                + "/proc/self does not exist; ignoring OOM score adjustment");
-            }
+            initializeSubprocess(fs);
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(ExitStatus.OTHER.code);
@@ -309,7 +414,13 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
         try {
             Logger.INSTANCE.info(SubprocessReportGenerator.class.getName() + " processing report");
             if (Boolean.parseBoolean(formatted)) {
-                ReportResult reportResult = generateReportFromFile(recording, transformers, filter);
+                ReportResult reportResult =
+                        STDIN_RECORDING.equals(args[0])
+                                ? generateReport(
+                                        System.in,
+                                        transformers,
+                                        new RuleFilterParser().parse(filter))
+                                : generateReportFromFile(recording, transformers, filter);
                 Logger.INSTANCE.info(
                         SubprocessReportGenerator.class.getName() + " writing report to file");
                 fs.writeString(
@@ -331,7 +442,12 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
 
             } else {
                 Map<String, RuleEvaluation> evalMapResult =
-                        generateEvalMapFromFile(recording, transformers, filter);
+                        STDIN_RECORDING.equals(args[0])
+                                ? generateEvalMap(
+                                        System.in,
+                                        transformers,
+                                        new RuleFilterParser().parse(filter))
+                                : generateEvalMapFromFile(recording, transformers, filter);
                 fs.writeString(
                         saveFile,
                         gson.toJson(evalMapResult),
@@ -354,34 +470,63 @@ public class SubprocessReportGenerator extends AbstractReportGeneratorService {
         }
     }
 
+    static void initializeSubprocess(FileSystem fs) throws Exception {
+        CryostatCore.initialize();
+        // If we're on a system that supports it, set our own OOM score adjustment to
+        // +1000 to ensure we're killed first if memory runs out
+        Path selfProc = fs.pathOf("/proc/self");
+        if (fs.isDirectory(selfProc)) {
+            Logger.INSTANCE.info(
+                    SubprocessReportGenerator.class.getName() + " adjusting subprocess OOM score");
+            Path oomScoreAdj = selfProc.resolve("oom_score_adj");
+            fs.writeString(oomScoreAdj, "1000");
+        } else {
+            Logger.INSTANCE.info(
+                    SubprocessReportGenerator.class.getName()
+                            + "/proc/self does not exist; ignoring OOM score adjustment");
+        }
+    }
+
     static ReportResult generateReportFromFile(
             Path recording, Set<ReportTransformer> transformers, String filter) throws Exception {
         Pair<Predicate<IRule>, FileSystem> hPair = generateHelper(recording, filter);
         try (InputStream stream = hPair.getRight().newInputStream(recording)) {
-            return new InterruptibleReportGenerator(
-                            Logger.INSTANCE, transformers, ForkJoinPool.commonPool())
-                    .generateReportInterruptibly(stream, hPair.getLeft())
-                    .get();
+            return generateReport(stream, transformers, hPair.getLeft());
         } catch (IOException ioe) {
             ioe.printStackTrace();
             throw new SubprocessReportGenerationException(ExitStatus.IO_EXCEPTION);
         }
     }
 
+    static ReportResult generateReport(
+            InputStream stream, Set<ReportTransformer> transformers, Predicate<IRule> rules)
+            throws Exception {
+        return new InterruptibleReportGenerator(
+                        Logger.INSTANCE, transformers, ForkJoinPool.commonPool())
+                .generateReportInterruptibly(stream, rules)
+                .get();
+    }
+
     static Map<String, RuleEvaluation> generateEvalMapFromFile(
             Path recording, Set<ReportTransformer> transformers, String filter) throws Exception {
         Pair<Predicate<IRule>, FileSystem> hPair = generateHelper(recording, filter);
         try (InputStream stream = hPair.getRight().newInputStream(recording)) {
-            return new InterruptibleReportGenerator(
-                            Logger.INSTANCE, transformers, ForkJoinPool.commonPool())
-                    .generateEvalMapInterruptibly(stream, hPair.getLeft())
-                    .get();
+            return generateEvalMap(stream, transformers, hPair.getLeft());
         } catch (IOException ioe) {
             ioe.printStackTrace();
             throw new SubprocessReportGenerationException(ExitStatus.IO_EXCEPTION);
         }
     }
 
+    static Map<String, RuleEvaluation> generateEvalMap(
+            InputStream stream, Set<ReportTransformer> transformers, Predicate<IRule> rules)
+            throws Exception {
+        return new InterruptibleReportGenerator(
+                        Logger.INSTANCE, transformers, ForkJoinPool.commonPool())
+                .generateEvalMapInterruptibly(stream, rules)
+                .get();
+    }
+
     static Pair<Predicate<IRule>, FileSystem> generateHelper(Path recording, String filter)
             throws Exception {
         var fs = new FileSystem();
@@ -0,0 +1,130 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.web.http;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import io.cryostat.recordings.RecordingArchiveHelper;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Sends archived recordings that were stored compressed. Clients that accept gzip content
+ * encoding receive the stored file as-is; all other clients receive a decompressed copy, so the
+ * response body is always a plain JFR file once the client has decoded it.
+ */
+public final class ArchivedRecordingResponses {
+
+    private static final String GZIP = "gzip";
+
+    private ArchivedRecordingResponses() {}
+
+    public static void sendCompressed(
+            RoutingContext ctx, RecordingArchiveHelper recordingArchiveHelper, Path recording)
+            throws IOException {
+        HttpServerResponse response = ctx.response();
+        response.putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.OCTET_STREAM.mime());
+        if (acceptsGzip(ctx)) {
+            response.putHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            response.putHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(Files.size(recording)));
+            response.sendFile(recording.toString());
+            return;
+        }
+        ctx.vertx()
+                .<Path>executeBlocking(
+                        promise -> {
+                            try {
+                                promise.complete(
+                                        recordingArchiveHelper.decompressToTemporaryFile(
+                                                recording));
+                            } catch (IOException e) {
+                                promise.fail(e);
+                            }
+                        },
+                        false)
+                .onFailure(ctx::fail)
+                .onSuccess(
+                        decompressed -> {
+                            try {
+                                response.putHeader(
+                                        HttpHeaders.CONTENT_LENGTH,
+                                        Long.toString(Files.size(decompressed)));
+                            } catch (IOException e) {
+                                deleteQuietly(decompressed);
+                                ctx.fail(e);
+                                return;
+                            }
+                            response.sendFile(
+                                    decompressed.toString(), ar -> deleteQuietly(decompressed));
+                        });
+    }
+
+    private static boolean acceptsGzip(RoutingContext ctx) {
+        String acceptEncoding = ctx.request().getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!GZIP.equalsIgnoreCase(parts[0].trim())) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].replace(" ", "");
+                if (param.equals("q=0") || param.matches("q=0\\.0*")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // nothing more can be done here. The file is in the system temporary directory, so it
+            // is not mistaken for an archived recording or a cached report
+        }
+    }
+}
@@ -44,6 +44,7 @@ public enum HttpMimeType {
     HTML("text/html"),
     JSON("application/json"),
     JSON_RAW("application/json"),
+    NDJSON("application/x-ndjson"),
     OCTET_STREAM("application/octet-stream"),
     JFC("application/jfc+xml"),
     XML("application/xml"),
@@ -85,6 +85,14 @@ public abstract class HttpApiBetaModule {
     @IntoSet
     abstract RequestHandler bindReportGetHandler(ReportGetHandler handler);
 
+    @Binds
+    @IntoSet
+    abstract RequestHandler bindReportsBatchPostHandler(ReportsBatchPostHandler handler);
+
+    @Binds
+    @IntoSet
+    abstract RequestHandler bindReportsBatchPostBodyHandler(ReportsBatchPostBodyHandler handler);
+
     @Binds
     @IntoSet
     abstract RequestHandler bindReportGetWithJwtHandler(ReportGetWithJwtHandler handler);
@@ -50,6 +50,7 @@ import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.security.jwt.AssetJwtHelper;
 import io.cryostat.net.web.WebServer;
+import io.cryostat.net.web.http.ArchivedRecordingResponses;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.net.web.http.api.ApiVersion;
 import io.cryostat.net.web.http.api.v2.AbstractAssetJwtConsumingHandler;
@@ -120,6 +121,11 @@ public class RecordingGetFromPathWithJwtHandler extends AbstractAssetJwtConsumin
                     .putHeader(
                             HttpHeaders.CONTENT_DISPOSITION,
                             String.format("attachment; filename=\"%s\"", recordingName));
+            if (recordingArchiveHelper.isCompressed(archivedRecording)) {
+                ArchivedRecordingResponses.sendCompressed(
+                        ctx, recordingArchiveHelper, archivedRecording);
+                return;
+            }
             ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.OCTET_STREAM.mime());
             ctx.response().sendFile(archivedRecording.toAbsolutePath().toString());
         } catch (ExecutionException e) {
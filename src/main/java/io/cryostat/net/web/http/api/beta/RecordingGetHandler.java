@@ -37,6 +37,7 @@
  */
 package io.cryostat.net.web.http.api.beta;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.EnumSet;
 import java.util.List;
@@ -48,6 +49,7 @@ import javax.inject.Inject;
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
+import io.cryostat.net.web.http.ArchivedRecordingResponses;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.net.web.http.api.ApiVersion;
 import io.cryostat.net.web.http.api.v2.AbstractV2RequestHandler;
@@ -60,6 +62,7 @@ import io.cryostat.recordings.RecordingSourceTargetNotFoundException;
 
 import com.google.gson.Gson;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
 
 public class RecordingGetHandler extends AbstractV2RequestHandler<Path> {
 
@@ -130,4 +133,19 @@ public class RecordingGetHandler extends AbstractV2RequestHandler<Path> {
             throw e;
         }
     }
+
+    @Override
+    protected void writeResponse(RoutingContext ctx, IntermediateResponse<Path> response) {
+        Path archivedRecording = response.getBody();
+        if (!recordingArchiveHelper.isCompressed(archivedRecording)) {
+            super.writeResponse(ctx, response);
+            return;
+        }
+        try {
+            ArchivedRecordingResponses.sendCompressed(
+                    ctx, recordingArchiveHelper, archivedRecording);
+        } catch (IOException e) {
+            throw new ApiException(500, e);
+        }
+    }
 }
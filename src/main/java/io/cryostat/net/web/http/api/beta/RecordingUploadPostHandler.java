@@ -185,34 +185,38 @@ class RecordingUploadPostHandler extends AbstractV2RequestHandler<String> {
             throw e;
         }
 
-        MultipartForm form =
-                MultipartForm.create()
-                        .binaryFileUpload(
-                                "file",
-                                WebServer.DATASOURCE_FILENAME,
-                                recordingPath.toString(),
-                                HttpMimeType.OCTET_STREAM.toString());
-
-        CompletableFuture<ResponseMessage> future = new CompletableFuture<>();
-        webClient
-                .postAbs(uploadUrl.toURI().resolve("/load").normalize().toString())
-                .addQueryParam("overwrite", "true")
-                .timeout(TimeUnit.SECONDS.toMillis(httpTimeoutSeconds))
-                .sendMultipartForm(
-                        form,
-                        uploadHandler -> {
-                            if (uploadHandler.failed()) {
-                                future.completeExceptionally(uploadHandler.cause());
-                                return;
-                            }
-                            HttpResponse<Buffer> response = uploadHandler.result();
-                            future.complete(
-                                    new ResponseMessage(
-                                            response.statusCode(),
-                                            response.statusMessage(),
-                                            response.bodyAsString()));
-                        });
-        return future.get();
+        return recordingArchiveHelper.withUncompressed(
+                recordingPath,
+                uploadPath -> {
+                    MultipartForm form =
+                            MultipartForm.create()
+                                    .binaryFileUpload(
+                                            "file",
+                                            WebServer.DATASOURCE_FILENAME,
+                                            uploadPath.toString(),
+                                            HttpMimeType.OCTET_STREAM.toString());
+
+                    CompletableFuture<ResponseMessage> future = new CompletableFuture<>();
+                    webClient
+                            .postAbs(uploadUrl.toURI().resolve("/load").normalize().toString())
+                            .addQueryParam("overwrite", "true")
+                            .timeout(TimeUnit.SECONDS.toMillis(httpTimeoutSeconds))
+                            .sendMultipartForm(
+                                    form,
+                                    uploadHandler -> {
+                                        if (uploadHandler.failed()) {
+                                            future.completeExceptionally(uploadHandler.cause());
+                                            return;
+                                        }
+                                        HttpResponse<Buffer> response = uploadHandler.result();
+                                        future.complete(
+                                                new ResponseMessage(
+                                                        response.statusCode(),
+                                                        response.statusMessage(),
+                                                        response.bodyAsString()));
+                                });
+                return future.get();
+                });
     }
 
     private static class ResponseMessage {
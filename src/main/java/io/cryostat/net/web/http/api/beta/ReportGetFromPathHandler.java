@@ -43,16 +43,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.reports.ReportGenerationException;
 import io.cryostat.net.reports.ReportService;
-import io.cryostat.net.reports.ReportsModule;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.net.web.http.api.ApiVersion;
@@ -65,6 +62,7 @@ import io.cryostat.rules.ArchivePathException;
 
 import com.google.gson.Gson;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 public class ReportGetFromPathHandler extends AbstractV2RequestHandler<Path> {
@@ -72,19 +70,15 @@ public class ReportGetFromPathHandler extends AbstractV2RequestHandler<Path> {
     static final String PATH = "fs/reports/:subdirectoryName/:recordingName";
 
     private final ReportService reportService;
-    private final long reportGenerationTimeoutSeconds;
 
     @Inject
     ReportGetFromPathHandler(
             AuthManager auth,
             CredentialsManager credentialsManager,
             Gson gson,
-            ReportService reportService,
-            @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS)
-                    long reportGenerationTimeoutSeconds) {
+            ReportService reportService) {
         super(auth, credentialsManager, gson);
         this.reportService = reportService;
-        this.reportGenerationTimeoutSeconds = reportGenerationTimeoutSeconds;
     }
 
     @Override
@@ -140,7 +134,7 @@ public class ReportGetFromPathHandler extends AbstractV2RequestHandler<Path> {
             Path report =
                     reportService
                             .getFromPath(subdirectoryName, recordingName, rawFilter, formatted)
-                            .get(reportGenerationTimeoutSeconds, TimeUnit.SECONDS);
+                            .get();
             return new IntermediateResponse<Path>().body(report);
         } catch (ExecutionException | CompletionException e) {
             if (ExceptionUtils.getRootCause(e) instanceof ReportGenerationException) {
@@ -155,4 +149,12 @@ public class ReportGetFromPathHandler extends AbstractV2RequestHandler<Path> {
             throw e;
         }
     }
+
+    @Override
+    protected void writeResponse(RoutingContext ctx, IntermediateResponse<Path> response) {
+        // the report is released once the response has ended, whether or not it was sent in full
+        Path report = response.getBody();
+        ctx.addEndHandler(ar -> reportService.release(report));
+        super.writeResponse(ctx, response);
+    }
 }
@@ -43,16 +43,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.reports.ReportService;
-import io.cryostat.net.reports.ReportsModule;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.security.jwt.AssetJwtHelper;
 import io.cryostat.net.web.WebServer;
@@ -76,7 +73,6 @@ class ReportGetFromPathWithJwtHandler extends AbstractAssetJwtConsumingHandler {
     static final String PATH = "fs/reports/:subdirectoryName/:recordingName/jwt";
 
     private final ReportService reportService;
-    private final long generationTimeoutSeconds;
 
     @Inject
     ReportGetFromPathWithJwtHandler(
@@ -86,11 +82,9 @@ class ReportGetFromPathWithJwtHandler extends AbstractAssetJwtConsumingHandler {
             Lazy<WebServer> webServer,
             ReportService reportService,
             RecordingArchiveHelper recordingArchiveHelper,
-            @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             Logger logger) {
         super(auth, credentialsManager, jwtFactory, webServer, logger);
         this.reportService = reportService;
-        this.generationTimeoutSeconds = generationTimeoutSeconds;
     }
 
     @Override
@@ -146,10 +140,13 @@ class ReportGetFromPathWithJwtHandler extends AbstractAssetJwtConsumingHandler {
             Path report =
                     reportService
                             .getFromPath(subdirectoryName, recordingName, rawFilter, formatted)
-                            .get(generationTimeoutSeconds, TimeUnit.SECONDS);
+                            .get();
             ctx.response().putHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
             ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, contentType);
-            ctx.response().sendFile(report.toAbsolutePath().toString());
+            ctx.response()
+                    .sendFile(
+                            report.toAbsolutePath().toString(),
+                            ar -> reportService.release(report));
         } catch (ExecutionException | CompletionException e) {
             if (ExceptionUtils.getRootCause(e) instanceof RecordingNotFoundException
                     || ExceptionUtils.getRootCause(e) instanceof ArchivePathException) {
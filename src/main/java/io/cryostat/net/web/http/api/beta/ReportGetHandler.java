@@ -43,16 +43,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.reports.ReportGenerationException;
 import io.cryostat.net.reports.ReportService;
-import io.cryostat.net.reports.ReportsModule;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.net.web.http.api.ApiVersion;
@@ -66,6 +63,7 @@ import io.cryostat.recordings.RecordingSourceTargetNotFoundException;
 
 import com.google.gson.Gson;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 public class ReportGetHandler extends AbstractV2RequestHandler<Path> {
@@ -74,7 +72,6 @@ public class ReportGetHandler extends AbstractV2RequestHandler<Path> {
 
     private final ReportService reportService;
     private final RecordingArchiveHelper recordingArchiveHelper;
-    private final long reportGenerationTimeoutSeconds;
 
     @Inject
     ReportGetHandler(
@@ -82,13 +79,10 @@ public class ReportGetHandler extends AbstractV2RequestHandler<Path> {
             CredentialsManager credentialsManager,
             Gson gson,
             ReportService reportService,
-            RecordingArchiveHelper recordingArchiveHelper,
-            @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS)
-                    long reportGenerationTimeoutSeconds) {
+            RecordingArchiveHelper recordingArchiveHelper) {
         super(auth, credentialsManager, gson);
         this.reportService = reportService;
         this.recordingArchiveHelper = recordingArchiveHelper;
-        this.reportGenerationTimeoutSeconds = reportGenerationTimeoutSeconds;
     }
 
     @Override
@@ -143,9 +137,7 @@ public class ReportGetHandler extends AbstractV2RequestHandler<Path> {
                             : params.getAcceptableContentType();
             boolean formatted = contentType.equals(HttpMimeType.HTML.mime());
             Path report =
-                    reportService
-                            .get(sourceTarget, recordingName, rawFilter, formatted)
-                            .get(reportGenerationTimeoutSeconds, TimeUnit.SECONDS);
+                    reportService.get(sourceTarget, recordingName, rawFilter, formatted).get();
             return new IntermediateResponse<Path>().body(report);
         } catch (RecordingSourceTargetNotFoundException e) {
             throw new ApiException(404, e.getMessage(), e);
@@ -161,4 +153,12 @@ public class ReportGetHandler extends AbstractV2RequestHandler<Path> {
             throw e;
         }
     }
+
+    @Override
+    protected void writeResponse(RoutingContext ctx, IntermediateResponse<Path> response) {
+        // the report is released once the response has ended, whether or not it was sent in full
+        Path report = response.getBody();
+        ctx.addEndHandler(ar -> reportService.release(report));
+        super.writeResponse(ctx, response);
+    }
 }
@@ -43,16 +43,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.reports.ReportService;
-import io.cryostat.net.reports.ReportsModule;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.security.jwt.AssetJwtHelper;
 import io.cryostat.net.web.WebServer;
@@ -77,7 +74,6 @@ class ReportGetWithJwtHandler extends AbstractAssetJwtConsumingHandler {
 
     private final ReportService reportService;
     private final RecordingArchiveHelper recordingArchiveHelper;
-    private final long generationTimeoutSeconds;
 
     @Inject
     ReportGetWithJwtHandler(
@@ -87,12 +83,10 @@ class ReportGetWithJwtHandler extends AbstractAssetJwtConsumingHandler {
             Lazy<WebServer> webServer,
             ReportService reportService,
             RecordingArchiveHelper recordingArchiveHelper,
-            @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS) long generationTimeoutSeconds,
             Logger logger) {
         super(auth, credentialsManager, jwtFactory, webServer, logger);
         this.reportService = reportService;
         this.recordingArchiveHelper = recordingArchiveHelper;
-        this.generationTimeoutSeconds = generationTimeoutSeconds;
     }
 
     @Override
@@ -147,12 +141,13 @@ class ReportGetWithJwtHandler extends AbstractAssetJwtConsumingHandler {
                             : ctx.getAcceptableContentType();
             boolean formatted = contentType.equals(HttpMimeType.HTML.mime());
             Path report =
-                    reportService
-                            .get(sourceTarget, recordingName, rawFilter, formatted)
-                            .get(generationTimeoutSeconds, TimeUnit.SECONDS);
+                    reportService.get(sourceTarget, recordingName, rawFilter, formatted).get();
             ctx.response().putHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
             ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, contentType);
-            ctx.response().sendFile(report.toAbsolutePath().toString());
+            ctx.response()
+                    .sendFile(
+                            report.toAbsolutePath().toString(),
+                            ar -> reportService.release(report));
         } catch (RecordingSourceTargetNotFoundException e) {
             throw new ApiException(404, e.getMessage(), e);
         } catch (ExecutionException | CompletionException ee) {
@@ -0,0 +1,297 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.web.http.api.beta;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Inject;
+
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.net.AuthManager;
+import io.cryostat.net.reports.ReportGenerationException;
+import io.cryostat.net.reports.ReportService;
+import io.cryostat.net.security.ResourceAction;
+import io.cryostat.net.web.http.AbstractAuthenticatedRequestHandler;
+import io.cryostat.net.web.http.HttpMimeType;
+import io.cryostat.net.web.http.api.ApiVersion;
+import io.cryostat.net.web.http.api.v2.ApiException;
+import io.cryostat.recordings.RecordingArchiveHelper;
+import io.cryostat.recordings.RecordingNotFoundException;
+import io.cryostat.recordings.RecordingSourceTargetNotFoundException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import io.vertx.core.Context;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+/**
+ * Generates the automated analysis reports of many archived recordings at once. Each report is
+ * written to the response as one line of JSON as soon as it is available, so the lines are in
+ * completion order rather than request order. A recording whose report cannot be generated in time
+ * gets an error line instead, and does not fail the rest of the batch.
+ */
+public class ReportsBatchPostHandler extends AbstractAuthenticatedRequestHandler {
+
+    static final String PATH = "reports";
+
+    private final ReportService reportService;
+    private final RecordingArchiveHelper recordingArchiveHelper;
+    private final FileSystem fs;
+    private final Gson gson;
+
+    @Inject
+    ReportsBatchPostHandler(
+            AuthManager auth,
+            CredentialsManager credentialsManager,
+            ReportService reportService,
+            RecordingArchiveHelper recordingArchiveHelper,
+            FileSystem fs,
+            Gson gson,
+            Logger logger) {
+        super(auth, credentialsManager, logger);
+        this.reportService = reportService;
+        this.recordingArchiveHelper = recordingArchiveHelper;
+        this.fs = fs;
+        this.gson = gson;
+    }
+
+    @Override
+    public ApiVersion apiVersion() {
+        return ApiVersion.BETA;
+    }
+
+    @Override
+    public HttpMethod httpMethod() {
+        return HttpMethod.POST;
+    }
+
+    @Override
+    public Set<ResourceAction> resourceActions() {
+        return EnumSet.of(
+                ResourceAction.READ_RECORDING,
+                ResourceAction.CREATE_REPORT,
+                ResourceAction.READ_REPORT);
+    }
+
+    @Override
+    public String path() {
+        return basePath() + PATH;
+    }
+
+    @Override
+    public List<HttpMimeType> produces() {
+        return List.of(HttpMimeType.NDJSON);
+    }
+
+    @Override
+    public List<HttpMimeType> consumes() {
+        return List.of(HttpMimeType.JSON);
+    }
+
+    @Override
+    public boolean isAsync() {
+        return false;
+    }
+
+    @Override
+    public boolean isOrdered() {
+        return false;
+    }
+
+    @Override
+    public void handleAuthenticated(RoutingContext ctx) throws Exception {
+        BatchRequest request;
+        try {
+            request = gson.fromJson(ctx.getBodyAsString(), BatchRequest.class);
+        } catch (JsonParseException e) {
+            throw new ApiException(400, "JSON formatting error", e);
+        }
+        if (request == null || request.recordings() == null || request.recordings().isEmpty()) {
+            throw new ApiException(400, "'recordings' is required.");
+        }
+        for (BatchEntry entry : request.recordings()) {
+            if (entry == null
+                    || StringUtils.isBlank(entry.sourceTarget())
+                    || StringUtils.isBlank(entry.recordingName())) {
+                throw new ApiException(
+                        400, "'sourceTarget' and 'recordingName' are required for each recording.");
+            }
+        }
+        String filter = StringUtils.defaultString(request.filter());
+
+        ctx.response().setChunked(true);
+        ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.NDJSON.mime());
+        // lines are written as their reports complete rather than by blocking this worker thread
+        // until the whole batch is done
+        LineWriter writer = new LineWriter(ctx, request.recordings().size());
+        for (BatchEntry entry : request.recordings()) {
+            getReport(entry, filter)
+                    .whenComplete(
+                            (report, t) -> {
+                                if (writer.isClosed()) {
+                                    // the client has gone away. The report stays cached for the
+                                    // next request
+                                    if (report != null) {
+                                        reportService.release(report);
+                                    }
+                                    return;
+                                }
+                                writer.write(toLine(entry, report, t));
+                            });
+        }
+    }
+
+    private CompletableFuture<Path> getReport(BatchEntry entry, String filter) {
+        try {
+            recordingArchiveHelper.validateSourceTarget(entry.sourceTarget());
+        } catch (RecordingSourceTargetNotFoundException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return reportService.getBatched(entry.sourceTarget(), entry.recordingName(), filter, false);
+    }
+
+    private String toLine(BatchEntry entry, Path report, Throwable error) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("sourceTarget", entry.sourceTarget());
+        line.put("recordingName", entry.recordingName());
+        if (error == null) {
+            try (Reader reader = fs.readFile(report)) {
+                line.put("report", JsonParser.parseReader(reader));
+            } catch (IOException | JsonParseException e) {
+                error = e;
+            } finally {
+                reportService.release(report);
+            }
+        }
+        if (error != null) {
+            logger.warn(error);
+            line.put(
+                    "error",
+                    Map.of(
+                            "status",
+                            statusCode(error),
+                            "message",
+                            ExceptionUtils.getRootCauseMessage(error)));
+        }
+        return gson.toJson(line) + "\n";
+    }
+
+    private static int statusCode(Throwable error) {
+        Throwable cause = ExceptionUtils.getRootCause(error);
+        if (cause instanceof ReportGenerationException) {
+            return ((ReportGenerationException) cause).getStatusCode();
+        }
+        if (cause instanceof RecordingNotFoundException
+                || cause instanceof RecordingSourceTargetNotFoundException) {
+            return 404;
+        }
+        if (cause instanceof TimeoutException) {
+            return 504;
+        }
+        return 500;
+    }
+
+    /**
+     * Writes lines to the response on its Vert.x context, holding them back while the response's
+     * write queue is full, and ends the response once every expected line has been written.
+     */
+    private static class LineWriter {
+        private final Context context;
+        private final HttpServerResponse response;
+        // only accessed on the context
+        private final Queue<String> pending = new ArrayDeque<>();
+        private int remaining;
+        private volatile boolean closed;
+
+        LineWriter(RoutingContext ctx, int lines) {
+            this.context = ctx.vertx().getOrCreateContext();
+            this.response = ctx.response();
+            this.remaining = lines;
+            response.closeHandler(v -> closed = true);
+            response.drainHandler(v -> drain());
+        }
+
+        boolean isClosed() {
+            return closed || response.closed();
+        }
+
+        void write(String line) {
+            context.runOnContext(
+                    v -> {
+                        pending.add(line);
+                        drain();
+                    });
+        }
+
+        private void drain() {
+            while (!pending.isEmpty() && !response.writeQueueFull()) {
+                if (isClosed()) {
+                    pending.clear();
+                    return;
+                }
+                response.write(pending.poll());
+                if (--remaining == 0) {
+                    response.end();
+                }
+            }
+        }
+    }
+
+    static record BatchRequest(String filter, List<BatchEntry> recordings) {}
+
+    static record BatchEntry(String sourceTarget, String recordingName) {}
+}
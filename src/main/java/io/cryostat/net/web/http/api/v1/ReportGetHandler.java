@@ -43,17 +43,14 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.reports.ReportGenerationException;
 import io.cryostat.net.reports.ReportService;
-import io.cryostat.net.reports.ReportsModule;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.DeprecatedApi;
 import io.cryostat.net.web.http.AbstractAuthenticatedRequestHandler;
@@ -73,19 +70,15 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 class ReportGetHandler extends AbstractAuthenticatedRequestHandler {
 
     private final ReportService reportService;
-    private final long reportGenerationTimeoutSeconds;
 
     @Inject
     ReportGetHandler(
             AuthManager auth,
             CredentialsManager credentialsManager,
             ReportService reportService,
-            @Named(ReportsModule.REPORT_GENERATION_TIMEOUT_SECONDS)
-                    long reportGenerationTimeoutSeconds,
             Logger logger) {
         super(auth, credentialsManager, logger);
         this.reportService = reportService;
-        this.reportGenerationTimeoutSeconds = reportGenerationTimeoutSeconds;
     }
 
     @Override
@@ -133,14 +126,12 @@ class ReportGetHandler extends AbstractAuthenticatedRequestHandler {
         String rawFilter = queriedFilter.isEmpty() ? "" : queriedFilter.get(0);
         try {
 
-            Path report =
-                    reportService
-                            .get(recordingName, rawFilter, true)
-                            .get(reportGenerationTimeoutSeconds, TimeUnit.SECONDS);
+            Path report = reportService.get(recordingName, rawFilter, true).get();
             ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.HTML.mime());
             ctx.response()
-                    .putHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(report.toFile().length()));
-            ctx.response().sendFile(report.toAbsolutePath().toString());
+                    .sendFile(
+                            report.toAbsolutePath().toString(),
+                            ar -> reportService.release(report));
         } catch (ExecutionException | CompletionException ee) {
             if (ExceptionUtils.getRootCause(ee) instanceof ReportGenerationException) {
                 ReportGenerationException rge =
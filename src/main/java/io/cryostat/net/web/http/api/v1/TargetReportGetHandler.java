@@ -37,6 +37,7 @@
  */
 package io.cryostat.net.web.http.api.v1;
 
+import java.nio.file.Path;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -135,16 +136,19 @@ class TargetReportGetHandler extends AbstractAuthenticatedRequestHandler {
                         : ctx.getAcceptableContentType();
         boolean formatted = contentType.equals(HttpMimeType.HTML.mime());
         try {
+            Path report =
+                    reportService
+                            .get(
+                                    getConnectionDescriptorFromContext(ctx),
+                                    recordingName,
+                                    rawFilter,
+                                    formatted)
+                            .get(reportGenerationTimeoutSeconds, TimeUnit.SECONDS);
             ctx.response()
                     .putHeader(HttpHeaders.CONTENT_TYPE, contentType)
-                    .end(
-                            reportService
-                                    .get(
-                                            getConnectionDescriptorFromContext(ctx),
-                                            recordingName,
-                                            rawFilter,
-                                            formatted)
-                                    .get(reportGenerationTimeoutSeconds, TimeUnit.SECONDS));
+                    .sendFile(
+                            report.toAbsolutePath().toString(),
+                            ar -> reportService.release(report));
         } catch (CompletionException | ExecutionException ee) {
 
             Exception rootCause = (Exception) ExceptionUtils.getRootCause(ee);
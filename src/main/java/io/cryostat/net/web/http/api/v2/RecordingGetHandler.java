@@ -51,6 +51,7 @@ import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.security.jwt.AssetJwtHelper;
 import io.cryostat.net.web.DeprecatedApi;
 import io.cryostat.net.web.WebServer;
+import io.cryostat.net.web.http.ArchivedRecordingResponses;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.net.web.http.api.ApiVersion;
 import io.cryostat.recordings.RecordingArchiveHelper;
@@ -115,6 +116,11 @@ class RecordingGetHandler extends AbstractAssetJwtConsumingHandler {
                     .putHeader(
                             HttpHeaders.CONTENT_DISPOSITION,
                             String.format("attachment; filename=\"%s\"", recordingName));
+            if (recordingArchiveHelper.isCompressed(archivedRecording)) {
+                ArchivedRecordingResponses.sendCompressed(
+                        ctx, recordingArchiveHelper, archivedRecording);
+                return;
+            }
             ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.OCTET_STREAM.mime());
             ctx.response()
                     .putHeader(
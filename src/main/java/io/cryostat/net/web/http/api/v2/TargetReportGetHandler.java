@@ -37,6 +37,7 @@
  */
 package io.cryostat.net.web.http.api.v2;
 
+import java.nio.file.Path;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -137,17 +138,20 @@ class TargetReportGetHandler extends AbstractAssetJwtConsumingHandler {
                         : ctx.getAcceptableContentType();
         boolean formatted = contentType.equals(HttpMimeType.HTML.mime());
         try {
+            Path report =
+                    reportService
+                            .get(
+                                    getConnectionDescriptorFromJwt(ctx, jwt),
+                                    recordingName,
+                                    rawFilter,
+                                    formatted)
+                            .get(reportGenerationTimeoutSeconds, TimeUnit.SECONDS);
             ctx.response()
                     .putHeader(HttpHeaders.CONTENT_TYPE, contentType)
                     .putHeader(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                    .end(
-                            reportService
-                                    .get(
-                                            getConnectionDescriptorFromJwt(ctx, jwt),
-                                            recordingName,
-                                            rawFilter,
-                                            formatted)
-                                    .get(reportGenerationTimeoutSeconds, TimeUnit.SECONDS));
+                    .sendFile(
+                            report.toAbsolutePath().toString(),
+                            ar -> reportService.release(report));
         } catch (CompletionException | ExecutionException ee) {
 
             Exception rootCause = (Exception) ExceptionUtils.getRootCause(ee);
@@ -43,6 +43,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -54,6 +55,7 @@ import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Aggregate
 import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Archived;
 import io.cryostat.net.web.http.api.v2.graph.labels.LabelSelectorMatcher;
 import io.cryostat.recordings.RecordingArchiveHelper;
+import io.cryostat.recordings.RecordingMetadataManager;
 import io.cryostat.rules.ArchivedRecordingInfo;
 
 import graphql.schema.DataFetchingEnvironment;
@@ -61,13 +63,18 @@ import graphql.schema.DataFetchingEnvironment;
 class AllArchivedRecordingsFetcher extends AbstractPermissionedDataFetcher<Archived> {
 
     private final RecordingArchiveHelper archiveHelper;
+    private final RecordingMetadataManager metadataManager;
     private final Logger logger;
 
     @Inject
     AllArchivedRecordingsFetcher(
-            AuthManager auth, RecordingArchiveHelper archiveHelper, Logger logger) {
+            AuthManager auth,
+            RecordingArchiveHelper archiveHelper,
+            RecordingMetadataManager metadataManager,
+            Logger logger) {
         super(auth);
         this.archiveHelper = archiveHelper;
+        this.metadataManager = metadataManager;
         this.logger = logger;
     }
 
@@ -113,15 +120,13 @@ class AllArchivedRecordingsFetcher extends AbstractPermissionedDataFetcher<Archi
         }
         if (filter.contains(FilterInput.Key.LABELS)) {
             List<String> labels = filter.get(FilterInput.Key.LABELS);
-            for (String label : labels) {
-                recordings =
-                        recordings.stream()
-                                .filter(
-                                        r ->
-                                                LabelSelectorMatcher.parse(label)
-                                                        .test(r.getMetadata().getLabels()))
-                                .collect(Collectors.toList());
-            }
+            List<LabelSelectorMatcher> selectors =
+                    labels.stream().map(LabelSelectorMatcher::parse).collect(Collectors.toList());
+            BiPredicate<String, String> matcher = metadataManager.getLabelMatcher(selectors);
+            recordings =
+                    recordings.stream()
+                            .filter(r -> matcher.test(r.getJvmId(), r.getName()))
+                            .collect(Collectors.toList());
         }
         if (filter.contains(FilterInput.Key.SIZE_GE)) {
             long fileSize = filter.get(FilterInput.Key.SIZE_GE);
@@ -0,0 +1,131 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.web.http.api.v2.graph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.inject.Inject;
+
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.net.AuthManager;
+import io.cryostat.net.reports.ReportService;
+import io.cryostat.net.security.ResourceAction;
+import io.cryostat.rules.ArchivedRecordingInfo;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import graphql.schema.DataFetchingEnvironment;
+import org.apache.commons.lang3.StringUtils;
+
+class ArchivedRecordingReportFetcher
+        extends AbstractPermissionedDataFetcher<CompletableFuture<Map<String, Object>>> {
+
+    private static final Type REPORT_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    private final ReportService reportService;
+    private final FileSystem fs;
+    private final Gson gson;
+
+    @Inject
+    ArchivedRecordingReportFetcher(
+            AuthManager auth, ReportService reportService, FileSystem fs, Gson gson) {
+        super(auth);
+        this.reportService = reportService;
+        this.fs = fs;
+        this.gson = gson;
+    }
+
+    @Override
+    Set<String> applicableContexts() {
+        return Set.of("ArchivedRecording");
+    }
+
+    @Override
+    String name() {
+        return "report";
+    }
+
+    // the report is returned as a future rather than waited for on a pooled thread, which could
+    // otherwise leave no threads free for the generations being waited on
+    @Override
+    boolean blocking() {
+        return false;
+    }
+
+    @Override
+    public Set<ResourceAction> resourceActions() {
+        return EnumSet.of(
+                ResourceAction.READ_RECORDING,
+                ResourceAction.CREATE_REPORT,
+                ResourceAction.READ_REPORT);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getAuthenticated(
+            DataFetchingEnvironment environment) throws Exception {
+        ArchivedRecordingInfo source = environment.getSource();
+        String filter = StringUtils.defaultString(environment.getArgument("filter"));
+        // the reports of every recording in a query's result list are fetched concurrently, so
+        // they go through the bounded batch path rather than each starting its own generation
+        CompletableFuture<Path> report =
+                reportService.getBatched(source.getServiceUri(), source.getName(), filter, false);
+        CompletableFuture<Map<String, Object>> parsed = report.thenApply(this::read);
+        return parsed.whenComplete(
+                (r, t) -> {
+                    if (!report.isCompletedExceptionally()) {
+                        reportService.release(report.join());
+                    }
+                });
+    }
+
+    private Map<String, Object> read(Path report) {
+        try (Reader reader = fs.readFile(report)) {
+            return gson.fromJson(reader, REPORT_TYPE);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
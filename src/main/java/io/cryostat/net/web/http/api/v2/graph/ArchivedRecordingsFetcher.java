@@ -42,6 +42,7 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -51,6 +52,7 @@ import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Archived;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
 import io.cryostat.net.web.http.api.v2.graph.labels.LabelSelectorMatcher;
+import io.cryostat.recordings.RecordingMetadataManager;
 import io.cryostat.rules.ArchivedRecordingInfo;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -63,9 +65,12 @@ import graphql.schema.DataFetchingEnvironment;
                         + " the GraphQL engine")
 class ArchivedRecordingsFetcher extends AbstractPermissionedDataFetcher<Archived> {
 
+    private final RecordingMetadataManager metadataManager;
+
     @Inject
-    ArchivedRecordingsFetcher(AuthManager auth) {
+    ArchivedRecordingsFetcher(AuthManager auth, RecordingMetadataManager metadataManager) {
         super(auth);
+        this.metadataManager = metadataManager;
     }
 
     @Override
@@ -101,15 +106,13 @@ class ArchivedRecordingsFetcher extends AbstractPermissionedDataFetcher<Archived
         }
         if (filter.contains(FilterInput.Key.LABELS)) {
             List<String> labels = filter.get(FilterInput.Key.LABELS);
-            for (String label : labels) {
-                recordings =
-                        recordings.stream()
-                                .filter(
-                                        r ->
-                                                LabelSelectorMatcher.parse(label)
-                                                        .test(r.getMetadata().getLabels()))
-                                .collect(Collectors.toList());
-            }
+            List<LabelSelectorMatcher> selectors =
+                    labels.stream().map(LabelSelectorMatcher::parse).collect(Collectors.toList());
+            BiPredicate<String, String> matcher = metadataManager.getLabelMatcher(selectors);
+            recordings =
+                    recordings.stream()
+                            .filter(r -> matcher.test(r.getJvmId(), r.getName()))
+                            .collect(Collectors.toList());
         }
         if (filter.contains(FilterInput.Key.SIZE_GE)) {
             long fileSize = filter.get(FilterInput.Key.SIZE_GE);
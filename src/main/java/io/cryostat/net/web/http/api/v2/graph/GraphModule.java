@@ -48,9 +48,11 @@ import javax.inject.Singleton;
 
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
 import io.cryostat.discovery.DiscoveryStorage;
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.net.reports.ReportService;
 import io.cryostat.net.web.WebServer;
 import io.cryostat.net.web.http.RequestHandler;
 import io.cryostat.recordings.RecordingArchiveHelper;
@@ -212,8 +214,12 @@ public abstract class GraphModule {
 
     @Provides
     static AllArchivedRecordingsFetcher provideAllArchivedRecordingsFetcher(
-            AuthManager auth, RecordingArchiveHelper recordingArchiveHelper, Logger logger) {
-        return new AllArchivedRecordingsFetcher(auth, recordingArchiveHelper, logger);
+            AuthManager auth,
+            RecordingArchiveHelper recordingArchiveHelper,
+            RecordingMetadataManager recordingMetadataManager,
+            Logger logger) {
+        return new AllArchivedRecordingsFetcher(
+                auth, recordingArchiveHelper, recordingMetadataManager, logger);
     }
 
     @Binds
@@ -222,8 +228,9 @@ public abstract class GraphModule {
             AllArchivedRecordingsFetcher apdf);
 
     @Provides
-    static ArchivedRecordingsFetcher provideArchivedRecordingsFetcher(AuthManager auth) {
-        return new ArchivedRecordingsFetcher(auth);
+    static ArchivedRecordingsFetcher provideArchivedRecordingsFetcher(
+            AuthManager auth, RecordingMetadataManager recordingMetadataManager) {
+        return new ArchivedRecordingsFetcher(auth, recordingMetadataManager);
     }
 
     @Binds
@@ -420,6 +427,17 @@ public abstract class GraphModule {
     abstract AbstractPermissionedDataFetcher<?> bindDeleteArchivedRecordingMutator(
             DeleteArchivedRecordingMutator apdf);
 
+    @Provides
+    static ArchivedRecordingReportFetcher provideArchivedRecordingReportFetcher(
+            AuthManager auth, ReportService reportService, FileSystem fs, Gson gson) {
+        return new ArchivedRecordingReportFetcher(auth, reportService, fs, gson);
+    }
+
+    @Binds
+    @IntoSet
+    abstract AbstractPermissionedDataFetcher<?> bindArchivedRecordingReportFetcher(
+            ArchivedRecordingReportFetcher apdf);
+
     @Provides
     static MBeanMetricsFetcher provideMBeanMetricsFetcher(
             AuthManager auth,
@@ -54,6 +54,7 @@ import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.net.web.http.RequestHandler;
 import io.cryostat.net.web.http.api.ApiVersion;
+import io.cryostat.recordings.StartupMigrationProgress;
 import io.cryostat.util.HttpStatusCodeIdentifier;
 
 import com.google.gson.Gson;
@@ -70,6 +71,7 @@ class HealthGetHandler implements RequestHandler {
     private final WebClient webClient;
     private final Environment env;
     private final Gson gson;
+    private final StartupMigrationProgress migrationProgress;
     private final Logger logger;
 
     @Inject
@@ -78,11 +80,13 @@ class HealthGetHandler implements RequestHandler {
             WebClient webClient,
             Environment env,
             Gson gson,
+            StartupMigrationProgress migrationProgress,
             Logger logger) {
         this.appVersion = appVersion;
         this.webClient = webClient;
         this.env = env;
         this.gson = gson;
+        this.migrationProgress = migrationProgress;
         this.logger = logger;
     }
 
@@ -144,7 +148,9 @@ class HealthGetHandler implements RequestHandler {
                                         "reportsConfigured",
                                         env.hasEnv(Variables.REPORT_GENERATOR_ENV),
                                         "reportsAvailable",
-                                        reportsAvailable.join())));
+                                        reportsAvailable.join(),
+                                        "archiveMigration",
+                                        migrationProgress.snapshot())));
     }
 
     private void checkUri(String envName, String path, CompletableFuture<Boolean> future) {
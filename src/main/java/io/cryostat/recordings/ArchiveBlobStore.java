@@ -0,0 +1,306 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.cryostat.core.log.Logger;
+
+/**
+ * Content-addressed storage for archived recordings. Each distinct recording payload is kept once
+ * as a blob named by the digest of its uncompressed content, and every archived recording name is
+ * a hard link to its blob. Saving a recording whose content is already archived therefore only
+ * adds a new name, and the filesystem link count serves as the blob reference count: a blob with
+ * no remaining names is removed by {@link #release(Path)} when a single name is deleted, or by
+ * {@link #collectGarbage()} after bulk deletions. Blobs are found from their names by file key
+ * (device and inode), which is indexed as blobs are created and, once, from the blobs directory
+ * for blobs created before startup. Archived recordings are never
+ * modified in place, so sharing storage between names is safe.
+ *
+ * <p>If the archive filesystem does not support hard links, deduplication is disabled and each
+ * recording keeps its own copy.
+ */
+class ArchiveBlobStore {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int LINK_ATTEMPTS = 3;
+
+    private final Path blobsPath;
+    private final String digestAlgorithm;
+    private final Logger logger;
+    private final Map<Object, String> blobKeys = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+    private volatile boolean indexed;
+
+    ArchiveBlobStore(Path blobsPath, boolean enabled, String digestAlgorithm, Logger logger) {
+        if (enabled) {
+            newDigest(digestAlgorithm);
+        }
+        this.blobsPath = blobsPath;
+        this.enabled = enabled;
+        this.digestAlgorithm = digestAlgorithm;
+        this.logger = logger;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Share storage between the newly archived recording and any archived recording with the same
+     * content. If a blob with the same content exists, the recording is atomically replaced by a
+     * link to it; otherwise the recording becomes the blob for its content.
+     *
+     * @param recording the newly archived recording
+     * @param digest the hex-encoded digest of the uncompressed recording content, if it was
+     *     already computed using this store's digest algorithm while the recording was written
+     */
+    void deduplicate(Path recording, Optional<String> digest) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        String key = digest.isPresent() ? digest.get() : digestOf(recording);
+        Files.createDirectories(blobsPath);
+        Path blob = blobsPath.resolve(key);
+        try {
+            for (int attempt = 0; attempt < LINK_ATTEMPTS; attempt++) {
+                try {
+                    Files.createLink(blob, recording);
+                    index(blob, key);
+                    return;
+                } catch (FileAlreadyExistsException e) {
+                    // identical content is already archived, so link to it instead
+                }
+                if (Files.isSameFile(blob, recording)) {
+                    index(blob, key);
+                    return;
+                }
+                Path link = blobsPath.resolve(key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+                try {
+                    Files.createLink(link, blob);
+                } catch (NoSuchFileException e) {
+                    // the blob was collected after losing its last name, so adopt this copy
+                    continue;
+                }
+                try {
+                    Files.move(
+                            link,
+                            recording,
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(link);
+                }
+                index(blob, key);
+                logger.trace("Deduplicated {} with blob {}", recording, key);
+                return;
+            }
+            logger.warn("Could not deduplicate {}, keeping a separate copy", recording);
+        } catch (UnsupportedOperationException e) {
+            logger.warn(
+                    "Archive filesystem does not support hard links, disabling deduplication");
+            enabled = false;
+        }
+    }
+
+    /**
+     * Find the blob which stores an archived recording. This should be called before the recording
+     * is deleted, and the result passed to {@link #release(Path)} afterward.
+     *
+     * @return the blob, or empty if the recording does not share storage with a blob
+     */
+    Optional<Path> findBlob(Path recording) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            Object fileKey = fileKey(recording);
+            if (fileKey == null) {
+                return Optional.empty();
+            }
+            ensureIndexed();
+            String key = blobKeys.get(fileKey);
+            if (key == null) {
+                return Optional.empty();
+            }
+            Path blob = blobsPath.resolve(key);
+            if (!Files.isSameFile(blob, recording)) {
+                blobKeys.remove(fileKey, key);
+                return Optional.empty();
+            }
+            return Optional.of(blob);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            logger.warn(e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Remove the blob if it is no longer referenced by any archived recording name. This should be
+     * called after the recording found by {@link #findBlob(Path)} is deleted.
+     */
+    void release(Path blob) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Object fileKey = fileKey(blob);
+            if (removeIfUnreferenced(blob) && fileKey != null) {
+                blobKeys.remove(fileKey);
+            }
+        } catch (NoSuchFileException e) {
+            // removed concurrently
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            logger.warn("Archive filesystem does not report link counts");
+        } catch (IOException e) {
+            logger.warn(e);
+        }
+    }
+
+    /**
+     * Remove all blobs which are no longer referenced by any archived recording name. This scans
+     * the whole blobs directory, so it should only be called after bulk deletions of archived
+     * recordings.
+     */
+    void collectGarbage() {
+        if (!enabled || !Files.isDirectory(blobsPath)) {
+            return;
+        }
+        try (DirectoryStream<Path> blobs = Files.newDirectoryStream(blobsPath)) {
+            for (Path blob : blobs) {
+                String name = blob.getFileName().toString();
+                try {
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        continue;
+                    }
+                    Object fileKey = fileKey(blob);
+                    if (removeIfUnreferenced(blob) && fileKey != null) {
+                        blobKeys.remove(fileKey);
+                    }
+                } catch (NoSuchFileException e) {
+                    // removed concurrently
+                } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                    logger.warn("Archive filesystem does not report link counts");
+                    return;
+                } catch (IOException e) {
+                    logger.warn(e);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn(e);
+        }
+    }
+
+    private boolean removeIfUnreferenced(Path blob) throws IOException {
+        if (((Number) Files.getAttribute(blob, "unix:nlink")).intValue() > 1) {
+            return false;
+        }
+        Files.deleteIfExists(blob);
+        logger.trace("Removed unreferenced blob {}", blob.getFileName());
+        return true;
+    }
+
+    private void index(Path blob, String key) throws IOException {
+        Object fileKey = fileKey(blob);
+        if (fileKey != null) {
+            blobKeys.put(fileKey, key);
+        }
+    }
+
+    private synchronized void ensureIndexed() throws IOException {
+        if (indexed) {
+            return;
+        }
+        if (Files.isDirectory(blobsPath)) {
+            try (DirectoryStream<Path> blobs = Files.newDirectoryStream(blobsPath)) {
+                for (Path blob : blobs) {
+                    String name = blob.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        continue;
+                    }
+                    try {
+                        index(blob, name);
+                    } catch (NoSuchFileException e) {
+                        // removed concurrently
+                    }
+                }
+            }
+        }
+        indexed = true;
+    }
+
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    private String digestOf(Path recording) throws IOException {
+        MessageDigest digest = newDigest(digestAlgorithm);
+        try (InputStream stream =
+                new DigestInputStream(ArchiveCompression.openUncompressed(recording), digest)) {
+            stream.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+
+/**
+ * In-memory index of the archived recordings directory tree. The catalog is populated from disk
+ * the first time it is used and is afterward kept up to date by {@link RecordingArchiveHelper} as
+ * recordings are saved, uploaded, deleted or migrated, so that listing the archives or locating a
+ * recording by name does not require walking and stat-ing every subdirectory on each request.
+ * Directories which have not been read yet are not tracked and updates to them are ignored, since
+ * they will be read from disk when they are first used.
+ */
+class ArchiveCatalog {
+
+    static final String CONNECT_URL = "connectUrl";
+
+    private final FileSystem fs;
+    private final Logger logger;
+
+    // guarded by this
+    private final Map<String, Directory> directories = new LinkedHashMap<>();
+    private final Map<String, Set<String>> subdirectoriesByFilename = new HashMap<>();
+    private boolean populated;
+
+    ArchiveCatalog(FileSystem fs, Logger logger) {
+        this.fs = fs;
+        this.logger = logger;
+    }
+
+    /**
+     * Read the archive root from disk, if it has not been read yet. Subdirectories which are
+     * already tracked are retained as-is.
+     *
+     * @param archivedRecordingsPath the archive root
+     */
+    synchronized void populate(Path archivedRecordingsPath) throws IOException {
+        if (populated) {
+            return;
+        }
+        Map<String, Directory> loaded = new LinkedHashMap<>();
+        for (String subdirectoryName : fs.listDirectoryChildren(archivedRecordingsPath)) {
+            if (subdirectoryName.equals(RecordingArchiveHelper.BLOBS_SUBDIRECTORY)) {
+                continue;
+            }
+            Directory directory = directories.get(subdirectoryName);
+            if (directory == null) {
+                directory =
+                        read(subdirectoryName, archivedRecordingsPath.resolve(subdirectoryName));
+            }
+            loaded.put(subdirectoryName, directory);
+        }
+        directories.clear();
+        subdirectoriesByFilename.clear();
+        loaded.values().forEach(this::track);
+        populated = true;
+    }
+
+    /**
+     * List every archive subdirectory, reading the archive root from disk on first use.
+     *
+     * @param archivedRecordingsPath the archive root
+     * @param connectUrlReader used to determine the connectUrl of a subdirectory read from disk
+     */
+    synchronized List<Listing> list(Path archivedRecordingsPath, ConnectUrlReader connectUrlReader)
+            throws IOException, InterruptedException, ExecutionException {
+        populate(archivedRecordingsPath);
+        List<Listing> listings = new ArrayList<>(directories.size());
+        for (Directory directory : directories.values()) {
+            if (directory.connectUrl == null) {
+                directory.connectUrl = connectUrlReader.read(directory.path).get();
+            }
+            listings.add(directory.toListing());
+        }
+        return listings;
+    }
+
+    /**
+     * List a single archive subdirectory, reading it from disk if it is not yet tracked.
+     *
+     * @param subdirectoryName the encoded subdirectory name
+     * @param subdirectoryPath the subdirectory location
+     */
+    synchronized Listing list(String subdirectoryName, Path subdirectoryPath) throws IOException {
+        return get(subdirectoryName, subdirectoryPath).toListing();
+    }
+
+    /**
+     * Locate a recording file by name in any archive subdirectory, reading the archive root from
+     * disk on first use. Entries whose files no longer exist, for example because the archives were
+     * modified externally, are dropped from the catalog rather than returned.
+     *
+     * @param archivedRecordingsPath the archive root
+     * @param filename the recording file name
+     */
+    synchronized Optional<Path> find(Path archivedRecordingsPath, String filename)
+            throws IOException {
+        populate(archivedRecordingsPath);
+        Set<String> subdirectoryNames = subdirectoriesByFilename.get(filename);
+        if (subdirectoryNames == null) {
+            return Optional.empty();
+        }
+        for (String subdirectoryName : List.copyOf(subdirectoryNames)) {
+            Optional<Path> path = existing(directories.get(subdirectoryName), filename);
+            if (path.isPresent()) {
+                return path;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Locate a recording file by name in a single archive subdirectory, reading the subdirectory
+     * from disk if it is not yet tracked.
+     *
+     * @param subdirectoryName the encoded subdirectory name
+     * @param subdirectoryPath the subdirectory location
+     * @param filename the recording file name
+     */
+    synchronized Optional<Path> find(
+            String subdirectoryName, Path subdirectoryPath, String filename) throws IOException {
+        return existing(get(subdirectoryName, subdirectoryPath), filename);
+    }
+
+    /**
+     * Record a recording file which was found in an archive subdirectory. Its archive time is read
+     * from disk when first needed.
+     *
+     * @param connectUrl the subdirectory's connectUrl, or null if it should be determined from
+     *     disk when next listed
+     */
+    synchronized void add(
+            String subdirectoryName, Path subdirectoryPath, String connectUrl, String filename) {
+        add(subdirectoryName, subdirectoryPath, connectUrl, filename, -1);
+    }
+
+    /**
+     * Record a recording file which was just written into an archive subdirectory. The archive
+     * time is kept with the entry because the file may have been linked to an existing blob, whose
+     * attributes describe whichever recording was archived with the same content first.
+     *
+     * @param connectUrl the subdirectory's connectUrl, or null if it should be determined from
+     *     disk when next listed
+     * @param archivedTime the time at which the recording was archived, in epoch milliseconds
+     */
+    synchronized void add(
+            String subdirectoryName,
+            Path subdirectoryPath,
+            String connectUrl,
+            String filename,
+            long archivedTime) {
+        Directory directory = directories.get(subdirectoryName);
+        if (directory == null) {
+            if (!populated) {
+                return;
+            }
+            directory = new Directory(subdirectoryName, subdirectoryPath, connectUrl);
+            directories.put(subdirectoryName, directory);
+        }
+        putEntry(directory, filename, archivedTime);
+    }
+
+    /**
+     * Get the catalog entry for a recording file in a single archive subdirectory, reading the
+     * subdirectory from disk if it is not yet tracked.
+     */
+    synchronized Optional<Entry> get(
+            String subdirectoryName, Path subdirectoryPath, String filename) throws IOException {
+        return Optional.ofNullable(get(subdirectoryName, subdirectoryPath).entries.get(filename));
+    }
+
+    /** Forget a recording file which was removed from an archive subdirectory. */
+    synchronized Optional<Entry> remove(String subdirectoryName, String filename) {
+        Directory directory = directories.get(subdirectoryName);
+        if (directory == null) {
+            return Optional.empty();
+        }
+        unindex(subdirectoryName, filename);
+        return Optional.ofNullable(directory.entries.remove(filename));
+    }
+
+    /** Forget an archive subdirectory which was removed from disk. */
+    synchronized void removeDirectory(String subdirectoryName) {
+        Directory directory = directories.remove(subdirectoryName);
+        if (directory != null) {
+            directory.entries.keySet().forEach(filename -> unindex(subdirectoryName, filename));
+        }
+    }
+
+    /**
+     * Discard the catalog so that it is read again from disk on next use. Used after bulk
+     * operations which restructure the archive tree, such as subdirectory migrations.
+     */
+    synchronized void invalidate() {
+        directories.clear();
+        subdirectoriesByFilename.clear();
+        populated = false;
+    }
+
+    private Optional<Path> existing(Directory directory, String filename) {
+        Entry entry = directory.entries.get(filename);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (!fs.exists(entry.path)) {
+            directory.entries.remove(filename);
+            unindex(directory.name, filename);
+            return Optional.empty();
+        }
+        return Optional.of(entry.path);
+    }
+
+    private Directory get(String subdirectoryName, Path subdirectoryPath) throws IOException {
+        Directory directory = directories.get(subdirectoryName);
+        if (directory == null) {
+            directory = read(subdirectoryName, subdirectoryPath);
+            track(directory);
+        }
+        return directory;
+    }
+
+    private Directory read(String subdirectoryName, Path subdirectoryPath) throws IOException {
+        Directory directory = new Directory(subdirectoryName, subdirectoryPath, null);
+        for (String filename : fs.listDirectoryChildren(subdirectoryPath)) {
+            if (CONNECT_URL.equals(filename)) {
+                continue;
+            }
+            directory.entries.put(
+                    filename, new Entry(filename, subdirectoryPath.resolve(filename), -1));
+        }
+        return directory;
+    }
+
+    private void track(Directory directory) {
+        directories.put(directory.name, directory);
+        directory.entries.keySet().forEach(filename -> index(directory.name, filename));
+    }
+
+    private void putEntry(Directory directory, String filename, long archivedTime) {
+        directory.entries.put(
+                filename, new Entry(filename, directory.path.resolve(filename), archivedTime));
+        index(directory.name, filename);
+    }
+
+    private void index(String subdirectoryName, String filename) {
+        subdirectoriesByFilename
+                .computeIfAbsent(filename, k -> new LinkedHashSet<>())
+                .add(subdirectoryName);
+    }
+
+    private void unindex(String subdirectoryName, String filename) {
+        Set<String> subdirectoryNames = subdirectoriesByFilename.get(filename);
+        if (subdirectoryNames != null) {
+            subdirectoryNames.remove(subdirectoryName);
+            if (subdirectoryNames.isEmpty()) {
+                subdirectoriesByFilename.remove(filename);
+            }
+        }
+    }
+    @FunctionalInterface
+    interface ConnectUrlReader {
+        Future<String> read(Path subdirectoryPath);
+    }
+
+    static record Listing(
+            String subdirectoryName, Path path, String connectUrl, List<Entry> entries) {}
+
+    private static class Directory {
+        final String name;
+        final Path path;
+        String connectUrl;
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+
+        Directory(String name, Path path, String connectUrl) {
+            this.name = name;
+            this.path = path;
+            this.connectUrl = connectUrl;
+        }
+
+        Listing toListing() {
+            return new Listing(name, path, connectUrl, List.copyOf(entries.values()));
+        }
+    }
+
+    /**
+     * A single archived recording file. File attributes are read lazily on first access and
+     * retained afterward, since archived recordings are not modified in place. A recording which
+     * shares storage with a blob also shares its file times with every other name linked to that
+     * blob, so unless its archive time was recorded when it was written, it is taken from the
+     * timestamp in the recording's name.
+     */
+    class Entry {
+        private final String filename;
+        private final Path path;
+        private volatile long size = -1;
+        private volatile long archivedTime;
+
+        private Entry(String filename, Path path, long archivedTime) {
+            this.filename = filename;
+            this.path = path;
+            this.archivedTime = archivedTime;
+        }
+
+        String getFilename() {
+            return filename;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        long getSize() {
+            if (size < 0) {
+                try {
+                    size = ArchiveCompression.size(path);
+                } catch (IOException e) {
+                    logger.error("Invalid path: {}", filename);
+                    return 0;
+                }
+            }
+            return size;
+        }
+
+        long getArchivedTime() {
+            if (archivedTime < 0) {
+                try {
+                    archivedTime = readArchivedTime();
+                } catch (IOException e) {
+                    logger.error("Invalid path: {}", filename);
+                    return 0;
+                }
+            }
+            return archivedTime;
+        }
+
+        private long readArchivedTime() throws IOException {
+            if (isLinked()) {
+                Optional<Long> time = timeFromName();
+                if (time.isPresent()) {
+                    return time.get();
+                }
+            }
+            return ((FileTime) Files.getAttribute(path, "creationTime")).toMillis();
+        }
+
+        private boolean isLinked() throws IOException {
+            try {
+                return ((Number) Files.getAttribute(path, "unix:nlink")).intValue() > 1;
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        private Optional<Long> timeFromName() {
+            Matcher m = RecordingArchiveHelper.RECORDING_FILENAME_PATTERN.matcher(filename);
+            if (!m.lookingAt()) {
+                return Optional.empty();
+            }
+            return RecordingArchiveHelper.parseTimestamp(m.group(3)).map(Instant::toEpochMilli);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression of archived recordings stored with {@link ArchiveWriter.Compression#GZIP}. These are
+ * written as gzip streams whose header carries an extra field (RFC 1952, section 2.3.1.1) marking
+ * them as compressed by Cryostat and holding the uncompressed recording size. Only archives with
+ * this header are treated as compressed, so an uploaded recording which happens to be a gzip file
+ * is stored, listed and served exactly as it was uploaded. Compressed archives keep their original
+ * file names.
+ */
+final class ArchiveCompression {
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    // magic, CM = deflate, FLG = FEXTRA, MTIME = 0, XFL = 0, OS = unknown, XLEN = 12, then a
+    // single "Cy" subfield holding the uncompressed size as a little-endian long
+    private static final byte[] HEADER_PREFIX = {
+        0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 12, 0, 'C', 'y', 8, 0
+    };
+    private static final int HEADER_LENGTH = HEADER_PREFIX.length + Long.BYTES;
+
+    private ArchiveCompression() {}
+
+    static boolean isCompressed(Path path) throws IOException {
+        try (InputStream stream = Files.newInputStream(path)) {
+            return isMarkedHeader(stream.readNBytes(HEADER_LENGTH));
+        }
+    }
+
+    /**
+     * The size of the recording stored at the given path: the uncompressed size if it was stored
+     * compressed, otherwise the file size.
+     */
+    static long size(Path path) throws IOException {
+        try (InputStream stream = Files.newInputStream(path)) {
+            byte[] header = stream.readNBytes(HEADER_LENGTH);
+            if (isMarkedHeader(header)) {
+                return ByteBuffer.wrap(header, HEADER_PREFIX.length, Long.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .getLong();
+            }
+        }
+        return Files.size(path);
+    }
+
+    /**
+     * Open the archived recording for reading, decompressing it while it is read if it was stored
+     * compressed.
+     */
+    static InputStream openUncompressed(Path path) throws IOException {
+        InputStream stream =
+                new BufferedInputStream(Files.newInputStream(path), STREAM_BUFFER_SIZE);
+        try {
+            stream.mark(HEADER_LENGTH);
+            byte[] header = stream.readNBytes(HEADER_LENGTH);
+            stream.reset();
+            if (isMarkedHeader(header)) {
+                return new GZIPInputStream(stream, STREAM_BUFFER_SIZE);
+            }
+            return stream;
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Begin writing a compressed archive. The uncompressed size in the header is left as zero and
+     * must be filled in with {@link #writeUncompressedSize(FileChannel, long)} once the returned
+     * stream is finished.
+     */
+    static DeflaterOutputStream compress(OutputStream out, int bufferSize) throws IOException {
+        out.write(HEADER_PREFIX);
+        out.write(new byte[Long.BYTES]);
+        return new GzipBodyOutputStream(out, bufferSize);
+    }
+
+    static void writeUncompressedSize(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(size).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, HEADER_PREFIX.length + buffer.position());
+        }
+    }
+
+    private static boolean isMarkedHeader(byte[] header) {
+        return header.length == HEADER_LENGTH
+                && Arrays.equals(
+                        header,
+                        0,
+                        HEADER_PREFIX.length,
+                        HEADER_PREFIX,
+                        0,
+                        HEADER_PREFIX.length);
+    }
+
+    /** Raw deflate data followed by the gzip trailer, for use after a custom gzip header. */
+    private static class GzipBodyOutputStream extends DeflaterOutputStream {
+
+        private final CRC32 crc = new CRC32();
+
+        GzipBodyOutputStream(OutputStream out, int bufferSize) {
+            super(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true), bufferSize);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (def.finished()) {
+                return;
+            }
+            super.finish();
+            // CRC-32 and uncompressed size modulo 2^32, both little-endian
+            ByteBuffer trailer = ByteBuffer.allocate(2 * Integer.BYTES);
+            trailer.order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue()).putInt((int) def.getBytesRead());
+            out.write(trailer.array());
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                def.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+
+/**
+ * Records the archive subdirectories which the startup migration has found to already be in the
+ * current layout. Checking a subdirectory requires connecting to its target to determine the JVM
+ * ID, so a restarted migration skips the recorded subdirectories and resumes with the remainder.
+ * Subdirectory names are appended to the checkpoint file one per line as they are completed.
+ */
+class ArchiveMigrationCheckpoint {
+
+    private final Path path;
+    private final FileSystem fs;
+    private final Logger logger;
+
+    // guarded by this
+    private Set<String> completed;
+
+    ArchiveMigrationCheckpoint(Path path, FileSystem fs, Logger logger) {
+        this.path = path;
+        this.fs = fs;
+        this.logger = logger;
+    }
+
+    synchronized boolean isCompleted(String subdirectoryName) {
+        return load().contains(subdirectoryName);
+    }
+
+    synchronized void complete(String subdirectoryName) {
+        if (!load().add(subdirectoryName)) {
+            return;
+        }
+        try {
+            fs.writeString(
+                    path,
+                    subdirectoryName + System.lineSeparator(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // the subdirectory will be checked again on the next startup
+            logger.warn(e);
+        }
+    }
+
+    private Set<String> load() {
+        if (completed == null) {
+            completed = new HashSet<>();
+            if (fs.exists(path)) {
+                try {
+                    fs.readString(path).lines().filter(s -> !s.isBlank()).forEach(completed::add);
+                } catch (IOException e) {
+                    logger.warn("Could not read archive migration checkpoint {}", path);
+                    logger.warn(e);
+                }
+            }
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+import java.util.zip.DeflaterOutputStream;
+
+import io.cryostat.core.log.Logger;
+
+/**
+ * Writes recording streams into the archives through a {@link FileChannel}, using a bounded pool
+ * of direct buffers. The pool size limits how many recordings may be written concurrently, so
+ * that many simultaneous saves (for example from several periodic archivers) cannot exhaust
+ * memory; further writers wait for a buffer to be returned. Writes may be cancelled, either
+ * explicitly or by interrupting the writing thread, in which case the partially written file is
+ * removed. Cancellation is checked between chunks and never closes the source stream.
+ * Recordings may optionally be compressed as they are written, see {@link ArchiveCompression}.
+ */
+class ArchiveWriter {
+
+    static final long PROGRESS_INTERVAL_BYTES = 64L * 1024 * 1024;
+    private static final int TRANSFER_SIZE = 8 * 1024;
+
+    private final int bufferSize;
+    private final Semaphore permits;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final Optional<String> checksumAlgorithm;
+    private final Compression compression;
+    private final Logger logger;
+
+    ArchiveWriter(
+            int bufferSize,
+            int maxConcurrentWrites,
+            Optional<String> checksumAlgorithm,
+            Compression compression,
+            Logger logger) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        if (maxConcurrentWrites < 1) {
+            throw new IllegalArgumentException("Maximum concurrent writes must be positive");
+        }
+        checksumAlgorithm.ifPresent(ArchiveWriter::newDigest);
+        this.bufferSize = bufferSize;
+        this.permits = new Semaphore(maxConcurrentWrites, true);
+        this.checksumAlgorithm = checksumAlgorithm;
+        this.compression = compression;
+        this.logger = logger;
+    }
+
+    /**
+     * Copy the stream into a new file at the destination. The destination must not already
+     * exist.
+     *
+     * @param stream the recording stream. This is not closed by the writer.
+     * @param destination the file to create
+     * @param listener notified periodically with the number of bytes written so far
+     * @return the number of bytes written and, if enabled, the checksum of the written content.
+     *     Both refer to the uncompressed recording.
+     * @throws InterruptedIOException if the writing thread is interrupted
+     */
+    Result write(InputStream stream, Path destination, ProgressListener listener)
+            throws IOException {
+        return write(stream, destination, listener, () -> false);
+    }
+
+    /**
+     * Copy the stream into a new file at the destination, unless cancelled. See {@link
+     * #write(InputStream, Path, ProgressListener)}.
+     *
+     * @param cancelled polled between chunks, the write is abandoned once this returns true
+     * @throws InterruptedIOException if the write is cancelled or the writing thread is interrupted
+     */
+    Result write(
+            InputStream stream,
+            Path destination,
+            ProgressListener listener,
+            BooleanSupplier cancelled)
+            throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        MessageDigest digest = checksumAlgorithm.map(ArchiveWriter::newDigest).orElse(null);
+        FileChannel out = null;
+        boolean complete = false;
+        try {
+            out =
+                    FileChannel.open(
+                            destination, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            Result result;
+            try (DeflaterOutputStream compressed =
+                    compression == Compression.GZIP
+                            ? ArchiveCompression.compress(
+                                    Channels.newOutputStream(out), bufferSize)
+                            : null) {
+                // read through a small transfer array rather than Channels.newChannel, whose
+                // channel closes the source stream if the writing thread is interrupted
+                byte[] transfer = new byte[Math.min(TRANSFER_SIZE, bufferSize)];
+                long written = 0;
+                long reported = 0;
+                boolean eof = false;
+                while (!eof) {
+                    if (cancelled.getAsBoolean() || Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException(
+                                "Archive write cancelled: " + destination);
+                    }
+                    while (buffer.hasRemaining()) {
+                        int read =
+                                stream.read(
+                                        transfer, 0, Math.min(transfer.length, buffer.remaining()));
+                        if (read < 0) {
+                            eof = true;
+                            break;
+                        }
+                        buffer.put(transfer, 0, read);
+                    }
+                    buffer.flip();
+                    if (digest != null) {
+                        digest.update(buffer.duplicate());
+                    }
+                    if (compressed != null) {
+                        written += buffer.remaining();
+                        compressed.write(
+                                buffer.array(),
+                                buffer.arrayOffset() + buffer.position(),
+                                buffer.remaining());
+                    } else {
+                        while (buffer.hasRemaining()) {
+                            written += out.write(buffer);
+                        }
+                    }
+                    buffer.clear();
+                    if (written - reported >= PROGRESS_INTERVAL_BYTES) {
+                        reported = written;
+                        listener.onProgress(written);
+                    }
+                }
+                if (compressed != null) {
+                    compressed.finish();
+                    ArchiveCompression.writeUncompressedSize(out, written);
+                }
+                result =
+                        new Result(
+                                written,
+                                Optional.ofNullable(digest)
+                                        .map(d -> HexFormat.of().formatHex(d.digest())));
+            }
+            complete = true;
+            return result;
+        } finally {
+            releaseBuffer(buffer);
+            if (out != null) {
+                out.close();
+                if (!complete) {
+                    try {
+                        Files.deleteIfExists(destination);
+                    } catch (IOException e) {
+                        logger.warn("Failed to remove incomplete archive {}", destination);
+                    }
+                }
+            }
+        }
+    }
+
+    private ByteBuffer acquireBuffer() throws InterruptedIOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an archive buffer");
+        }
+        ByteBuffer buffer = buffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        // compressing streams consume heap arrays, so a direct buffer would only add a copy
+        return compression == Compression.GZIP
+                ? ByteBuffer.allocate(bufferSize)
+                : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        buffers.offer(buffer);
+        permits.release();
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    enum Compression {
+        NONE,
+        GZIP,
+    }
+
+    @FunctionalInterface
+    interface ProgressListener {
+        void onProgress(long bytesWritten);
+    }
+
+    static record Result(long size, Optional<String> checksum) {}
+}
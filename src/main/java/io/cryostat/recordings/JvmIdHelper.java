@@ -57,6 +57,7 @@ import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
 import io.cryostat.core.net.JFRConnection;
 import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.ConnectionPriority;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
@@ -138,7 +139,10 @@ public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, Strin
         try {
             CompletableFuture<String> future =
                     this.targetConnectionManager.executeConnectedTaskAsync(
-                            new ConnectionDescriptor(uriStr, credentialsManager.getCredentials(sr)),
+                            new ConnectionDescriptor(
+                                    uriStr,
+                                    credentialsManager.getCredentials(sr),
+                                    ConnectionPriority.DISCOVERY),
                             JFRConnection::getJvmId);
             future.thenAccept(
                     id -> {
@@ -185,7 +189,8 @@ public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, Strin
                                 targetId,
                                 credentials.isPresent()
                                         ? credentials.get()
-                                        : credentialsManager.getCredentialsByTargetId(targetId)),
+                                        : credentialsManager.getCredentialsByTargetId(targetId),
+                                ConnectionPriority.DISCOVERY),
                         JFRConnection::getJvmId);
         future.thenAccept(id -> logger.info("JVM ID: {} -> {}", targetId, id));
         return future;
@@ -229,7 +234,8 @@ public class JvmIdHelper extends AbstractEventEmitter<JvmIdHelper.IdEvent, Strin
     public boolean isSpecialDirectory(String directoryName) {
         return directoryName.equals(RecordingArchiveHelper.UPLOADED_RECORDINGS_SUBDIRECTORY)
                 || directoryName.equals(RecordingArchiveHelper.TEMP_UPLOADS_SUBDIRECTORY)
-                || directoryName.equals(RecordingArchiveHelper.LOST_RECORDINGS_SUBDIRECTORY);
+                || directoryName.equals(RecordingArchiveHelper.LOST_RECORDINGS_SUBDIRECTORY)
+                || directoryName.equals(RecordingArchiveHelper.BLOBS_SUBDIRECTORY);
     }
 
     public static class JvmIdGetException extends IOException {
@@ -42,6 +42,7 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
@@ -49,6 +50,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
@@ -120,9 +122,13 @@ public class RecordingArchiveHelper {
     private final JvmIdHelper jvmIdHelper;
     private final Vertx vertx;
     private final Base32 base32;
+    private final ArchiveWriter archiveWriter;
+    private final ArchiveBlobStore blobStore;
+    private final ArchiveCatalog catalog;
 
     private static final String SAVE_NOTIFICATION_CATEGORY = "ActiveRecordingSaved";
-    private static final String DELETE_NOTIFICATION_CATEGORY = "ArchivedRecordingDeleted";
+    private static final String SAVE_PROGRESS_NOTIFICATION_CATEGORY = "ActiveRecordingSaveProgress";
+    public static final String DELETE_NOTIFICATION_CATEGORY = "ArchivedRecordingDeleted";
     private static final long FS_TIMEOUT_SECONDS = 1;
 
     public static final Pattern RECORDING_FILENAME_PATTERN =
@@ -137,8 +143,9 @@ public class RecordingArchiveHelper {
     public static final String DEFAULT_CACHED_REPORT_SUBDIRECTORY = "default";
     public static final String LOST_RECORDINGS_SUBDIRECTORY = "lost";
     public static final String TEMP_UPLOADS_SUBDIRECTORY = "file-uploads";
+    public static final String BLOBS_SUBDIRECTORY = "blobs";
     public static final String MULTIFORM_RECORDINGS_KEY = "recording";
-    private static final String CONNECT_URL = "connectUrl";
+    private static final String CONNECT_URL = ArchiveCatalog.CONNECT_URL;
 
     RecordingArchiveHelper(
             FileSystem fs,
@@ -153,7 +160,9 @@ public class RecordingArchiveHelper {
             NotificationFactory notificationFactory,
             JvmIdHelper jvmIdHelper,
             Vertx vertx,
-            Base32 base32) {
+            Base32 base32,
+            ArchiveWriter archiveWriter,
+            ArchiveBlobStore blobStore) {
         this.fs = fs;
         this.webServerProvider = webServerProvider;
         this.logger = logger;
@@ -167,11 +176,20 @@ public class RecordingArchiveHelper {
         this.jvmIdHelper = jvmIdHelper;
         this.vertx = vertx;
         this.base32 = base32;
+        this.archiveWriter = archiveWriter;
+        this.blobStore = blobStore;
+        this.catalog = new ArchiveCatalog(fs, logger);
     }
 
-    // startup migration for archived recordings
-    protected void migrate(ExecutorService executor) throws Exception {
+    // startup migration for archived recordings. Each subdirectory is migrated independently, so an
+    // interrupted migration is resumed by running it again on the next startup.
+    protected void migrate(
+            ExecutorService executor,
+            StartupMigrationProgress progress,
+            ArchiveMigrationCheckpoint checkpoint)
+            throws Exception {
         List<String> subdirectories = fs.listDirectoryChildren(archivedRecordingsPath);
+        progress.begin(StartupMigrationProgress.Stage.ARCHIVE_MIGRATION, subdirectories.size());
         List<Future<Void>> futures = new ArrayList<>(subdirectories.size());
         for (String subdirectoryName : subdirectories) {
             Future<Void> future =
@@ -186,6 +204,11 @@ public class RecordingArchiveHelper {
                                                 subdirectoryName);
                                         return null;
                                     }
+                                    if (checkpoint.isCompleted(subdirectoryName)) {
+                                        logger.trace(
+                                                "Skipping {} - already migrated", subdirectoryName);
+                                        return null;
+                                    }
                                     logger.info(
                                             "Found archived recordings subdirectory: {}",
                                             subdirectoryName);
@@ -208,6 +231,7 @@ public class RecordingArchiveHelper {
                                     if (Objects.equals(subdirectoryPath, encodedJvmIdPath)) {
                                         logger.info(
                                                 "Skipping {} - no change in ID", subdirectoryPath);
+                                        checkpoint.complete(subdirectoryName);
                                         return null;
                                     }
                                     logger.info(
@@ -229,6 +253,8 @@ public class RecordingArchiveHelper {
                                         Files.move(oldLocation, newLocation);
                                     }
                                     FileUtils.deleteQuietly(subdirectoryPath.toFile());
+                                    checkpoint.complete(
+                                            jvmIdHelper.jvmIdToSubdirectoryName(jvmId));
                                 } catch (JvmIdGetException e) {
                                     logger.warn(
                                             "Failed to migrate archived recordings for {} - no"
@@ -278,8 +304,20 @@ public class RecordingArchiveHelper {
                             });
             futures.add(future);
         }
-        for (var f : futures) {
-            f.get();
+        try {
+            for (var f : futures) {
+                f.get();
+                progress.advance();
+            }
+        } finally {
+            catalog.invalidate();
+        }
+        blobStore.collectGarbage();
+        try {
+            catalog.populate(archivedRecordingsPath);
+        } catch (IOException e) {
+            logger.warn("Failed to index archived recordings");
+            logger.warn(e);
         }
     }
 
@@ -322,6 +360,7 @@ public class RecordingArchiveHelper {
                 Files.move(oldLocation, newLocation);
             }
             fs.deleteIfExists(subdirectoryPath);
+            catalog.invalidate();
 
             logger.info(
                     "[{}]: Archives subdirectory successfully transferred: {} -> {}",
@@ -476,8 +515,11 @@ public class RecordingArchiveHelper {
                     .message(Map.of("recording", archivedRecordingInfo, "target", targetId))
                     .build()
                     .send();
+            Optional<Path> blob = blobStore.findBlob(recordingPath);
             fs.deleteIfExists(recordingPath);
-            checkEmptySubdirectory(subdirectoryPath);
+            catalog.remove(subdirectoryName, filename);
+            blob.ifPresent(blobStore::release);
+            checkEmptySubdirectory(subdirectoryName, subdirectoryPath);
             future.complete(archivedRecordingInfo);
         } catch (IOException | URISyntaxException | InterruptedException | ExecutionException e) {
             future.completeExceptionally(e);
@@ -515,6 +557,7 @@ public class RecordingArchiveHelper {
         CompletableFuture<ArchivedRecordingInfo> future = new CompletableFuture<>();
         String subdirectoryName = null;
         try {
+            Optional<Path> blob = blobStore.findBlob(archivedRecording);
             fs.deleteIfExists(archivedRecording);
             validateSavePath(recordingName, archivedRecording);
             Path parentPath = archivedRecording.getParent();
@@ -523,6 +566,8 @@ public class RecordingArchiveHelper {
             String targetId =
                     sourceTarget == null ? UPLOADED_RECORDINGS_SUBDIRECTORY : sourceTarget;
             subdirectoryName = parentPath.getFileName().toString();
+            catalog.remove(subdirectoryName, filename);
+            blob.ifPresent(blobStore::release);
             ArchivedRecordingInfo archivedRecordingInfo =
                     new ArchivedRecordingInfo(
                             targetId,
@@ -540,7 +585,7 @@ public class RecordingArchiveHelper {
                     .message(Map.of("recording", archivedRecordingInfo, "target", targetId))
                     .build()
                     .send();
-            checkEmptySubdirectory(parentPath);
+            checkEmptySubdirectory(subdirectoryName, parentPath);
             future.complete(archivedRecordingInfo);
         } catch (IOException | URISyntaxException e) {
             future.completeExceptionally(e);
@@ -550,11 +595,22 @@ public class RecordingArchiveHelper {
         return future;
     }
 
-    private void checkEmptySubdirectory(Path parentPath) throws IOException {
+    private void checkEmptySubdirectory(String subdirectoryName, Path parentPath)
+            throws IOException {
         if (fs.listDirectoryChildren(parentPath).size() == 1
                 && fs.listDirectoryChildren(parentPath).contains(CONNECT_URL)) {
             fs.deleteIfExists(parentPath.resolve(CONNECT_URL));
             fs.deleteIfExists(parentPath);
+            catalog.removeDirectory(subdirectoryName);
+        }
+    }
+
+    private void deduplicate(Path recordingPath, Optional<String> digest) {
+        try {
+            blobStore.deduplicate(recordingPath, digest);
+        } catch (IOException e) {
+            logger.warn("Failed to deduplicate {}, keeping a separate copy", recordingPath);
+            logger.warn(e);
         }
     }
 
@@ -570,6 +626,61 @@ public class RecordingArchiveHelper {
         }
     }
 
+    /**
+     * Whether the archived recording at the given path was stored compressed (see {@link
+     * ArchiveWriter.Compression}). Compressed recordings cannot be parsed or served as-is.
+     */
+    public boolean isCompressed(Path recordingPath) {
+        try {
+            return ArchiveCompression.isCompressed(recordingPath);
+        } catch (IOException e) {
+            logger.warn(e);
+            return false;
+        }
+    }
+
+    /**
+     * Open an archived recording for reading, decompressing it as it is read if it was stored
+     * compressed.
+     */
+    public InputStream openUncompressed(Path recordingPath) throws IOException {
+        return ArchiveCompression.openUncompressed(recordingPath);
+    }
+
+    /**
+     * Decompress an archived recording into a file in the temporary directory, for consumers which
+     * can only read a recording from a file. The caller is responsible for deleting the returned
+     * file once it is no longer needed.
+     */
+    public Path decompressToTemporaryFile(Path recordingPath) throws IOException {
+        Path tempFile = fs.createTempFile("decompressed-", ".jfr");
+        try (InputStream stream = ArchiveCompression.openUncompressed(recordingPath)) {
+            fs.copy(stream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return tempFile;
+        } catch (IOException e) {
+            fs.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Run the action against an uncompressed copy of the archived recording. Recordings which are
+     * not stored compressed are passed through as-is, otherwise the action receives a temporary
+     * decompressed file which is deleted once the action returns.
+     */
+    public <T> T withUncompressed(Path recordingPath, UncompressedAction<T> action)
+            throws Exception {
+        if (!isCompressed(recordingPath)) {
+            return action.apply(recordingPath);
+        }
+        Path decompressed = decompressToTemporaryFile(recordingPath);
+        try {
+            return action.apply(decompressed);
+        } finally {
+            fs.deleteIfExists(decompressed);
+        }
+    }
+
     public boolean deleteReports(String subdirectoryName, String recordingName) {
         try {
             logger.info("Invalidating archived report cache for {}", recordingName);
@@ -634,7 +745,8 @@ public class RecordingArchiveHelper {
 
         try {
             String jvmId = jvmIdHelper.getJvmId(targetId);
-            Path specificRecordingsPath = getRecordingSubdirectoryPath(jvmId);
+            String subdirectoryName = jvmIdHelper.jvmIdToSubdirectoryName(jvmId);
+            Path specificRecordingsPath = archivedRecordingsPath.resolve(subdirectoryName);
             if (!fs.exists(archivedRecordingsPath)) {
                 throw new ArchivePathException(archivedRecordingsPath.toString(), "does not exist");
             }
@@ -661,20 +773,21 @@ public class RecordingArchiveHelper {
             }
             WebServer webServer = webServerProvider.get();
             List<ArchivedRecordingInfo> archivedRecordings = new ArrayList<>();
-            this.fs.listDirectoryChildren(specificRecordingsPath).stream()
-                    .filter(filename -> !filename.equals(CONNECT_URL))
+            catalog.list(subdirectoryName, specificRecordingsPath).entries().stream()
                     .map(
-                            file -> {
+                            entry -> {
+                                String file = entry.getFilename();
                                 try {
                                     return new ArchivedRecordingInfo(
                                             targetId,
+                                            jvmId,
                                             file,
                                             webServer.getArchivedDownloadURL(targetId, file),
                                             webServer.getArchivedReportURL(targetId, file),
-                                            recordingMetadataManager.getMetadata(
-                                                    new ConnectionDescriptor(targetId), file),
-                                            getFileSize(file),
-                                            getArchivedTime(file));
+                                            recordingMetadataManager.getMetadataFromPathIfExists(
+                                                    jvmId, file),
+                                            entry.getSize(),
+                                            entry.getArchivedTime());
                                 } catch (IOException | URISyntaxException e) {
                                     logger.warn(e);
                                     return null;
@@ -705,24 +818,24 @@ public class RecordingArchiveHelper {
             }
             WebServer webServer = webServerProvider.get();
             List<ArchiveDirectory> directories = new ArrayList<>();
-            List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
-            for (String subdirectoryName : subdirectories) {
+            for (ArchiveCatalog.Listing listing :
+                    catalog.list(archivedRecordingsPath, this::getConnectUrlFromPath)) {
+                String subdirectoryName = listing.subdirectoryName();
                 if (subdirectoryName.equals(TEMP_UPLOADS_SUBDIRECTORY)) {
                     continue;
                 }
-                Path subdirectory = archivedRecordingsPath.resolve(subdirectoryName);
-                String targetId = getConnectUrlFromPath(subdirectory).get();
+                String targetId = listing.connectUrl();
                 String jvmId = jvmIdHelper.subdirectoryNameToJvmId(subdirectoryName);
-                List<String> files = this.fs.listDirectoryChildren(subdirectory);
                 List<ArchivedRecordingInfo> temp =
-                        files.stream()
-                                .filter(filename -> !filename.equals(CONNECT_URL))
+                        listing.entries().stream()
                                 .map(
-                                        file -> {
+                                        entry -> {
+                                            String file = entry.getFilename();
                                             try {
                                                 // FIXME: string replacing
                                                 return new ArchivedRecordingInfo(
                                                         targetId,
+                                                        jvmId,
                                                         file,
                                                         webServer
                                                                 .getArchivedDownloadURL(
@@ -739,8 +852,8 @@ public class RecordingArchiveHelper {
                                                         recordingMetadataManager
                                                                 .getMetadataFromPathIfExists(
                                                                         jvmId, file),
-                                                        getFileSize(file),
-                                                        getArchivedTime(file));
+                                                        entry.getSize(),
+                                                        entry.getArchivedTime());
                                             } catch (IOException | URISyntaxException e) {
                                                 logger.warn(e);
                                                 return null;
@@ -773,30 +886,30 @@ public class RecordingArchiveHelper {
                         archivedRecordingsPath.toString(), "is not a directory");
             }
             WebServer webServer = webServerProvider.get();
-            List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
             List<ArchivedRecordingInfo> archivedRecordings = new ArrayList<>();
-            for (String subdirectoryName : subdirectories) {
-                Path subdirectory = archivedRecordingsPath.resolve(subdirectoryName);
-                String targetId = getConnectUrlFromPath(subdirectory).get();
-                List<String> files = this.fs.listDirectoryChildren(subdirectory);
+            for (ArchiveCatalog.Listing listing :
+                    catalog.list(archivedRecordingsPath, this::getConnectUrlFromPath)) {
+                String targetId = listing.connectUrl();
+                String jvmId = jvmIdHelper.subdirectoryNameToJvmId(listing.subdirectoryName());
                 List<ArchivedRecordingInfo> temp =
-                        files.stream()
-                                .filter(filename -> !filename.equals(CONNECT_URL))
+                        listing.entries().stream()
                                 .map(
-                                        file -> {
+                                        entry -> {
+                                            String file = entry.getFilename();
                                             try {
                                                 return new ArchivedRecordingInfo(
                                                         targetId,
+                                                        jvmId,
                                                         file,
                                                         webServer.getArchivedDownloadURL(
                                                                 targetId, file),
                                                         webServer.getArchivedReportURL(
                                                                 targetId, file),
-                                                        recordingMetadataManager.getMetadata(
-                                                                new ConnectionDescriptor(targetId),
-                                                                file),
-                                                        getFileSize(file),
-                                                        getArchivedTime(file));
+                                                        recordingMetadataManager
+                                                                .getMetadataFromPathIfExists(
+                                                                        jvmId, file),
+                                                        entry.getSize(),
+                                                        entry.getArchivedTime());
                                             } catch (IOException | URISyntaxException e) {
                                                 logger.warn(e);
                                                 return null;
@@ -813,6 +926,14 @@ public class RecordingArchiveHelper {
         return future;
     }
 
+    /**
+     * Check whether any archive subdirectory contains a recording with the given name, using the
+     * archive catalog rather than listing every subdirectory.
+     */
+    boolean isArchivedRecording(String recordingName) throws IOException {
+        return catalog.find(archivedRecordingsPath, recordingName).isPresent();
+    }
+
     public Future<Path> getRecordingPathFromPath(String subdirectoryName, String recordingName) {
         try {
             boolean checkConnectUrl = !jvmIdHelper.isSpecialDirectory(subdirectoryName);
@@ -827,9 +948,22 @@ public class RecordingArchiveHelper {
     public Future<Path> getRecordingPath(String recordingName) {
         CompletableFuture<Path> future = new CompletableFuture<>();
         try {
-            List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
             Optional<Path> optional =
-                    searchSubdirectories(subdirectories, archivedRecordingsPath, recordingName);
+                    catalog.find(archivedRecordingsPath, recordingName)
+                            .map(path -> path.normalize().toAbsolutePath());
+            if (optional.isEmpty()) {
+                // the catalog may be stale if the archives were modified externally
+                List<String> subdirectories = this.fs.listDirectoryChildren(archivedRecordingsPath);
+                optional =
+                        searchSubdirectories(subdirectories, archivedRecordingsPath, recordingName);
+                optional.ifPresent(
+                        path ->
+                                catalog.add(
+                                        path.getParent().getFileName().toString(),
+                                        path.getParent(),
+                                        null,
+                                        recordingName));
+            }
             validateRecordingPath(optional, recordingName, false);
             future.complete(optional.get());
         } catch (RecordingNotFoundException | IOException | ArchivePathException e) {
@@ -845,7 +979,8 @@ public class RecordingArchiveHelper {
         CompletableFuture<Path> future = new CompletableFuture<>();
         try {
             String jvmId = jvmIdHelper.getJvmId(sourceTarget);
-            Path subdirectory = getRecordingSubdirectoryPath(jvmId);
+            String subdirectoryName = jvmIdHelper.jvmIdToSubdirectoryName(jvmId);
+            Path subdirectory = archivedRecordingsPath.resolve(subdirectoryName);
             if (!fs.exists(archivedRecordingsPath.resolve(subdirectory))) {
                 fs.createDirectory(archivedRecordingsPath.resolve(subdirectory));
                 fs.writeString(
@@ -853,7 +988,17 @@ public class RecordingArchiveHelper {
                         sourceTarget,
                         StandardOpenOption.CREATE);
             }
-            Path archivedRecording = searchSubdirectory(subdirectory, recordingName);
+            Path archivedRecording =
+                    catalog.find(subdirectoryName, subdirectory, recordingName)
+                            .map(path -> path.normalize().toAbsolutePath())
+                            .orElse(null);
+            if (archivedRecording == null) {
+                // the catalog may be stale if the archives were modified externally
+                archivedRecording = searchSubdirectory(subdirectory, recordingName);
+                if (archivedRecording != null) {
+                    catalog.add(subdirectoryName, subdirectory, sourceTarget, recordingName);
+                }
+            }
             if (archivedRecording == null) {
                 throw new RecordingNotFoundException(sourceTarget, recordingName);
             }
@@ -937,7 +1082,8 @@ public class RecordingArchiveHelper {
             throws IOException, URISyntaxException, FlightRecorderException, Exception {
         URI serviceUri = URIUtil.convert(connection.getJMXURL());
         String jvmId = jvmIdHelper.getJvmId(serviceUri.toString());
-        Path specificRecordingsPath = getRecordingSubdirectoryPath(jvmId);
+        String subdirectoryName = jvmIdHelper.jvmIdToSubdirectoryName(jvmId);
+        Path specificRecordingsPath = archivedRecordingsPath.resolve(subdirectoryName);
         if (!fs.exists(specificRecordingsPath)) {
             fs.createDirectory(specificRecordingsPath);
             fs.writeString(
@@ -965,8 +1111,9 @@ public class RecordingArchiveHelper {
                         .orElse(connection.getHost())
                         .replaceAll("[\\._]+", "-");
 
+        Instant archivedTime = clock.now();
         String timestamp =
-                clock.now().truncatedTo(ChronoUnit.SECONDS).toString().replaceAll("[-:]+", "");
+                archivedTime.truncatedTo(ChronoUnit.SECONDS).toString().replaceAll("[-:]+", "");
         String destination =
                 String.format(
                         "%s_%s_%s",
@@ -1005,8 +1152,40 @@ public class RecordingArchiveHelper {
 
             bufferedStream.reset();
 
-            fs.copy(bufferedStream, destinationPath);
+            ArchiveWriter.Result result =
+                    archiveWriter.write(
+                            bufferedStream,
+                            destinationPath,
+                            bytes ->
+                                    notificationFactory
+                                            .createBuilder()
+                                            .metaCategory(SAVE_PROGRESS_NOTIFICATION_CATEGORY)
+                                            .metaType(HttpMimeType.JSON)
+                                            .message(
+                                                    Map.of(
+                                                            "recording",
+                                                            descriptor.getName(),
+                                                            "target",
+                                                            serviceUri.toString(),
+                                                            "bytes",
+                                                            bytes))
+                                            .build()
+                                            .send());
+            result.checksum()
+                    .ifPresent(
+                            checksum ->
+                                    logger.info(
+                                            "Archived {} with checksum {}",
+                                            destinationPath,
+                                            checksum));
+            deduplicate(destinationPath, result.checksum());
         }
+        catalog.add(
+                subdirectoryName,
+                specificRecordingsPath,
+                serviceUri.toString(),
+                destination,
+                archivedTime.toEpochMilli());
         return destinationPath;
     }
 
@@ -1020,7 +1199,7 @@ public class RecordingArchiveHelper {
 
     private long getFileSize(String recordingName) {
         try {
-            return Files.size(getRecordingPath(recordingName).get());
+            return ArchiveCompression.size(getRecordingPath(recordingName).get());
         } catch (IOException | InterruptedException | ExecutionException e) {
             logger.error("Invalid path: {}", recordingName);
             return 0;
@@ -1029,10 +1208,19 @@ public class RecordingArchiveHelper {
 
     private long getArchivedTime(String recordingName) {
         try {
-            FileTime fileTime =
-                    (FileTime)
-                            Files.getAttribute(
-                                    getRecordingPath(recordingName).get(), "creationTime");
+            Path recordingPath = getRecordingPath(recordingName).get();
+            Path subdirectoryPath = recordingPath.getParent();
+            if (subdirectoryPath != null && subdirectoryPath.getFileName() != null) {
+                Optional<ArchiveCatalog.Entry> entry =
+                        catalog.get(
+                                subdirectoryPath.getFileName().toString(),
+                                subdirectoryPath,
+                                recordingName);
+                if (entry.isPresent()) {
+                    return entry.get().getArchivedTime();
+                }
+            }
+            FileTime fileTime = (FileTime) Files.getAttribute(recordingPath, "creationTime");
             return fileTime.toMillis();
         } catch (IOException | InterruptedException | ExecutionException e) {
             logger.error("Invalid path: {}", recordingName);
@@ -1053,22 +1241,29 @@ public class RecordingArchiveHelper {
     // Timestamp must be in form of 20191219T213834Z (YYYYMMDDTHHMMSSZ)
     // Used on the third regex matcher group of a Cryostat archived recording name
     public long getArchivedTimeFromTimestamp(String timestamp) {
-        Matcher dtm = DATE_TIME_PATTERN.matcher(timestamp);
-        if (!dtm.matches()) {
+        Optional<Instant> archivedTime = parseTimestamp(timestamp);
+        if (archivedTime.isEmpty()) {
             logger.trace("Invalid timestamp: {}", timestamp);
             return Instant.now().toEpochMilli();
-        } else {
-            String isoString =
-                    String.format(
-                            "%s-%s-%sT%s:%s:%s.00Z",
-                            dtm.group(1),
-                            dtm.group(2),
-                            dtm.group(3),
-                            dtm.group(4),
-                            dtm.group(5),
-                            dtm.group(6));
-            return Instant.parse(isoString).toEpochMilli();
         }
+        return archivedTime.get().toEpochMilli();
+    }
+
+    static Optional<Instant> parseTimestamp(String timestamp) {
+        Matcher dtm = DATE_TIME_PATTERN.matcher(timestamp);
+        if (!dtm.matches()) {
+            return Optional.empty();
+        }
+        String isoString =
+                String.format(
+                        "%s-%s-%sT%s:%s:%s.00Z",
+                        dtm.group(1),
+                        dtm.group(2),
+                        dtm.group(3),
+                        dtm.group(4),
+                        dtm.group(5),
+                        dtm.group(6));
+        return Optional.of(Instant.parse(isoString));
     }
 
     // Preconditions:
@@ -1179,7 +1374,33 @@ public class RecordingArchiveHelper {
                                                             makeFailedAsyncResult(res2.cause()));
                                                     return;
                                                 }
-                                                handler.handle(makeAsyncResult(filename));
+                                                long archivedTime = clock.now().toEpochMilli();
+                                                if (!blobStore.isEnabled()) {
+                                                    catalog.add(
+                                                            subdirectoryName,
+                                                            specificRecordingsPath,
+                                                            connectUrl,
+                                                            filename,
+                                                            archivedTime);
+                                                    handler.handle(makeAsyncResult(filename));
+                                                    return;
+                                                }
+                                                vertx.executeBlocking(
+                                                        promise -> {
+                                                            deduplicate(
+                                                                    specificRecordingsPath.resolve(
+                                                                            filename),
+                                                                    Optional.empty());
+                                                            catalog.add(
+                                                                    subdirectoryName,
+                                                                    specificRecordingsPath,
+                                                                    connectUrl,
+                                                                    filename,
+                                                                    archivedTime);
+                                                            promise.complete(filename);
+                                                        },
+                                                        false,
+                                                        handler);
                                             });
                         });
     }
@@ -1308,4 +1529,9 @@ public class RecordingArchiveHelper {
             return Collections.unmodifiableList(recordings);
         }
     }
+
+    @FunctionalInterface
+    public interface UncompressedAction<T> {
+        T apply(Path recordingPath) throws Exception;
+    }
 }
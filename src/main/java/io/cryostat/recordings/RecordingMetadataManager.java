@@ -44,10 +44,16 @@ import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -55,7 +61,10 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -69,6 +78,7 @@ import io.cryostat.core.sys.FileSystem;
 import io.cryostat.discovery.DiscoveryStorage;
 import io.cryostat.messaging.notifications.NotificationFactory;
 import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.ConnectionPriority;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.platform.PlatformClient;
@@ -94,6 +104,9 @@ public class RecordingMetadataManager extends AbstractVerticle
 
     public static final String NOTIFICATION_CATEGORY = "RecordingMetadataUpdated";
     private static final String UPLOADS = RecordingArchiveHelper.UPLOADED_RECORDINGS_SUBDIRECTORY;
+    // how long a request waits for the metadata index to finish loading at startup before the
+    // metadata of the JVM it concerns is read from disk directly instead
+    private static final Duration INDEX_LOAD_TIMEOUT = Duration.ofSeconds(5);
 
     private final ExecutorService executor;
     private final Path recordingMetadataDir;
@@ -108,10 +121,27 @@ public class RecordingMetadataManager extends AbstractVerticle
     private final JvmIdHelper jvmIdHelper;
     private final Gson gson;
     private final Base32 base32;
+    private final StartupMigrationProgress migrationProgress;
+    private final ArchiveMigrationCheckpoint migrationCheckpoint;
     private final Logger logger;
 
     private final CountDownLatch migrationLatch = new CountDownLatch(1);
 
+    // metadata is served from this index rather than from disk. Updates are applied here first
+    // and then written through to the metadata directory in the background: pendingWrites holds
+    // the latest state per key (empty meaning deletion) so that repeated updates to the same
+    // recording coalesce into a single file write when the batch is flushed
+    private final Map<MetadataKey, StoredRecordingMetadata> index = new ConcurrentHashMap<>();
+    private final Map<MetadataKey, Optional<StoredRecordingMetadata>> pendingWrites =
+            new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private volatile CompletableFuture<Void> indexLoaded = CompletableFuture.completedFuture(null);
+    // keys updated while the index is loading, so that loading does not overwrite them with the
+    // older state on disk, and JVMs whose metadata was read directly because loading was slow
+    private final Set<MetadataKey> modifiedWhileLoading = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Void>> directLoads = new ConcurrentHashMap<>();
+
     RecordingMetadataManager(
             ExecutorService executor,
             Path recordingMetadataDir,
@@ -126,6 +156,8 @@ public class RecordingMetadataManager extends AbstractVerticle
             JvmIdHelper jvmIdHelper,
             Gson gson,
             Base32 base32,
+            StartupMigrationProgress migrationProgress,
+            ArchiveMigrationCheckpoint migrationCheckpoint,
             Logger logger) {
         this.executor = executor;
         this.recordingMetadataDir = recordingMetadataDir;
@@ -140,6 +172,8 @@ public class RecordingMetadataManager extends AbstractVerticle
         this.jvmIdHelper = jvmIdHelper;
         this.gson = gson;
         this.base32 = base32;
+        this.migrationProgress = migrationProgress;
+        this.migrationCheckpoint = migrationCheckpoint;
         this.logger = logger;
     }
 
@@ -147,242 +181,57 @@ public class RecordingMetadataManager extends AbstractVerticle
     public void start(Promise<Void> future) {
         this.platformClient.addTargetDiscoveryListener(this);
         this.jvmIdHelper.addListener(this);
-        Map<StoredRecordingMetadata, Path> staleMetadata =
-                new HashMap<StoredRecordingMetadata, Path>();
+        Map<StoredRecordingMetadata, Path> staleMetadata = new ConcurrentHashMap<>();
         RecordingArchiveHelper archiveHelper = archiveHelperProvider.get();
+        CompletableFuture<Void> metadataScan;
         try {
-            this.fs.listDirectoryChildren(recordingMetadataDir).stream()
-                    .peek(n -> logger.info("Peeking contents of metadata directory: {}", n))
-                    .map(recordingMetadataDir::resolve)
-                    .forEach(
-                            subdirectory -> {
-                                if (fs.isDirectory(subdirectory)) {
-                                    try {
-                                        String subdirectoryName =
-                                                subdirectory.getFileName().toString();
-                                        if (jvmIdHelper.isSpecialDirectory(subdirectoryName)) {
-                                            logger.info(
-                                                    "Skipping metadata validation: appears to be a"
-                                                            + " special location: {}",
-                                                    subdirectoryName);
-                                            return;
-                                        } else if (this.fs
-                                                .listDirectoryChildren(subdirectory)
-                                                .isEmpty()) {
-                                            logger.info(
-                                                    "Deleting empty recording metadata directory:"
-                                                            + " {}",
-                                                    subdirectory);
-                                            this.fs.deleteIfExists(subdirectory);
-                                        } else {
-                                            this.fs.listDirectoryChildren(subdirectory).stream()
-                                                    .peek(
-                                                            n ->
-                                                                    logger.trace(
-                                                                            "Recording"
-                                                                                    + " Metadata"
-                                                                                    + " file:"
-                                                                                    + " {}",
-                                                                            n))
-                                                    .map(subdirectory::resolve)
-                                                    .filter(fs::isRegularFile)
-                                                    .filter(
-                                                            path ->
-                                                                    !path.getFileName()
-                                                                            .toString()
-                                                                            .equals("connectUrl"))
-                                                    .map(
-                                                            path -> {
-                                                                try {
-                                                                    return Pair.of(
-                                                                            fs.readFile(path),
-                                                                            path);
-                                                                } catch (IOException ioe) {
-                                                                    logger.error(
-                                                                            "Could not read"
-                                                                                    + " metadata"
-                                                                                    + " file"
-                                                                                    + " {}, msg:"
-                                                                                    + " {}",
-                                                                            path,
-                                                                            ioe.getMessage());
-                                                                    deleteMetadataPathIfExists(
-                                                                            path);
-                                                                    return null;
-                                                                }
-                                                            })
-                                                    .filter(Objects::nonNull)
-                                                    .forEach(
-                                                            pair -> {
-                                                                try (BufferedReader br =
-                                                                        pair.getLeft()) {
-                                                                    StoredRecordingMetadata srm =
-                                                                            gson.fromJson(
-                                                                                    br,
-                                                                                    StoredRecordingMetadata
-                                                                                            .class);
-                                                                    Path file = pair.getRight();
-                                                                    String targetId =
-                                                                            srm.getTargetId();
-                                                                    String recordingName =
-                                                                            srm.getRecordingName();
-                                                                    // jvmId should always exist
-                                                                    // since we are using directory
-                                                                    // structure
-                                                                    if (srm.getJvmId() != null) {
-                                                                        try {
-                                                                            if (!isArchivedRecording(
-                                                                                    recordingName)) {
-                                                                                logger.info(
-                                                                                        "Potentially"
-                                                                                            + " stale"
-                                                                                            + " metadata"
-                                                                                            + " file:"
-                                                                                            + " {}, for"
-                                                                                            + " target:"
-                                                                                            + " {}",
-                                                                                        recordingName,
-                                                                                        targetId);
-                                                                                staleMetadata.put(
-                                                                                        srm, file);
-                                                                                return;
-                                                                            }
-                                                                        } catch (IOException e) {
-                                                                            logger.error(
-                                                                                    "Could not"
-                                                                                        + " check"
-                                                                                        + " if recording"
-                                                                                        + " {} exists"
-                                                                                        + " on target"
-                                                                                        + " {}, msg:"
-                                                                                        + " {}",
-                                                                                    recordingName,
-                                                                                    targetId,
-                                                                                    e.getMessage());
-                                                                        }
-                                                                    } else {
-                                                                        logger.warn(
-                                                                                "Invalid metadata"
-                                                                                    + " with no"
-                                                                                    + " jvmId"
-                                                                                    + " originating"
-                                                                                    + " from {}",
-                                                                                targetId);
-                                                                        deleteMetadataPathIfExists(
-                                                                                file);
-                                                                    }
-                                                                } catch (IOException ioe) {
-                                                                    logger.error(ioe);
-                                                                }
-                                                            });
-                                        }
-                                    } catch (IOException e) {
-                                        logger.error(
-                                                "Could not read metadata subdirectory"
-                                                        + " {}, msg: {}",
-                                                subdirectory,
-                                                e.getMessage());
-                                    }
-                                }
-                                /* TODO: This is a ONE-TIME migration check for the old metadata files that were stored without a directory
-                                (remove after 2.2.0 release and replace with subdirectory::fs.isDirectory (ignore files))? */
-                                else if (fs.isRegularFile(subdirectory)) {
-                                    StoredRecordingMetadata srm;
-                                    try (BufferedReader br = fs.readFile(subdirectory)) {
-                                        srm = gson.fromJson(br, StoredRecordingMetadata.class);
-                                    } catch (Exception e) {
-                                        logger.error(
-                                                "Could not read file {} in recordingMetadata"
-                                                        + " directory, msg: {}",
-                                                subdirectory,
-                                                e.getMessage());
-                                        deleteMetadataPathIfExists(subdirectory);
-                                        return;
-                                    }
-                                    logger.info("Found old metadata file: {}", subdirectory);
-                                    String targetId = srm.getTargetId();
-                                    String recordingName = srm.getRecordingName();
-                                    if (targetId.equals("archives")) {
-                                        try {
-                                            if (isArchivedRecording(recordingName)) {
-
-                                                Path recordingPath =
-                                                        archiveHelper
-                                                                .getRecordingPath(recordingName)
-                                                                .get();
-                                                String subdirectoryName =
-                                                        recordingPath
-                                                                .getParent()
-                                                                .getFileName()
-                                                                .toString();
-                                                String newTargetId =
-                                                        new String(
-                                                                base32.decode(subdirectoryName),
-                                                                StandardCharsets.UTF_8);
-                                                logger.info(
-                                                        "Found metadata corresponding"
-                                                                + " to archived recording:"
-                                                                + " {}",
-                                                        recordingName);
-                                                setRecordingMetadata(
-                                                        new ConnectionDescriptor(newTargetId),
-                                                        recordingName,
-                                                        new Metadata(srm.getLabels()));
-                                            } else {
-                                                logger.warn(
-                                                        "Found metadata for lost"
-                                                                + " archived recording: {}",
-                                                        recordingName,
-                                                        subdirectory);
-                                                deleteMetadataPathIfExists(subdirectory);
-                                            }
-                                        } catch (InterruptedException | ExecutionException e) {
-                                            logger.error(
-                                                    "Couldn't get recording path {}",
-                                                    recordingName);
-                                        } catch (IOException e) {
-                                            logger.error(
-                                                    "Couldn't check if recording was"
-                                                            + " archived {}",
-                                                    recordingName);
-                                        }
-
-                                    } else {
-                                        logger.info(
-                                                "Potentially stale metadata file: {}, for target:"
-                                                        + " {}",
-                                                recordingName,
-                                                targetId);
-                                        staleMetadata.put(srm, subdirectory);
-                                        return;
-                                    }
-                                    try {
-                                        fs.deleteIfExists(subdirectory);
-                                        logger.info("Removed old metadata file: {}", subdirectory);
-                                    } catch (IOException e) {
-                                        logger.error(
-                                                "Failed to delete metadata file {}," + " msg: {}",
-                                                subdirectory,
-                                                e.getCause());
-                                    }
-                                } else {
-                                    logger.warn(
-                                            "Recording metadata subdirectory {} is"
-                                                    + " neither a directory nor a file",
-                                            subdirectory);
-                                    throw new IllegalStateException(
-                                            subdirectory + " is neither a directory nor a file");
-                                }
-                            });
-
+            List<Path> paths =
+                    this.fs.listDirectoryChildren(recordingMetadataDir).stream()
+                            .peek(n -> logger.info("Peeking contents of metadata directory: {}", n))
+                            .map(recordingMetadataDir::resolve)
+                            .toList();
+            // validating the metadata may require connecting to targets, so scan in the background
+            // and in parallel rather than delaying startup until every file has been parsed. Reads
+            // only need to wait for the files to be loaded into the index, and validation (which
+            // may itself update the index) only begins once loading is finished
+            migrationProgress.begin(StartupMigrationProgress.Stage.METADATA_SCAN, paths.size());
+            List<CompletableFuture<List<Pair<StoredRecordingMetadata, Path>>>> loads =
+                    paths.stream()
+                            .map(
+                                    path ->
+                                            CompletableFuture.supplyAsync(
+                                                    () -> loadMetadataPath(path), executor))
+                            .toList();
+            CompletableFuture<Void> loaded =
+                    CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]));
+            this.indexLoaded = loaded;
+            loaded.whenComplete((v, t) -> modifiedWhileLoading.clear());
+            CompletableFuture<Void> ready = loaded.exceptionally(t -> null);
+            List<CompletableFuture<Void>> scans = new ArrayList<>();
+            for (int i = 0; i < paths.size(); i++) {
+                Path path = paths.get(i);
+                CompletableFuture<List<Pair<StoredRecordingMetadata, Path>>> load = loads.get(i);
+                scans.add(
+                        ready.thenRunAsync(
+                                        () ->
+                                                validateMetadataPath(
+                                                        path,
+                                                        load.exceptionally(t -> List.of()).join(),
+                                                        staleMetadata),
+                                        executor)
+                                .whenComplete((v, t) -> migrationProgress.advance()));
+            }
+            metadataScan = CompletableFuture.allOf(scans.toArray(new CompletableFuture[0]));
             future.complete();
         } catch (IOException e) {
             logger.error(
                     "Could not read recording metadata directory! {}, msg: {}",
                     recordingMetadataDir,
                     e.getMessage());
+            metadataScan = CompletableFuture.completedFuture(null);
             future.fail(e.getCause());
         }
+        CompletableFuture<Void> scanned = metadataScan;
         EventBus eb = vertx.eventBus();
         eb.consumer(
                 DiscoveryStorage.DISCOVERY_STARTUP_ADDRESS,
@@ -394,9 +243,22 @@ public class RecordingMetadataManager extends AbstractVerticle
                     new Thread(
                                     () -> {
                                         try {
+                                            try {
+                                                scanned.join();
+                                                logger.info("Successfully scanned metadata");
+                                            } catch (CompletionException e) {
+                                                logger.warn("Couldn't scan all recording metadata");
+                                                logger.warn(e);
+                                            }
                                             logger.info("Starting archive migration");
-                                            archiveHelper.migrate(executor);
+                                            archiveHelper.migrate(
+                                                    executor,
+                                                    migrationProgress,
+                                                    migrationCheckpoint);
                                             logger.info("Successfully migrated archives");
+                                            migrationProgress.begin(
+                                                    StartupMigrationProgress.Stage.METADATA_PRUNE,
+                                                    staleMetadata.size());
                                             pruneStaleMetadata(staleMetadata);
                                             logger.info("Successfully pruned all stale metadata");
                                         } catch (Exception e) {
@@ -404,6 +266,7 @@ public class RecordingMetadataManager extends AbstractVerticle
                                                     "Couldn't read archived recordings directory");
                                             logger.warn(e);
                                         } finally {
+                                            migrationProgress.complete();
                                             migrationLatch.countDown();
                                         }
                                     })
@@ -414,6 +277,7 @@ public class RecordingMetadataManager extends AbstractVerticle
     @Override
     public void stop() {
         this.platformClient.removeTargetDiscoveryListener(this);
+        flushPendingWrites();
     }
 
     @Override
@@ -467,12 +331,172 @@ public class RecordingMetadataManager extends AbstractVerticle
         }
     }
 
+    private List<Pair<StoredRecordingMetadata, Path>> loadMetadataPath(Path subdirectory) {
+        List<Pair<StoredRecordingMetadata, Path>> loaded = new ArrayList<>();
+        // the metadata of uploaded and lost recordings is loaded too, and only exempt from
+        // validation
+        if (!fs.isDirectory(subdirectory)) {
+            return loaded;
+        }
+        try {
+            for (String filename : this.fs.listDirectoryChildren(subdirectory)) {
+                logger.trace("Recording Metadata file: {}", filename);
+                Path path = subdirectory.resolve(filename);
+                if (!fs.isRegularFile(path) || filename.equals("connectUrl")) {
+                    continue;
+                }
+                try (BufferedReader br = fs.readFile(path)) {
+                    StoredRecordingMetadata srm =
+                            gson.fromJson(br, StoredRecordingMetadata.class);
+                    if (srm.getJvmId() != null) {
+                        index.compute(
+                                MetadataKey.of(srm),
+                                (k, v) -> v != null || modifiedWhileLoading.contains(k) ? v : srm);
+                    }
+                    loaded.add(Pair.of(srm, path));
+                } catch (IOException | JsonIOException | JsonSyntaxException e) {
+                    logger.error("Could not read metadata file {}, msg: {}", path, e.getMessage());
+                    deleteMetadataPathIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            logger.error(
+                    "Could not read metadata subdirectory {}, msg: {}",
+                    subdirectory,
+                    e.getMessage());
+        }
+        return loaded;
+    }
+
+    private void validateMetadataPath(
+            Path subdirectory,
+            List<Pair<StoredRecordingMetadata, Path>> loaded,
+            Map<StoredRecordingMetadata, Path> staleMetadata) {
+        if (fs.isDirectory(subdirectory)) {
+            try {
+                String subdirectoryName = subdirectory.getFileName().toString();
+                if (jvmIdHelper.isSpecialDirectory(subdirectoryName)) {
+                    logger.info(
+                            "Skipping metadata validation: appears to be a special location: {}",
+                            subdirectoryName);
+                    return;
+                } else if (this.fs.listDirectoryChildren(subdirectory).isEmpty()) {
+                    logger.info("Deleting empty recording metadata directory: {}", subdirectory);
+                    this.fs.deleteIfExists(subdirectory);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.error(
+                        "Could not read metadata subdirectory {}, msg: {}",
+                        subdirectory,
+                        e.getMessage());
+                return;
+            }
+            for (Pair<StoredRecordingMetadata, Path> pair : loaded) {
+                StoredRecordingMetadata srm = pair.getLeft();
+                Path file = pair.getRight();
+                String targetId = srm.getTargetId();
+                String recordingName = srm.getRecordingName();
+                // jvmId should always exist since we are using directory structure
+                if (srm.getJvmId() == null) {
+                    logger.warn("Invalid metadata with no jvmId originating from {}", targetId);
+                    deleteMetadataPathIfExists(file);
+                    continue;
+                }
+                try {
+                    if (!isArchivedRecording(recordingName)) {
+                        logger.info(
+                                "Potentially stale metadata file: {}, for target: {}",
+                                recordingName,
+                                targetId);
+                        staleMetadata.put(srm, file);
+                    }
+                } catch (IOException e) {
+                    logger.error(
+                            "Could not check if recording {} exists on target {}, msg: {}",
+                            recordingName,
+                            targetId,
+                            e.getMessage());
+                }
+            }
+        }
+        /* TODO: This is a ONE-TIME migration check for the old metadata files that were stored without a directory
+        (remove after 2.2.0 release and replace with subdirectory::fs.isDirectory (ignore files))? */
+        else if (fs.isRegularFile(subdirectory)) {
+            StoredRecordingMetadata srm;
+            try (BufferedReader br = fs.readFile(subdirectory)) {
+                srm = gson.fromJson(br, StoredRecordingMetadata.class);
+            } catch (Exception e) {
+                logger.error(
+                        "Could not read file {} in recordingMetadata directory, msg: {}",
+                        subdirectory,
+                        e.getMessage());
+                deleteMetadataPathIfExists(subdirectory);
+                return;
+            }
+            logger.info("Found old metadata file: {}", subdirectory);
+            String targetId = srm.getTargetId();
+            String recordingName = srm.getRecordingName();
+            if (targetId.equals("archives")) {
+                try {
+                    if (isArchivedRecording(recordingName)) {
+
+                        Path recordingPath =
+                                archiveHelperProvider.get().getRecordingPath(recordingName).get();
+                        String subdirectoryName =
+                                recordingPath.getParent().getFileName().toString();
+                        String newTargetId =
+                                new String(base32.decode(subdirectoryName), StandardCharsets.UTF_8);
+                        logger.info(
+                                "Found metadata corresponding to archived recording: {}",
+                                recordingName);
+                        setRecordingMetadata(
+                                new ConnectionDescriptor(newTargetId),
+                                recordingName,
+                                new Metadata(srm.getLabels()));
+                    } else {
+                        logger.warn(
+                                "Found metadata for lost archived recording: {}",
+                                recordingName,
+                                subdirectory);
+                        deleteMetadataPathIfExists(subdirectory);
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    logger.error("Couldn't get recording path {}", recordingName);
+                } catch (IOException e) {
+                    logger.error("Couldn't check if recording was archived {}", recordingName);
+                }
+
+            } else {
+                logger.info(
+                        "Potentially stale metadata file: {}, for target: {}",
+                        recordingName,
+                        targetId);
+                staleMetadata.put(srm, subdirectory);
+                return;
+            }
+            try {
+                fs.deleteIfExists(subdirectory);
+                logger.info("Removed old metadata file: {}", subdirectory);
+            } catch (IOException e) {
+                logger.error(
+                        "Failed to delete metadata file {}, msg: {}", subdirectory, e.getCause());
+            }
+        } else {
+            logger.warn(
+                    "Recording metadata subdirectory {} is neither a directory nor a file",
+                    subdirectory);
+            throw new IllegalStateException(subdirectory + " is neither a directory nor a file");
+        }
+    }
+
     // Pre-condition: staleMetadata is Mapping of metadata to its filesystem path, pertaining to any
     // previously active recording
     private void pruneStaleMetadata(Map<StoredRecordingMetadata, Path> staleMetadata) {
         logger.info("Beginning to prune potentially stale metadata...");
         staleMetadata.forEach(
                 (srm, path) -> {
+                    migrationProgress.advance();
                     String targetId = srm.getTargetId();
                     String recordingName = srm.getRecordingName();
                     ConnectionDescriptor cd;
@@ -494,6 +518,9 @@ public class RecordingMetadataManager extends AbstractVerticle
                     if (!targetRecordingExists(cd, recordingName)) {
                         // recording was lost
                         logger.info("Active recording lost {}, deleting...", recordingName);
+                        if (srm.getJvmId() != null) {
+                            index.remove(MetadataKey.of(srm));
+                        }
                         deleteMetadataPathIfExists(path);
                     } else {
                         // target still up
@@ -525,13 +552,7 @@ public class RecordingMetadataManager extends AbstractVerticle
                         .get();
         String jvmId = jvmIdHelper.subdirectoryNameToJvmId(subdirectoryName);
 
-        Path metadataPath = this.getMetadataPath(jvmId, recordingName);
-        fs.writeString(
-                metadataPath,
-                gson.toJson(StoredRecordingMetadata.of(connectUrl, jvmId, recordingName, metadata)),
-                StandardOpenOption.WRITE,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING);
+        store(StoredRecordingMetadata.of(connectUrl, jvmId, recordingName, metadata));
 
         notificationFactory
                 .createBuilder()
@@ -562,18 +583,9 @@ public class RecordingMetadataManager extends AbstractVerticle
         Objects.requireNonNull(metadata);
         String jvmId = jvmIdHelper.getJvmId(connectionDescriptor);
 
-        Path metadataPath = this.getMetadataPath(jvmId, recordingName);
-        fs.writeString(
-                metadataPath,
-                gson.toJson(
-                        StoredRecordingMetadata.of(
-                                connectionDescriptor.getTargetId(),
-                                jvmId,
-                                recordingName,
-                                metadata)),
-                StandardOpenOption.WRITE,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING);
+        store(
+                StoredRecordingMetadata.of(
+                        connectionDescriptor.getTargetId(), jvmId, recordingName, metadata));
 
         if (issueNotification) {
             notificationFactory
@@ -617,25 +629,13 @@ public class RecordingMetadataManager extends AbstractVerticle
         Objects.requireNonNull(connectionDescriptor);
         Objects.requireNonNull(recordingName);
 
-        Metadata metadata = null;
-
         String jvmId;
         if (connectionDescriptor.getTargetId().equals(UPLOADS)) {
             jvmId = UPLOADS;
         } else {
             jvmId = jvmIdHelper.getJvmId(connectionDescriptor);
         }
-
-        Path metadataPath = getMetadataPath(jvmId, recordingName);
-        if (!fs.isRegularFile(metadataPath)) {
-            metadata = new Metadata();
-            fs.writeString(metadataPath, gson.toJson(metadata));
-        } else {
-            try (BufferedReader br = fs.readFile(metadataPath)) {
-                metadata = gson.fromJson(br, Metadata.class);
-            }
-        }
-        return metadata;
+        return lookup(jvmId, recordingName).map(Metadata::new).orElseGet(Metadata::new);
     }
 
     // Public metadata getter which doesn't rely on target being available
@@ -643,15 +643,7 @@ public class RecordingMetadataManager extends AbstractVerticle
             throws IOException {
         Objects.requireNonNull(jvmId);
         Objects.requireNonNull(recordingName);
-        Path metadataPath = getMetadataPath(jvmId, recordingName);
-        if (!fs.isRegularFile(metadataPath)) {
-            Metadata metadata = new Metadata();
-            fs.writeString(metadataPath, gson.toJson(metadata));
-            return metadata;
-        }
-        try (BufferedReader br = fs.readFile(metadataPath)) {
-            return gson.fromJson(br, Metadata.class);
-        }
+        return lookup(jvmId, recordingName).map(Metadata::new).orElseGet(Metadata::new);
     }
 
     public Metadata deleteRecordingMetadataIfExists(
@@ -668,17 +660,16 @@ public class RecordingMetadataManager extends AbstractVerticle
         Objects.requireNonNull(jvmId);
         Objects.requireNonNull(recordingName);
 
-        Path metadataPath = this.getMetadataPath(jvmId, recordingName);
-        if (fs.isRegularFile(metadataPath)) {
-            try (BufferedReader br = fs.readFile(metadataPath)) {
-                Metadata metadata = gson.fromJson(br, Metadata.class);
-                if (fs.deleteIfExists(metadataPath)) {
-                    deleteSubdirectoryIfEmpty(metadataPath.getParent());
-                }
-                return metadata;
-            }
+        awaitIndexLoaded(jvmId);
+        MetadataKey key = new MetadataKey(jvmId, recordingName);
+        markModified(key);
+        StoredRecordingMetadata removed = index.remove(key);
+        if (removed == null) {
+            return null;
         }
-        return null;
+        pendingWrites.put(key, Optional.empty());
+        scheduleFlush();
+        return new Metadata(removed);
     }
 
     public Future<Metadata> copyMetadataToArchives(
@@ -749,27 +740,17 @@ public class RecordingMetadataManager extends AbstractVerticle
             }
 
             logger.info("[{}] Metadata transfer: {} -> {}", targetId, oldJvmId, newJvmId);
-            Path oldParent = getMetadataPath(oldJvmId);
-            for (String encodedFilename : fs.listDirectoryChildren(oldParent)) {
-                Path oldMetadataPath = oldParent.resolve(encodedFilename);
-                try (BufferedReader storedMetadata = fs.readFile(oldMetadataPath)) {
-                    StoredRecordingMetadata srm =
-                            gson.fromJson(storedMetadata, StoredRecordingMetadata.class);
-                    String recordingName = srm.recordingName;
-                    StoredRecordingMetadata updatedSrm =
-                            StoredRecordingMetadata.of(targetId, newJvmId, recordingName, srm);
-                    Path newLocation = getMetadataPath(newJvmId, recordingName);
-                    fs.writeString(newLocation, gson.toJson(updatedSrm));
-
-                    fs.deleteIfExists(oldMetadataPath);
-                } catch (Exception e) {
-                    logger.error("Metadata could not be transferred");
-                    logger.error(e);
+            awaitIndexLoaded(oldJvmId);
+            for (StoredRecordingMetadata srm : indexedMetadata(oldJvmId)) {
+                String recordingName = srm.getRecordingName();
+                MetadataKey oldKey = MetadataKey.of(srm);
+                markModified(oldKey);
+                if (index.remove(oldKey, srm)) {
+                    store(StoredRecordingMetadata.of(targetId, newJvmId, recordingName, srm));
+                    pendingWrites.put(oldKey, Optional.empty());
                 }
             }
-            if (fs.listDirectoryChildren(oldParent).isEmpty()) {
-                fs.deleteIfExists(oldParent);
-            }
+            scheduleFlush();
             logger.info(
                     "[{}] Metadata successfully transferred: {} -> {}",
                     targetId,
@@ -781,48 +762,144 @@ public class RecordingMetadataManager extends AbstractVerticle
     }
 
     private void removeLostTargetMetadata(String jvmId) {
+        awaitIndexLoaded(jvmId);
+        for (StoredRecordingMetadata srm : indexedMetadata(jvmId)) {
+            String recordingName = srm.getRecordingName();
+            try {
+                if (!isArchivedRecording(recordingName)) {
+                    deleteRecordingMetadataIfExists(jvmId, recordingName);
+                }
+            } catch (IOException e) {
+                logger.error(e);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the given label selectors against the in-memory metadata index. The returned
+     * predicate accepts the (jvmId, recordingName) of any recording whose labels satisfy all of
+     * the selectors. Recordings which have never been labelled have no index entry, and are tested
+     * as having no labels.
+     */
+    public BiPredicate<String, String> getLabelMatcher(
+            Collection<? extends Predicate<Map<String, String>>> selectors) {
+        List<Predicate<Map<String, String>>> requirements = List.copyOf(selectors);
+        return (jvmId, recordingName) -> {
+            Map<String, String> labels =
+                    jvmId == null
+                            ? Map.of()
+                            : lookup(jvmId, recordingName)
+                                    .map(StoredRecordingMetadata::getLabels)
+                                    .orElse(Map.of());
+            return requirements.stream().allMatch(selector -> selector.test(labels));
+        };
+    }
+
+    private Optional<StoredRecordingMetadata> lookup(String jvmId, String recordingName) {
+        awaitIndexLoaded(jvmId);
+        return Optional.ofNullable(index.get(new MetadataKey(jvmId, recordingName)));
+    }
+
+    private List<StoredRecordingMetadata> indexedMetadata(String jvmId) {
+        return index.values().stream()
+                .filter(srm -> Objects.equals(jvmId, srm.getJvmId()))
+                .toList();
+    }
+
+    private void store(StoredRecordingMetadata srm) {
+        MetadataKey key = MetadataKey.of(srm);
+        markModified(key);
+        index.put(key, srm);
+        pendingWrites.put(key, Optional.of(srm));
+        scheduleFlush();
+    }
+
+    private void markModified(MetadataKey key) {
+        if (!indexLoaded.isDone()) {
+            modifiedWhileLoading.add(key);
+        }
+    }
+
+    /**
+     * Wait for the index to finish loading at startup, for a bounded time. If loading takes longer
+     * than that, read the metadata of the given JVM from disk directly so that requests concerning
+     * it are not held up by the rest of the metadata directory.
+     */
+    private void awaitIndexLoaded(String jvmId) {
+        CompletableFuture<Void> loaded = indexLoaded;
+        if (loaded.isDone()) {
+            return;
+        }
+        CompletableFuture<Void> direct = directLoads.get(jvmId);
+        if (direct != null) {
+            direct.join();
+            return;
+        }
         try {
-            for (String encodedFilename : fs.listDirectoryChildren(getMetadataPath(jvmId))) {
-                String recordingName =
-                        new String(base32.decode(encodedFilename), StandardCharsets.UTF_8);
+            loaded.get(INDEX_LOAD_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // individual load failures are already logged, serve whatever was loaded
+            logger.warn(e);
+        } catch (TimeoutException e) {
+            direct = new CompletableFuture<>();
+            CompletableFuture<Void> existing = directLoads.putIfAbsent(jvmId, direct);
+            if (existing != null) {
+                existing.join();
+                return;
+            }
+            logger.warn("Metadata index is still loading, reading metadata of {} directly", jvmId);
+            try {
+                loadMetadataPath(
+                        recordingMetadataDir.resolve(jvmIdHelper.jvmIdToSubdirectoryName(jvmId)));
+            } finally {
+                direct.complete(null);
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flushPendingWrites);
+        }
+    }
+
+    private void flushPendingWrites() {
+        synchronized (flushLock) {
+            // reset before draining so that any update enqueued after this point schedules
+            // another flush rather than being missed by this one
+            flushScheduled.set(false);
+            for (MetadataKey key : List.copyOf(pendingWrites.keySet())) {
+                Optional<StoredRecordingMetadata> pending = pendingWrites.remove(key);
+                if (pending == null) {
+                    continue;
+                }
                 try {
-                    if (!isArchivedRecording(recordingName)) {
-                        deleteRecordingMetadataIfExists(jvmId, recordingName);
+                    Path metadataPath = getMetadataPath(key.jvmId(), key.recordingName());
+                    if (pending.isPresent()) {
+                        fs.writeString(
+                                metadataPath,
+                                gson.toJson(pending.get()),
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+                    } else if (fs.deleteIfExists(metadataPath)) {
+                        deleteSubdirectoryIfEmpty(metadataPath.getParent());
                     }
                 } catch (IOException e) {
-                    logger.error(e);
+                    logger.error(
+                            "Could not write metadata for recording {}, msg: {}",
+                            key.recordingName(),
+                            e.getMessage());
                 }
             }
-        } catch (IOException e) {
-            logger.error(e);
         }
     }
 
     private boolean isArchivedRecording(String recordingName) throws IOException {
         try {
-            return this.fs.listDirectoryChildren(archivedRecordingsPath).stream()
-                    .map(
-                            subdirectory -> {
-                                try {
-                                    return fs
-                                            .listDirectoryChildren(
-                                                    archivedRecordingsPath.resolve(subdirectory))
-                                            .stream()
-                                            .anyMatch(
-                                                    filename -> {
-                                                        return filename.equals(recordingName);
-                                                    });
-                                } catch (IOException e) {
-                                    // java streams doesn't allow checked exceptions to propagate
-                                    // can assume won't throw b/c previous calls to other io methods
-                                    // were successful
-                                    logger.error(e);
-                                    return false;
-                                }
-                            })
-                    .filter(v -> v)
-                    .findFirst()
-                    .orElse(false);
+            return archiveHelperProvider.get().isArchivedRecording(recordingName);
         } catch (IOException ioe) {
             logger.error(ioe);
             throw ioe;
@@ -913,13 +990,19 @@ public class RecordingMetadataManager extends AbstractVerticle
     private ConnectionDescriptor getConnectionDescriptorWithCredentials(ServiceRef serviceRef)
             throws JsonSyntaxException, JsonIOException, IOException, ScriptException {
         Credentials credentials = credentialsManager.getCredentials(serviceRef);
-        return new ConnectionDescriptor(serviceRef, credentials);
+        return new ConnectionDescriptor(serviceRef, credentials, ConnectionPriority.DISCOVERY);
     }
 
     private ConnectionDescriptor getConnectionDescriptorWithCredentials(String targetId)
             throws JsonSyntaxException, JsonIOException, IOException, ScriptException {
         Credentials credentials = credentialsManager.getCredentialsByTargetId(targetId);
-        return new ConnectionDescriptor(targetId, credentials);
+        return new ConnectionDescriptor(targetId, credentials, ConnectionPriority.DISCOVERY);
+    }
+
+    private record MetadataKey(String jvmId, String recordingName) {
+        static MetadataKey of(StoredRecordingMetadata srm) {
+            return new MetadataKey(srm.getJvmId(), srm.getRecordingName());
+        }
     }
 
     static class StoredRecordingMetadata extends Metadata {
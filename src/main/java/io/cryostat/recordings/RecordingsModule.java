@@ -42,6 +42,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 
@@ -75,11 +77,14 @@ import dagger.Module;
 import dagger.Provides;
 import io.vertx.core.Vertx;
 import org.apache.commons.codec.binary.Base32;
+import org.apache.commons.lang3.StringUtils;
 
 @Module
 public abstract class RecordingsModule {
 
     public static final String METADATA_SUBDIRECTORY = "metadata";
+    static final String ARCHIVE_MIGRATION_CHECKPOINT = "archive-migration.checkpoint";
+    static final String DEFAULT_DEDUPLICATION_DIGEST_ALGORITHM = "SHA-256";
 
     @Provides
     @Named(Variables.JMX_CONNECTION_TIMEOUT)
@@ -135,7 +140,9 @@ public abstract class RecordingsModule {
             NotificationFactory notificationFactory,
             JvmIdHelper jvmIdHelper,
             Vertx vertx,
-            Base32 base32) {
+            Base32 base32,
+            ArchiveWriter archiveWriter,
+            ArchiveBlobStore blobStore) {
         return new RecordingArchiveHelper(
                 fs,
                 webServerProvider,
@@ -149,7 +156,75 @@ public abstract class RecordingsModule {
                 notificationFactory,
                 jvmIdHelper,
                 vertx,
-                base32);
+                base32,
+                archiveWriter,
+                blobStore);
+    }
+
+    @Provides
+    @Named(Variables.ARCHIVE_WRITE_BUFFER_SIZE)
+    static int provideArchiveWriteBufferSize(Environment env) {
+        return Math.max(
+                1, Integer.parseInt(env.getEnv(Variables.ARCHIVE_WRITE_BUFFER_SIZE, "1048576")));
+    }
+
+    @Provides
+    @Named(Variables.ARCHIVE_MAX_CONCURRENT_WRITES)
+    static int provideArchiveMaxConcurrentWrites(Environment env) {
+        return Math.max(
+                1, Integer.parseInt(env.getEnv(Variables.ARCHIVE_MAX_CONCURRENT_WRITES, "4")));
+    }
+
+    @Provides
+    @Named(Variables.ARCHIVE_CHECKSUM_ALGORITHM)
+    static Optional<String> provideArchiveChecksumAlgorithm(
+            Environment env, @Named(Variables.ARCHIVE_DEDUPLICATION) boolean deduplication) {
+        Optional<String> algorithm =
+                Optional.of(env.getEnv(Variables.ARCHIVE_CHECKSUM_ALGORITHM, ""))
+                        .filter(StringUtils::isNotBlank);
+        // deduplication keys blobs by checksum, so compute one while writing rather than after
+        if (algorithm.isEmpty() && deduplication) {
+            return Optional.of(DEFAULT_DEDUPLICATION_DIGEST_ALGORITHM);
+        }
+        return algorithm;
+    }
+
+    @Provides
+    @Named(Variables.ARCHIVE_DEDUPLICATION)
+    static boolean provideArchiveDeduplication(Environment env) {
+        return Boolean.parseBoolean(env.getEnv(Variables.ARCHIVE_DEDUPLICATION, "false"));
+    }
+
+    @Provides
+    static ArchiveWriter.Compression provideArchiveCompression(Environment env) {
+        return ArchiveWriter.Compression.valueOf(
+                env.getEnv(Variables.ARCHIVE_COMPRESSION, "none").toUpperCase(Locale.ROOT));
+    }
+
+    @Provides
+    @Singleton
+    static ArchiveWriter provideArchiveWriter(
+            @Named(Variables.ARCHIVE_WRITE_BUFFER_SIZE) int bufferSize,
+            @Named(Variables.ARCHIVE_MAX_CONCURRENT_WRITES) int maxConcurrentWrites,
+            @Named(Variables.ARCHIVE_CHECKSUM_ALGORITHM) Optional<String> checksumAlgorithm,
+            ArchiveWriter.Compression compression,
+            Logger logger) {
+        return new ArchiveWriter(
+                bufferSize, maxConcurrentWrites, checksumAlgorithm, compression, logger);
+    }
+
+    @Provides
+    @Singleton
+    static ArchiveBlobStore provideArchiveBlobStore(
+            @Named(MainModule.RECORDINGS_PATH) Path archivedRecordingsPath,
+            @Named(Variables.ARCHIVE_DEDUPLICATION) boolean deduplication,
+            @Named(Variables.ARCHIVE_CHECKSUM_ALGORITHM) Optional<String> checksumAlgorithm,
+            Logger logger) {
+        return new ArchiveBlobStore(
+                archivedRecordingsPath.resolve(RecordingArchiveHelper.BLOBS_SUBDIRECTORY),
+                deduplication,
+                checksumAlgorithm.orElse(DEFAULT_DEDUPLICATION_DIGEST_ALGORITHM),
+                logger);
     }
 
     @Provides
@@ -169,6 +244,22 @@ public abstract class RecordingsModule {
         return new RecordingOptionsCustomizer(cw);
     }
 
+    @Provides
+    @Singleton
+    static StartupMigrationProgress provideStartupMigrationProgress() {
+        return new StartupMigrationProgress();
+    }
+
+    @Provides
+    @Singleton
+    static ArchiveMigrationCheckpoint provideArchiveMigrationCheckpoint(
+            @Named(ConfigurationModule.CONFIGURATION_PATH) Path confDir,
+            FileSystem fs,
+            Logger logger) {
+        return new ArchiveMigrationCheckpoint(
+                confDir.resolve(ARCHIVE_MIGRATION_CHECKPOINT), fs, logger);
+    }
+
     @Provides
     @Singleton
     static RecordingMetadataManager provideRecordingMetadataManager(
@@ -186,6 +277,8 @@ public abstract class RecordingsModule {
             JvmIdHelper jvmIdHelper,
             Gson gson,
             Base32 base32,
+            StartupMigrationProgress migrationProgress,
+            ArchiveMigrationCheckpoint migrationCheckpoint,
             Logger logger) {
         try {
             Path metadataDir = confDir.resolve(METADATA_SUBDIRECTORY);
@@ -212,6 +305,8 @@ public abstract class RecordingsModule {
                     jvmIdHelper,
                     gson,
                     base32,
+                    migrationProgress,
+                    migrationCheckpoint,
                     logger);
         } catch (IOException e) {
             throw new RuntimeException(e);
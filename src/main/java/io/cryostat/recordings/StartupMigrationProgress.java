@@ -0,0 +1,86 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of the background migration of archived recordings and recording metadata which runs
+ * after startup. Cryostat serves requests while the migration runs, so this is reported by the
+ * health endpoint rather than delaying readiness. Each stage processes its units of work (metadata
+ * entries, archive subdirectories, stale metadata files) independently, so a migration which is
+ * interrupted by a restart resumes with whatever work remains.
+ */
+public class StartupMigrationProgress {
+
+    private volatile Stage stage = Stage.PENDING;
+    private volatile int total;
+    private final AtomicInteger completed = new AtomicInteger();
+
+    synchronized void begin(Stage stage, int total) {
+        this.stage = stage;
+        this.total = total;
+        this.completed.set(0);
+    }
+
+    void advance() {
+        completed.incrementAndGet();
+    }
+
+    void complete() {
+        begin(Stage.COMPLETE, 0);
+    }
+
+    public boolean isComplete() {
+        return stage == Stage.COMPLETE;
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(stage, completed.get(), total);
+    }
+
+    public enum Stage {
+        PENDING,
+        METADATA_SCAN,
+        ARCHIVE_MIGRATION,
+        METADATA_PRUNE,
+        COMPLETE,
+    }
+
+    public static record Snapshot(Stage stage, int completed, int total) {}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Clock;
+
+import io.vertx.core.Vertx;
+
+/**
+ * Runs the periodic archival jobs of Automated Rules from a single timer rather than one timer
+ * per job. Jobs are kept on a hashed timing wheel with one slot per second. The first run of each
+ * job happens exactly after its initial delay. The interval before the second run is then
+ * shortened by a jitter of less than one period, derived from its target and rule, so that the
+ * targets matched by a rule settle into being archived at staggered times over the period rather
+ * than all at once. Shortening rather than lengthening that interval means the second archive
+ * overlaps the first instead of leaving a gap in the archived data. Due jobs are run on worker
+ * threads, at most {@code maxConcurrentArchivals} at a time and only one at a time per target.
+ * Jobs which wait for longer than they are allowed to run form a backlog, and a job which is still
+ * waiting or running when it next becomes due skips that run.
+ */
+class ArchivalScheduler {
+
+    static final Duration TICK = Duration.ofSeconds(1);
+    private static final int WHEEL_SIZE = 512;
+
+    private final Vertx vertx;
+    private final Clock clock;
+    private final int maxConcurrentArchivals;
+    private final Logger logger;
+
+    private final List<List<Job>> wheel;
+    private final Map<Long, Job> jobs = new HashMap<>();
+    private final Deque<Job> backlog = new ArrayDeque<>();
+    private final Set<URI> activeTargets = new HashSet<>();
+    private long nextId = 1;
+    private long startTime;
+    private long currentTick;
+    private Long timerId;
+
+    private long completed;
+    private long skipped;
+    private long totalLag;
+    private long maxLag;
+
+    ArchivalScheduler(Vertx vertx, Clock clock, int maxConcurrentArchivals, Logger logger) {
+        this.vertx = vertx;
+        this.clock = clock;
+        this.maxConcurrentArchivals = maxConcurrentArchivals;
+        this.logger = logger;
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new LinkedList<>());
+        }
+    }
+
+    /**
+     * Schedule a job to run repeatedly against a target, first after exactly the initial delay,
+     * then after the period less the jitter for the target and rule, and then once every period.
+     *
+     * @return an ID which can be passed to {@link #cancel(long)}
+     */
+    synchronized long schedule(
+            URI target, String ruleName, Duration initialDelay, Duration period, Runnable task) {
+        if (timerId == null) {
+            startTime = clock.getMonotonicTime();
+            currentTick = 0;
+            timerId = vertx.setPeriodic(TICK.toMillis(), id -> advance());
+        }
+        long periodTicks = Math.max(1, ticks(period));
+        long jitter = Math.floorMod(Objects.hash(target, ruleName), periodTicks);
+        Job job = new Job(nextId++, target, periodTicks, task);
+        job.nextInterval = periodTicks - jitter;
+        jobs.put(job.id, job);
+        insert(job, currentTick + Math.max(1, ticks(initialDelay)));
+        logger.trace(
+                "Scheduled archival job {} for {} with {}s jitter",
+                job.id,
+                target,
+                jitter * TICK.toSeconds());
+        return job.id;
+    }
+
+    /** Stop running the job. A run which is already in progress is allowed to finish. */
+    synchronized void cancel(long id) {
+        Job job = jobs.remove(id);
+        if (job == null) {
+            return;
+        }
+        // cancelled jobs are dropped from the wheel when their slot is next visited
+        job.cancelled = true;
+        if (job.queued) {
+            backlog.remove(job);
+            job.queued = false;
+        }
+        if (jobs.isEmpty() && timerId != null) {
+            vertx.cancelTimer(timerId);
+            timerId = null;
+            wheel.forEach(List::clear);
+        }
+    }
+
+    synchronized ArchivalStats getStats() {
+        return new ArchivalStats(
+                jobs.size(),
+                backlog.size(),
+                activeTargets.size(),
+                completed,
+                skipped,
+                Duration.ofNanos(completed == 0 ? 0 : totalLag / completed),
+                Duration.ofNanos(maxLag));
+    }
+
+    // the timer may fire late, so the wheel is advanced by however many ticks have elapsed
+    private synchronized void advance() {
+        long elapsed = (clock.getMonotonicTime() - startTime) / TICK.toNanos();
+        while (currentTick < elapsed) {
+            currentTick++;
+            expire(wheel.get((int) (currentTick % WHEEL_SIZE)));
+        }
+        drain();
+    }
+
+    private void expire(List<Job> slot) {
+        List<Job> due = new ArrayList<>();
+        Iterator<Job> it = slot.iterator();
+        while (it.hasNext()) {
+            Job job = it.next();
+            if (job.cancelled) {
+                it.remove();
+            } else if (job.deadline <= currentTick) {
+                it.remove();
+                due.add(job);
+            }
+        }
+        for (Job job : due) {
+            if (job.queued || job.running) {
+                skipped++;
+                logger.warn(
+                        "Archival job {} for {} is still pending, skipping this run",
+                        job.id,
+                        job.target);
+            } else {
+                job.queued = true;
+                job.dueTime = startTime + job.deadline * TICK.toNanos();
+                backlog.add(job);
+            }
+            long next = job.deadline + job.nextInterval;
+            job.nextInterval = job.periodTicks;
+            while (next <= currentTick) {
+                // the timer was delayed by more than a whole period
+                next += job.periodTicks;
+                skipped++;
+            }
+            insert(job, next);
+        }
+    }
+
+    private void drain() {
+        List<Job> started = new ArrayList<>();
+        Iterator<Job> it = backlog.iterator();
+        while (activeTargets.size() < maxConcurrentArchivals && it.hasNext()) {
+            Job job = it.next();
+            if (activeTargets.contains(job.target)) {
+                continue;
+            }
+            it.remove();
+            job.queued = false;
+            job.running = true;
+            activeTargets.add(job.target);
+            long lag = clock.getMonotonicTime() - job.dueTime;
+            totalLag += lag;
+            maxLag = Math.max(maxLag, lag);
+            started.add(job);
+        }
+        started.forEach(this::run);
+    }
+
+    private void run(Job job) {
+        vertx.executeBlocking(
+                promise -> {
+                    job.task.run();
+                    promise.complete();
+                },
+                false,
+                ar -> {
+                    if (ar.failed()) {
+                        logger.error(ar.cause());
+                    }
+                    finish(job);
+                });
+    }
+
+    private synchronized void finish(Job job) {
+        job.running = false;
+        activeTargets.remove(job.target);
+        completed++;
+        logger.debug("Archival scheduler: {}", getStats());
+        drain();
+    }
+
+    private void insert(Job job, long deadline) {
+        job.deadline = deadline;
+        wheel.get((int) (deadline % WHEEL_SIZE)).add(job);
+    }
+
+    private static long ticks(Duration duration) {
+        return duration.toNanos() / TICK.toNanos();
+    }
+
+    private static class Job {
+        final long id;
+        final URI target;
+        final long periodTicks;
+        final Runnable task;
+        long deadline;
+        long nextInterval;
+        long dueTime;
+        boolean queued;
+        boolean running;
+        boolean cancelled;
+
+        Job(long id, URI target, long periodTicks, Runnable task) {
+            this.id = id;
+            this.target = target;
+            this.periodTicks = periodTicks;
+            this.task = task;
+        }
+    }
+
+    /**
+     * @param scheduled the number of archival jobs scheduled
+     * @param backlog the number of due jobs waiting for a concurrency slot or for another job
+     *     against the same target to finish
+     * @param running the number of jobs currently running
+     * @param completed the number of job runs completed
+     * @param skipped the number of job runs skipped because the previous run had not finished
+     * @param averageLag the average time between a job run becoming due and it starting
+     * @param maxLag the longest time between a job run becoming due and it starting
+     */
+    static record ArchivalStats(
+            int scheduled,
+            int backlog,
+            int running,
+            long completed,
+            long skipped,
+            Duration averageLag,
+            Duration maxLag) {}
+}
@@ -46,6 +46,7 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 public class ArchivedRecordingInfo {
 
     private final transient String serviceUri;
+    private final transient String jvmId;
     private final String downloadUrl;
     private final String name;
     private final String reportUrl;
@@ -61,7 +62,25 @@ public class ArchivedRecordingInfo {
             Metadata metadata,
             long size,
             long archivedTime) {
+        this(serviceUri, null, name, downloadUrl, reportUrl, metadata, size, archivedTime);
+    }
+
+    /**
+     * @param jvmId the ID of the JVM whose archive subdirectory contains the recording, used to
+     *     look up its metadata. This identifies where the recording is stored rather than the
+     *     recording itself, so it is not considered by {@link #equals(Object)}.
+     */
+    public ArchivedRecordingInfo(
+            String serviceUri,
+            String jvmId,
+            String name,
+            String downloadUrl,
+            String reportUrl,
+            Metadata metadata,
+            long size,
+            long archivedTime) {
         this.serviceUri = serviceUri;
+        this.jvmId = jvmId;
         this.name = name;
         this.downloadUrl = downloadUrl;
         this.reportUrl = reportUrl;
@@ -74,6 +93,10 @@ public class ArchivedRecordingInfo {
         return this.serviceUri;
     }
 
+    public String getJvmId() {
+        return this.jvmId;
+    }
+
     public String getName() {
         return this.name;
     }
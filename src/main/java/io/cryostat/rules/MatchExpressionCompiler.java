@@ -0,0 +1,676 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.rules;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.script.ScriptException;
+
+import org.openjdk.nashorn.api.tree.ArrayAccessTree;
+import org.openjdk.nashorn.api.tree.BinaryTree;
+import org.openjdk.nashorn.api.tree.CompilationUnitTree;
+import org.openjdk.nashorn.api.tree.ConditionalExpressionTree;
+import org.openjdk.nashorn.api.tree.ExpressionStatementTree;
+import org.openjdk.nashorn.api.tree.ExpressionTree;
+import org.openjdk.nashorn.api.tree.FunctionCallTree;
+import org.openjdk.nashorn.api.tree.IdentifierTree;
+import org.openjdk.nashorn.api.tree.LiteralTree;
+import org.openjdk.nashorn.api.tree.MemberSelectTree;
+import org.openjdk.nashorn.api.tree.Parser;
+import org.openjdk.nashorn.api.tree.RegExpLiteralTree;
+import org.openjdk.nashorn.api.tree.SimpleTreeVisitorES5_1;
+import org.openjdk.nashorn.api.tree.Tree;
+
+import io.cryostat.platform.ServiceRef;
+
+/**
+ * Compiles match expressions into predicates which evaluate them directly against a {@link
+ * ServiceRef}, rather than having the script engine parse the expression and evaluate it against
+ * freshly created bindings every time. Only the constructs which {@link MatchExpressionValidator}
+ * admits and whose JavaScript semantics can be reproduced exactly are compiled: string and boolean
+ * literals, property access on {@code target}, loose and strict (in)equality, {@code &&}, {@code
+ * ||}, the conditional operator, and {@code RegExp.test()}. Anything else, at compile time or at
+ * evaluation time, is left to the script engine.
+ */
+class MatchExpressionCompiler {
+
+    // the value which the script engine finds for a key missing from a map
+    private static final Object UNDEFINED = new Object();
+    private static final Set<String> TARGET_PROPERTIES =
+            Set.of("connectUrl", "jvmId", "alias", "labels", "annotations");
+
+    // on a Java map the script engine resolves bean properties before keys and methods after
+    // them, so these names cannot be treated as plain key lookups
+    private static final Set<String> MAP_MEMBERS = mapMembers();
+    // beyond this many alternatives a conjunction keeps the narrower of its operands' constraints
+    private static final int MAX_ALTERNATIVES = 16;
+    private static final Pattern BOUNDED_QUANTIFIER = Pattern.compile("\\{\\d+(,\\d*)?\\}");
+
+    private final Parser parser = Parser.create();
+
+    /**
+     * Evaluates the match expression with the script engine, for expressions or values which are
+     * not compiled.
+     */
+    @FunctionalInterface
+    interface Interpreter {
+        Object evaluate(String matchExpression, ServiceRef serviceRef) throws ScriptException;
+    }
+
+    /**
+     * The returned predicate throws a {@link CompletionException} wrapping a {@link
+     * ScriptException} if the expression fails to evaluate or does not evaluate to a boolean.
+     */
+    Predicate<ServiceRef> compile(String matchExpression, Interpreter interpreter) {
+        Optional<Value> compiled = tryCompile(matchExpression);
+        if (compiled.isEmpty()) {
+            return serviceRef ->
+                    asBoolean(
+                            matchExpression,
+                            serviceRef,
+                            interpret(interpreter, matchExpression, serviceRef));
+        }
+        Value value = compiled.get();
+        return serviceRef -> {
+            Object result;
+            try {
+                result = value.of(serviceRef);
+            } catch (UnsupportedValueException e) {
+                result = interpret(interpreter, matchExpression, serviceRef);
+            }
+            return asBoolean(matchExpression, serviceRef, result);
+        };
+    }
+
+    /**
+     * Derives which attributes a target must have for the match expression to apply to it, as
+     * alternative sets of attributes: the expression can only apply to a target which has all of
+     * the attributes in at least one of the returned sets. This is derived from equality
+     * comparisons of target properties with string literals combined with {@code &&} and {@code
+     * ||}. Empty if the expression may apply to a target regardless of its attributes.
+     */
+    Optional<Set<Set<TargetAttribute>>> requiredAttributes(String matchExpression) {
+        try {
+            return parse(matchExpression)
+                    .map(expression -> expression.accept(new AttributeConstraints(), null));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Value> tryCompile(String matchExpression) {
+        try {
+            return parse(matchExpression)
+                    .map(expression -> expression.accept(new ValueCompiler(), null));
+        } catch (RuntimeException e) {
+            // unparseable or unsupported, the script engine will report it
+            return Optional.empty();
+        }
+    }
+
+    private Optional<ExpressionTree> parse(String matchExpression) {
+        CompilationUnitTree cut = parser.parse("", matchExpression, null);
+        if (cut == null || cut.getSourceElements().size() != 1) {
+            return Optional.empty();
+        }
+        Tree statement = cut.getSourceElements().get(0);
+        if (!(statement instanceof ExpressionStatementTree)) {
+            return Optional.empty();
+        }
+        return Optional.of(((ExpressionStatementTree) statement).getExpression());
+    }
+
+    private static Object interpret(
+            Interpreter interpreter, String matchExpression, ServiceRef serviceRef) {
+        try {
+            return interpreter.evaluate(matchExpression, serviceRef);
+        } catch (ScriptException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static boolean asBoolean(String matchExpression, ServiceRef serviceRef, Object r) {
+        if (r == null || r == UNDEFINED) {
+            throw new CompletionException(
+                    new ScriptException(
+                            String.format(
+                                    "Null match expression evaluation result: %s (%s)",
+                                    matchExpression, serviceRef)));
+        } else if (r instanceof Boolean) {
+            return (Boolean) r;
+        } else {
+            throw new CompletionException(
+                    new ScriptException(
+                            String.format(
+                                    "Non-boolean match expression evaluation result: %s (%s) ->"
+                                            + " %s",
+                                    matchExpression, serviceRef, r)));
+        }
+    }
+
+    private static Set<String> mapMembers() {
+        Set<String> names = new HashSet<>(Set.of("class", "empty"));
+        for (Class<?> klazz : List.of(Object.class, Map.class, HashMap.class)) {
+            for (Method method : klazz.getMethods()) {
+                names.add(method.getName());
+            }
+        }
+        return names;
+    }
+
+    @FunctionalInterface
+    private interface Value {
+        Object of(ServiceRef serviceRef);
+    }
+
+    // thrown while evaluating a compiled expression which meets a value whose semantics in the
+    // script engine are not reproduced, such as a type coercion
+    private static class UnsupportedValueException extends RuntimeException {
+        static final UnsupportedValueException INSTANCE = new UnsupportedValueException();
+
+        private UnsupportedValueException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static boolean isNullish(Object o) {
+        return o == null || o == UNDEFINED;
+    }
+
+    private static boolean isTruthy(Object o) {
+        if (isNullish(o)) {
+            return false;
+        } else if (o instanceof Boolean) {
+            return (Boolean) o;
+        } else if (o instanceof String) {
+            return !((String) o).isEmpty();
+        }
+        return true;
+    }
+
+    private static boolean looseEquals(Object a, Object b) {
+        if (isNullish(a) || isNullish(b)) {
+            return isNullish(a) && isNullish(b);
+        }
+        if ((a instanceof String && b instanceof String)
+                || (a instanceof Boolean && b instanceof Boolean)) {
+            return a.equals(b);
+        }
+        throw UnsupportedValueException.INSTANCE;
+    }
+
+    private static boolean strictEquals(Object a, Object b) {
+        if (isNullish(a) || isNullish(b)) {
+            throw UnsupportedValueException.INSTANCE;
+        }
+        if (a instanceof String || a instanceof Boolean) {
+            return a.equals(b);
+        }
+        throw UnsupportedValueException.INSTANCE;
+    }
+
+    private static String toRegExpInput(Object o) {
+        if (o == null || o instanceof String || o instanceof Boolean) {
+            return String.valueOf(o);
+        }
+        throw UnsupportedValueException.INSTANCE;
+    }
+
+    private static Object getTargetProperty(ServiceRef serviceRef, String name) {
+        switch (name) {
+            case "connectUrl":
+                return serviceRef.getServiceUri().toString();
+            case "jvmId":
+                return serviceRef.getJvmId();
+            case "alias":
+                return serviceRef.getAlias().orElse(null);
+            case "labels":
+                return serviceRef.getLabels();
+            case "annotations":
+                Map<String, String> cryostatAnnotations =
+                        new HashMap<>(serviceRef.getCryostatAnnotations().size());
+                for (Map.Entry<ServiceRef.AnnotationKey, String> entry :
+                        serviceRef.getCryostatAnnotations().entrySet()) {
+                    cryostatAnnotations.put(entry.getKey().name(), entry.getValue());
+                }
+                return Map.of(
+                        "platform",
+                        serviceRef.getPlatformAnnotations(),
+                        "cryostat",
+                        cryostatAnnotations);
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    private static Object getMember(Object o, String name) {
+        if (!(o instanceof Map)) {
+            throw UnsupportedValueException.INSTANCE;
+        }
+        Map<?, ?> map = (Map<?, ?>) o;
+        return map.containsKey(name) ? map.get(name) : UNDEFINED;
+    }
+
+    /**
+     * Translates a JavaScript regular expression into an equivalent {@link Pattern}. Constructs
+     * which behave differently in the two dialects, or which are not valid ES5, are not translated.
+     */
+    static Optional<Pattern> translateRegExp(String source, String options) {
+        int flags;
+        switch (options) {
+            case "":
+            case "g": // a literal creates a new RegExp when evaluated, so lastIndex starts at 0
+                flags = 0;
+                break;
+            case "i":
+            case "gi":
+            case "ig":
+                flags = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                break;
+            default:
+                return Optional.empty();
+        }
+        StringBuilder sb = new StringBuilder(source.length() + 16);
+        boolean inClass = false;
+        boolean quantified = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            boolean quantifier = false;
+            if (c == '\\') {
+                if (++i >= source.length()) {
+                    return Optional.empty();
+                }
+                char e = source.charAt(i);
+                if (e == 'x' && hasHex(source, i + 1, 2)) {
+                    sb.append(source, i - 1, i + 3);
+                    i += 2;
+                } else if (e == 'u' && hasHex(source, i + 1, 4)) {
+                    sb.append(source, i - 1, i + 5);
+                    i += 4;
+                } else if ("dDwWtnrf".indexOf(e) >= 0 || (!inClass && "bB".indexOf(e) >= 0)) {
+                    sb.append('\\').append(e);
+                } else if (!Character.isLetterOrDigit(e) && e < 0x80) {
+                    sb.append('\\').append(e);
+                } else {
+                    // backreferences, \s, \v, \c, \0 and identity escapes of letters differ
+                    return Optional.empty();
+                }
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                    sb.append(c);
+                } else if (c == '[' || c == '&') {
+                    // literals in JavaScript, but union and intersection in Java
+                    sb.append('\\').append(c);
+                } else {
+                    sb.append(c);
+                }
+            } else {
+                switch (c) {
+                    case '[':
+                        if (source.startsWith("[]", i) || source.startsWith("[^]", i)) {
+                            return Optional.empty();
+                        }
+                        if (source.startsWith("[^", i)) {
+                            sb.append("[^");
+                            i++;
+                        } else {
+                            sb.append(c);
+                        }
+                        inClass = true;
+                        break;
+                    case '.':
+                        sb.append("[^\\n\\r\\u2028\\u2029]");
+                        break;
+                    case '$':
+                        sb.append("\\z");
+                        break;
+                    case '(':
+                        if (source.startsWith("(?", i)
+                                && !(source.startsWith("(?:", i)
+                                        || source.startsWith("(?=", i)
+                                        || source.startsWith("(?!", i))) {
+                            return Optional.empty();
+                        }
+                        sb.append(c);
+                        break;
+                    case '*':
+                    case '+':
+                    case '?':
+                        // a lazy quantifier is the same in both, a possessive one is Java only
+                        if (quantified && c != '?') {
+                            return Optional.empty();
+                        }
+                        quantifier = !quantified;
+                        sb.append(c);
+                        break;
+                    case '{':
+                        Matcher m = BOUNDED_QUANTIFIER.matcher(source).region(i, source.length());
+                        if (!m.lookingAt() || quantified) {
+                            return Optional.empty();
+                        }
+                        sb.append(m.group());
+                        i = m.end() - 1;
+                        quantifier = true;
+                        break;
+                    case '}':
+                        return Optional.empty();
+                    default:
+                        sb.append(c);
+                        break;
+                }
+            }
+            quantified = quantifier;
+        }
+        if (inClass) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Pattern.compile(sb.toString(), flags));
+        } catch (PatternSyntaxException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean hasHex(String s, int from, int count) {
+        if (from + count > s.length()) {
+            return false;
+        }
+        for (int i = from; i < from + count; i++) {
+            if (Character.digit(s.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // returns null for any construct which is not compiled
+    private static class ValueCompiler extends SimpleTreeVisitorES5_1<Value, Void> {
+
+        @Override
+        public Value visitLiteral(LiteralTree node, Void p) {
+            switch (node.getKind()) {
+                case BOOLEAN_LITERAL:
+                case STRING_LITERAL:
+                    Object literal = node.getValue();
+                    if (!(literal instanceof String || literal instanceof Boolean)) {
+                        return null;
+                    }
+                    return serviceRef -> literal;
+                case NULL_LITERAL:
+                    return serviceRef -> null;
+                default:
+                    // numbers would need JavaScript's type coercions and number formatting
+                    return null;
+            }
+        }
+
+        @Override
+        public Value visitMemberSelect(MemberSelectTree node, Void p) {
+            return member(node.getExpression(), node.getIdentifier(), p);
+        }
+
+        @Override
+        public Value visitArrayAccess(ArrayAccessTree node, Void p) {
+            ExpressionTree index = node.getIndex();
+            if (index.getKind() != Tree.Kind.STRING_LITERAL) {
+                return null;
+            }
+            return member(node.getExpression(), (String) ((LiteralTree) index).getValue(), p);
+        }
+
+        private Value member(ExpressionTree expression, String name, Void p) {
+            if (expression instanceof IdentifierTree) {
+                if (!"target".equals(((IdentifierTree) expression).getName())
+                        || !TARGET_PROPERTIES.contains(name)) {
+                    return null;
+                }
+                return serviceRef -> getTargetProperty(serviceRef, name);
+            }
+            Value object = expression.accept(this, p);
+            if (object == null || MAP_MEMBERS.contains(name)) {
+                return null;
+            }
+            return serviceRef -> getMember(object.of(serviceRef), name);
+        }
+
+        @Override
+        public Value visitBinary(BinaryTree node, Void p) {
+            Value left = node.getLeftOperand().accept(this, p);
+            Value right = node.getRightOperand().accept(this, p);
+            if (left == null || right == null) {
+                return null;
+            }
+            switch (node.getKind()) {
+                case EQUAL_TO:
+                    return serviceRef -> looseEquals(left.of(serviceRef), right.of(serviceRef));
+                case NOT_EQUAL_TO:
+                    return serviceRef -> !looseEquals(left.of(serviceRef), right.of(serviceRef));
+                case STRICT_EQUAL_TO:
+                    return serviceRef -> strictEquals(left.of(serviceRef), right.of(serviceRef));
+                case STRICT_NOT_EQUAL_TO:
+                    return serviceRef -> !strictEquals(left.of(serviceRef), right.of(serviceRef));
+                case CONDITIONAL_AND:
+                    return serviceRef -> {
+                        Object l = left.of(serviceRef);
+                        return isTruthy(l) ? right.of(serviceRef) : l;
+                    };
+                case CONDITIONAL_OR:
+                    return serviceRef -> {
+                        Object l = left.of(serviceRef);
+                        return isTruthy(l) ? l : right.of(serviceRef);
+                    };
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public Value visitConditionalExpression(ConditionalExpressionTree node, Void p) {
+            Value condition = node.getCondition().accept(this, p);
+            Value whenTrue = node.getTrueExpression().accept(this, p);
+            Value whenFalse = node.getFalseExpression().accept(this, p);
+            if (condition == null || whenTrue == null || whenFalse == null) {
+                return null;
+            }
+            return serviceRef ->
+                    isTruthy(condition.of(serviceRef))
+                            ? whenTrue.of(serviceRef)
+                            : whenFalse.of(serviceRef);
+        }
+
+        @Override
+        public Value visitFunctionCall(FunctionCallTree node, Void p) {
+            if (!(node.getFunctionSelect() instanceof MemberSelectTree)
+                    || node.getArguments().size() != 1) {
+                return null;
+            }
+            MemberSelectTree function = (MemberSelectTree) node.getFunctionSelect();
+            if (!"test".equals(function.getIdentifier())
+                    || !(function.getExpression() instanceof RegExpLiteralTree)) {
+                return null;
+            }
+            RegExpLiteralTree regExp = (RegExpLiteralTree) function.getExpression();
+            Optional<Pattern> pattern = translateRegExp(regExp.getPattern(), regExp.getOptions());
+            Value argument = node.getArguments().get(0).accept(this, p);
+            if (pattern.isEmpty() || argument == null) {
+                return null;
+            }
+            Pattern compiled = pattern.get();
+            return serviceRef ->
+                    compiled.matcher(toRegExpInput(argument.of(serviceRef))).find();
+        }
+    }
+
+    // the names of the properties accessed from target, ex. [labels, app] for target.labels.app,
+    // or null if the expression is not such a property access
+    private static List<String> propertyPath(ExpressionTree expression) {
+        LinkedList<String> path = new LinkedList<>();
+        while (true) {
+            if (expression instanceof MemberSelectTree) {
+                MemberSelectTree member = (MemberSelectTree) expression;
+                path.addFirst(member.getIdentifier());
+                expression = member.getExpression();
+            } else if (expression instanceof ArrayAccessTree
+                    && ((ArrayAccessTree) expression).getIndex().getKind()
+                            == Tree.Kind.STRING_LITERAL) {
+                ArrayAccessTree access = (ArrayAccessTree) expression;
+                path.addFirst((String) ((LiteralTree) access.getIndex()).getValue());
+                expression = access.getExpression();
+            } else if (expression instanceof IdentifierTree) {
+                return "target".equals(((IdentifierTree) expression).getName()) ? path : null;
+            } else {
+                return null;
+            }
+        }
+    }
+
+    private static TargetAttribute attribute(ExpressionTree property, ExpressionTree literal) {
+        if (literal.getKind() != Tree.Kind.STRING_LITERAL) {
+            return null;
+        }
+        String value = (String) ((LiteralTree) literal).getValue();
+        List<String> path = propertyPath(property);
+        if (path == null) {
+            return null;
+        }
+        String key = path.get(path.size() - 1);
+        if (path.size() == 1) {
+            switch (key) {
+                case "connectUrl":
+                    return new TargetAttribute(TargetAttribute.Kind.CONNECT_URL, null, value);
+                case "jvmId":
+                    return new TargetAttribute(TargetAttribute.Kind.JVM_ID, null, value);
+                case "alias":
+                    return new TargetAttribute(TargetAttribute.Kind.ALIAS, null, value);
+                default:
+                    return null;
+            }
+        }
+        if (MAP_MEMBERS.contains(key)) {
+            return null;
+        }
+        if (path.equals(List.of("labels", key))) {
+            return new TargetAttribute(TargetAttribute.Kind.LABEL, key, value);
+        } else if (path.equals(List.of("annotations", "platform", key))) {
+            return new TargetAttribute(TargetAttribute.Kind.PLATFORM_ANNOTATION, key, value);
+        } else if (path.equals(List.of("annotations", "cryostat", key))) {
+            return new TargetAttribute(TargetAttribute.Kind.CRYOSTAT_ANNOTATION, key, value);
+        }
+        return null;
+    }
+
+    // returns null for any construct which does not constrain the attributes of matching targets
+    private static class AttributeConstraints
+            extends SimpleTreeVisitorES5_1<Set<Set<TargetAttribute>>, Void> {
+
+        @Override
+        public Set<Set<TargetAttribute>> visitLiteral(LiteralTree node, Void p) {
+            if (node.getKind() == Tree.Kind.BOOLEAN_LITERAL
+                    && Boolean.FALSE.equals(node.getValue())) {
+                return Set.of();
+            }
+            return null;
+        }
+
+        @Override
+        public Set<Set<TargetAttribute>> visitBinary(BinaryTree node, Void p) {
+            switch (node.getKind()) {
+                case EQUAL_TO:
+                case STRICT_EQUAL_TO:
+                    TargetAttribute attribute =
+                            attribute(node.getLeftOperand(), node.getRightOperand());
+                    if (attribute == null) {
+                        attribute = attribute(node.getRightOperand(), node.getLeftOperand());
+                    }
+                    return attribute == null ? null : Set.of(Set.of(attribute));
+                case CONDITIONAL_AND:
+                    return and(
+                            node.getLeftOperand().accept(this, p),
+                            node.getRightOperand().accept(this, p));
+                case CONDITIONAL_OR:
+                    return or(
+                            node.getLeftOperand().accept(this, p),
+                            node.getRightOperand().accept(this, p));
+                default:
+                    return null;
+            }
+        }
+
+        private static Set<Set<TargetAttribute>> and(
+                Set<Set<TargetAttribute>> left, Set<Set<TargetAttribute>> right) {
+            if (left == null || right == null) {
+                return left == null ? right : left;
+            }
+            if (left.size() * right.size() > MAX_ALTERNATIVES) {
+                return left.size() <= right.size() ? left : right;
+            }
+            Set<Set<TargetAttribute>> alternatives = new HashSet<>();
+            for (Set<TargetAttribute> l : left) {
+                for (Set<TargetAttribute> r : right) {
+                    Set<TargetAttribute> both = new HashSet<>(l);
+                    both.addAll(r);
+                    alternatives.add(both);
+                }
+            }
+            return alternatives;
+        }
+
+        private static Set<Set<TargetAttribute>> or(
+                Set<Set<TargetAttribute>> left, Set<Set<TargetAttribute>> right) {
+            if (left == null || right == null) {
+                return null;
+            }
+            Set<Set<TargetAttribute>> alternatives = new HashSet<>(left);
+            alternatives.addAll(right);
+            return alternatives;
+        }
+    }
+}
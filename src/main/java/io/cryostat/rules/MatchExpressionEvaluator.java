@@ -37,17 +37,22 @@
  */
 package io.cryostat.rules;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
+import javax.inject.Named;
 import javax.script.Bindings;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
+import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -57,25 +62,33 @@ import jdk.jfr.Category;
 import jdk.jfr.Event;
 import jdk.jfr.Label;
 import jdk.jfr.Name;
-import org.apache.commons.lang3.tuple.Pair;
 
 public class MatchExpressionEvaluator {
 
     private final ScriptEngine scriptEngine;
-    private final LoadingCache<Pair<String, ServiceRef>, Boolean> cache;
+    private final LoadingCache<String, ExpressionResults> cache;
     private final Logger logger;
 
     MatchExpressionEvaluator(
             ScriptEngine scriptEngine,
+            MatchExpressionCompiler compiler,
             CredentialsManager credentialsManager,
             RuleRegistry ruleRegistry,
+            PlatformClient platformClient,
+            @Named(RulesModule.MATCH_EXPRESSION_CACHE_SIZE) long maxExpressions,
             Logger logger) {
         this.scriptEngine = scriptEngine;
         this.logger = logger;
+        // each expression is parsed and compiled once, rather than by the script engine on every
+        // evaluation against a target. Its results are kept per target, so they are bounded by
+        // the size of the fleet as targets which are lost are dropped.
         this.cache =
                 Caffeine.newBuilder()
-                        .maximumSize(1024) // should this be configurable?
-                        .build(k -> compute(k.getKey(), k.getValue()));
+                        .maximumSize(maxExpressions)
+                        .build(
+                                k ->
+                                        new ExpressionResults(
+                                                compiler.compile(k, this::interpret)));
 
         credentialsManager.addListener(
                 e -> {
@@ -99,45 +112,39 @@ public class MatchExpressionEvaluator {
                             break;
                     }
                 });
+        platformClient.addTargetDiscoveryListener(
+                tde -> {
+                    switch (tde.getEventKind()) {
+                        case MODIFIED:
+                        case LOST:
+                            invalidate(tde.getServiceRef());
+                            break;
+                        default:
+                            // ignore
+                            break;
+                    }
+                });
     }
 
-    private boolean compute(String matchExpression, ServiceRef serviceRef) throws ScriptException {
-        Object r = this.scriptEngine.eval(matchExpression, createBindings(serviceRef));
-        if (r == null) {
-            throw new ScriptException(
-                    String.format(
-                            "Null match expression evaluation result: %s (%s)",
-                            matchExpression, serviceRef));
-        } else if (r instanceof Boolean) {
-            return (Boolean) r;
-        } else {
-            throw new ScriptException(
-                    String.format(
-                            "Non-boolean match expression evaluation result: %s (%s) -> %s",
-                            matchExpression, serviceRef, r));
-        }
+    private Object interpret(String matchExpression, ServiceRef serviceRef)
+            throws ScriptException {
+        return this.scriptEngine.eval(matchExpression, createBindings(serviceRef));
     }
 
     private void invalidate(String matchExpression) {
-        var it = cache.asMap().keySet().iterator();
-        while (it.hasNext()) {
-            Pair<String, ServiceRef> entry = it.next();
-            if (Objects.equals(matchExpression, entry.getKey())) {
-                cache.invalidate(entry);
-            }
-        }
+        cache.invalidate(matchExpression);
+    }
+
+    private void invalidate(ServiceRef serviceRef) {
+        URI serviceUri = serviceRef.getServiceUri();
+        cache.asMap().values().forEach(results -> results.invalidate(serviceUri));
     }
 
     public boolean applies(String matchExpression, ServiceRef serviceRef) throws ScriptException {
-        Pair<String, ServiceRef> key = Pair.of(matchExpression, serviceRef);
         MatchExpressionAppliesEvent evt = new MatchExpressionAppliesEvent(matchExpression);
         try {
             evt.begin();
-            Boolean result = cache.get(key);
-            if (result == null) {
-                throw new IllegalStateException();
-            }
-            return result;
+            return cache.get(matchExpression).applies(serviceRef);
         } catch (CompletionException e) {
             if (e.getCause() instanceof ScriptException) {
                 throw (ScriptException) e.getCause();
@@ -184,6 +191,45 @@ public class MatchExpressionEvaluator {
         }
     }
 
+    /**
+     * The compiled form of one match expression and its results against targets, keyed by the
+     * targets' connection URLs. A result is only used for the same definition of the target it was
+     * computed against, so a target which has since changed is evaluated again.
+     */
+    private static class ExpressionResults {
+        private final Predicate<ServiceRef> predicate;
+        private final Map<URI, Result> byTarget = new ConcurrentHashMap<>();
+        private final AtomicLong generation = new AtomicLong();
+
+        ExpressionResults(Predicate<ServiceRef> predicate) {
+            this.predicate = predicate;
+        }
+
+        boolean applies(ServiceRef serviceRef) {
+            URI serviceUri = serviceRef.getServiceUri();
+            Result result = byTarget.get(serviceUri);
+            if (result != null && result.serviceRef().equals(serviceRef)) {
+                return result.applies();
+            }
+            long generation = this.generation.get();
+            boolean applies = predicate.test(serviceRef);
+            Result computed = new Result(serviceRef, applies);
+            byTarget.put(serviceUri, computed);
+            if (this.generation.get() != generation) {
+                // invalidated while evaluating, so the target may since have been lost
+                byTarget.remove(serviceUri, computed);
+            }
+            return applies;
+        }
+
+        void invalidate(URI serviceUri) {
+            generation.incrementAndGet();
+            byTarget.remove(serviceUri);
+        }
+    }
+
+    private static record Result(ServiceRef serviceRef, boolean applies) {}
+
     @Name("io.cryostat.rules.MatchExpressionEvaluator.MatchExpressionAppliesEvent")
     @Label("Match Expression Evaluation")
     @Category("Cryostat")
@@ -48,7 +48,6 @@ import java.util.function.Predicate;
 import javax.script.ScriptException;
 
 import io.cryostat.core.log.Logger;
-import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
 
 import com.google.gson.Gson;
@@ -59,7 +58,7 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 public class MatchExpressionManager {
     private final MatchExpressionValidator matchExpressionValidator;
     private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
-    private final PlatformClient platformClient;
+    private final TargetAttributeIndex targetAttributeIndex;
     private final MatchExpressionDao dao;
     private final Gson gson;
     private final Logger logger;
@@ -67,13 +66,13 @@ public class MatchExpressionManager {
     MatchExpressionManager(
             MatchExpressionValidator matchExpressionValidator,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
-            PlatformClient platformClient,
+            TargetAttributeIndex targetAttributeIndex,
             MatchExpressionDao dao,
             Gson gson,
             Logger logger) {
         this.matchExpressionValidator = matchExpressionValidator;
         this.matchExpressionEvaluator = matchExpressionEvaluator;
-        this.platformClient = platformClient;
+        this.targetAttributeIndex = targetAttributeIndex;
         this.dao = dao;
         this.gson = gson;
         this.logger = logger;
@@ -113,7 +112,7 @@ public class MatchExpressionManager {
     public Set<ServiceRef> resolveMatchingTargets(String expr, Predicate<ServiceRef> targetFilter) {
         Set<ServiceRef> matchedTargets = new HashSet<>();
         for (ServiceRef target :
-                platformClient.listDiscoverableServices().stream().filter(targetFilter).toList()) {
+                targetAttributeIndex.getCandidates(expr).stream().filter(targetFilter).toList()) {
             try {
                 if (matchExpressionEvaluator.get().applies(expr, target)) {
                     matchedTargets.add(target);
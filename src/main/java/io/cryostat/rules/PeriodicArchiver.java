@@ -49,6 +49,7 @@ import java.util.regex.Pattern;
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
 import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.ConnectionPriority;
 import io.cryostat.net.web.http.AbstractAuthenticatedRequestHandler;
 import io.cryostat.platform.ServiceRef;
 import io.cryostat.recordings.RecordingArchiveHelper;
@@ -135,7 +136,10 @@ class PeriodicArchiver implements Runnable {
     private void performArchival() throws InterruptedException, ExecutionException, Exception {
         String recordingName = rule.getRecordingName();
         ConnectionDescriptor connectionDescriptor =
-                new ConnectionDescriptor(serviceRef, credentialsManager.getCredentials(serviceRef));
+                new ConnectionDescriptor(
+                        serviceRef,
+                        credentialsManager.getCredentials(serviceRef),
+                        ConnectionPriority.AUTOMATED_RULE);
 
         ArchivedRecordingInfo archivedRecordingInfo =
                 recordingArchiveHelper.saveRecording(connectionDescriptor, recordingName).get();
@@ -40,13 +40,13 @@ package io.cryostat.rules;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 
@@ -61,6 +61,7 @@ import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
 import io.cryostat.core.templates.TemplateType;
 import io.cryostat.net.ConnectionDescriptor;
+import io.cryostat.net.ConnectionPriority;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
@@ -89,6 +90,7 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
     private final RecordingTargetHelper recordingTargetHelper;
     private final RecordingMetadataManager metadataManager;
     private final PeriodicArchiverFactory periodicArchiverFactory;
+    private final ArchivalScheduler archivalScheduler;
     private final Logger logger;
 
     private final Map<Pair<ServiceRef, Rule>, Set<Long>> tasks;
@@ -104,6 +106,7 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
             RecordingTargetHelper recordingTargetHelper,
             RecordingMetadataManager metadataManager,
             PeriodicArchiverFactory periodicArchiverFactory,
+            ArchivalScheduler archivalScheduler,
             Logger logger) {
         this.vertx = vertx;
         this.platformClient = platformClient;
@@ -115,8 +118,9 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
         this.recordingTargetHelper = recordingTargetHelper;
         this.metadataManager = metadataManager;
         this.periodicArchiverFactory = periodicArchiverFactory;
+        this.archivalScheduler = archivalScheduler;
         this.logger = logger;
-        this.tasks = new HashMap<>();
+        this.tasks = new ConcurrentHashMap<>();
 
         this.registry.addListener(this.ruleListener());
         this.credentialsManager.addListener(this.credentialsListener());
@@ -130,7 +134,7 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
     @Override
     public void stop() {
         this.platformClient.removeTargetDiscoveryListener(this);
-        this.tasks.forEach((ruleExecution, ids) -> ids.forEach(vertx::cancelTimer));
+        this.tasks.forEach((ruleExecution, ids) -> ids.forEach(archivalScheduler::cancel));
         this.tasks.clear();
     }
 
@@ -276,7 +280,10 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
                             if (rule.isArchiver()) {
                                 try {
                                     archiveRuleRecording(
-                                            new ConnectionDescriptor(serviceRef, credentials),
+                                            new ConnectionDescriptor(
+                                                    serviceRef,
+                                                    credentials,
+                                                    ConnectionPriority.AUTOMATED_RULE),
                                             rule);
                                 } catch (Exception e) {
                                     logger.error(e);
@@ -284,7 +291,10 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
                             } else {
                                 try {
                                     startRuleRecording(
-                                            new ConnectionDescriptor(serviceRef, credentials),
+                                            new ConnectionDescriptor(
+                                                    serviceRef,
+                                                    credentials,
+                                                    ConnectionPriority.AUTOMATED_RULE),
                                             rule);
                                 } catch (Exception e) {
                                     logger.error(e);
@@ -298,7 +308,9 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
                                                 recordingArchiveHelper,
                                                 this::archivalFailureHandler);
                                 Pair<ServiceRef, Rule> key = Pair.of(serviceRef, rule);
-                                Set<Long> ids = tasks.computeIfAbsent(key, k -> new HashSet<>());
+                                Set<Long> ids =
+                                        tasks.computeIfAbsent(
+                                                key, k -> ConcurrentHashMap.newKeySet());
                                 int initialDelay = rule.getInitialDelaySeconds();
                                 int archivalPeriodSeconds = rule.getArchivalPeriodSeconds();
                                 if (initialDelay <= 0) {
@@ -308,22 +320,13 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
                                         || archivalPeriodSeconds <= 0) {
                                     return;
                                 }
-                                long initialTask =
-                                        vertx.setTimer(
-                                                Duration.ofSeconds(initialDelay).toMillis(),
-                                                initialId -> {
-                                                    tasks.get(key).remove(initialId);
-                                                    periodicArchiver.run();
-                                                    long periodicTask =
-                                                            vertx.setPeriodic(
-                                                                    Duration.ofSeconds(
-                                                                                    archivalPeriodSeconds)
-                                                                            .toMillis(),
-                                                                    periodicId ->
-                                                                            periodicArchiver.run());
-                                                    ids.add(periodicTask);
-                                                });
-                                ids.add(initialTask);
+                                ids.add(
+                                        archivalScheduler.schedule(
+                                                serviceRef.getServiceUri(),
+                                                rule.getName(),
+                                                Duration.ofSeconds(initialDelay),
+                                                Duration.ofSeconds(archivalPeriodSeconds),
+                                                periodicArchiver));
                             }
                         });
     }
@@ -347,8 +350,8 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
                 Set<Long> ids = entry.getValue();
                 ids.forEach(
                         (id) -> {
-                            vertx.cancelTimer(id);
-                            logger.trace("Cancelled timer {}", id);
+                            archivalScheduler.cancel(id);
+                            logger.trace("Cancelled archival job {}", id);
                         });
                 it.remove();
             }
@@ -356,8 +359,10 @@ public class RuleProcessor extends AbstractVerticle implements Consumer<TargetDi
     }
 
     private Void archivalFailureHandler(Pair<ServiceRef, Rule> key) {
-        tasks.get(key).forEach(vertx::cancelTimer);
-        tasks.remove(key);
+        Set<Long> ids = tasks.remove(key);
+        if (ids != null) {
+            ids.forEach(archivalScheduler::cancel);
+        }
         return null;
     }
 
@@ -40,7 +40,11 @@ package io.cryostat.rules;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -62,23 +66,33 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
 
     private final Path rulesDir;
     private final Lazy<MatchExpressionEvaluator> matchExpressionEvaluator;
+    private final MatchExpressionCompiler matchExpressionCompiler;
     private final FileSystem fs;
     private final Set<Rule> rules;
+    // rules are indexed by one of the attributes which a target must have for them to apply, so
+    // that only the rules which may apply to a target are evaluated against it. Rules are mutable
+    // and compared by value, so these hold them by identity.
+    private final Map<TargetAttribute, Set<Rule>> rulesByAttribute;
+    private final Set<Rule> unindexedRules;
     private final Gson gson;
     private final Logger logger;
 
     RuleRegistry(
             Path rulesDir,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionCompiler matchExpressionCompiler,
             FileSystem fs,
             Gson gson,
             Logger logger) {
         this.rulesDir = rulesDir;
         this.matchExpressionEvaluator = matchExpressionEvaluator;
+        this.matchExpressionCompiler = matchExpressionCompiler;
         this.fs = fs;
         this.gson = gson;
         this.logger = logger;
         this.rules = new HashSet<>();
+        this.rulesByAttribute = new HashMap<>();
+        this.unindexedRules = newIdentitySet();
     }
 
     public void loadRules() throws IOException {
@@ -105,7 +119,7 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
                             }
                         })
                 .filter(Objects::nonNull)
-                .forEach(rules::add);
+                .forEach(this::add);
     }
 
     public Rule addRule(Rule rule) throws IOException {
@@ -116,7 +130,7 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
                                 "Rule with name \"%s\" already exists; refusing to overwrite",
                                 rule.getName()));
             }
-            rules.add(rule);
+            add(rule);
             persistRule(rule);
         }
         emit(RuleEvent.ADDED, rule);
@@ -149,7 +163,12 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
         if (!serviceRef.getAlias().isPresent()) {
             return Set.of();
         }
-        return rules.stream().filter(r -> applies(r, serviceRef)).collect(Collectors.toSet());
+        Set<Rule> candidates = newIdentitySet();
+        candidates.addAll(unindexedRules);
+        for (TargetAttribute attribute : TargetAttribute.of(serviceRef)) {
+            candidates.addAll(rulesByAttribute.getOrDefault(attribute, Set.of()));
+        }
+        return candidates.stream().filter(r -> applies(r, serviceRef)).collect(Collectors.toSet());
     }
 
     public Set<Rule> getRules() {
@@ -173,6 +192,7 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
             if (Objects.equals(rule.getName(), name)) {
                 emit(RuleEvent.REMOVED, rule);
                 it.remove();
+                unindex(rule);
                 break;
             }
         }
@@ -193,6 +213,31 @@ public class RuleRegistry extends AbstractEventEmitter<RuleEvent, Rule> {
         }
     }
 
+    private void add(Rule rule) {
+        if (!rules.add(rule)) {
+            return;
+        }
+        Optional<Set<Set<TargetAttribute>>> required =
+                matchExpressionCompiler.requiredAttributes(rule.getMatchExpression());
+        if (required.isEmpty() || required.get().stream().anyMatch(Set::isEmpty)) {
+            unindexedRules.add(rule);
+            return;
+        }
+        for (Set<TargetAttribute> alternative : required.get()) {
+            TargetAttribute attribute = alternative.iterator().next();
+            rulesByAttribute.computeIfAbsent(attribute, k -> newIdentitySet()).add(rule);
+        }
+    }
+
+    private void unindex(Rule rule) {
+        unindexedRules.remove(rule);
+        rulesByAttribute.values().removeIf(indexed -> indexed.remove(rule) && indexed.isEmpty());
+    }
+
+    private static Set<Rule> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
     private void persistRule(Rule rule) throws IOException {
         Path destination = rulesDir.resolve(rule.getName() + ".json");
         this.fs.writeString(
@@ -50,8 +50,11 @@ import javax.script.ScriptEngine;
 
 import io.cryostat.configuration.ConfigurationModule;
 import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.configuration.Variables;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
+import io.cryostat.core.sys.Clock;
+import io.cryostat.core.sys.Environment;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.discovery.DiscoveryStorage;
 import io.cryostat.net.HttpServer;
@@ -78,12 +81,15 @@ public abstract class RulesModule {
     public static final String RULES_SUBDIRECTORY = "rules";
     public static final String RULES_WEB_CLIENT = "RULES_WEB_CLIENT";
     public static final String RULES_HEADERS_FACTORY = "RULES_HEADERS_FACTORY";
+    public static final String MATCH_EXPRESSION_CACHE_SIZE = "MATCH_EXPRESSION_CACHE_SIZE";
+    public static final String MAX_CONCURRENT_ARCHIVALS = "MAX_CONCURRENT_ARCHIVALS";
 
     @Provides
     @Singleton
     static RuleRegistry provideRuleRegistry(
             @Named(ConfigurationModule.CONFIGURATION_PATH) Path confDir,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
+            MatchExpressionCompiler matchExpressionCompiler,
             FileSystem fs,
             Gson gson,
             Logger logger) {
@@ -92,7 +98,8 @@ public abstract class RulesModule {
             if (!fs.isDirectory(rulesDir)) {
                 Files.createDirectory(rulesDir);
             }
-            return new RuleRegistry(rulesDir, matchExpressionEvaluator, fs, gson, logger);
+            return new RuleRegistry(
+                    rulesDir, matchExpressionEvaluator, matchExpressionCompiler, fs, gson, logger);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -109,12 +116,24 @@ public abstract class RulesModule {
     static MatchExpressionManager provideMatchExpressionManager(
             MatchExpressionValidator matchExpressionValidator,
             Lazy<MatchExpressionEvaluator> matchExpressionEvaluator,
-            DiscoveryStorage discovery,
+            TargetAttributeIndex targetAttributeIndex,
             MatchExpressionDao dao,
             Gson gson,
             Logger logger) {
         return new MatchExpressionManager(
-                matchExpressionValidator, matchExpressionEvaluator, discovery, dao, gson, logger);
+                matchExpressionValidator,
+                matchExpressionEvaluator,
+                targetAttributeIndex,
+                dao,
+                gson,
+                logger);
+    }
+
+    @Provides
+    @Singleton
+    static TargetAttributeIndex provideTargetAttributeIndex(
+            DiscoveryStorage discovery, MatchExpressionCompiler compiler) {
+        return new TargetAttributeIndex(discovery, compiler);
     }
 
     @Provides
@@ -123,14 +142,37 @@ public abstract class RulesModule {
         return new MatchExpressionValidator();
     }
 
+    @Provides
+    @Singleton
+    static MatchExpressionCompiler provideMatchExpressionCompiler() {
+        return new MatchExpressionCompiler();
+    }
+
+    @Provides
+    @Named(MATCH_EXPRESSION_CACHE_SIZE)
+    static long provideMatchExpressionCacheSize(Environment env) {
+        return Math.max(
+                1, Long.parseLong(env.getEnv(Variables.MATCH_EXPRESSION_CACHE_SIZE, "256")));
+    }
+
     @Provides
     @Singleton
     static MatchExpressionEvaluator provideMatchExpressionEvaluator(
             ScriptEngine scriptEngine,
+            MatchExpressionCompiler compiler,
             CredentialsManager credentialsManager,
             RuleRegistry ruleRegistry,
+            DiscoveryStorage discoveryStorage,
+            @Named(MATCH_EXPRESSION_CACHE_SIZE) long maxExpressions,
             Logger logger) {
-        return new MatchExpressionEvaluator(scriptEngine, credentialsManager, ruleRegistry, logger);
+        return new MatchExpressionEvaluator(
+                scriptEngine,
+                compiler,
+                credentialsManager,
+                ruleRegistry,
+                discoveryStorage,
+                maxExpressions,
+                logger);
     }
 
     @Provides
@@ -146,6 +188,7 @@ public abstract class RulesModule {
             RecordingTargetHelper recordingTargetHelper,
             RecordingMetadataManager metadataManager,
             PeriodicArchiverFactory periodicArchiverFactory,
+            ArchivalScheduler archivalScheduler,
             Logger logger) {
         return new RuleProcessor(
                 vertx,
@@ -158,6 +201,7 @@ public abstract class RulesModule {
                 recordingTargetHelper,
                 metadataManager,
                 periodicArchiverFactory,
+                archivalScheduler,
                 logger);
     }
 
@@ -169,6 +213,22 @@ public abstract class RulesModule {
         return new PeriodicArchiverFactory(logger);
     }
 
+    @Provides
+    @Named(MAX_CONCURRENT_ARCHIVALS)
+    static int provideMaxConcurrentArchivals(Environment env) {
+        return Math.max(1, Integer.parseInt(env.getEnv(Variables.MAX_CONCURRENT_ARCHIVALS, "4")));
+    }
+
+    @Provides
+    @Singleton
+    static ArchivalScheduler provideArchivalScheduler(
+            Vertx vertx,
+            Clock clock,
+            @Named(MAX_CONCURRENT_ARCHIVALS) int maxConcurrentArchivals,
+            Logger logger) {
+        return new ArchivalScheduler(vertx, clock, maxConcurrentArchivals, logger);
+    }
+
     @Provides
     @Singleton
     @Named(RULES_WEB_CLIENT)
@@ -0,0 +1,99 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.rules;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.cryostat.platform.ServiceRef;
+
+/**
+ * A single string-valued property of a target, such as its alias or the value of one of its labels,
+ * as it is exposed to match expressions. {@code key} is null for properties which are not entries
+ * of a map.
+ */
+record TargetAttribute(Kind kind, String key, String value) {
+
+    enum Kind {
+        CONNECT_URL,
+        JVM_ID,
+        ALIAS,
+        LABEL,
+        PLATFORM_ANNOTATION,
+        CRYOSTAT_ANNOTATION,
+        ;
+    }
+
+    static Set<TargetAttribute> of(ServiceRef serviceRef) {
+        Set<TargetAttribute> attributes = new HashSet<>();
+        if (serviceRef.getServiceUri() != null) {
+            attributes.add(
+                    new TargetAttribute(
+                            Kind.CONNECT_URL, null, serviceRef.getServiceUri().toString()));
+        }
+        if (serviceRef.getJvmId() != null) {
+            attributes.add(new TargetAttribute(Kind.JVM_ID, null, serviceRef.getJvmId()));
+        }
+        serviceRef
+                .getAlias()
+                .ifPresent(alias -> attributes.add(new TargetAttribute(Kind.ALIAS, null, alias)));
+        addEntries(attributes, Kind.LABEL, serviceRef.getLabels());
+        addEntries(attributes, Kind.PLATFORM_ANNOTATION, serviceRef.getPlatformAnnotations());
+        for (Map.Entry<ServiceRef.AnnotationKey, String> entry :
+                serviceRef.getCryostatAnnotations().entrySet()) {
+            if (entry.getValue() != null) {
+                attributes.add(
+                        new TargetAttribute(
+                                Kind.CRYOSTAT_ANNOTATION,
+                                entry.getKey().name(),
+                                entry.getValue()));
+            }
+        }
+        return attributes;
+    }
+
+    private static void addEntries(
+            Set<TargetAttribute> attributes, Kind kind, Map<String, String> entries) {
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (entry.getValue() != null) {
+                attributes.add(new TargetAttribute(kind, entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+}
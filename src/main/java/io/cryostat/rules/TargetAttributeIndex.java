@@ -0,0 +1,165 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
+
+/**
+ * An inverted index of the discovered targets by their {@link TargetAttribute}s. This narrows the
+ * targets which a match expression needs to be evaluated against down to those which have the
+ * attributes that the expression compares against, rather than all discovered targets.
+ */
+public class TargetAttributeIndex {
+
+    private final PlatformClient platformClient;
+    private final MatchExpressionCompiler compiler;
+    private final Map<URI, ServiceRef> targets = new HashMap<>();
+    private final Map<URI, Set<TargetAttribute>> attributesByTarget = new HashMap<>();
+    private final Map<TargetAttribute, Set<URI>> targetsByAttribute = new HashMap<>();
+    private boolean initialized;
+
+    TargetAttributeIndex(PlatformClient platformClient, MatchExpressionCompiler compiler) {
+        this.platformClient = platformClient;
+        this.compiler = compiler;
+        platformClient.addTargetDiscoveryListener(
+                tde -> {
+                    switch (tde.getEventKind()) {
+                        case FOUND:
+                        case MODIFIED:
+                            add(tde.getServiceRef());
+                            break;
+                        case LOST:
+                            remove(tde.getServiceRef().getServiceUri());
+                            break;
+                        default:
+                            // ignore
+                            break;
+                    }
+                });
+    }
+
+    /**
+     * The discovered targets which the match expression may apply to. The expression must still be
+     * evaluated against each of them, but any target which is not returned does not match.
+     */
+    public synchronized Set<ServiceRef> getCandidates(String matchExpression) {
+        initialize();
+        Optional<Set<Set<TargetAttribute>>> required =
+                compiler.requiredAttributes(matchExpression);
+        if (required.isEmpty()) {
+            return new HashSet<>(targets.values());
+        }
+        Set<ServiceRef> candidates = new HashSet<>();
+        for (Set<TargetAttribute> alternative : required.get()) {
+            // the targets having all of the attributes are among those having the rarest one
+            Set<URI> rarest = null;
+            for (TargetAttribute attribute : alternative) {
+                Set<URI> having = targetsByAttribute.getOrDefault(attribute, Set.of());
+                if (rarest == null || having.size() < rarest.size()) {
+                    rarest = having;
+                }
+            }
+            if (rarest == null) {
+                return new HashSet<>(targets.values());
+            }
+            for (URI uri : rarest) {
+                if (attributesByTarget.get(uri).containsAll(alternative)) {
+                    candidates.add(targets.get(uri));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /** The discovered target with the given connection URL, if any. */
+    public synchronized Optional<ServiceRef> getTarget(String connectUrl) {
+        initialize();
+        return targetsByAttribute
+                .getOrDefault(
+                        new TargetAttribute(TargetAttribute.Kind.CONNECT_URL, null, connectUrl),
+                        Set.of())
+                .stream()
+                .findFirst()
+                .map(targets::get);
+    }
+
+    // the index is populated from the full list of targets when it is first needed, and kept up
+    // to date by discovery events from then on
+    private void initialize() {
+        if (initialized) {
+            return;
+        }
+        platformClient.listDiscoverableServices().forEach(this::add);
+        initialized = true;
+    }
+
+    private synchronized void add(ServiceRef serviceRef) {
+        URI uri = serviceRef.getServiceUri();
+        remove(uri);
+        Set<TargetAttribute> attributes = TargetAttribute.of(serviceRef);
+        targets.put(uri, serviceRef);
+        attributesByTarget.put(uri, attributes);
+        for (TargetAttribute attribute : attributes) {
+            targetsByAttribute.computeIfAbsent(attribute, k -> new HashSet<>()).add(uri);
+        }
+    }
+
+    private synchronized void remove(URI uri) {
+        targets.remove(uri);
+        Collection<TargetAttribute> attributes = attributesByTarget.remove(uri);
+        if (attributes == null) {
+            return;
+        }
+        for (TargetAttribute attribute : attributes) {
+            Set<URI> having = targetsByAttribute.get(attribute);
+            having.remove(uri);
+            if (having.isEmpty()) {
+                targetsByAttribute.remove(attribute);
+            }
+        }
+    }
+}
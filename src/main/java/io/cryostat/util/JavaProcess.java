@@ -51,7 +51,12 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 public class JavaProcess {
 
     static Process exec(
-            Class<?> klazz, Map<String, String> env, List<String> jvmArgs, List<String> processArgs)
+            Class<?> klazz,
+            Map<String, String> env,
+            List<String> jvmArgs,
+            List<String> processArgs,
+            boolean inheritIO,
+            boolean pipeInput)
             throws IOException, InterruptedException {
         String className = klazz.getName();
 
@@ -66,7 +71,18 @@ public class JavaProcess {
         Logger.INSTANCE.trace("Forking process: " + cmd.toString());
         var pb = new ProcessBuilder();
         pb.environment().putAll(env);
-        return pb.command(cmd).inheritIO().start();
+        pb.command(cmd);
+        if (inheritIO) {
+            pb.inheritIO();
+            if (pipeInput) {
+                // stdin is left as a pipe for the parent to feed the child's input through
+                pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            }
+        } else {
+            // stdin and stdout are left as pipes for the parent to communicate with the child
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        }
+        return pb.start();
     }
 
     public static class Builder {
@@ -74,6 +90,8 @@ public class JavaProcess {
         private Map<String, String> env;
         private List<String> jvmArgs;
         private List<String> processArgs;
+        private boolean inheritIO = true;
+        private boolean pipeInput = false;
 
         public Builder klazz(Class<?> klazz) {
             this.klazz = Objects.requireNonNull(klazz);
@@ -98,6 +116,16 @@ public class JavaProcess {
             return this;
         }
 
+        public Builder inheritIO(boolean inheritIO) {
+            this.inheritIO = inheritIO;
+            return this;
+        }
+
+        public Builder pipeInput(boolean pipeInput) {
+            this.pipeInput = pipeInput;
+            return this;
+        }
+
         public Process exec() throws IOException, InterruptedException {
             Objects.requireNonNull(klazz, "Class cannot be null");
             if (env == null) {
@@ -109,7 +137,7 @@ public class JavaProcess {
             if (processArgs == null) {
                 processArgs = Collections.emptyList();
             }
-            return JavaProcess.exec(klazz, env, jvmArgs, processArgs);
+            return JavaProcess.exec(klazz, env, jvmArgs, processArgs, inheritIO, pipeInput);
         }
     }
 }
@@ -93,6 +93,14 @@ public class OutputToReadStream extends OutputStream implements ReadStream<Buffe
         this.connectionDescriptor = connectionDescriptor;
     }
 
+    /**
+     * Create a stream which is not tied to a target connection, for callers which manage the
+     * connection themselves or which also write data from elsewhere.
+     */
+    public OutputToReadStream(Vertx vertx) {
+        this(vertx, null, null);
+    }
+
     /**
      * Helper utility to pipe a Java {@link InputStream} to a {@link WriteStream}.
      *
@@ -273,7 +281,8 @@ public class OutputToReadStream extends OutputStream implements ReadStream<Buffe
     private void checkConnection() throws IOException {
         if (closed) throw new IOException("OutputStream is closed");
 
-        if (!targetConnectionManager.markConnectionInUse(connectionDescriptor)) {
+        if (targetConnectionManager != null
+                && !targetConnectionManager.markConnectionInUse(connectionDescriptor)) {
             throw new IOException(
                     "Target connection unexpectedly closed while streaming recording");
         }
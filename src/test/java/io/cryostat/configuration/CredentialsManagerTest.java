@@ -43,15 +43,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import io.cryostat.MainModule;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
+import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.TargetDiscoveryEvent;
 import io.cryostat.rules.MatchExpressionEvaluator;
 import io.cryostat.rules.MatchExpressionValidator;
+import io.cryostat.rules.TargetAttributeIndex;
 
 import com.google.gson.Gson;
 import org.apache.commons.codec.binary.Base32;
@@ -60,6 +64,8 @@ import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -75,6 +81,7 @@ class CredentialsManagerTest {
     @Mock MatchExpressionValidator matchExpressionValidator;
     @Mock MatchExpressionEvaluator matchExpressionEvaluator;
     @Mock PlatformClient platformClient;
+    @Mock TargetAttributeIndex targetAttributeIndex;
     @Mock StoredCredentialsDao dao;
     @Mock FileSystem fs;
     @Mock Logger logger;
@@ -89,6 +96,7 @@ class CredentialsManagerTest {
                         matchExpressionValidator,
                         () -> matchExpressionEvaluator,
                         platformClient,
+                        targetAttributeIndex,
                         dao,
                         fs,
                         gson,
@@ -216,8 +224,10 @@ class CredentialsManagerTest {
         ServiceRef target3 = new ServiceRef("id3", new URI("target3"), "target3Alias");
         ServiceRef target4 = new ServiceRef("id4", new URI("target4"), "target4Alias");
 
-        Mockito.when(platformClient.listDiscoverableServices())
-                .thenReturn(List.of(target1, target2, target3, target4));
+        for (ServiceRef target : List.of(target1, target2, target3, target4)) {
+            Mockito.when(targetAttributeIndex.getTarget(target.getServiceUri().toString()))
+                    .thenReturn(Optional.of(target));
+        }
 
         String matchExpression = "some expression";
         String username = "user";
@@ -250,6 +260,71 @@ class CredentialsManagerTest {
                 credentialsManager.getCredentialsByTargetId("target4"), Matchers.nullValue());
     }
 
+    @Test
+    void cachesResolvedCredentials() throws Exception {
+        ServiceRef target = new ServiceRef("id1", new URI("target1"), "target1Alias");
+        Credentials credentials = new Credentials("user", "pass");
+        StoredCredentials stored = new StoredCredentials(1, "some expression", credentials);
+        Mockito.when(dao.getAll()).thenReturn(List.of(stored));
+        Mockito.when(matchExpressionEvaluator.applies("some expression", target)).thenReturn(true);
+
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(target), Matchers.equalTo(credentials));
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(new ServiceRef(target)),
+                Matchers.equalTo(credentials));
+
+        Mockito.verify(dao, Mockito.times(1)).getAll();
+        Mockito.verify(matchExpressionEvaluator, Mockito.times(1))
+                .applies(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void invalidatesResolvedCredentialsWhenCredentialsChange() throws Exception {
+        ServiceRef target = new ServiceRef("id1", new URI("target1"), "target1Alias");
+        Credentials credentials = new Credentials("user", "pass");
+        StoredCredentials stored = new StoredCredentials(1, "some expression", credentials);
+        Mockito.when(dao.getAll()).thenReturn(List.of());
+
+        MatcherAssert.assertThat(credentialsManager.getCredentials(target), Matchers.nullValue());
+
+        Mockito.when(dao.save(Mockito.any())).thenReturn(stored);
+        Mockito.when(dao.getAll()).thenReturn(List.of(stored));
+        Mockito.when(matchExpressionEvaluator.applies("some expression", target)).thenReturn(true);
+        credentialsManager.addCredentials("some expression", credentials);
+
+        MatcherAssert.assertThat(
+                credentialsManager.getCredentials(target), Matchers.equalTo(credentials));
+
+        Mockito.when(dao.get(1)).thenReturn(Optional.of(stored));
+        Mockito.when(dao.delete(1)).thenReturn(true);
+        Mockito.when(dao.getAll()).thenReturn(List.of());
+        credentialsManager.delete(1);
+
+        MatcherAssert.assertThat(credentialsManager.getCredentials(target), Matchers.nullValue());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"MODIFIED", "LOST"})
+    void invalidatesResolvedCredentialsWhenTargetChanges(String kind) throws Exception {
+        ArgumentCaptor<Consumer<TargetDiscoveryEvent>> listener =
+                ArgumentCaptor.forClass(Consumer.class);
+        Mockito.verify(platformClient).addTargetDiscoveryListener(listener.capture());
+
+        ServiceRef target = new ServiceRef("id1", new URI("target1"), "target1Alias");
+        Credentials credentials = new Credentials("user", "pass");
+        StoredCredentials stored = new StoredCredentials(1, "some expression", credentials);
+        Mockito.when(dao.getAll()).thenReturn(List.of(stored));
+        Mockito.when(matchExpressionEvaluator.applies("some expression", target)).thenReturn(true);
+
+        credentialsManager.getCredentials(target);
+        listener.getValue()
+                .accept(new TargetDiscoveryEvent(EventKind.valueOf(kind), new ServiceRef(target)));
+        credentialsManager.getCredentials(target);
+
+        Mockito.verify(dao, Mockito.times(2)).getAll();
+    }
+
     @Test
     void canQueryDiscoveredTargetsWithConfiguredCredentials() throws Exception {
         ServiceRef target1 = new ServiceRef("id1", new URI("target1"), "target1Alias");
@@ -312,7 +387,8 @@ class CredentialsManagerTest {
                         URI.create("service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi"),
                         "mytarget");
 
-        Mockito.when(platformClient.listDiscoverableServices()).thenReturn(List.of(serviceRef));
+        Mockito.when(targetAttributeIndex.getCandidates(matchExpression))
+                .thenReturn(Set.of(serviceRef));
         Mockito.when(matchExpressionEvaluator.applies(matchExpression, serviceRef))
                 .thenReturn(true);
 
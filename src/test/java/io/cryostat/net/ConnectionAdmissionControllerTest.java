@@ -0,0 +1,190 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionAdmissionControllerTest {
+
+    static final Duration TIMEOUT = Duration.ofMillis(50);
+
+    @Mock ConnectionAdmissionController.Evictor evictor;
+
+    @Test
+    void shouldAdmitUnlimitedConnectionsWhenUnbounded() throws Exception {
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(-1, Map.of(), TIMEOUT, evictor);
+        for (int i = 0; i < 100; i++) {
+            controller.acquire(descriptor("target-" + i, ConnectionPriority.DISCOVERY));
+        }
+        MatcherAssert.assertThat(
+                controller.getHeldCount(ConnectionPriority.DISCOVERY), Matchers.equalTo(100));
+        Mockito.verifyNoInteractions(evictor);
+    }
+
+    @Test
+    void shouldTimeOutWhenNoSlotBecomesAvailable() throws Exception {
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(1, Map.of(), TIMEOUT, evictor);
+        controller.acquire(descriptor("a", ConnectionPriority.AUTOMATED_RULE));
+
+        Assertions.assertThrows(
+                ConnectionAdmissionTimeoutException.class,
+                () -> controller.acquire(descriptor("b", ConnectionPriority.AUTOMATED_RULE)));
+    }
+
+    @Test
+    void shouldAdmitWaitingRequestOnRelease() throws Exception {
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(1, Map.of(), Duration.ofSeconds(5), evictor);
+        ConnectionDescriptor first = descriptor("a", ConnectionPriority.AUTOMATED_RULE);
+        controller.acquire(first);
+
+        CompletableFuture<Void> second =
+                CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                controller.acquire(
+                                        descriptor("b", ConnectionPriority.AUTOMATED_RULE));
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+        controller.release(first);
+        second.get(5, TimeUnit.SECONDS);
+
+        MatcherAssert.assertThat(
+                controller.getHeldCount(ConnectionPriority.AUTOMATED_RULE), Matchers.equalTo(1));
+    }
+
+    @Test
+    void shouldEnforcePerPriorityQuotas() throws Exception {
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(
+                        10, Map.of(ConnectionPriority.AUTOMATED_RULE, 1), TIMEOUT, evictor);
+        controller.acquire(descriptor("a", ConnectionPriority.AUTOMATED_RULE));
+
+        Assertions.assertThrows(
+                ConnectionAdmissionTimeoutException.class,
+                () -> controller.acquire(descriptor("b", ConnectionPriority.AUTOMATED_RULE)));
+        MatcherAssert.assertThat(
+                controller.hasCapacity(ConnectionPriority.INTERACTIVE), Matchers.is(true));
+        controller.acquire(descriptor("c", ConnectionPriority.INTERACTIVE));
+    }
+
+    @Test
+    void shouldEvictLowerPriorityConnectionForInteractiveRequest() throws Exception {
+        ConnectionAdmissionController[] ref = new ConnectionAdmissionController[1];
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(
+                        1,
+                        Map.of(),
+                        TIMEOUT,
+                        priority ->
+                                ref[0].findEvictionCandidate(priority, cd -> true)
+                                        .ifPresent(ref[0]::release));
+        ref[0] = controller;
+        controller.acquire(descriptor("a", ConnectionPriority.DISCOVERY));
+
+        controller.acquire(descriptor("b", ConnectionPriority.INTERACTIVE));
+
+        MatcherAssert.assertThat(
+                controller.getHeldCount(ConnectionPriority.DISCOVERY), Matchers.equalTo(0));
+        MatcherAssert.assertThat(
+                controller.getHeldCount(ConnectionPriority.INTERACTIVE), Matchers.equalTo(1));
+    }
+
+    @Test
+    void shouldNotEvictForNonInteractiveRequests() throws Exception {
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(1, Map.of(), TIMEOUT, evictor);
+        controller.acquire(descriptor("a", ConnectionPriority.DISCOVERY));
+
+        Assertions.assertThrows(
+                ConnectionAdmissionTimeoutException.class,
+                () -> controller.acquire(descriptor("b", ConnectionPriority.AUTOMATED_RULE)));
+        Mockito.verifyNoInteractions(evictor);
+    }
+
+    @Test
+    void shouldPreferLowestPriorityIdleEvictionCandidate() throws Exception {
+        ConnectionAdmissionController controller =
+                new ConnectionAdmissionController(-1, Map.of(), TIMEOUT, evictor);
+        ConnectionDescriptor interactive = descriptor("a", ConnectionPriority.INTERACTIVE);
+        ConnectionDescriptor rule = descriptor("b", ConnectionPriority.AUTOMATED_RULE);
+        ConnectionDescriptor busyDiscovery = descriptor("c", ConnectionPriority.DISCOVERY);
+        ConnectionDescriptor idleDiscovery = descriptor("d", ConnectionPriority.DISCOVERY);
+        controller.acquire(interactive);
+        controller.acquire(rule);
+        controller.acquire(busyDiscovery);
+        controller.acquire(idleDiscovery);
+
+        Optional<ConnectionDescriptor> candidate =
+                controller.findEvictionCandidate(
+                        ConnectionPriority.INTERACTIVE, cd -> !cd.equals(busyDiscovery));
+
+        MatcherAssert.assertThat(candidate.get(), Matchers.equalTo(idleDiscovery));
+        MatcherAssert.assertThat(
+                controller
+                        .findEvictionCandidate(ConnectionPriority.AUTOMATED_RULE, cd -> true)
+                        .get()
+                        .getPriority(),
+                Matchers.equalTo(ConnectionPriority.DISCOVERY));
+        MatcherAssert.assertThat(
+                controller.findEvictionCandidate(ConnectionPriority.DISCOVERY, cd -> true),
+                Matchers.equalTo(Optional.empty()));
+    }
+
+    static ConnectionDescriptor descriptor(String targetId, ConnectionPriority priority) {
+        return new ConnectionDescriptor(targetId, null, priority);
+    }
+}
@@ -37,21 +37,35 @@
  */
 package io.cryostat.net;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import javax.management.remote.JMXServiceURL;
 
 import io.cryostat.DirectExecutor;
+import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.net.JFRConnectionToolkit;
+import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
 import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.TargetDiscoveryEvent;
 
 import com.github.benmanes.caffeine.cache.Scheduler;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -71,6 +85,7 @@ class TargetConnectionManagerTest {
     @Mock Logger logger;
     @Mock JFRConnectionToolkit jfrConnectionToolkit;
     @Mock AgentConnection.Factory agentConnectionFactory;
+    @Mock CredentialsManager credentialsManager;
     @Mock PlatformClient platformClient;
     Duration TTL = Duration.ofMillis(250);
 
@@ -80,11 +95,18 @@ class TargetConnectionManagerTest {
                 new TargetConnectionManager(
                         () -> jfrConnectionToolkit,
                         () -> agentConnectionFactory,
+                        () -> credentialsManager,
                         platformClient,
                         new DirectExecutor(),
                         Scheduler.disabledScheduler(),
                         TTL,
                         -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        false,
+                        -1,
+                        Duration.ZERO,
                         logger);
     }
 
@@ -173,11 +195,18 @@ class TargetConnectionManagerTest {
                 new TargetConnectionManager(
                         () -> jfrConnectionToolkit,
                         () -> agentConnectionFactory,
+                        () -> credentialsManager,
                         platformClient,
                         ForkJoinPool.commonPool(),
                         Scheduler.systemScheduler(),
                         Duration.ofNanos(1),
                         1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        false,
+                        -1,
+                        Duration.ZERO,
                         logger);
         Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenAnswer(
@@ -202,11 +231,18 @@ class TargetConnectionManagerTest {
                 new TargetConnectionManager(
                         () -> jfrConnectionToolkit,
                         () -> agentConnectionFactory,
+                        () -> credentialsManager,
                         platformClient,
                         Runnable::run,
                         Scheduler.disabledScheduler(),
                         Duration.ofNanos(1),
                         -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        false,
+                        -1,
+                        Duration.ZERO,
                         logger);
         Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
                 .thenAnswer(
@@ -226,6 +262,313 @@ class TargetConnectionManagerTest {
         MatcherAssert.assertThat(conn1, Matchers.not(Matchers.sameInstance(conn2)));
     }
 
+    @Test
+    void shouldSerializeTasksForSameTarget() throws Exception {
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        () -> credentialsManager,
+                        platformClient,
+                        ForkJoinPool.commonPool(),
+                        Scheduler.disabledScheduler(),
+                        TTL,
+                        -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        false,
+                        -1,
+                        Duration.ZERO,
+                        logger);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<JFRConnection>() {
+                            @Override
+                            public JFRConnection answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                return Mockito.mock(JFRConnection.class);
+                            }
+                        });
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean secondRan = new AtomicBoolean();
+        CompletableFuture<Void> first =
+                mgr.executeConnectedTaskAsync(
+                        desc,
+                        conn -> {
+                            started.countDown();
+                            latch.await();
+                            return null;
+                        });
+        MatcherAssert.assertThat(started.await(5, TimeUnit.SECONDS), Matchers.is(true));
+        CompletableFuture<Boolean> second =
+                mgr.executeConnectedTaskAsync(desc, conn -> secondRan.getAndSet(true));
+
+        MatcherAssert.assertThat(mgr.getQueuedTaskCount(desc.getTargetId()), Matchers.equalTo(2));
+        MatcherAssert.assertThat(secondRan.get(), Matchers.is(false));
+
+        latch.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        MatcherAssert.assertThat(second.get(5, TimeUnit.SECONDS), Matchers.is(false));
+        MatcherAssert.assertThat(secondRan.get(), Matchers.is(true));
+    }
+
+    @Test
+    void shouldNotBlockTasksForDifferentTargets() throws Exception {
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        () -> credentialsManager,
+                        platformClient,
+                        ForkJoinPool.commonPool(),
+                        Scheduler.disabledScheduler(),
+                        TTL,
+                        -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        false,
+                        -1,
+                        Duration.ZERO,
+                        logger);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<JFRConnection>() {
+                            @Override
+                            public JFRConnection answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                return Mockito.mock(JFRConnection.class);
+                            }
+                        });
+        ConnectionDescriptor desc1 =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        ConnectionDescriptor desc2 =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://example:1/jmxrmi");
+        CountDownLatch latch = new CountDownLatch(1);
+        CompletableFuture<Void> blocked =
+                mgr.executeConnectedTaskAsync(
+                        desc1,
+                        conn -> {
+                            latch.await();
+                            return null;
+                        });
+
+        JFRConnection conn = mgr.executeConnectedTask(desc2, a -> a);
+        MatcherAssert.assertThat(conn, Matchers.notNullValue());
+
+        latch.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldRejectTasksBeyondMaxQueueDepth() throws Exception {
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        () -> credentialsManager,
+                        platformClient,
+                        ForkJoinPool.commonPool(),
+                        Scheduler.disabledScheduler(),
+                        TTL,
+                        -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        1,
+                        false,
+                        -1,
+                        Duration.ZERO,
+                        logger);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<JFRConnection>() {
+                            @Override
+                            public JFRConnection answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                return Mockito.mock(JFRConnection.class);
+                            }
+                        });
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        CountDownLatch latch = new CountDownLatch(1);
+        CompletableFuture<Void> first =
+                mgr.executeConnectedTaskAsync(
+                        desc,
+                        conn -> {
+                            latch.await();
+                            return null;
+                        });
+
+        ExecutionException ee =
+                Assertions.assertThrows(
+                        ExecutionException.class,
+                        () -> mgr.executeConnectedTaskAsync(desc, a -> a).get());
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(TaskQueueFullException.class));
+        Assertions.assertThrows(
+                TaskQueueFullException.class, () -> mgr.executeConnectedTask(desc, a -> a));
+
+        latch.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        MatcherAssert.assertThat(mgr.executeConnectedTask(desc, a -> a), Matchers.notNullValue());
+    }
+
+    @Test
+    void shouldPrewarmConnectionsForDiscoveredTargets() throws Exception {
+        ArgumentCaptor<Consumer<TargetDiscoveryEvent>> listener =
+                ArgumentCaptor.forClass(Consumer.class);
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        () -> credentialsManager,
+                        platformClient,
+                        new DirectExecutor(),
+                        Scheduler.disabledScheduler(),
+                        TTL,
+                        -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        true,
+                        4,
+                        Duration.ofSeconds(30),
+                        logger);
+        Mockito.verify(platformClient).addTargetDiscoveryListener(listener.capture());
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<JFRConnection>() {
+                            @Override
+                            public JFRConnection answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                return Mockito.mock(JFRConnection.class);
+                            }
+                        });
+        URI uri = URI.create("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        ServiceRef serviceRef = new ServiceRef("id", uri, "alias");
+
+        listener.getValue().accept(new TargetDiscoveryEvent(EventKind.FOUND, serviceRef));
+        Mockito.verify(jfrConnectionToolkit, Mockito.times(1))
+                .connect(Mockito.any(), Mockito.any(), Mockito.any());
+
+        JFRConnection conn = mgr.executeConnectedTask(new ConnectionDescriptor(serviceRef), a -> a);
+        MatcherAssert.assertThat(conn, Matchers.notNullValue());
+        Mockito.verify(jfrConnectionToolkit, Mockito.times(1))
+                .connect(Mockito.any(), Mockito.any(), Mockito.any());
+
+        TargetConnectionManager.ConnectionCacheStats stats = mgr.getConnectionCacheStats();
+        MatcherAssert.assertThat(stats.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(stats.misses(), Matchers.equalTo(0L));
+        MatcherAssert.assertThat(stats.prewarmed(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(stats.handshakes(), Matchers.equalTo(1L));
+    }
+
+    @Test
+    void shouldCountAsyncConnectionCacheLookups() throws Exception {
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<JFRConnection>() {
+                            @Override
+                            public JFRConnection answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                return Mockito.mock(JFRConnection.class);
+                            }
+                        });
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+
+        mgr.executeConnectedTaskAsync(desc, a -> a).get();
+        mgr.executeConnectedTaskAsync(desc, a -> a).get();
+
+        TargetConnectionManager.ConnectionCacheStats stats = mgr.getConnectionCacheStats();
+        MatcherAssert.assertThat(stats.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(stats.misses(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(stats.handshakes(), Matchers.equalTo(1L));
+    }
+
+    @Test
+    void shouldEvictConnectionsFailingLivenessProbe() throws Exception {
+        List<Runnable> probes = new ArrayList<>();
+        TargetConnectionManager mgr =
+                new TargetConnectionManager(
+                        () -> jfrConnectionToolkit,
+                        () -> agentConnectionFactory,
+                        () -> credentialsManager,
+                        platformClient,
+                        new DirectExecutor(),
+                        (executor, command, delay, unit) -> {
+                            probes.add(command);
+                            return CompletableFuture.completedFuture(null);
+                        },
+                        TTL,
+                        -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        true,
+                        4,
+                        Duration.ofSeconds(30),
+                        logger);
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<JFRConnection>() {
+                            @Override
+                            public JFRConnection answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                // mocked isConnected() returns false, so these fail the probe
+                                return Mockito.mock(JFRConnection.class);
+                            }
+                        });
+        ConnectionDescriptor desc =
+                new ConnectionDescriptor("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        JFRConnection conn1 = mgr.executeConnectedTask(desc, a -> a);
+
+        MatcherAssert.assertThat(probes, Matchers.hasSize(1));
+        probes.get(0).run();
+        MatcherAssert.assertThat(probes, Matchers.hasSize(2));
+
+        JFRConnection conn2 = mgr.executeConnectedTask(desc, a -> a);
+        MatcherAssert.assertThat(conn1, Matchers.not(Matchers.sameInstance(conn2)));
+        Mockito.verify(conn1).close();
+    }
+
+    @Test
+    void shouldInvalidateOnlyLostTargetConnections() throws Exception {
+        ArgumentCaptor<Consumer<TargetDiscoveryEvent>> listener =
+                ArgumentCaptor.forClass(Consumer.class);
+        Mockito.verify(platformClient).addTargetDiscoveryListener(listener.capture());
+        Mockito.when(jfrConnectionToolkit.connect(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<JFRConnection>() {
+                            @Override
+                            public JFRConnection answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                return Mockito.mock(JFRConnection.class);
+                            }
+                        });
+        URI lostUri = URI.create("service:jmx:rmi:///jndi/rmi://localhost:0/jmxrmi");
+        URI keptUri = URI.create("service:jmx:rmi:///jndi/rmi://example:1/jmxrmi");
+        ConnectionDescriptor lost = new ConnectionDescriptor(lostUri.toString());
+        ConnectionDescriptor kept = new ConnectionDescriptor(keptUri.toString());
+        JFRConnection lostConn1 = mgr.executeConnectedTask(lost, a -> a);
+        JFRConnection keptConn1 = mgr.executeConnectedTask(kept, a -> a);
+
+        listener.getValue()
+                .accept(
+                        new TargetDiscoveryEvent(
+                                EventKind.LOST, new ServiceRef("id", lostUri, "alias")));
+
+        Mockito.verify(lostConn1).close();
+        Mockito.verify(keptConn1, Mockito.never()).close();
+        JFRConnection lostConn2 = mgr.executeConnectedTask(lost, a -> a);
+        JFRConnection keptConn2 = mgr.executeConnectedTask(kept, a -> a);
+        MatcherAssert.assertThat(lostConn1, Matchers.not(Matchers.sameInstance(lostConn2)));
+        MatcherAssert.assertThat(keptConn1, Matchers.sameInstance(keptConn2));
+    }
+
     @ParameterizedTest
     @ValueSource(
             strings = {
@@ -240,11 +583,18 @@ class TargetConnectionManagerTest {
                 new TargetConnectionManager(
                         () -> jfrConnectionToolkit,
                         () -> agentConnectionFactory,
+                        () -> credentialsManager,
                         platformClient,
                         Runnable::run,
                         Scheduler.disabledScheduler(),
                         Duration.ofNanos(1),
                         -1,
+                        Map.of(),
+                        Duration.ofSeconds(30),
+                        -1,
+                        false,
+                        -1,
+                        Duration.ZERO,
                         logger);
         ConnectionDescriptor desc = new ConnectionDescriptor(url);
         JFRConnection conn = mgr.executeConnectedTask(desc, a -> a);
@@ -40,17 +40,28 @@ package io.cryostat.net.reports;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
-import javax.inject.Provider;
+import org.openjdk.jmc.common.unit.IQuantity;
+import org.openjdk.jmc.common.unit.UnitLookup;
+import org.openjdk.jmc.rjmx.services.jfr.IFlightRecorderService;
+import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
+import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor.RecordingState;
 
 import io.cryostat.core.log.Logger;
-import io.cryostat.core.sys.Environment;
+import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.jmc.serialization.HyperlinkedSerializableRecordingDescriptor;
 import io.cryostat.messaging.notifications.Notification;
@@ -58,7 +69,6 @@ import io.cryostat.net.ConnectionDescriptor;
 import io.cryostat.net.TargetConnectionManager;
 import io.cryostat.recordings.RecordingNotFoundException;
 import io.cryostat.recordings.RecordingTargetHelper;
-import io.cryostat.util.JavaProcess;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -66,6 +76,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -74,152 +85,261 @@ import org.mockito.junit.jupiter.MockitoExtension;
 class ActiveRecordingReportCacheTest {
 
     ActiveRecordingReportCache cache;
+    ReportFiles reportFiles;
     @Mock SubprocessReportGenerator subprocessReportGenerator;
-    @Mock Environment env;
     @Mock FileSystem fs;
     @Mock TargetConnectionManager targetConnectionManager;
+    @Mock IFlightRecorderService svc;
     @Mock Logger logger;
-    @Mock CompletableFuture<Path> pathFuture;
-    @Mock Path destinationFile;
-    @Mock JavaProcess.Builder javaProcessBuilder;
-    Provider<JavaProcess.Builder> javaProcessBuilderProvider = () -> javaProcessBuilder;
+    @TempDir Path tempDir;
+    Path recordingCopy;
+    Path jsonFile;
+    Path htmlFile;
     final String REPORT_DOC = "<html><body><p>This is a report</p></body></html>";
-    final String REPORT_JSON = "{\"report\": \"This is an unformatted report\"";
+    final String REPORT_JSON = "{\"report\": \"This is an unformatted report\"}";
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
+        this.recordingCopy = Files.writeString(tempDir.resolve("recording.jfr"), "jfr");
+        this.jsonFile = Files.writeString(tempDir.resolve("report.json"), REPORT_JSON);
+        this.htmlFile = Files.writeString(tempDir.resolve("report.html"), REPORT_DOC);
+        // report files are weighed by reading through them
+        Mockito.lenient()
+                .when(fs.newInputStream(Mockito.any()))
+                .thenAnswer(arg0 -> Files.newInputStream(arg0.getArgument(0)));
+        this.reportFiles = new ReportFiles(fs, logger);
         this.cache =
                 new ActiveRecordingReportCache(
                         () -> subprocessReportGenerator,
                         fs,
+                        reportFiles,
                         targetConnectionManager,
                         30,
                         30,
                         30,
+                        1024 * 1024,
                         logger);
     }
 
+    void stubGeneration() throws Exception {
+        // the generators are mocked, so the same file can stand in for the copy and the output
+        Mockito.when(fs.createTempFile(null, null)).thenReturn(recordingCopy);
+        Mockito.lenient()
+                .when(
+                        subprocessReportGenerator.exec(
+                                Mockito.any(RecordingDescriptor.class),
+                                Mockito.eq(recordingCopy),
+                                Mockito.any(),
+                                anyString(),
+                                Mockito.eq(false)))
+                .thenReturn(CompletableFuture.completedFuture(jsonFile));
+        Mockito.lenient()
+                .when(
+                        subprocessReportGenerator.exec(
+                                Mockito.eq(recordingCopy),
+                                Mockito.any(),
+                                anyString(),
+                                Mockito.eq(true)))
+                .thenReturn(CompletableFuture.completedFuture(htmlFile));
+    }
+
     @Test
     void shouldReturnFalseWhenDeletingNonExistentReport() {
-        Assertions.assertFalse(cache.delete(new ConnectionDescriptor("foo"), "bar", false));
+        Assertions.assertFalse(cache.delete(new ConnectionDescriptor("foo"), "bar"));
     }
 
     @Test
     void shouldReturnTrueWhenDeletingReport() throws Exception {
-        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any())).thenReturn(destinationFile);
-        Mockito.when(
-                        subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class),
-                                anyString(),
-                                Mockito.anyBoolean()))
-                .thenReturn(pathFuture);
-        Mockito.when(fs.readString(destinationFile)).thenReturn(REPORT_DOC);
+        stubGeneration();
 
         String targetId = "foo";
         String recordingName = "bar";
 
         ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor(targetId);
-        cache.get(connectionDescriptor, recordingName, "", true);
-        Assertions.assertTrue(cache.delete(connectionDescriptor, recordingName, true));
+        cache.get(connectionDescriptor, recordingName, "", true).get();
+        Assertions.assertTrue(cache.delete(connectionDescriptor, recordingName));
     }
 
     @Test
-    void shouldReturnGeneratedReportResult() throws Exception {
-        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any())).thenReturn(destinationFile);
-        Mockito.when(
-                        subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean()))
-                .thenReturn(pathFuture);
-        Mockito.when(fs.readString(destinationFile)).thenReturn(REPORT_DOC);
+    void shouldDeleteReportFilesWhenInvalidated() throws Exception {
+        stubGeneration();
 
-        String targetId = "foo";
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        reportFiles.release(cache.get(connectionDescriptor, "bar", "", true).get());
+        reportFiles.release(cache.get(connectionDescriptor, "bar", "someFilter", false).get());
+        MatcherAssert.assertThat(cache.cache.estimatedSize(), Matchers.equalTo(2L));
 
-        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor(targetId);
-        Future<String> report = cache.get(connectionDescriptor, "foo", "", true);
-        MatcherAssert.assertThat(report.get(), Matchers.equalTo(REPORT_DOC));
+        Assertions.assertTrue(cache.delete(connectionDescriptor, "bar"));
+
+        MatcherAssert.assertThat(cache.cache.estimatedSize(), Matchers.equalTo(0L));
+        Mockito.verify(fs, Mockito.timeout(1000).times(2)).deleteIfExists(recordingCopy);
+        Mockito.verify(fs, Mockito.timeout(1000).times(2)).deleteIfExists(jsonFile);
+        Mockito.verify(fs, Mockito.timeout(1000)).deleteIfExists(htmlFile);
+    }
+
+    @Test
+    void shouldDeferDeletingLeasedReportUntilReleased() throws Exception {
+        stubGeneration();
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Path report = cache.get(connectionDescriptor, "bar", "", false).get();
+        Assertions.assertTrue(cache.delete(connectionDescriptor, "bar"));
+
+        Mockito.verify(fs, Mockito.timeout(1000)).deleteIfExists(recordingCopy);
+        Mockito.verify(fs, Mockito.never()).deleteIfExists(jsonFile);
+
+        reportFiles.release(report);
+
+        Mockito.verify(fs, Mockito.timeout(1000)).deleteIfExists(jsonFile);
+    }
+
+    @Test
+    void shouldReturnGeneratedReportResult() throws Exception {
+        stubGeneration();
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Future<Path> report = cache.get(connectionDescriptor, "foo", "", true);
+        MatcherAssert.assertThat(report.get(), Matchers.equalTo(htmlFile));
 
         Mockito.verify(subprocessReportGenerator)
-                .exec(Mockito.any(RecordingDescriptor.class), Mockito.eq(""), Mockito.eq(true));
-        Mockito.verify(fs).readString(destinationFile);
+                .exec(
+                        Mockito.eq(new RecordingDescriptor(connectionDescriptor, "foo")),
+                        Mockito.eq(recordingCopy),
+                        Mockito.any(),
+                        Mockito.eq(""),
+                        Mockito.eq(false));
+        Mockito.verify(subprocessReportGenerator)
+                .exec(Mockito.eq(recordingCopy), Mockito.any(), Mockito.eq(""), Mockito.eq(true));
     }
 
     @Test
     void shouldReturnGeneratedReportResultFiltered() throws Exception {
-        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any())).thenReturn(destinationFile);
-        Mockito.when(
-                        subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean()))
-                .thenReturn(pathFuture);
-        Mockito.when(fs.readString(destinationFile)).thenReturn(REPORT_DOC);
-
-        String targetId = "foo";
+        stubGeneration();
 
-        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor(targetId);
-        Future<String> report = cache.get(connectionDescriptor, "foo", "non-null", true);
-        MatcherAssert.assertThat(report.get(), Matchers.equalTo(REPORT_DOC));
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Future<Path> report = cache.get(connectionDescriptor, "foo", "non-null", true);
+        MatcherAssert.assertThat(report.get(), Matchers.equalTo(htmlFile));
 
         Mockito.verify(subprocessReportGenerator)
                 .exec(
-                        Mockito.any(RecordingDescriptor.class),
+                        Mockito.eq(recordingCopy),
+                        Mockito.any(),
                         Mockito.eq("non-null"),
                         Mockito.eq(true));
-        Mockito.verify(fs).readString(destinationFile);
     }
 
     @Test
     void shouldReturnGeneratedReportResultUnformatted() throws Exception {
-        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any())).thenReturn(destinationFile);
-        Mockito.when(
-                        subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean()))
-                .thenReturn(pathFuture);
-        Mockito.when(fs.readString(destinationFile)).thenReturn(REPORT_JSON);
-
-        String targetId = "foo";
+        stubGeneration();
 
-        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor(targetId);
-        Future<String> report = cache.get(connectionDescriptor, "foo", "non-null", false);
-        MatcherAssert.assertThat(report.get(), Matchers.equalTo(REPORT_JSON));
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Future<Path> report = cache.get(connectionDescriptor, "foo", "non-null", false);
+        MatcherAssert.assertThat(report.get(), Matchers.equalTo(jsonFile));
 
         Mockito.verify(subprocessReportGenerator)
                 .exec(
                         Mockito.any(RecordingDescriptor.class),
+                        Mockito.eq(recordingCopy),
+                        Mockito.any(),
                         Mockito.eq("non-null"),
                         Mockito.eq(false));
-        Mockito.verify(fs).readString(destinationFile);
+        Mockito.verify(subprocessReportGenerator, Mockito.never())
+                .exec(Mockito.any(Path.class), Mockito.any(), anyString(), Mockito.eq(true));
     }
 
     @Test
-    void shouldReturnCachedReportResultOnSecondRequest() throws Exception {
-        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any())).thenReturn(destinationFile);
+    void shouldGenerateBothFormatsFromSingleRecordingCopy() throws Exception {
+        stubGeneration();
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        MatcherAssert.assertThat(
+                cache.get(connectionDescriptor, "bar", "", false).get(),
+                Matchers.equalTo(jsonFile));
+        MatcherAssert.assertThat(
+                cache.get(connectionDescriptor, "bar", "", true).get(),
+                Matchers.equalTo(htmlFile));
+        MatcherAssert.assertThat(
+                cache.get(connectionDescriptor, "bar", "", true).get(),
+                Matchers.equalTo(htmlFile));
+        MatcherAssert.assertThat(
+                cache.get(connectionDescriptor, "bar", "", false).get(),
+                Matchers.equalTo(jsonFile));
+
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(
+                        Mockito.any(RecordingDescriptor.class),
+                        Mockito.eq(recordingCopy),
+                        Mockito.any(),
+                        anyString(),
+                        Mockito.eq(false));
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(Mockito.eq(recordingCopy), Mockito.any(), anyString(), Mockito.eq(true));
+    }
+
+    @Test
+    void shouldRenderHtmlOnceForConcurrentRequests() throws Exception {
+        stubGeneration();
+        CompletableFuture<Path> rendering = new CompletableFuture<>();
         Mockito.when(
                         subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean()))
-                .thenReturn(pathFuture);
-        Mockito.when(fs.readString(destinationFile)).thenReturn(REPORT_DOC);
-
-        String targetId = "foo";
-        String recordingName = "bar";
+                                Mockito.eq(recordingCopy),
+                                Mockito.any(),
+                                anyString(),
+                                Mockito.eq(true)))
+                .thenReturn(rendering);
 
-        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor(targetId);
-        String report1 = cache.get(connectionDescriptor, recordingName, "", true).get();
-        MatcherAssert.assertThat(report1, Matchers.equalTo(REPORT_DOC));
-        String report2 = cache.get(connectionDescriptor, recordingName, "", true).get();
-        MatcherAssert.assertThat(report2, Matchers.equalTo(report1));
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Path> report1 =
+                    executor.submit(() -> cache.get(connectionDescriptor, "bar", "", true).get());
+            Future<Path> report2 =
+                    executor.submit(() -> cache.get(connectionDescriptor, "bar", "", true).get());
+            Mockito.verify(subprocessReportGenerator, Mockito.timeout(1000))
+                    .exec(
+                            Mockito.eq(recordingCopy),
+                            Mockito.any(),
+                            anyString(),
+                            Mockito.eq(true));
+            rendering.complete(htmlFile);
+
+            MatcherAssert.assertThat(report1.get(), Matchers.equalTo(htmlFile));
+            MatcherAssert.assertThat(report2.get(), Matchers.equalTo(htmlFile));
+        } finally {
+            executor.shutdownNow();
+        }
 
         Mockito.verify(subprocessReportGenerator, Mockito.times(1))
-                .exec(Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean());
+                .exec(Mockito.eq(recordingCopy), Mockito.any(), anyString(), Mockito.eq(true));
+    }
+
+    @Test
+    void shouldWeighRecordingCopyAndBothReports() throws Exception {
+        stubGeneration();
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        ActiveRecordingReportCache.ReportKey key =
+                new ActiveRecordingReportCache.ReportKey(
+                        new RecordingDescriptor(connectionDescriptor, "bar"), "");
+        long copySize = Files.size(recordingCopy);
+        long jsonSize = Files.size(jsonFile);
+        long htmlSize = Files.size(htmlFile);
+
+        cache.get(connectionDescriptor, "bar", "", false).get();
+        MatcherAssert.assertThat(
+                cache.cache.policy().eviction().get().weightOf(key).getAsInt(),
+                Matchers.equalTo((int) (copySize + jsonSize)));
+
+        cache.get(connectionDescriptor, "bar", "", true).get();
+        MatcherAssert.assertThat(
+                cache.cache.policy().eviction().get().weightOf(key).getAsInt(),
+                Matchers.equalTo((int) (copySize + jsonSize + htmlSize)));
     }
 
     @SuppressWarnings("rawtypes")
     @Test
     void shouldReturnUncachedReportWhenRecordingStopped() throws Exception {
-        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any())).thenReturn(destinationFile);
-        Mockito.when(
-                        subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean()))
-                .thenReturn(pathFuture);
-        Mockito.when(fs.readString(destinationFile)).thenReturn(REPORT_DOC);
+        stubGeneration();
 
         String targetId = "foo";
         String recordingName = "bar";
@@ -234,23 +354,232 @@ class ActiveRecordingReportCacheTest {
                 .thenReturn(Map.of("target", targetId, "recording", hsrd));
 
         ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor(targetId);
-        String report1 = cache.get(connectionDescriptor, recordingName, "", true).get();
-        MatcherAssert.assertThat(report1, Matchers.equalTo(REPORT_DOC));
+        Path report1 = cache.get(connectionDescriptor, recordingName, "", true).get();
+        MatcherAssert.assertThat(report1, Matchers.equalTo(htmlFile));
         cache.onNotification(notification);
-        String report2 = cache.get(connectionDescriptor, recordingName, "", true).get();
+        Path report2 = cache.get(connectionDescriptor, recordingName, "", true).get();
         MatcherAssert.assertThat(report2, Matchers.equalTo(report1));
 
         Mockito.verify(subprocessReportGenerator, Mockito.times(2))
-                .exec(Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean());
+                .exec(
+                        Mockito.any(RecordingDescriptor.class),
+                        Mockito.any(),
+                        Mockito.any(),
+                        anyString(),
+                        Mockito.eq(false));
+        Mockito.verify(subprocessReportGenerator, Mockito.times(2))
+                .exec(Mockito.any(Path.class), Mockito.any(), anyString(), Mockito.eq(true));
+    }
+
+    IRecordingDescriptor stubRecording(RecordingState state) throws Exception {
+        JFRConnection conn = Mockito.mock(JFRConnection.class);
+        IRecordingDescriptor rec = Mockito.mock(IRecordingDescriptor.class);
+        Mockito.when(
+                        targetConnectionManager.executeConnectedTask(
+                                Mockito.any(ConnectionDescriptor.class), Mockito.any()))
+                .thenAnswer(
+                        arg0 ->
+                                ((TargetConnectionManager.ConnectedTask<Object>)
+                                                arg0.getArgument(1))
+                                        .execute(conn));
+        Mockito.when(conn.getService()).thenReturn(svc);
+        Mockito.when(svc.getAvailableRecordings()).thenReturn(List.of(rec));
+        Mockito.when(rec.getName()).thenReturn("bar");
+        Mockito.when(rec.getId()).thenReturn(1L);
+        Mockito.when(rec.getState()).thenReturn(state);
+        return rec;
+    }
+
+    ActiveRecordingReportCache.ActiveReport refresh(ConnectionDescriptor connectionDescriptor)
+            throws Exception {
+        return cache.cache
+                .refresh(
+                        new ActiveRecordingReportCache.ReportKey(
+                                new RecordingDescriptor(connectionDescriptor, "bar"), ""))
+                .get();
+    }
+
+    @Test
+    void shouldKeepRefreshedReportWhenRecordingWasStopped() throws Exception {
+        stubGeneration();
+        stubRecording(RecordingState.STOPPED);
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Path report1 = cache.get(connectionDescriptor, "bar", "", false).get();
+        Path report2 = refresh(connectionDescriptor).json;
+        MatcherAssert.assertThat(report2, Matchers.equalTo(report1));
+
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(
+                        Mockito.any(RecordingDescriptor.class),
+                        Mockito.any(),
+                        Mockito.any(),
+                        anyString(),
+                        anyBoolean());
+        Mockito.verify(svc, Mockito.never())
+                .openStream(Mockito.any(), Mockito.any(), Mockito.any(), anyBoolean());
+    }
+
+    @Test
+    void shouldReadOnlyNewChunksWhenRefreshingRunningRecording() throws Exception {
+        stubGeneration();
+        IRecordingDescriptor rec = stubRecording(RecordingState.RUNNING);
+        byte[] first = RecordingChunksTest.chunk(1000, 500, 10);
+        byte[] second = RecordingChunksTest.chunk(1500, 500, 20);
+        Mockito.when(fs.newInputStream(recordingCopy))
+                .thenAnswer(arg0 -> new ByteArrayInputStream(first));
+        Mockito.when(
+                        svc.openStream(
+                                Mockito.eq(rec),
+                                Mockito.any(IQuantity.class),
+                                Mockito.any(IQuantity.class),
+                                Mockito.eq(false)))
+                .thenReturn(new ByteArrayInputStream(RecordingChunksTest.concat(first, second)));
+        ByteArrayOutputStream copied = new ByteArrayOutputStream();
+        Mockito.doAnswer(arg0 -> arg0.<InputStream>getArgument(0).transferTo(copied))
+                .when(fs)
+                .copy(
+                        Mockito.any(InputStream.class),
+                        Mockito.eq(recordingCopy),
+                        Mockito.any(CopyOption.class));
+        Mockito.when(
+                        subprocessReportGenerator.exec(
+                                Mockito.eq(recordingCopy),
+                                Mockito.any(),
+                                anyString(),
+                                Mockito.eq(false)))
+                .thenReturn(CompletableFuture.completedFuture(jsonFile));
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        cache.get(connectionDescriptor, "bar", "", false).get();
+        MatcherAssert.assertThat(refresh(connectionDescriptor).json, Matchers.equalTo(jsonFile));
+
+        MatcherAssert.assertThat(
+                copied.toByteArray(), Matchers.equalTo(RecordingChunksTest.concat(first, second)));
+        Mockito.verify(svc)
+                .openStream(
+                        Mockito.eq(rec),
+                        Mockito.eq(UnitLookup.EPOCH_NS.quantity(1500)),
+                        Mockito.any(IQuantity.class),
+                        Mockito.eq(false));
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(
+                        Mockito.any(RecordingDescriptor.class),
+                        Mockito.any(),
+                        Mockito.any(),
+                        anyString(),
+                        anyBoolean());
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(Mockito.eq(recordingCopy), Mockito.any(), anyString(), Mockito.eq(false));
+        // the descriptor each lookup finds is reused to generate the report and fetch new chunks
+        Mockito.verify(svc, Mockito.times(2)).getAvailableRecordings();
+    }
+
+    @Test
+    void shouldKeepRecentHtmlWhenRefreshingRunningRecording() throws Exception {
+        stubGeneration();
+        IRecordingDescriptor rec = stubRecording(RecordingState.RUNNING);
+        byte[] first = RecordingChunksTest.chunk(1000, 500, 10);
+        byte[] second = RecordingChunksTest.chunk(1500, 500, 20);
+        Mockito.when(fs.newInputStream(recordingCopy))
+                .thenAnswer(arg0 -> new ByteArrayInputStream(first));
+        Mockito.when(
+                        svc.openStream(
+                                Mockito.eq(rec),
+                                Mockito.any(IQuantity.class),
+                                Mockito.any(IQuantity.class),
+                                Mockito.eq(false)))
+                .thenReturn(new ByteArrayInputStream(RecordingChunksTest.concat(first, second)));
+        Mockito.when(
+                        subprocessReportGenerator.exec(
+                                Mockito.eq(recordingCopy),
+                                Mockito.any(),
+                                anyString(),
+                                Mockito.eq(false)))
+                .thenReturn(CompletableFuture.completedFuture(jsonFile));
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        reportFiles.release(cache.get(connectionDescriptor, "bar", "", true).get());
+        ActiveRecordingReportCache.ActiveReport refreshed = refresh(connectionDescriptor);
+
+        MatcherAssert.assertThat(refreshed.html.get().get().report(), Matchers.equalTo(htmlFile));
+        MatcherAssert.assertThat(
+                cache.get(connectionDescriptor, "bar", "", true).get(), Matchers.equalTo(htmlFile));
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(Mockito.eq(recordingCopy), Mockito.any(), anyString(), Mockito.eq(false));
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(Mockito.eq(recordingCopy), Mockito.any(), anyString(), Mockito.eq(true));
+    }
+
+    @Test
+    void shouldKeepRefreshedReportWhenRunningRecordingHasNoNewChunks() throws Exception {
+        stubGeneration();
+        IRecordingDescriptor rec = stubRecording(RecordingState.RUNNING);
+        byte[] first = RecordingChunksTest.chunk(1000, 500, 10);
+        Mockito.when(fs.newInputStream(recordingCopy))
+                .thenAnswer(arg0 -> new ByteArrayInputStream(first));
+        Mockito.when(
+                        svc.openStream(
+                                Mockito.eq(rec),
+                                Mockito.any(IQuantity.class),
+                                Mockito.any(IQuantity.class),
+                                Mockito.eq(false)))
+                .thenReturn(new ByteArrayInputStream(first));
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Path report1 = cache.get(connectionDescriptor, "bar", "", false).get();
+        MatcherAssert.assertThat(refresh(connectionDescriptor).json, Matchers.equalTo(report1));
+
+        Mockito.verify(subprocessReportGenerator, Mockito.times(1))
+                .exec(
+                        Mockito.any(RecordingDescriptor.class),
+                        Mockito.any(),
+                        Mockito.any(),
+                        anyString(),
+                        anyBoolean());
+        Mockito.verify(subprocessReportGenerator, Mockito.never())
+                .exec(Mockito.any(Path.class), Mockito.any(), anyString(), anyBoolean());
+        Mockito.verify(fs, Mockito.never())
+                .copy(
+                        Mockito.any(InputStream.class),
+                        Mockito.any(),
+                        Mockito.any(CopyOption.class));
+    }
+
+    @Test
+    void shouldRegenerateRefreshedReportWhenPreviousCopyCannotBeExtended() throws Exception {
+        stubGeneration();
+        stubRecording(RecordingState.RUNNING);
+        Mockito.when(fs.newInputStream(recordingCopy))
+                .thenAnswer(arg0 -> new ByteArrayInputStream(new byte[0]));
+
+        ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        cache.get(connectionDescriptor, "bar", "", false).get();
+        refresh(connectionDescriptor);
+
+        Mockito.verify(subprocessReportGenerator, Mockito.times(2))
+                .exec(
+                        Mockito.any(RecordingDescriptor.class),
+                        Mockito.any(),
+                        Mockito.any(),
+                        anyString(),
+                        anyBoolean());
+        Mockito.verify(svc, Mockito.never())
+                .openStream(Mockito.any(), Mockito.any(), Mockito.any(), anyBoolean());
     }
 
     @Test
     void shouldThrowExceptionIfRecordingNotFound() throws Exception {
         ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Mockito.when(fs.createTempFile(null, null)).thenReturn(recordingCopy);
         Mockito.when(
                         subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean()))
-                .thenThrow(new CompletionException(new RecordingNotFoundException("", "")));
+                                Mockito.any(RecordingDescriptor.class),
+                                Mockito.any(),
+                                Mockito.any(),
+                                anyString(),
+                                anyBoolean()))
+                .thenThrow(new RecordingNotFoundException("", ""));
         Assertions.assertThrows(
                 ExecutionException.class,
                 () -> cache.get(connectionDescriptor, "bar", "", true).get());
@@ -259,15 +588,23 @@ class ActiveRecordingReportCacheTest {
     @Test
     void shouldThrowExceptionIfSubprocessExitsNonCleanly() throws Exception {
         ConnectionDescriptor connectionDescriptor = new ConnectionDescriptor("foo");
+        Path saveFile = tempDir.resolve("report");
+        Mockito.when(fs.createTempFile(null, null)).thenReturn(recordingCopy, saveFile);
         Mockito.when(
                         subprocessReportGenerator.exec(
-                                Mockito.any(RecordingDescriptor.class), anyString(), anyBoolean()))
-                .thenThrow(
-                        new CompletionException(
+                                Mockito.any(RecordingDescriptor.class),
+                                Mockito.any(),
+                                Mockito.any(),
+                                anyString(),
+                                anyBoolean()))
+                .thenReturn(
+                        CompletableFuture.failedFuture(
                                 new SubprocessReportGenerator.SubprocessReportGenerationException(
                                         SubprocessReportGenerator.ExitStatus.OTHER)));
         Assertions.assertThrows(
                 ExecutionException.class,
                 () -> cache.get(connectionDescriptor, "bar", "", true).get());
+        Mockito.verify(fs).deleteIfExists(recordingCopy);
+        Mockito.verify(fs).deleteIfExists(saveFile);
     }
 }
@@ -37,18 +37,25 @@
  */
 package io.cryostat.net.reports;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.sys.FileSystem;
+import io.cryostat.messaging.notifications.Notification;
 import io.cryostat.recordings.RecordingArchiveHelper;
 import io.cryostat.recordings.RecordingNotFoundException;
 import io.cryostat.rules.ArchivePathException;
+import io.cryostat.rules.ArchivedRecordingInfo;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hamcrest.MatcherAssert;
@@ -57,6 +64,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -65,21 +74,35 @@ import org.mockito.junit.jupiter.MockitoExtension;
 class ArchivedRecordingReportCacheTest {
 
     ArchivedRecordingReportCache cache;
+    ReportFiles reportFiles;
     String sourceTarget;
     String recordingName;
 
     @Mock CompletableFuture<Path> pathFuture;
-    @Mock Path destinationFile;
+    @TempDir Path tempDir;
+    Path destinationFile;
     @Mock FileSystem fs;
     @Mock SubprocessReportGenerator subprocessReportGenerator;
     @Mock Logger logger;
     @Mock RecordingArchiveHelper recordingArchiveHelper;
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
+        // report files are weighed by reading through them
+        Mockito.lenient()
+                .when(fs.newInputStream(Mockito.any()))
+                .thenAnswer(arg0 -> Files.newInputStream(arg0.getArgument(0)));
+        this.reportFiles = new ReportFiles(fs, logger);
         this.cache =
                 new ArchivedRecordingReportCache(
-                        fs, () -> subprocessReportGenerator, recordingArchiveHelper, 30, logger);
+                        fs,
+                        reportFiles,
+                        () -> subprocessReportGenerator,
+                        recordingArchiveHelper,
+                        30,
+                        1024 * 1024,
+                        logger);
+        this.destinationFile = Files.writeString(tempDir.resolve("foo.report.html"), "report");
         this.sourceTarget = "service:jmx:rmi://localhost:9091/jndi/rmi://fooHost:9091/jmxrmi";
         this.recordingName = "foo";
     }
@@ -159,6 +182,184 @@ class ArchivedRecordingReportCacheTest {
         Mockito.verify(fs, Mockito.atLeastOnce()).isReadable(destinationFile);
     }
 
+    @Test
+    void getShouldStreamCompressedRecordingIntoGenerator() throws Exception {
+        CompletableFuture<Path> future1 = Mockito.mock(CompletableFuture.class);
+        Mockito.when(future1.get()).thenReturn(destinationFile);
+
+        Mockito.when(
+                        recordingArchiveHelper.getCachedReportPath(
+                                sourceTarget, recordingName, "", true))
+                .thenReturn(future1);
+
+        Mockito.when(fs.isReadable(Mockito.any(Path.class))).thenReturn(false);
+
+        CompletableFuture<Path> future2 = Mockito.mock(CompletableFuture.class);
+        Path recording = Path.of("foo.jfr");
+        Mockito.when(future2.get()).thenReturn(recording);
+
+        Mockito.when(
+                        recordingArchiveHelper.getRecordingPath(
+                                Mockito.nullable(String.class), Mockito.anyString()))
+                .thenReturn(future2);
+        Mockito.when(recordingArchiveHelper.isCompressed(recording)).thenReturn(true);
+        Mockito.when(recordingArchiveHelper.openUncompressed(recording))
+                .thenReturn(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any())).thenReturn(destinationFile);
+
+        ArgumentCaptor<ReportGeneratorService.RecordingSource> source =
+                ArgumentCaptor.forClass(ReportGeneratorService.RecordingSource.class);
+        Mockito.when(
+                        subprocessReportGenerator.exec(
+                                Mockito.eq("foo.jfr"),
+                                source.capture(),
+                                Mockito.eq(destinationFile),
+                                Mockito.eq(""),
+                                Mockito.eq(true)))
+                .thenReturn(pathFuture);
+
+        Future<Path> res = cache.get(sourceTarget, recordingName, "", true);
+
+        MatcherAssert.assertThat(res.get(), Matchers.sameInstance(destinationFile));
+        ByteArrayOutputStream fed = new ByteArrayOutputStream();
+        source.getValue().writeTo(fed);
+        MatcherAssert.assertThat(fed.toByteArray(), Matchers.equalTo(new byte[] {1, 2, 3}));
+        Mockito.verify(subprocessReportGenerator, Mockito.never())
+                .exec(
+                        Mockito.any(Path.class),
+                        Mockito.any(Path.class),
+                        Mockito.anyString(),
+                        Mockito.anyBoolean());
+    }
+
+    @Test
+    void getShouldCoalesceConcurrentGenerations() throws Exception {
+        CompletableFuture<Path> future1 = Mockito.mock(CompletableFuture.class);
+        Mockito.when(future1.get()).thenReturn(destinationFile);
+
+        Mockito.when(
+                        recordingArchiveHelper.getCachedReportPath(
+                                sourceTarget, recordingName, "", true))
+                .thenReturn(future1);
+
+        Mockito.when(fs.isReadable(Mockito.any(Path.class))).thenReturn(false);
+
+        CompletableFuture<Path> future2 = Mockito.mock(CompletableFuture.class);
+        Path recording = Mockito.mock(Path.class);
+        Mockito.when(future2.get()).thenReturn(recording);
+
+        Mockito.when(
+                        recordingArchiveHelper.getRecordingPath(
+                                Mockito.nullable(String.class), Mockito.anyString()))
+                .thenReturn(future2);
+
+        CountDownLatch generating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(pathFuture.get(Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(
+                        invocation -> {
+                            generating.countDown();
+                            release.await();
+                            return destinationFile;
+                        });
+
+        Mockito.when(
+                        subprocessReportGenerator.exec(
+                                Mockito.any(Path.class),
+                                Mockito.any(Path.class),
+                                Mockito.anyString(),
+                                Mockito.anyBoolean()))
+                .thenReturn(pathFuture);
+
+        CompletableFuture<Future<Path>> first =
+                CompletableFuture.supplyAsync(
+                        () -> cache.get(sourceTarget, recordingName, "", true));
+        generating.await();
+        Future<Path> second = cache.get(sourceTarget, recordingName, "", true);
+        release.countDown();
+
+        MatcherAssert.assertThat(first.get().get(), Matchers.sameInstance(destinationFile));
+        MatcherAssert.assertThat(second.get(), Matchers.sameInstance(destinationFile));
+        Mockito.verify(subprocessReportGenerator).exec(recording, destinationFile, "", true);
+        ReportService.ArchivedReportCacheStats stats = cache.getCacheStats();
+        MatcherAssert.assertThat(stats.generated(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(stats.coalesced(), Matchers.equalTo(1L));
+    }
+
+    @Test
+    void shouldDeleteCachedReportsWhenRecordingDeleted() throws Exception {
+        CompletableFuture<Path> future = Mockito.mock(CompletableFuture.class);
+        Mockito.when(future.get()).thenReturn(destinationFile);
+
+        Mockito.when(
+                        recordingArchiveHelper.getCachedReportPath(
+                                sourceTarget, recordingName, "", true))
+                .thenReturn(future);
+
+        Mockito.when(fs.isReadable(Mockito.any(Path.class))).thenReturn(true);
+        Mockito.when(fs.isRegularFile(Mockito.any(Path.class))).thenReturn(true);
+
+        reportFiles.release(cache.get(sourceTarget, recordingName, "", true).get());
+
+        ArchivedRecordingInfo otherRecording = Mockito.mock(ArchivedRecordingInfo.class);
+        Mockito.when(otherRecording.getName()).thenReturn("bar");
+        cache.onNotification(deleteNotification(otherRecording, sourceTarget));
+        ArchivedRecordingInfo otherTargetRecording = Mockito.mock(ArchivedRecordingInfo.class);
+        Mockito.when(otherTargetRecording.getName()).thenReturn(recordingName);
+        cache.onNotification(deleteNotification(otherTargetRecording, "uploads"));
+        Mockito.verify(fs, Mockito.after(200).never()).deleteIfExists(destinationFile);
+
+        ArchivedRecordingInfo deletedRecording = Mockito.mock(ArchivedRecordingInfo.class);
+        Mockito.when(deletedRecording.getName()).thenReturn(recordingName);
+        cache.onNotification(deleteNotification(deletedRecording, sourceTarget));
+        Mockito.verify(fs, Mockito.timeout(1000)).deleteIfExists(destinationFile);
+    }
+
+    private Notification<Map<String, Object>> deleteNotification(
+            ArchivedRecordingInfo recording, String target) {
+        Notification<Map<String, Object>> notification = Mockito.mock(Notification.class);
+        Mockito.when(notification.getCategory())
+                .thenReturn(RecordingArchiveHelper.DELETE_NOTIFICATION_CATEGORY);
+        Mockito.when(notification.getMessage())
+                .thenReturn(Map.of("recording", recording, "target", target));
+        return notification;
+    }
+
+    @Test
+    void shouldEvictReportsBeyondSizeBudget() throws Exception {
+        this.cache =
+                new ArchivedRecordingReportCache(
+                        fs,
+                        reportFiles,
+                        () -> subprocessReportGenerator,
+                        recordingArchiveHelper,
+                        30,
+                        1,
+                        logger);
+
+        CompletableFuture<Path> future = Mockito.mock(CompletableFuture.class);
+        Mockito.when(future.get()).thenReturn(destinationFile);
+
+        Mockito.when(
+                        recordingArchiveHelper.getCachedReportPath(
+                                sourceTarget, recordingName, "", true))
+                .thenReturn(future);
+
+        Mockito.when(fs.isReadable(Mockito.any(Path.class))).thenReturn(true);
+        Mockito.when(fs.isRegularFile(Mockito.any(Path.class))).thenReturn(true);
+
+        Path report = cache.get(sourceTarget, recordingName, "", true).get();
+        MatcherAssert.assertThat(report, Matchers.sameInstance(destinationFile));
+
+        // the report is evicted straight away, but only deleted once it has been sent
+        Mockito.verify(fs, Mockito.after(200).never()).deleteIfExists(destinationFile);
+        reportFiles.release(report);
+        Mockito.verify(fs, Mockito.timeout(1000)).deleteIfExists(destinationFile);
+        MatcherAssert.assertThat(cache.getCacheStats().evicted(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.getCacheStats().sizeBytes(), Matchers.equalTo(0L));
+    }
+
     @Test
     void getShouldGenerateAndCacheReportFiltered() throws Exception {
         CompletableFuture<Path> future1 = Mockito.mock(CompletableFuture.class);
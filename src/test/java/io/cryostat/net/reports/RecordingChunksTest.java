@@ -0,0 +1,146 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RecordingChunksTest {
+
+    static byte[] chunk(long startNanos, long durationNanos, int bodyLength) {
+        ByteBuffer buffer = ByteBuffer.allocate(RecordingChunks.HEADER_SIZE + bodyLength);
+        buffer.put(new byte[] {'F', 'L', 'R', 0});
+        buffer.putShort((short) 2).putShort((short) 0);
+        buffer.putLong(buffer.capacity());
+        buffer.putLong(0).putLong(0);
+        buffer.putLong(startNanos).putLong(durationNanos);
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) startNanos);
+        }
+        return buffer.array();
+    }
+
+    static byte[] concat(byte[]... chunks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            out.write(chunk);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void shouldFindLastChunk() throws Exception {
+        byte[] recording = concat(chunk(1000, 500, 10), chunk(1500, 700, 20));
+
+        Optional<RecordingChunks.Header> last =
+                RecordingChunks.last(new ByteArrayInputStream(recording));
+
+        MatcherAssert.assertThat(
+                last, Matchers.equalTo(Optional.of(new RecordingChunks.Header(68, 1500, 700))));
+        MatcherAssert.assertThat(last.get().endNanos(), Matchers.equalTo(2200L));
+    }
+
+    @Test
+    void shouldFindNoChunkInEmptyRecording() throws Exception {
+        MatcherAssert.assertThat(
+                RecordingChunks.last(new ByteArrayInputStream(new byte[0])),
+                Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldRejectNonJfrData() {
+        byte[] data = new byte[RecordingChunks.HEADER_SIZE];
+        Arrays.fill(data, (byte) 'x');
+        Assertions.assertThrows(
+                IOException.class, () -> RecordingChunks.last(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    void shouldRejectTruncatedChunk() {
+        byte[] recording = Arrays.copyOf(chunk(1000, 500, 10), 50);
+        Assertions.assertThrows(
+                EOFException.class,
+                () -> RecordingChunks.last(new ByteArrayInputStream(recording)));
+    }
+
+    @Test
+    void shouldPassOnlyChunksStartedAfterGivenTime() throws Exception {
+        byte[] first = chunk(1000, 500, 10);
+        byte[] second = chunk(1500, 500, 20);
+        byte[] third = chunk(2000, 500, 30);
+
+        try (RecordingChunks.NewChunksInputStream chunks =
+                RecordingChunks.startedAfter(
+                        new ByteArrayInputStream(concat(first, second, third)), 1000)) {
+            MatcherAssert.assertThat(chunks.hasChunk(), Matchers.is(true));
+            MatcherAssert.assertThat(
+                    chunks.readAllBytes(), Matchers.equalTo(concat(second, third)));
+            MatcherAssert.assertThat(chunks.hasChunk(), Matchers.is(false));
+        }
+    }
+
+    @Test
+    void shouldPassNothingWhenNoChunkIsNewer() throws Exception {
+        try (RecordingChunks.NewChunksInputStream chunks =
+                RecordingChunks.startedAfter(
+                        new ByteArrayInputStream(chunk(1000, 500, 10)), 1000)) {
+            MatcherAssert.assertThat(chunks.hasChunk(), Matchers.is(false));
+            MatcherAssert.assertThat(chunks.read(), Matchers.equalTo(-1));
+        }
+    }
+
+    @Test
+    void shouldFailOnTruncatedNewChunk() throws Exception {
+        byte[] truncated = Arrays.copyOf(chunk(2000, 500, 10), 50);
+        try (InputStream chunks =
+                RecordingChunks.startedAfter(new ByteArrayInputStream(truncated), 1000)) {
+            Assertions.assertThrows(EOFException.class, chunks::readAllBytes);
+        }
+    }
+}
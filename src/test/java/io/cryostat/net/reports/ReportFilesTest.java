@@ -0,0 +1,128 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReportFilesTest {
+
+    ReportFiles reportFiles;
+    @Mock FileSystem fs;
+    @Mock Logger logger;
+    @Mock Path report;
+
+    @BeforeEach
+    void setup() {
+        this.reportFiles = new ReportFiles(fs, logger);
+    }
+
+    @Test
+    void shouldDeleteUnleasedReportImmediately() throws Exception {
+        reportFiles.add(report);
+
+        reportFiles.delete(report);
+
+        Mockito.verify(fs).deleteIfExists(report);
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(false));
+    }
+
+    @Test
+    void shouldDeferDeletingLeasedReportUntilLastRelease() throws Exception {
+        reportFiles.add(report);
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(true));
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(true));
+
+        reportFiles.delete(report);
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(false));
+        reportFiles.release(report);
+        Mockito.verify(fs, Mockito.never()).deleteIfExists(report);
+
+        reportFiles.release(report);
+        Mockito.verify(fs).deleteIfExists(report);
+    }
+
+    @Test
+    void shouldKeepReleasedReportUntilDeleted() throws Exception {
+        reportFiles.add(report);
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(true));
+
+        reportFiles.release(report);
+
+        Mockito.verify(fs, Mockito.never()).deleteIfExists(report);
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(true));
+    }
+
+    @Test
+    void shouldNotLeaseUntrackedReport() {
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(false));
+    }
+
+    @Test
+    void shouldKeepReportReplacedWhileLeased() throws Exception {
+        reportFiles.add(report);
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(true));
+        reportFiles.delete(report);
+
+        reportFiles.add(report);
+        reportFiles.release(report);
+
+        Mockito.verify(fs, Mockito.never()).deleteIfExists(report);
+        MatcherAssert.assertThat(reportFiles.lease(report), Matchers.is(true));
+    }
+
+    @Test
+    void shouldMeasureReportSize() throws Exception {
+        Mockito.when(fs.newInputStream(report)).thenReturn(new ByteArrayInputStream(new byte[42]));
+
+        MatcherAssert.assertThat(reportFiles.size(report), Matchers.equalTo(42L));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    ReportService reportService;
+    ReportFiles reportFiles;
+    @Mock ActiveRecordingReportCache activeCache;
+    @Mock ArchivedRecordingReportCache archivedCache;
+    @Mock ExecutorService batchExecutor;
+    @Mock FileSystem fs;
+    @Mock Logger logger;
+    @Mock Path report;
+
+    @BeforeEach
+    void setup() {
+        this.reportFiles = new ReportFiles(fs, logger);
+        this.reportService =
+                new ReportService(activeCache, archivedCache, reportFiles, batchExecutor, 1);
+    }
+
+    @Test
+    void shouldReturnReadyArchivedReport() throws Exception {
+        Mockito.when(archivedCache.get("foo", "bar", "", true))
+                .thenReturn(CompletableFuture.completedFuture(report));
+
+        MatcherAssert.assertThat(
+                reportService.get("foo", "bar", "", true).get(), Matchers.sameInstance(report));
+    }
+
+    @Test
+    void shouldTimeOutArchivedReportAndReleaseItOnceReady() throws Exception {
+        CompletableFuture<Path> generation = new CompletableFuture<>();
+        Mockito.when(archivedCache.get("foo", "bar", "", true)).thenReturn(generation);
+
+        ExecutionException ee =
+                Assertions.assertTimeoutPreemptively(
+                        Duration.ofSeconds(5),
+                        () ->
+                                Assertions.assertThrows(
+                                        ExecutionException.class,
+                                        () -> reportService.get("foo", "bar", "", true).get()));
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(TimeoutException.class));
+
+        // the report is evicted while still leased to the request which gave up on it
+        reportFiles.addLeased(report);
+        reportFiles.delete(report);
+        Mockito.verify(fs, Mockito.never()).deleteIfExists(report);
+
+        generation.complete(report);
+
+        Mockito.verify(fs).deleteIfExists(report);
+    }
+
+    @Test
+    void shouldNotReleaseArchivedReportWhichFailed() throws Exception {
+        CompletableFuture<Path> generation = new CompletableFuture<>();
+        Mockito.when(archivedCache.getFromPath("dir", "bar", "", true)).thenReturn(generation);
+
+        Future<Path> result = reportService.getFromPath("dir", "bar", "", true);
+        generation.completeExceptionally(new ReportGenerationException("bar"));
+
+        ExecutionException ee = Assertions.assertThrows(ExecutionException.class, result::get);
+        MatcherAssert.assertThat(
+                ee.getCause(), Matchers.instanceOf(ReportGenerationException.class));
+        Mockito.verifyNoInteractions(fs);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.reports;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.net.reports.ReportWorker.Job;
+import io.cryostat.net.reports.ReportWorker.Result;
+import io.cryostat.net.reports.SubprocessReportGenerator.ExitStatus;
+import io.cryostat.net.reports.SubprocessReportGenerator.SubprocessReportGenerationException;
+import io.cryostat.util.JavaProcess;
+
+import com.google.gson.Gson;
+import io.vertx.core.Vertx;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReportWorkerPoolTest {
+
+    @Mock JavaProcess.Builder javaProcessBuilder;
+    @Mock Vertx vertx;
+    @Mock Logger logger;
+    @Mock Process proc1;
+    @Mock Process proc2;
+    Gson gson = new Gson();
+
+    Job job = new Job("/tmp/recording.jfr", "/tmp/report.html", "", true, "");
+
+    @BeforeEach
+    void setup() throws Exception {
+        Mockito.when(javaProcessBuilder.klazz(ReportWorker.class)).thenReturn(javaProcessBuilder);
+        Mockito.when(javaProcessBuilder.jvmArgs(Mockito.anyList()))
+                .thenReturn(javaProcessBuilder);
+        Mockito.when(javaProcessBuilder.inheritIO(false)).thenReturn(javaProcessBuilder);
+        Mockito.when(vertx.setTimer(Mockito.anyLong(), Mockito.any())).thenReturn(1L);
+    }
+
+    ReportWorkerPool createPool(int maxJobsPerWorker) {
+        return new ReportWorkerPool(
+                1,
+                maxJobsPerWorker,
+                () -> javaProcessBuilder,
+                List.of("-Xmx200M"),
+                30,
+                vertx,
+                gson,
+                logger);
+    }
+
+    String responses(Result... results) {
+        StringBuilder sb = new StringBuilder();
+        for (Result result : results) {
+            sb.append(gson.toJson(result)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    void stubStreams(Process proc, ByteArrayOutputStream stdin, String stdout) {
+        Mockito.when(proc.getOutputStream()).thenReturn(stdin);
+        Mockito.when(proc.getInputStream())
+                .thenReturn(new ByteArrayInputStream(stdout.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void shouldReuseWarmWorkerForSubsequentJobs() throws Exception {
+        Mockito.when(javaProcessBuilder.exec()).thenReturn(proc1);
+        ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+        stubStreams(
+                proc1,
+                stdin,
+                responses(new Result(ExitStatus.OK, null), new Result(ExitStatus.OK, null)));
+        Mockito.when(proc1.isAlive()).thenReturn(true);
+
+        ReportWorkerPool pool = createPool(10);
+        Result first = pool.submit(job).get(1, TimeUnit.SECONDS);
+        Result second = pool.submit(job).get(1, TimeUnit.SECONDS);
+
+        MatcherAssert.assertThat(first.status(), Matchers.equalTo(ExitStatus.OK));
+        MatcherAssert.assertThat(second.status(), Matchers.equalTo(ExitStatus.OK));
+        Mockito.verify(javaProcessBuilder, Mockito.times(1)).exec();
+        Mockito.verify(proc1, Mockito.never()).destroyForcibly();
+        Mockito.verify(vertx, Mockito.times(2)).cancelTimer(1L);
+
+        String expected = gson.toJson(job) + System.lineSeparator();
+        MatcherAssert.assertThat(
+                stdin.toString(StandardCharsets.UTF_8), Matchers.equalTo(expected + expected));
+    }
+
+    @Test
+    void shouldRetireWorkerAfterMaxJobs() throws Exception {
+        Mockito.when(javaProcessBuilder.exec()).thenReturn(proc1).thenReturn(proc2);
+        stubStreams(proc1, new ByteArrayOutputStream(), responses(new Result(ExitStatus.OK, null)));
+        stubStreams(proc2, new ByteArrayOutputStream(), responses(new Result(ExitStatus.OK, null)));
+        Mockito.when(proc1.isAlive()).thenReturn(true);
+        Mockito.when(proc2.isAlive()).thenReturn(true);
+
+        ReportWorkerPool pool = createPool(1);
+        pool.submit(job).get(1, TimeUnit.SECONDS);
+        pool.submit(job).get(1, TimeUnit.SECONDS);
+
+        Mockito.verify(javaProcessBuilder, Mockito.times(2)).exec();
+        Mockito.verify(proc1).destroyForcibly();
+        Mockito.verify(proc2).destroyForcibly();
+    }
+
+    @Test
+    void shouldFailJobAndReplaceWorkerWhenWorkerDies() throws Exception {
+        Mockito.when(javaProcessBuilder.exec()).thenReturn(proc1);
+        stubStreams(proc1, new ByteArrayOutputStream(), "");
+        Mockito.when(proc1.waitFor(1, TimeUnit.SECONDS)).thenReturn(true);
+        Mockito.when(proc1.exitValue()).thenReturn(ExitStatus.OUT_OF_MEMORY.code);
+        Mockito.when(proc1.isAlive()).thenReturn(false);
+
+        ReportWorkerPool pool = createPool(10);
+        ExecutionException ee =
+                Assertions.assertThrows(
+                        ExecutionException.class, () -> pool.submit(job).get(1, TimeUnit.SECONDS));
+
+        MatcherAssert.assertThat(
+                ee.getCause(), Matchers.instanceOf(SubprocessReportGenerationException.class));
+        MatcherAssert.assertThat(
+                ((SubprocessReportGenerationException) ee.getCause()).getStatus(),
+                Matchers.equalTo(ExitStatus.OUT_OF_MEMORY));
+        Mockito.verify(proc1).destroyForcibly();
+    }
+}
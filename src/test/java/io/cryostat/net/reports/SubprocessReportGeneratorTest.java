@@ -37,23 +37,32 @@
  */
 package io.cryostat.net.reports;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import org.openjdk.jmc.rjmx.services.jfr.IFlightRecorderService;
+import org.openjdk.jmc.rjmx.services.jfr.IRecordingDescriptor;
+
 import io.cryostat.configuration.Variables;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.net.Credentials;
+import io.cryostat.core.net.JFRConnection;
 import io.cryostat.core.reports.ReportTransformer;
 import io.cryostat.core.sys.Environment;
 import io.cryostat.core.sys.FileSystem;
 import io.cryostat.net.ConnectionDescriptor;
 import io.cryostat.net.TargetConnectionManager;
+import io.cryostat.recordings.RecordingNotFoundException;
 import io.cryostat.util.JavaProcess;
 
 import com.google.gson.Gson;
@@ -68,9 +77,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.mockito.stubbing.Answer;
 
 @ExtendWith(MockitoExtension.class)
 class SubprocessReportGeneratorTest {
@@ -297,64 +304,119 @@ class SubprocessReportGeneratorTest {
     }
 
     @Test
-    void shouldExecuteProcessAndDeleteRecordingOnCompletion() throws Exception {
+    void shouldStreamRecordingIntoProcess() throws Exception {
+        ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+        Mockito.when(proc.getOutputStream()).thenReturn(stdin);
         Mockito.when(proc.waitFor(29, TimeUnit.SECONDS)).thenReturn(true);
         Mockito.when(proc.exitValue()).thenReturn(SubprocessReportGenerator.ExitStatus.OK.code);
 
+        JFRConnection conn = Mockito.mock(JFRConnection.class);
+        IFlightRecorderService svc = Mockito.mock(IFlightRecorderService.class);
+        IRecordingDescriptor rec = Mockito.mock(IRecordingDescriptor.class);
+        Mockito.when(conn.getService()).thenReturn(svc);
+        Mockito.when(svc.getAvailableRecordings()).thenReturn(List.of(rec));
+        Mockito.when(rec.getName()).thenReturn("testRecording");
+        Mockito.when(svc.openStream(rec, false))
+                .thenReturn(new ByteArrayInputStream("jfr".getBytes(StandardCharsets.UTF_8)));
         Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
-                .then(
-                        new Answer<Path>() {
-                            @Override
-                            public Path answer(InvocationOnMock invocation) throws Throwable {
-                                return fs.createTempFile(null, null);
-                            }
-                        });
+                .thenAnswer(
+                        invocation ->
+                                ((TargetConnectionManager.ConnectedTask<Object>)
+                                                invocation.getArgument(1))
+                                        .execute(conn));
 
         Path result = generator.exec(recordingDescriptor, "", true).get();
 
-        MatcherAssert.assertThat(result, Matchers.sameInstance(tempFile2));
-        Mockito.verify(fs).deleteIfExists(tempFile1);
+        MatcherAssert.assertThat(result, Matchers.sameInstance(tempFile1));
+        MatcherAssert.assertThat(stdin.toString(StandardCharsets.UTF_8), Matchers.equalTo("jfr"));
+        Mockito.verify(javaProcessBuilder).pipeInput(true);
+        ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(javaProcessBuilder).processArgs(captor.capture());
+        MatcherAssert.assertThat(
+                captor.getValue(), Matchers.equalTo(List.of("-", "/tmp/file1.tmp", "", "true")));
+        // the recording is never staged in a temp file of its own
+        Mockito.verify(fs, Mockito.times(1)).createTempFile(null, null);
     }
 
     @Test
-    void shouldExecuteProcessAndDeleteRecordingOnFailure() throws Exception {
-        Mockito.when(proc.waitFor(29, TimeUnit.SECONDS)).thenReturn(true);
-        Mockito.when(proc.exitValue())
-                .thenReturn(SubprocessReportGenerator.ExitStatus.NO_SUCH_RECORDING.code);
-
+    void shouldNotStartProcessIfRecordingDoesNotExist() throws Exception {
         Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
-                .then(
-                        new Answer<Path>() {
-                            @Override
-                            public Path answer(InvocationOnMock invocation) throws Throwable {
-                                return fs.createTempFile(null, null);
-                            }
+                .thenThrow(new RecordingNotFoundException("fooHost:1234", "testRecording"));
+
+        ExecutionException ex =
+                Assertions.assertThrows(
+                        ExecutionException.class,
+                        () -> {
+                            generator.exec(recordingDescriptor, "", true).get();
                         });
 
-        Assertions.assertThrows(
-                ExecutionException.class,
-                () -> {
-                    generator.exec(recordingDescriptor, "", true).get();
-                });
+        MatcherAssert.assertThat(
+                ex.getCause(), Matchers.instanceOf(RecordingNotFoundException.class));
+        Mockito.verify(javaProcessBuilder, Mockito.never()).exec();
+    }
 
-        Mockito.verify(fs).deleteIfExists(tempFile1);
+    @Test
+    void shouldTimeOutAndDestroyProcessIfRecordingCannotBeFedInTime() throws Exception {
+        generator =
+                new SubprocessReportGenerator(
+                        env,
+                        gson,
+                        fs,
+                        targetConnectionManager,
+                        Set.of(new TestReportTransformer()),
+                        () -> javaProcessBuilder,
+                        2,
+                        logger);
+        IRecordingDescriptor rec = Mockito.mock(IRecordingDescriptor.class);
+        recordingDescriptor = new RecordingDescriptor(connectionDescriptor, "testRecording", rec);
+        Mockito.when(proc.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        Mockito.when(proc.waitFor(1, TimeUnit.SECONDS)).thenReturn(false);
+        Mockito.when(proc.isAlive()).thenReturn(true);
+        // the target stalls partway through the recording
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch stalled = new CountDownLatch(1);
+        Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        invocation -> {
+                            streaming.countDown();
+                            stalled.await();
+                            return null;
+                        });
+
+        try {
+            ExecutionException ex =
+                    Assertions.assertTimeoutPreemptively(
+                            Duration.ofSeconds(5),
+                            () ->
+                                    Assertions.assertThrows(
+                                            ExecutionException.class,
+                                            () ->
+                                                    generator
+                                                            .exec(recordingDescriptor, "", true)
+                                                            .get()));
+
+            MatcherAssert.assertThat(
+                    ex.getCause(),
+                    Matchers.instanceOf(
+                            SubprocessReportGenerator.SubprocessReportGenerationException.class));
+            MatcherAssert.assertThat(
+                    ((SubprocessReportGenerator.SubprocessReportGenerationException) ex.getCause())
+                            .getStatus(),
+                    Matchers.equalTo(SubprocessReportGenerator.ExitStatus.TIMED_OUT));
+            Mockito.verify(proc).destroyForcibly();
+            Assertions.assertTrue(streaming.await(5, TimeUnit.SECONDS));
+        } finally {
+            stalled.countDown();
+        }
     }
 
     @Test
     void shouldExecuteProcessAndDeleteTempReportStatsFileOnFailure() throws Exception {
+        Mockito.when(proc.getOutputStream()).thenReturn(new ByteArrayOutputStream());
         Mockito.when(proc.waitFor(29, TimeUnit.SECONDS)).thenReturn(true);
         Mockito.when(proc.exitValue())
                 .thenReturn(SubprocessReportGenerator.ExitStatus.NO_SUCH_RECORDING.code);
 
-        Mockito.when(targetConnectionManager.executeConnectedTask(Mockito.any(), Mockito.any()))
-                .then(
-                        new Answer<Path>() {
-                            @Override
-                            public Path answer(InvocationOnMock invocation) throws Throwable {
-                                return fs.createTempFile(null, null);
-                            }
-                        });
-
         Assertions.assertThrows(
                 ExecutionException.class,
                 () -> {
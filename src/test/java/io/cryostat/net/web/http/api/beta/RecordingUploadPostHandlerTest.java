@@ -101,7 +101,15 @@ class RecordingUploadPostHandlerTest {
     static final String recordingName = "bar";
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
+        Mockito.lenient()
+                .when(recordingArchiveHelper.withUncompressed(Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        invocation ->
+                                invocation
+                                        .<RecordingArchiveHelper.UncompressedAction<?>>getArgument(
+                                                1)
+                                        .apply(invocation.getArgument(0)));
         this.handler =
                 new RecordingUploadPostHandler(
                         auth, credentialsManager, env, 30, webClient, recordingArchiveHelper, gson);
@@ -58,8 +58,12 @@ import io.cryostat.net.web.http.api.v2.RequestParameters;
 import io.cryostat.recordings.RecordingNotFoundException;
 
 import com.google.gson.Gson;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
@@ -67,6 +71,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -83,8 +88,7 @@ class ReportGetFromPathHandlerTest {
     @BeforeEach
     void setup() {
         this.handler =
-                new ReportGetFromPathHandler(
-                        authManager, credentialsManager, gson, reportService, 30);
+                new ReportGetFromPathHandler(authManager, credentialsManager, gson, reportService);
     }
 
     @Nested
@@ -270,5 +274,25 @@ class ReportGetFromPathHandlerTest {
 
             verify(reportService).getFromPath(subdirectoryName, recordingName, "someFilter", false);
         }
+
+        @Test
+        void shouldReleaseReportOnceResponseEnds() {
+            RoutingContext ctx = Mockito.mock(RoutingContext.class);
+            HttpServerResponse resp = Mockito.mock(HttpServerResponse.class);
+            when(ctx.response()).thenReturn(resp);
+            when(ctx.getAcceptableContentType()).thenReturn(HttpMimeType.HTML.mime());
+            Path report = Mockito.mock(Path.class);
+            when(report.toString()).thenReturn("/tmp/report.html");
+
+            handler.writeResponse(ctx, new IntermediateResponse<Path>().body(report));
+
+            ArgumentCaptor<Handler<AsyncResult<Void>>> ended =
+                    ArgumentCaptor.forClass(Handler.class);
+            verify(ctx).addEndHandler(ended.capture());
+            verify(resp).sendFile("/tmp/report.html");
+            verify(reportService, Mockito.never()).release(report);
+            ended.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reportService).release(report);
+        }
     }
 }
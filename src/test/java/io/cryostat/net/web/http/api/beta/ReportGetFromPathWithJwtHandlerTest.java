@@ -60,6 +60,8 @@ import io.cryostat.recordings.RecordingArchiveHelper;
 import io.cryostat.recordings.RecordingNotFoundException;
 
 import com.nimbusds.jwt.JWT;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerResponse;
@@ -71,6 +73,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -98,7 +101,6 @@ class ReportGetFromPathWithJwtHandlerTest {
                         () -> webServer,
                         reports,
                         archiveHelper,
-                        30,
                         logger);
     }
 
@@ -202,7 +204,12 @@ class ReportGetFromPathWithJwtHandlerTest {
             InOrder inOrder = Mockito.inOrder(resp);
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.HTML.mime());
-            inOrder.verify(resp).sendFile("foo.jfr");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            inOrder.verify(resp).sendFile(Mockito.eq("foo.jfr"), sent.capture());
+            verify(reports, Mockito.never()).release(path);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reports).release(path);
         }
 
         @Test
@@ -229,7 +236,12 @@ class ReportGetFromPathWithJwtHandlerTest {
             InOrder inOrder = Mockito.inOrder(resp);
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.HTML.mime());
-            inOrder.verify(resp).sendFile("foo.jfr");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            inOrder.verify(resp).sendFile(Mockito.eq("foo.jfr"), sent.capture());
+            verify(reports, Mockito.never()).release(path);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reports).release(path);
         }
 
         @Test
@@ -256,7 +268,12 @@ class ReportGetFromPathWithJwtHandlerTest {
             InOrder inOrder = Mockito.inOrder(resp);
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.JSON.mime());
-            inOrder.verify(resp).sendFile("foo.jfr");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            inOrder.verify(resp).sendFile(Mockito.eq("foo.jfr"), sent.capture());
+            verify(reports, Mockito.never()).release(path);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reports).release(path);
         }
     }
 }
@@ -0,0 +1,328 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.web.http.api.beta;
+
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import io.cryostat.MainModule;
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.net.AuthManager;
+import io.cryostat.net.reports.ReportService;
+import io.cryostat.net.security.ResourceAction;
+import io.cryostat.net.web.http.HttpMimeType;
+import io.cryostat.net.web.http.api.ApiVersion;
+import io.cryostat.net.web.http.api.v2.ApiException;
+import io.cryostat.recordings.RecordingArchiveHelper;
+import io.cryostat.recordings.RecordingNotFoundException;
+import io.cryostat.recordings.RecordingSourceTargetNotFoundException;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ReportsBatchPostHandlerTest {
+
+    static final String TARGET = "service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi";
+
+    ReportsBatchPostHandler handler;
+    @Mock AuthManager auth;
+    @Mock CredentialsManager credentialsManager;
+    @Mock ReportService reportService;
+    @Mock RecordingArchiveHelper recordingArchiveHelper;
+    @Mock FileSystem fs;
+    @Mock Logger logger;
+    Gson gson = MainModule.provideGson(logger);
+
+    @Mock RoutingContext ctx;
+    @Mock HttpServerResponse resp;
+    @Mock Vertx vertx;
+    @Mock Context context;
+
+    @BeforeEach
+    void setup() {
+        this.handler =
+                new ReportsBatchPostHandler(
+                        auth,
+                        credentialsManager,
+                        reportService,
+                        recordingArchiveHelper,
+                        fs,
+                        gson,
+                        logger);
+    }
+
+    @Test
+    void shouldHandlePOST() {
+        MatcherAssert.assertThat(handler.httpMethod(), Matchers.equalTo(HttpMethod.POST));
+    }
+
+    @Test
+    void shouldHandleCorrectPath() {
+        MatcherAssert.assertThat(handler.path(), Matchers.equalTo("/api/beta/reports"));
+    }
+
+    @Test
+    void shouldBeBetaApi() {
+        MatcherAssert.assertThat(handler.apiVersion(), Matchers.equalTo(ApiVersion.BETA));
+    }
+
+    @Test
+    void shouldHaveExpectedRequiredPermissions() {
+        MatcherAssert.assertThat(
+                handler.resourceActions(),
+                Matchers.equalTo(
+                        Set.of(
+                                ResourceAction.READ_RECORDING,
+                                ResourceAction.CREATE_REPORT,
+                                ResourceAction.READ_REPORT)));
+    }
+
+    @Test
+    void shouldNotBeOrdered() {
+        MatcherAssert.assertThat(handler.isOrdered(), Matchers.is(false));
+    }
+
+    @Test
+    void shouldProduceNdjson() {
+        MatcherAssert.assertThat(
+                handler.produces(), Matchers.equalTo(List.of(HttpMimeType.NDJSON)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "{}",
+                "{\"recordings\":[]}",
+                "{\"recordings\":[{\"sourceTarget\":\"uploads\"}]}",
+                "{\"recordings\":[{\"recordingName\":\"foo.jfr\"}]}",
+                "not json",
+            })
+    void shouldRespond400ForInvalidRequests(String body) {
+        when(ctx.getBodyAsString()).thenReturn(body);
+
+        ApiException ex =
+                Assertions.assertThrows(
+                        ApiException.class, () -> handler.handleAuthenticated(ctx));
+        MatcherAssert.assertThat(ex.getStatusCode(), Matchers.equalTo(400));
+        Mockito.verifyNoInteractions(reportService);
+    }
+
+    @Test
+    void shouldStreamOneLinePerRecording() throws Exception {
+        when(ctx.getBodyAsString())
+                .thenReturn(
+                        "{\"filter\":\"heap\",\"recordings\":["
+                                + "{\"sourceTarget\":\""
+                                + TARGET
+                                + "\",\"recordingName\":\"foo.jfr\"},"
+                                + "{\"sourceTarget\":\"uploads\",\"recordingName\":\"bar.jfr\"},"
+                                + "{\"sourceTarget\":\"unknown\",\"recordingName\":\"baz.jfr\"}"
+                                + "]}");
+        when(ctx.response()).thenReturn(resp);
+        runOnContextImmediately();
+
+        Path report = Mockito.mock(Path.class);
+        when(reportService.getBatched(TARGET, "foo.jfr", "heap", false))
+                .thenReturn(CompletableFuture.completedFuture(report));
+        String json = "{\"HeapContent\":{\"score\":0}}";
+        when(fs.readFile(report)).thenReturn(new BufferedReader(new StringReader(json)));
+        when(reportService.getBatched("uploads", "bar.jfr", "heap", false))
+                .thenReturn(
+                        CompletableFuture.failedFuture(
+                                new RecordingNotFoundException("archives", "bar.jfr")));
+        Mockito.doThrow(new RecordingSourceTargetNotFoundException("unknown"))
+                .when(recordingArchiveHelper)
+                .validateSourceTarget("unknown");
+
+        handler.handleAuthenticated(ctx);
+
+        Mockito.verify(resp).setChunked(true);
+        Mockito.verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.NDJSON.mime());
+        ArgumentCaptor<String> lines = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(resp, Mockito.times(3)).write(lines.capture());
+        Mockito.verify(resp).end();
+        Mockito.verify(reportService).release(report);
+
+        Map<String, Map<String, Object>> byName = new HashMap<>();
+        for (String line : lines.getAllValues()) {
+            MatcherAssert.assertThat(line, Matchers.endsWith("\n"));
+            Map<String, Object> parsed =
+                    gson.fromJson(line, new TypeToken<Map<String, Object>>() {}.getType());
+            byName.put((String) parsed.get("recordingName"), parsed);
+        }
+        MatcherAssert.assertThat(
+                byName.get("foo.jfr").get("report"),
+                Matchers.equalTo(Map.of("HeapContent", Map.of("score", 0.0))));
+        MatcherAssert.assertThat(
+                ((Map<?, ?>) byName.get("bar.jfr").get("error")).get("status"),
+                Matchers.equalTo(404.0));
+        MatcherAssert.assertThat(
+                ((Map<?, ?>) byName.get("baz.jfr").get("error")).get("status"),
+                Matchers.equalTo(404.0));
+        Mockito.verify(reportService, Mockito.never())
+                .getBatched(
+                        Mockito.eq("unknown"),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.anyBoolean());
+    }
+
+    @Test
+    void shouldWriteTimeoutErrorLine() throws Exception {
+        when(ctx.getBodyAsString())
+                .thenReturn(
+                        "{\"recordings\":[{\"sourceTarget\":\"uploads\","
+                                + "\"recordingName\":\"foo.jfr\"}]}");
+        when(ctx.response()).thenReturn(resp);
+        runOnContextImmediately();
+        when(reportService.getBatched("uploads", "foo.jfr", "", false))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("timed out")));
+
+        handler.handleAuthenticated(ctx);
+
+        ArgumentCaptor<String> line = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(resp).write(line.capture());
+        Mockito.verify(resp).end();
+        Map<String, Object> parsed =
+                gson.fromJson(line.getValue(), new TypeToken<Map<String, Object>>() {}.getType());
+        MatcherAssert.assertThat(
+                ((Map<?, ?>) parsed.get("error")).get("status"), Matchers.equalTo(504.0));
+    }
+
+    @Test
+    void shouldHoldLinesBackUntilWriteQueueDrains() throws Exception {
+        when(ctx.getBodyAsString())
+                .thenReturn(
+                        "{\"recordings\":[{\"sourceTarget\":\"uploads\","
+                                + "\"recordingName\":\"foo.jfr\"}]}");
+        when(ctx.response()).thenReturn(resp);
+        runOnContextImmediately();
+        when(reportService.getBatched("uploads", "foo.jfr", "", false))
+                .thenReturn(
+                        CompletableFuture.failedFuture(
+                                new RecordingNotFoundException("uploads", "foo.jfr")));
+        when(resp.writeQueueFull()).thenReturn(true);
+
+        handler.handleAuthenticated(ctx);
+
+        Mockito.verify(resp, Mockito.never()).write(Mockito.anyString());
+
+        when(resp.writeQueueFull()).thenReturn(false);
+        drainHandler().handle(null);
+
+        Mockito.verify(resp).write(Mockito.anyString());
+        Mockito.verify(resp).end();
+    }
+
+    @Test
+    void shouldStopWritingOnceClientHasGone() throws Exception {
+        when(ctx.getBodyAsString())
+                .thenReturn(
+                        "{\"recordings\":[{\"sourceTarget\":\"uploads\","
+                                + "\"recordingName\":\"foo.jfr\"}]}");
+        when(ctx.response()).thenReturn(resp);
+        when(ctx.vertx()).thenReturn(vertx);
+        when(vertx.getOrCreateContext()).thenReturn(context);
+        CompletableFuture<Path> pending = new CompletableFuture<>();
+        when(reportService.getBatched("uploads", "foo.jfr", "", false)).thenReturn(pending);
+
+        handler.handleAuthenticated(ctx);
+
+        ArgumentCaptor<Handler<Void>> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(resp).closeHandler(closeHandler.capture());
+        closeHandler.getValue().handle(null);
+
+        Path report = Mockito.mock(Path.class);
+        pending.complete(report);
+
+        Mockito.verify(reportService).release(report);
+        Mockito.verifyNoInteractions(fs, context);
+        Mockito.verify(resp, Mockito.never()).write(Mockito.anyString());
+        Mockito.verify(resp, Mockito.never()).end();
+    }
+
+    private void runOnContextImmediately() {
+        when(ctx.vertx()).thenReturn(vertx);
+        when(vertx.getOrCreateContext()).thenReturn(context);
+        Mockito.doAnswer(
+                        invocation -> {
+                            Handler<Void> action = invocation.getArgument(0);
+                            action.handle(null);
+                            return null;
+                        })
+                .when(context)
+                .runOnContext(Mockito.any());
+    }
+
+    private Handler<Void> drainHandler() {
+        ArgumentCaptor<Handler<Void>> drainHandler = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(resp).drainHandler(drainHandler.capture());
+        return drainHandler.getValue();
+    }
+}
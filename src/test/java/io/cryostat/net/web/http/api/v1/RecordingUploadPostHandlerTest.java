@@ -94,7 +94,15 @@ class RecordingUploadPostHandlerTest {
     static final String DATASOURCE_URL = "http://localhost:8080";
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
+        Mockito.lenient()
+                .when(recordingArchiveHelper.withUncompressed(Mockito.any(), Mockito.any()))
+                .thenAnswer(
+                        invocation ->
+                                invocation
+                                        .<RecordingArchiveHelper.UncompressedAction<?>>getArgument(
+                                                1)
+                                        .apply(invocation.getArgument(0)));
         this.handler =
                 new RecordingUploadPostHandler(
                         auth,
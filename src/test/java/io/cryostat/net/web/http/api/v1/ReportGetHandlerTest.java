@@ -39,7 +39,6 @@ package io.cryostat.net.web.http.api.v1;
 
 import static org.mockito.Mockito.when;
 
-import java.io.File;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
@@ -83,8 +82,7 @@ class ReportGetHandlerTest {
 
     @BeforeEach
     void setup() {
-        this.handler =
-                new ReportGetHandler(authManager, credentialsManager, reportService, 30, logger);
+        this.handler = new ReportGetHandler(authManager, credentialsManager, reportService, logger);
     }
 
     @Nested
@@ -148,9 +146,6 @@ class ReportGetHandlerTest {
             Path fakePath = Mockito.mock(Path.class);
             Mockito.when(fakePath.toAbsolutePath()).thenReturn(fakePath);
             Mockito.when(fakePath.toString()).thenReturn("/some/fake/path.html");
-            File file = Mockito.mock(File.class);
-            Mockito.when(fakePath.toFile()).thenReturn(file);
-            Mockito.when(file.length()).thenReturn(12345L);
 
             when(ctx.pathParam("recordingName")).thenReturn("someRecording");
             when(ctx.queryParam("filter")).thenReturn(List.of());
@@ -182,9 +177,6 @@ class ReportGetHandlerTest {
             Path fakePath = Mockito.mock(Path.class);
             Mockito.when(fakePath.toAbsolutePath()).thenReturn(fakePath);
             Mockito.when(fakePath.toString()).thenReturn("/some/fake/path.html");
-            File file = Mockito.mock(File.class);
-            Mockito.when(fakePath.toFile()).thenReturn(file);
-            Mockito.when(file.length()).thenReturn(12345L);
 
             when(ctx.pathParam("recordingName")).thenReturn("someRecording");
             when(ctx.queryParam("filter")).thenReturn(List.of("someFilter"));
@@ -216,9 +208,6 @@ class ReportGetHandlerTest {
             Path fakePath = Mockito.mock(Path.class);
             Mockito.when(fakePath.toAbsolutePath()).thenReturn(fakePath);
             Mockito.when(fakePath.toString()).thenReturn("/some/fake/path.json");
-            File file = Mockito.mock(File.class);
-            Mockito.when(fakePath.toFile()).thenReturn(file);
-            Mockito.when(file.length()).thenReturn(12345L);
 
             when(ctx.pathParam("recordingName")).thenReturn("someRecording");
             when(ctx.queryParam("filter")).thenReturn(List.of("someFilter"));
@@ -232,9 +221,8 @@ class ReportGetHandlerTest {
                                     new RecordingNotFoundException(null, "someRecording")));
 
             Mockito.verify(reportService).get("someRecording", "someFilter", false);
-            Mockito.verify(resp).sendFile(fakePath.toString());
+            Mockito.verify(resp).sendFile(Mockito.eq(fakePath.toString()), Mockito.any());
             Mockito.verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
-            Mockito.verify(resp).putHeader(HttpHeaders.CONTENT_LENGTH, "12345");
         }
 
         @Test
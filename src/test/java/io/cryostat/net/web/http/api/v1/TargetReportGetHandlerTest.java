@@ -40,6 +40,7 @@ package io.cryostat.net.web.http.api.v1;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -57,6 +58,8 @@ import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.HttpMimeType;
 import io.cryostat.recordings.RecordingNotFoundException;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
@@ -71,6 +74,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -148,7 +152,10 @@ class TargetReportGetHandlerTest {
 
             String targetId = "fooHost:0";
             String recordingName = "foo";
-            Future<String> content = CompletableFuture.completedFuture("foobar");
+            Path report = Mockito.mock(Path.class);
+            when(report.toAbsolutePath()).thenReturn(report);
+            when(report.toString()).thenReturn("/tmp/report");
+            Future<Path> content = CompletableFuture.completedFuture(report);
             when(reportService.get(
                             Mockito.any(ConnectionDescriptor.class),
                             Mockito.anyString(),
@@ -165,7 +172,12 @@ class TargetReportGetHandlerTest {
 
             verify(reportService).get(cd, recordingName, "", true);
             verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.HTML.mime());
-            verify(resp).end("foobar");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            verify(resp).sendFile(Mockito.eq("/tmp/report"), sent.capture());
+            verify(reportService, Mockito.never()).release(report);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reportService).release(report);
         }
 
         @Test
@@ -174,7 +186,10 @@ class TargetReportGetHandlerTest {
 
             String targetId = "fooHost:0";
             String recordingName = "foo";
-            Future<String> content = CompletableFuture.completedFuture("foobar");
+            Path report = Mockito.mock(Path.class);
+            when(report.toAbsolutePath()).thenReturn(report);
+            when(report.toString()).thenReturn("/tmp/report");
+            Future<Path> content = CompletableFuture.completedFuture(report);
             when(reportService.get(
                             Mockito.any(ConnectionDescriptor.class),
                             Mockito.anyString(),
@@ -191,7 +206,12 @@ class TargetReportGetHandlerTest {
 
             verify(reportService).get(cd, recordingName, "someFilter", true);
             verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.HTML.mime());
-            verify(resp).end("foobar");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            verify(resp).sendFile(Mockito.eq("/tmp/report"), sent.capture());
+            verify(reportService, Mockito.never()).release(report);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reportService).release(report);
         }
 
         @Test
@@ -200,7 +220,10 @@ class TargetReportGetHandlerTest {
 
             String targetId = "fooHost:0";
             String recordingName = "foo";
-            Future<String> content = CompletableFuture.completedFuture("foobar");
+            Path report = Mockito.mock(Path.class);
+            when(report.toAbsolutePath()).thenReturn(report);
+            when(report.toString()).thenReturn("/tmp/report");
+            Future<Path> content = CompletableFuture.completedFuture(report);
             when(reportService.get(
                             Mockito.any(ConnectionDescriptor.class),
                             Mockito.anyString(),
@@ -217,7 +240,12 @@ class TargetReportGetHandlerTest {
 
             verify(reportService).get(cd, recordingName, "someFilter", false);
             verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.JSON.mime());
-            verify(resp).end("foobar");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            verify(resp).sendFile(Mockito.eq("/tmp/report"), sent.capture());
+            verify(reportService, Mockito.never()).release(report);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reportService).release(report);
         }
 
         @Test
@@ -248,7 +276,7 @@ class TargetReportGetHandlerTest {
 
             String targetId = "fooHost:0";
             String recordingName = "foo";
-            Future<String> content =
+            Future<Path> content =
                     CompletableFuture.failedFuture(
                             new ExecutionException(
                                     new SubprocessReportGenerator
@@ -276,7 +304,7 @@ class TargetReportGetHandlerTest {
 
             String targetId = "fooHost:0";
             String recordingName = "foo";
-            Future<String> content =
+            Future<Path> content =
                     CompletableFuture.failedFuture(
                             new ExecutionException(
                                     new SubprocessReportGenerator
@@ -37,7 +37,6 @@
  */
 package io.cryostat.net.web.http.api.v2;
 
-import java.io.File;
 import java.nio.file.Path;
 import java.util.EnumSet;
 import java.util.List;
@@ -88,7 +87,7 @@ class ReportGetHandlerTest {
     void setup() {
         this.handler =
                 new ReportGetHandler(
-                        auth, credentialsManager, jwt, () -> webServer, reports, 30, logger);
+                        auth, credentialsManager, jwt, () -> webServer, reports, logger);
     }
 
     @Nested
@@ -162,9 +161,6 @@ class ReportGetHandlerTest {
             Path path = Mockito.mock(Path.class);
             Mockito.when(path.toAbsolutePath()).thenReturn(path);
             Mockito.when(path.toString()).thenReturn("foo.jfr");
-            File file = Mockito.mock(File.class);
-            Mockito.when(path.toFile()).thenReturn(file);
-            Mockito.when(file.length()).thenReturn(1234L);
             Future<Path> future = CompletableFuture.completedFuture(path);
             Mockito.when(
                             reports.get(
@@ -176,8 +172,7 @@ class ReportGetHandlerTest {
             Mockito.verify(reports).get("myrecording", "", true);
             InOrder inOrder = Mockito.inOrder(resp);
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, "text/html");
-            inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_LENGTH, "1234");
-            inOrder.verify(resp).sendFile("foo.jfr");
+            inOrder.verify(resp).sendFile(Mockito.eq("foo.jfr"), Mockito.any());
         }
 
         @Test
@@ -188,9 +183,6 @@ class ReportGetHandlerTest {
             Path path = Mockito.mock(Path.class);
             Mockito.when(path.toAbsolutePath()).thenReturn(path);
             Mockito.when(path.toString()).thenReturn("foo.jfr");
-            File file = Mockito.mock(File.class);
-            Mockito.when(path.toFile()).thenReturn(file);
-            Mockito.when(file.length()).thenReturn(1234L);
             Mockito.when(ctx.queryParam("filter")).thenReturn(List.of("someFilter"));
             Future<Path> future = CompletableFuture.completedFuture(path);
             Mockito.when(
@@ -203,8 +195,7 @@ class ReportGetHandlerTest {
             Mockito.verify(reports).get("myrecording", "someFilter", true);
             InOrder inOrder = Mockito.inOrder(resp);
             inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, "text/html");
-            inOrder.verify(resp).putHeader(HttpHeaders.CONTENT_LENGTH, "1234");
-            inOrder.verify(resp).sendFile("foo.jfr");
+            inOrder.verify(resp).sendFile(Mockito.eq("foo.jfr"), Mockito.any());
         }
     }
 }
@@ -40,6 +40,7 @@ package io.cryostat.net.web.http.api.v2;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.EnumSet;
 import java.util.List;
@@ -60,6 +61,8 @@ import io.cryostat.recordings.RecordingNotFoundException;
 
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerResponse;
@@ -71,6 +74,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -164,7 +168,7 @@ class TargetReportGetHandlerTest {
             when(ctx.getAcceptableContentType()).thenReturn(HttpMimeType.HTML.mime());
             when(ctx.pathParam("recordingName")).thenReturn("myrecording");
 
-            Future<String> future =
+            Future<Path> future =
                     CompletableFuture.failedFuture(
                             new RecordingNotFoundException("target", "myrecording"));
             when(reports.get(
@@ -185,7 +189,10 @@ class TargetReportGetHandlerTest {
             when(ctx.pathParam("recordingName")).thenReturn("myrecording");
             when(ctx.queryParam("filter")).thenReturn(List.of());
 
-            Future<String> future = CompletableFuture.completedFuture("report text");
+            Path report = Mockito.mock(Path.class);
+            when(report.toAbsolutePath()).thenReturn(report);
+            when(report.toString()).thenReturn("/tmp/report");
+            Future<Path> future = CompletableFuture.completedFuture(report);
             when(reports.get(
                             Mockito.any(ConnectionDescriptor.class),
                             Mockito.anyString(),
@@ -196,7 +203,12 @@ class TargetReportGetHandlerTest {
             handler.handleWithValidJwt(ctx, token);
 
             verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.HTML.mime());
-            verify(resp).end("report text");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            verify(resp).sendFile(Mockito.eq("/tmp/report"), sent.capture());
+            verify(reportService, Mockito.never()).release(report);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reportService).release(report);
             verify(reports)
                     .get(
                             Mockito.any(ConnectionDescriptor.class),
@@ -211,7 +223,10 @@ class TargetReportGetHandlerTest {
             when(ctx.pathParam("recordingName")).thenReturn("myrecording");
             when(ctx.queryParam("filter")).thenReturn(List.of("someFilter"));
 
-            Future<String> future = CompletableFuture.completedFuture("report text");
+            Path report = Mockito.mock(Path.class);
+            when(report.toAbsolutePath()).thenReturn(report);
+            when(report.toString()).thenReturn("/tmp/report");
+            Future<Path> future = CompletableFuture.completedFuture(report);
             when(reports.get(
                             Mockito.any(ConnectionDescriptor.class),
                             Mockito.anyString(),
@@ -222,7 +237,12 @@ class TargetReportGetHandlerTest {
             handler.handleWithValidJwt(ctx, token);
 
             verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.HTML.mime());
-            verify(resp).end("report text");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            verify(resp).sendFile(Mockito.eq("/tmp/report"), sent.capture());
+            verify(reportService, Mockito.never()).release(report);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reportService).release(report);
             verify(reports)
                     .get(
                             Mockito.any(ConnectionDescriptor.class),
@@ -237,7 +257,10 @@ class TargetReportGetHandlerTest {
             when(ctx.pathParam("recordingName")).thenReturn("myrecording");
             when(ctx.queryParam("filter")).thenReturn(List.of("someFilter"));
 
-            Future<String> future = CompletableFuture.completedFuture("report text");
+            Path report = Mockito.mock(Path.class);
+            when(report.toAbsolutePath()).thenReturn(report);
+            when(report.toString()).thenReturn("/tmp/report");
+            Future<Path> future = CompletableFuture.completedFuture(report);
             when(reports.get(
                             Mockito.any(ConnectionDescriptor.class),
                             Mockito.anyString(),
@@ -248,7 +271,12 @@ class TargetReportGetHandlerTest {
             handler.handleWithValidJwt(ctx, token);
 
             verify(resp).putHeader(HttpHeaders.CONTENT_TYPE, HttpMimeType.JSON.mime());
-            verify(resp).end("report text");
+            ArgumentCaptor<Handler<AsyncResult<Void>>> sent =
+                    ArgumentCaptor.forClass(Handler.class);
+            verify(resp).sendFile(Mockito.eq("/tmp/report"), sent.capture());
+            verify(reportService, Mockito.never()).release(report);
+            sent.getValue().handle(io.vertx.core.Future.succeededFuture());
+            verify(reportService).release(report);
             verify(reports)
                     .get(
                             Mockito.any(ConnectionDescriptor.class),
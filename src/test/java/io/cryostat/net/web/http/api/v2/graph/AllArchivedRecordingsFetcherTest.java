@@ -40,7 +40,6 @@ package io.cryostat.net.web.http.api.v2.graph;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
@@ -50,7 +49,7 @@ import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Archived;
 import io.cryostat.recordings.RecordingArchiveHelper;
-import io.cryostat.recordings.RecordingMetadataManager.Metadata;
+import io.cryostat.recordings.RecordingMetadataManager;
 import io.cryostat.rules.ArchivedRecordingInfo;
 
 import graphql.GraphQLContext;
@@ -72,6 +71,7 @@ class AllArchivedRecordingsFetcherTest {
 
     @Mock AuthManager auth;
     @Mock RecordingArchiveHelper archiveHelper;
+    @Mock RecordingMetadataManager metadataManager;
     @Mock Logger logger;
 
     @Mock DataFetchingEnvironment env;
@@ -82,7 +82,8 @@ class AllArchivedRecordingsFetcherTest {
 
     @BeforeEach
     void setup() {
-        this.fetcher = new AllArchivedRecordingsFetcher(auth, archiveHelper, logger);
+        this.fetcher =
+                new AllArchivedRecordingsFetcher(auth, archiveHelper, metadataManager, logger);
     }
 
     @Test
@@ -199,16 +200,22 @@ class AllArchivedRecordingsFetcherTest {
             ArchivedRecordingInfo recording2 = Mockito.mock(ArchivedRecordingInfo.class);
             ArchivedRecordingInfo recording3 = Mockito.mock(ArchivedRecordingInfo.class);
 
-            when(recording1.getMetadata()).thenReturn(new Metadata(Map.of("foo", "bar")));
-            when(recording2.getMetadata())
-                    .thenReturn(new Metadata(Map.of("foo", "baz", "bar", "qux")));
-            when(recording3.getMetadata())
-                    .thenReturn(new Metadata(Map.of("", "foo", "bar", "foo")));
+            when(recording1.getJvmId()).thenReturn("id1");
+            when(recording1.getName()).thenReturn("recording1");
+            when(recording2.getJvmId()).thenReturn("id1");
+            when(recording2.getName()).thenReturn("recording2");
+            when(recording3.getJvmId()).thenReturn("id2");
+            when(recording3.getName()).thenReturn("recording2");
 
             when(filter.contains(Mockito.any())).thenReturn(false);
             when(filter.contains(FilterInput.Key.LABELS)).thenReturn(true);
             when(filter.get(FilterInput.Key.LABELS)).thenReturn(List.of("foo", "bar"));
 
+            when(metadataManager.getLabelMatcher(Mockito.anyCollection()))
+                    .thenReturn(
+                            (jvmId, recordingName) ->
+                                    jvmId.equals("id1") && recordingName.equals("recording2"));
+
             when(archiveHelper.getRecordings()).thenReturn(future);
             when(future.get()).thenReturn(List.of(recording1, recording2, recording3));
 
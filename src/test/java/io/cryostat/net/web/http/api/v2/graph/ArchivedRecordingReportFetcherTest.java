@@ -0,0 +1,176 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.net.web.http.api.v2.graph;
+
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import io.cryostat.MainModule;
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+import io.cryostat.net.AuthManager;
+import io.cryostat.net.reports.ReportService;
+import io.cryostat.net.security.ResourceAction;
+import io.cryostat.rules.ArchivedRecordingInfo;
+
+import com.google.gson.Gson;
+import graphql.GraphQLContext;
+import graphql.schema.DataFetchingEnvironment;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArchivedRecordingReportFetcherTest {
+    ArchivedRecordingReportFetcher fetcher;
+
+    @Mock AuthManager auth;
+    @Mock ReportService reportService;
+    @Mock FileSystem fs;
+    @Mock Logger logger;
+    Gson gson = MainModule.provideGson(logger);
+
+    @Mock DataFetchingEnvironment env;
+    @Mock GraphQLContext graphCtx;
+
+    @BeforeEach
+    void setup() {
+        this.fetcher = new ArchivedRecordingReportFetcher(auth, reportService, fs, gson);
+    }
+
+    @Test
+    void shouldHaveExpectedRequiredPermissions() {
+        MatcherAssert.assertThat(
+                fetcher.resourceActions(),
+                Matchers.equalTo(
+                        Set.of(
+                                ResourceAction.READ_RECORDING,
+                                ResourceAction.CREATE_REPORT,
+                                ResourceAction.READ_REPORT)));
+    }
+
+    @Test
+    void shouldReturnParsedReport() throws Exception {
+        when(env.getGraphQlContext()).thenReturn(graphCtx);
+        when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        ArchivedRecordingInfo source = Mockito.mock(ArchivedRecordingInfo.class);
+        when(env.getSource()).thenReturn(source);
+        when(env.getArgument("filter")).thenReturn("heap");
+        when(source.getName()).thenReturn("foo.jfr");
+        when(source.getServiceUri()).thenReturn("someServiceUri");
+
+        Path report = Mockito.mock(Path.class);
+        when(reportService.getBatched("someServiceUri", "foo.jfr", "heap", false))
+                .thenReturn(CompletableFuture.completedFuture(report));
+        String json = "{\"HeapContent\":{\"score\":0}}";
+        when(fs.readFile(report)).thenReturn(new BufferedReader(new StringReader(json)));
+
+        Map<String, Object> result = fetcher.get(env).get();
+
+        MatcherAssert.assertThat(
+                result, Matchers.equalTo(Map.of("HeapContent", Map.of("score", 0.0))));
+        Mockito.verify(reportService).release(report);
+    }
+
+    @Test
+    void shouldNotWaitForReport() throws Exception {
+        when(env.getGraphQlContext()).thenReturn(graphCtx);
+        when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        ArchivedRecordingInfo source = Mockito.mock(ArchivedRecordingInfo.class);
+        when(env.getSource()).thenReturn(source);
+        when(source.getName()).thenReturn("foo.jfr");
+        when(source.getServiceUri()).thenReturn("someServiceUri");
+
+        Path report = Mockito.mock(Path.class);
+        CompletableFuture<Path> generation = new CompletableFuture<>();
+        when(reportService.getBatched("someServiceUri", "foo.jfr", "", false))
+                .thenReturn(generation);
+        when(fs.readFile(report)).thenThrow(new IOException());
+
+        CompletableFuture<Map<String, Object>> result = fetcher.get(env);
+
+        MatcherAssert.assertThat(fetcher.blocking(), Matchers.is(false));
+        MatcherAssert.assertThat(result.isDone(), Matchers.is(false));
+        Mockito.verify(reportService, Mockito.never()).release(Mockito.any());
+
+        generation.complete(report);
+
+        ExecutionException ee = Assertions.assertThrows(ExecutionException.class, result::get);
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(IOException.class));
+        Mockito.verify(reportService).release(report);
+    }
+
+    @Test
+    void shouldNotReleaseReportWhichFailed() throws Exception {
+        when(env.getGraphQlContext()).thenReturn(graphCtx);
+        when(auth.validateHttpHeader(Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        ArchivedRecordingInfo source = Mockito.mock(ArchivedRecordingInfo.class);
+        when(env.getSource()).thenReturn(source);
+        when(source.getName()).thenReturn("foo.jfr");
+        when(source.getServiceUri()).thenReturn("someServiceUri");
+        when(reportService.getBatched("someServiceUri", "foo.jfr", "", false))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+
+        ExecutionException ee =
+                Assertions.assertThrows(ExecutionException.class, () -> fetcher.get(env).get());
+
+        MatcherAssert.assertThat(ee.getCause(), Matchers.instanceOf(TimeoutException.class));
+        Mockito.verify(reportService, Mockito.never()).release(Mockito.any());
+    }
+}
@@ -37,19 +37,21 @@
  */
 package io.cryostat.net.web.http.api.v2.graph;
 
-import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 import io.cryostat.net.AuthManager;
 import io.cryostat.net.security.ResourceAction;
 import io.cryostat.net.web.http.api.v2.graph.ArchivedRecordingsFetcher.Archived;
 import io.cryostat.net.web.http.api.v2.graph.RecordingsFetcher.Recordings;
-import io.cryostat.recordings.RecordingMetadataManager.Metadata;
+import io.cryostat.recordings.RecordingMetadataManager;
 import io.cryostat.rules.ArchivedRecordingInfo;
 
 import graphql.GraphQLContext;
@@ -70,6 +72,7 @@ class ArchivedRecordingsFetcherTest {
     ArchivedRecordingsFetcher fetcher;
 
     @Mock AuthManager auth;
+    @Mock RecordingMetadataManager metadataManager;
 
     @Mock DataFetchingEnvironment env;
     @Mock GraphQLContext graphCtx;
@@ -78,7 +81,7 @@ class ArchivedRecordingsFetcherTest {
 
     @BeforeEach
     void setup() {
-        this.fetcher = new ArchivedRecordingsFetcher(auth);
+        this.fetcher = new ArchivedRecordingsFetcher(auth, metadataManager);
     }
 
     @Test
@@ -203,21 +206,26 @@ class ArchivedRecordingsFetcherTest {
             when(recording3.getName()).thenReturn("foo");
             when(recording4.getName()).thenReturn("baz");
             when(recording5.getName()).thenReturn("foo");
-            when(recording1.getMetadata())
-                    .thenReturn(
-                            new Metadata(Map.of("myLabel", "bar", "template.name", "Cryostat")));
-            lenient()
-                    .when(recording2.getMetadata())
-                    .thenReturn(new Metadata(Map.of("template.type", "CUSTOM", "", "")));
-            when(recording3.getMetadata())
-                    .thenReturn(new Metadata(Map.of("template.type", "TARGET", "myLabel", "foo")));
-            lenient()
-                    .when(recording4.getMetadata())
-                    .thenReturn(
-                            new Metadata(Map.of("myLabel", "value", "reason", "service-outage")));
-            when(recording5.getMetadata())
-                    .thenReturn(
-                            new Metadata(Map.of("myLabel", "foo", "template.type", "Profiling")));
+            when(recording1.getJvmId()).thenReturn("id1");
+            when(recording3.getJvmId()).thenReturn("id3");
+            when(recording5.getJvmId()).thenReturn("id5");
+            Map<String, Map<String, String>> labelsByJvmId =
+                    Map.of(
+                            "id1", Map.of("myLabel", "bar", "template.name", "Cryostat"),
+                            "id3", Map.of("template.type", "TARGET", "myLabel", "foo"),
+                            "id5", Map.of("myLabel", "foo", "template.type", "Profiling"));
+            when(metadataManager.getLabelMatcher(Mockito.anyCollection()))
+                    .thenAnswer(
+                            invocation -> {
+                                Collection<Predicate<Map<String, String>>> selectors =
+                                        invocation.getArgument(0);
+                                BiPredicate<String, String> matcher =
+                                        (jvmId, recordingName) -> {
+                                            Map<String, String> labels = labelsByJvmId.get(jvmId);
+                                            return selectors.stream().allMatch(s -> s.test(labels));
+                                        };
+                                return matcher;
+                            });
             when(recording3.getSize()).thenReturn(1234577L);
             when(recording5.getSize()).thenReturn(1234569L);
             when(filter.contains(Mockito.any())).thenReturn(false);
@@ -48,6 +48,7 @@ import io.cryostat.MainModule;
 import io.cryostat.core.log.Logger;
 import io.cryostat.core.sys.Environment;
 import io.cryostat.net.web.http.HttpMimeType;
+import io.cryostat.recordings.StartupMigrationProgress;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -77,16 +78,21 @@ import org.mockito.stubbing.Answer;
 @ExtendWith(MockitoExtension.class)
 class HealthGetHandlerTest {
 
+    static final Map<String, Object> PENDING_MIGRATION =
+            Map.of("stage", "PENDING", "completed", 0.0, "total", 0.0);
+
     HealthGetHandler handler;
     @Mock ApplicationVersion appVersion;
     @Mock WebClient webClient;
     @Mock Environment env;
     @Mock Logger logger;
     Gson gson = MainModule.provideGson(logger);
+    StartupMigrationProgress migrationProgress = new StartupMigrationProgress();
 
     @BeforeEach
     void setup() {
-        this.handler = new HealthGetHandler(appVersion, webClient, env, gson, logger);
+        this.handler =
+                new HealthGetHandler(appVersion, webClient, env, gson, migrationProgress, logger);
     }
 
     @Test
@@ -133,7 +139,8 @@ class HealthGetHandlerTest {
                                 "datasourceConfigured", false,
                                 "datasourceAvailable", false,
                                 "reportsConfigured", false,
-                                "reportsAvailable", true)));
+                                "reportsAvailable", true,
+                                "archiveMigration", PENDING_MIGRATION)));
     }
 
     @Test
@@ -192,7 +199,8 @@ class HealthGetHandlerTest {
                                 "datasourceConfigured", true,
                                 "datasourceAvailable", true,
                                 "reportsConfigured", false,
-                                "reportsAvailable", true)));
+                                "reportsAvailable", true,
+                                "archiveMigration", PENDING_MIGRATION)));
     }
 
     @Test
@@ -251,7 +259,8 @@ class HealthGetHandlerTest {
                                 "datasourceConfigured", false,
                                 "datasourceAvailable", false,
                                 "reportsConfigured", false,
-                                "reportsAvailable", true)));
+                                "reportsAvailable", true,
+                                "archiveMigration", PENDING_MIGRATION)));
     }
 
     @Test
@@ -310,7 +319,8 @@ class HealthGetHandlerTest {
                                 "datasourceConfigured", false,
                                 "datasourceAvailable", false,
                                 "reportsConfigured", false,
-                                "reportsAvailable", true)));
+                                "reportsAvailable", true,
+                                "archiveMigration", PENDING_MIGRATION)));
     }
 
     @Test
@@ -369,7 +379,8 @@ class HealthGetHandlerTest {
                                 "datasourceConfigured", false,
                                 "datasourceAvailable", false,
                                 "reportsConfigured", false,
-                                "reportsAvailable", true)));
+                                "reportsAvailable", true,
+                                "archiveMigration", PENDING_MIGRATION)));
     }
 
     @Test
@@ -427,6 +438,7 @@ class HealthGetHandlerTest {
                                 "datasourceConfigured", false,
                                 "datasourceAvailable", false,
                                 "reportsConfigured", false,
-                                "reportsAvailable", true)));
+                                "reportsAvailable", true,
+                                "archiveMigration", PENDING_MIGRATION)));
     }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import io.cryostat.core.log.Logger;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveBlobStoreTest {
+
+    static final byte[] CONTENT = "some recording content".getBytes(StandardCharsets.UTF_8);
+
+    @Mock Logger logger;
+    @TempDir Path tempDir;
+
+    Path blobsPath;
+    ArchiveBlobStore blobStore;
+
+    @BeforeEach
+    void setup() {
+        this.blobsPath = tempDir.resolve(RecordingArchiveHelper.BLOBS_SUBDIRECTORY);
+        this.blobStore = new ArchiveBlobStore(blobsPath, true, "SHA-256", logger);
+    }
+
+    @Test
+    void shouldAdoptFirstCopyAsBlob() throws Exception {
+        Path recording = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+
+        blobStore.deduplicate(recording, Optional.empty());
+
+        try (var blobs = Files.list(blobsPath)) {
+            Path blob = blobs.findFirst().orElseThrow();
+            MatcherAssert.assertThat(Files.isSameFile(blob, recording), Matchers.is(true));
+        }
+    }
+
+    @Test
+    void shouldShareStorageBetweenIdenticalRecordings() throws Exception {
+        Path first = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+        Path second = Files.write(tempDir.resolve("b.jfr"), CONTENT);
+
+        blobStore.deduplicate(first, Optional.empty());
+        blobStore.deduplicate(second, Optional.empty());
+
+        MatcherAssert.assertThat(Files.isSameFile(first, second), Matchers.is(true));
+        MatcherAssert.assertThat(Files.readAllBytes(second), Matchers.equalTo(CONTENT));
+        try (var blobs = Files.list(blobsPath)) {
+            MatcherAssert.assertThat(blobs.count(), Matchers.equalTo(1L));
+        }
+    }
+
+    @Test
+    void shouldNotShareStorageBetweenDifferentRecordings() throws Exception {
+        Path first = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+        Path second = Files.write(tempDir.resolve("b.jfr"), "other".getBytes());
+
+        blobStore.deduplicate(first, Optional.empty());
+        blobStore.deduplicate(second, Optional.empty());
+
+        MatcherAssert.assertThat(Files.isSameFile(first, second), Matchers.is(false));
+        try (var blobs = Files.list(blobsPath)) {
+            MatcherAssert.assertThat(blobs.count(), Matchers.equalTo(2L));
+        }
+    }
+
+    @Test
+    void shouldRemoveBlobOnlyWhenLastNameIsDeleted() throws Exception {
+        Path first = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+        Path second = Files.write(tempDir.resolve("b.jfr"), CONTENT);
+        blobStore.deduplicate(first, Optional.empty());
+        blobStore.deduplicate(second, Optional.empty());
+
+        Files.delete(first);
+        blobStore.collectGarbage();
+        try (var blobs = Files.list(blobsPath)) {
+            MatcherAssert.assertThat(blobs.count(), Matchers.equalTo(1L));
+        }
+
+        Files.delete(second);
+        blobStore.collectGarbage();
+        try (var blobs = Files.list(blobsPath)) {
+            MatcherAssert.assertThat(blobs.count(), Matchers.equalTo(0L));
+        }
+    }
+
+    @Test
+    void shouldReleaseBlobOfDeletedRecording() throws Exception {
+        Path first = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+        Path second = Files.write(tempDir.resolve("b.jfr"), CONTENT);
+        blobStore.deduplicate(first, Optional.empty());
+        blobStore.deduplicate(second, Optional.empty());
+
+        Optional<Path> blob = blobStore.findBlob(first);
+        MatcherAssert.assertThat(blob.isPresent(), Matchers.is(true));
+        MatcherAssert.assertThat(Files.isSameFile(blob.get(), first), Matchers.is(true));
+        Files.delete(first);
+        blobStore.release(blob.get());
+        MatcherAssert.assertThat(Files.exists(blob.get()), Matchers.is(true));
+
+        MatcherAssert.assertThat(blobStore.findBlob(second), Matchers.equalTo(blob));
+        Files.delete(second);
+        blobStore.release(blob.get());
+        MatcherAssert.assertThat(Files.exists(blob.get()), Matchers.is(false));
+    }
+
+    @Test
+    void shouldFindBlobsCreatedBeforeStartup() throws Exception {
+        Path recording = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+        blobStore.deduplicate(recording, Optional.empty());
+        ArchiveBlobStore restarted = new ArchiveBlobStore(blobsPath, true, "SHA-256", logger);
+
+        Optional<Path> blob = restarted.findBlob(recording);
+
+        MatcherAssert.assertThat(blob.isPresent(), Matchers.is(true));
+        MatcherAssert.assertThat(Files.isSameFile(blob.get(), recording), Matchers.is(true));
+    }
+
+    @Test
+    void shouldNotFindBlobOfUndeduplicatedRecording() throws Exception {
+        Path recording = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+
+        MatcherAssert.assertThat(blobStore.findBlob(recording), Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() throws Exception {
+        ArchiveBlobStore disabled = new ArchiveBlobStore(blobsPath, false, "SHA-256", logger);
+        Path recording = Files.write(tempDir.resolve("a.jfr"), CONTENT);
+
+        disabled.deduplicate(recording, Optional.empty());
+
+        MatcherAssert.assertThat(Files.exists(blobsPath), Matchers.is(false));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.FileSystem;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveCatalogTest {
+
+    ArchiveCatalog catalog;
+    @Mock FileSystem fs;
+    @Mock Logger logger;
+
+    final Path root = Path.of("archive");
+    final ArchiveCatalog.ConnectUrlReader reader =
+            path -> CompletableFuture.completedFuture("url-" + path.getFileName());
+
+    @BeforeEach
+    void setup() {
+        this.catalog = new ArchiveCatalog(fs, logger);
+    }
+
+    @Test
+    void shouldReadTreeFromDiskOnlyOnce() throws Exception {
+        Mockito.when(fs.listDirectoryChildren(root)).thenReturn(List.of("a", "b"));
+        Mockito.when(fs.listDirectoryChildren(root.resolve("a")))
+                .thenReturn(List.of("connectUrl", "one.jfr"));
+        Mockito.when(fs.listDirectoryChildren(root.resolve("b"))).thenReturn(List.of("two.jfr"));
+
+        catalog.list(root, reader);
+        List<ArchiveCatalog.Listing> listings = catalog.list(root, reader);
+
+        MatcherAssert.assertThat(listings, Matchers.hasSize(2));
+        MatcherAssert.assertThat(listings.get(0).subdirectoryName(), Matchers.equalTo("a"));
+        MatcherAssert.assertThat(listings.get(0).connectUrl(), Matchers.equalTo("url-a"));
+        MatcherAssert.assertThat(filenames(listings.get(0)), Matchers.equalTo(List.of("one.jfr")));
+        MatcherAssert.assertThat(filenames(listings.get(1)), Matchers.equalTo(List.of("two.jfr")));
+        Mockito.verify(fs, Mockito.times(1)).listDirectoryChildren(root);
+        Mockito.verify(fs, Mockito.times(1)).listDirectoryChildren(root.resolve("a"));
+        Mockito.verify(fs, Mockito.times(1)).listDirectoryChildren(root.resolve("b"));
+    }
+
+    @Test
+    void shouldTrackAddedAndRemovedRecordingsWithoutRereading() throws Exception {
+        Mockito.when(fs.listDirectoryChildren(root)).thenReturn(List.of("a"));
+        Mockito.when(fs.listDirectoryChildren(root.resolve("a"))).thenReturn(List.of("one.jfr"));
+        catalog.list(root, reader);
+
+        catalog.add("a", root.resolve("a"), "url-a", "two.jfr");
+        catalog.add("c", root.resolve("c"), "url-c", "three.jfr");
+        catalog.remove("a", "one.jfr");
+        List<ArchiveCatalog.Listing> listings = catalog.list(root, reader);
+
+        MatcherAssert.assertThat(listings, Matchers.hasSize(2));
+        MatcherAssert.assertThat(filenames(listings.get(0)), Matchers.equalTo(List.of("two.jfr")));
+        MatcherAssert.assertThat(listings.get(1).connectUrl(), Matchers.equalTo("url-c"));
+        MatcherAssert.assertThat(
+                filenames(listings.get(1)), Matchers.equalTo(List.of("three.jfr")));
+        Mockito.verify(fs, Mockito.times(1)).listDirectoryChildren(root);
+    }
+
+    @Test
+    void shouldIgnoreUpdatesToUntrackedDirectories() throws Exception {
+        Mockito.when(fs.listDirectoryChildren(root.resolve("a"))).thenReturn(List.of("one.jfr"));
+
+        catalog.add("a", root.resolve("a"), "url-a", "two.jfr");
+        ArchiveCatalog.Listing listing = catalog.list("a", root.resolve("a"));
+
+        MatcherAssert.assertThat(filenames(listing), Matchers.equalTo(List.of("one.jfr")));
+    }
+
+    @Test
+    void shouldRereadFromDiskAfterInvalidation() throws Exception {
+        Mockito.when(fs.listDirectoryChildren(root)).thenReturn(List.of("a")).thenReturn(List.of());
+        Mockito.when(fs.listDirectoryChildren(root.resolve("a"))).thenReturn(List.of("one.jfr"));
+        catalog.list(root, reader);
+
+        catalog.invalidate();
+
+        MatcherAssert.assertThat(catalog.list(root, reader), Matchers.empty());
+        Mockito.verify(fs, Mockito.times(2)).listDirectoryChildren(root);
+    }
+
+    @Test
+    void shouldFindRecordingsByName() throws Exception {
+        Mockito.when(fs.listDirectoryChildren(root)).thenReturn(List.of("a", "b"));
+        Mockito.when(fs.listDirectoryChildren(root.resolve("a"))).thenReturn(List.of("one.jfr"));
+        Mockito.when(fs.listDirectoryChildren(root.resolve("b"))).thenReturn(List.of("two.jfr"));
+        Mockito.when(fs.exists(Mockito.any())).thenReturn(true);
+
+        MatcherAssert.assertThat(
+                catalog.find(root, "two.jfr"),
+                Matchers.equalTo(Optional.of(root.resolve("b/two.jfr"))));
+        MatcherAssert.assertThat(
+                catalog.find(root, "three.jfr"), Matchers.equalTo(Optional.empty()));
+
+        catalog.add("a", root.resolve("a"), "url-a", "three.jfr");
+        catalog.remove("b", "two.jfr");
+
+        MatcherAssert.assertThat(
+                catalog.find(root, "three.jfr"),
+                Matchers.equalTo(Optional.of(root.resolve("a/three.jfr"))));
+        MatcherAssert.assertThat(catalog.find(root, "two.jfr"), Matchers.equalTo(Optional.empty()));
+        Mockito.verify(fs, Mockito.times(1)).listDirectoryChildren(root);
+    }
+
+    @Test
+    void shouldDropEntriesWhoseFilesNoLongerExist() throws Exception {
+        Mockito.when(fs.listDirectoryChildren(root)).thenReturn(List.of("a", "b"));
+        Mockito.when(fs.listDirectoryChildren(root.resolve("a"))).thenReturn(List.of("one.jfr"));
+        Mockito.when(fs.listDirectoryChildren(root.resolve("b"))).thenReturn(List.of("one.jfr"));
+        Mockito.when(fs.exists(root.resolve("a/one.jfr"))).thenReturn(false);
+        Mockito.when(fs.exists(root.resolve("b/one.jfr"))).thenReturn(true);
+
+        MatcherAssert.assertThat(
+                catalog.find(root, "one.jfr"),
+                Matchers.equalTo(Optional.of(root.resolve("b/one.jfr"))));
+        MatcherAssert.assertThat(
+                catalog.find("a", root.resolve("a"), "one.jfr"),
+                Matchers.equalTo(Optional.empty()));
+        MatcherAssert.assertThat(filenames(catalog.list("a", root.resolve("a"))), Matchers.empty());
+        Mockito.verify(fs, Mockito.times(1)).exists(root.resolve("a/one.jfr"));
+    }
+
+    @Test
+    void shouldReadEntryAttributesFromFile(@TempDir Path tempDir) throws Exception {
+        Files.write(tempDir.resolve("one.jfr"), new byte[] {1, 2, 3});
+        Mockito.when(fs.listDirectoryChildren(tempDir)).thenReturn(List.of("one.jfr", "gone.jfr"));
+
+        List<ArchiveCatalog.Entry> entries = catalog.list("a", tempDir).entries();
+
+        MatcherAssert.assertThat(entries.get(0).getSize(), Matchers.equalTo(3L));
+        MatcherAssert.assertThat(entries.get(0).getArchivedTime(), Matchers.greaterThan(0L));
+        MatcherAssert.assertThat(entries.get(1).getSize(), Matchers.equalTo(0L));
+        MatcherAssert.assertThat(entries.get(1).getArchivedTime(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    void shouldKeepArchiveTimeOfRecordingDeduplicatedLater(@TempDir Path tempDir) throws Exception {
+        ArchiveBlobStore blobStore =
+                new ArchiveBlobStore(tempDir.resolve("blobs"), true, "SHA-256", logger);
+        Path subdirectory = Files.createDirectory(tempDir.resolve("a"));
+        Path first = Files.write(subdirectory.resolve("one.jfr"), new byte[] {1, 2, 3});
+        blobStore.deduplicate(first, Optional.empty());
+        Mockito.when(fs.listDirectoryChildren(subdirectory)).thenReturn(List.of("one.jfr"));
+        long firstTime = catalog.list("a", subdirectory).entries().get(0).getArchivedTime();
+
+        long secondTime = firstTime + 60_000;
+        Path second = Files.write(subdirectory.resolve("two.jfr"), new byte[] {1, 2, 3});
+        blobStore.deduplicate(second, Optional.empty());
+        catalog.add("a", subdirectory, null, "two.jfr", secondTime);
+
+        MatcherAssert.assertThat(Files.isSameFile(first, second), Matchers.is(true));
+        List<ArchiveCatalog.Entry> entries = catalog.list("a", subdirectory).entries();
+        MatcherAssert.assertThat(entries.get(0).getArchivedTime(), Matchers.equalTo(firstTime));
+        MatcherAssert.assertThat(entries.get(1).getArchivedTime(), Matchers.equalTo(secondTime));
+    }
+
+    @Test
+    void shouldReadArchiveTimeOfDeduplicatedRecordingFromName(@TempDir Path tempDir)
+            throws Exception {
+        ArchiveBlobStore blobStore =
+                new ArchiveBlobStore(tempDir.resolve("blobs"), true, "SHA-256", logger);
+        Path subdirectory = Files.createDirectory(tempDir.resolve("a"));
+        String filename = "some-host_some-recording_20200102T030405Z.jfr";
+        blobStore.deduplicate(
+                Files.write(subdirectory.resolve("one.jfr"), new byte[] {1, 2, 3}),
+                Optional.empty());
+        blobStore.deduplicate(
+                Files.write(subdirectory.resolve(filename), new byte[] {1, 2, 3}),
+                Optional.empty());
+        Mockito.when(fs.listDirectoryChildren(subdirectory)).thenReturn(List.of(filename));
+
+        List<ArchiveCatalog.Entry> entries = catalog.list("a", subdirectory).entries();
+
+        MatcherAssert.assertThat(
+                entries.get(0).getArchivedTime(),
+                Matchers.equalTo(Instant.parse("2020-01-02T03:04:05Z").toEpochMilli()));
+    }
+
+    private static List<String> filenames(ArchiveCatalog.Listing listing) {
+        return listing.entries().stream().map(ArchiveCatalog.Entry::getFilename).toList();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.recordings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.cryostat.core.log.Logger;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveWriterTest {
+
+    static final byte[] CONTENT = "some recording content".getBytes(StandardCharsets.UTF_8);
+
+    @Mock Logger logger;
+    @TempDir Path tempDir;
+
+    @Test
+    void shouldWriteStreamToDestination() throws Exception {
+        ArchiveWriter writer = newWriter(Optional.empty(), ArchiveWriter.Compression.NONE);
+        Path destination = tempDir.resolve("recording.jfr");
+
+        ArchiveWriter.Result result =
+                writer.write(new ByteArrayInputStream(CONTENT), destination, bytes -> {});
+
+        MatcherAssert.assertThat(result.size(), Matchers.equalTo((long) CONTENT.length));
+        MatcherAssert.assertThat(result.checksum(), Matchers.equalTo(Optional.empty()));
+        MatcherAssert.assertThat(Files.readAllBytes(destination), Matchers.equalTo(CONTENT));
+    }
+
+    @Test
+    void shouldComputeChecksumWhileWriting() throws Exception {
+        ArchiveWriter writer = newWriter(Optional.of("SHA-256"), ArchiveWriter.Compression.NONE);
+        Path destination = tempDir.resolve("recording.jfr");
+
+        ArchiveWriter.Result result =
+                writer.write(new ByteArrayInputStream(CONTENT), destination, bytes -> {});
+
+        String expected =
+                HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+        MatcherAssert.assertThat(result.checksum(), Matchers.equalTo(Optional.of(expected)));
+    }
+
+    @Test
+    void shouldCompressWhileWriting() throws Exception {
+        ArchiveWriter writer = newWriter(Optional.empty(), ArchiveWriter.Compression.GZIP);
+        Path destination = tempDir.resolve("recording.jfr");
+
+        ArchiveWriter.Result result =
+                writer.write(new ByteArrayInputStream(CONTENT), destination, bytes -> {});
+
+        MatcherAssert.assertThat(result.size(), Matchers.equalTo((long) CONTENT.length));
+        MatcherAssert.assertThat(ArchiveCompression.isCompressed(destination), Matchers.is(true));
+        MatcherAssert.assertThat(
+                ArchiveCompression.size(destination), Matchers.equalTo((long) CONTENT.length));
+        try (InputStream stream = ArchiveCompression.openUncompressed(destination)) {
+            MatcherAssert.assertThat(stream.readAllBytes(), Matchers.equalTo(CONTENT));
+        }
+        try (InputStream stream = new GZIPInputStream(Files.newInputStream(destination))) {
+            MatcherAssert.assertThat(stream.readAllBytes(), Matchers.equalTo(CONTENT));
+        }
+    }
+
+    @Test
+    void shouldNotTreatUploadedGzipFilesAsCompressed() throws Exception {
+        ArchiveWriter writer = newWriter(Optional.empty(), ArchiveWriter.Compression.NONE);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream stream = new GZIPOutputStream(gzip)) {
+            stream.write(CONTENT);
+        }
+        Path destination = tempDir.resolve("recording.jfr.gz");
+
+        writer.write(new ByteArrayInputStream(gzip.toByteArray()), destination, bytes -> {});
+
+        MatcherAssert.assertThat(ArchiveCompression.isCompressed(destination), Matchers.is(false));
+        MatcherAssert.assertThat(
+                ArchiveCompression.size(destination), Matchers.equalTo((long) gzip.size()));
+        try (InputStream stream = ArchiveCompression.openUncompressed(destination)) {
+            MatcherAssert.assertThat(stream.readAllBytes(), Matchers.equalTo(gzip.toByteArray()));
+        }
+    }
+
+    @Test
+    void shouldNotOverwriteExistingFile() throws Exception {
+        ArchiveWriter writer = newWriter(Optional.empty(), ArchiveWriter.Compression.NONE);
+        Path destination = Files.writeString(tempDir.resolve("recording.jfr"), "existing");
+
+        Assertions.assertThrows(
+                FileAlreadyExistsException.class,
+                () -> writer.write(new ByteArrayInputStream(CONTENT), destination, bytes -> {}));
+        MatcherAssert.assertThat(Files.readString(destination), Matchers.equalTo("existing"));
+    }
+
+    @Test
+    void shouldAbortWriteWhenInterrupted() throws Exception {
+        ArchiveWriter writer = newWriter(Optional.empty(), ArchiveWriter.Compression.NONE);
+        Path destination = tempDir.resolve("recording.jfr");
+
+        Thread.currentThread().interrupt();
+        try {
+            Assertions.assertThrows(
+                    InterruptedIOException.class,
+                    () ->
+                            writer.write(
+                                    new ByteArrayInputStream(CONTENT), destination, bytes -> {}));
+        } finally {
+            Thread.interrupted();
+        }
+        MatcherAssert.assertThat(Files.exists(destination), Matchers.is(false));
+    }
+
+    @Test
+    void shouldAbortWriteWhenCancelledWithoutClosingStream() throws Exception {
+        ArchiveWriter writer = newWriter(Optional.empty(), ArchiveWriter.Compression.NONE);
+        Path destination = tempDir.resolve("recording.jfr");
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream stream =
+                new ByteArrayInputStream(CONTENT) {
+                    @Override
+                    public void close() {
+                        closed.set(true);
+                    }
+                };
+        AtomicInteger chunks = new AtomicInteger();
+
+        Assertions.assertThrows(
+                InterruptedIOException.class,
+                () ->
+                        writer.write(
+                                stream,
+                                destination,
+                                bytes -> {},
+                                () -> chunks.incrementAndGet() > 2));
+
+        MatcherAssert.assertThat(Files.exists(destination), Matchers.is(false));
+        MatcherAssert.assertThat(closed.get(), Matchers.is(false));
+        MatcherAssert.assertThat(stream.available(), Matchers.greaterThan(0));
+    }
+
+    @Test
+    void shouldRejectUnknownChecksumAlgorithm() {
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> newWriter(Optional.of("not-a-digest"), ArchiveWriter.Compression.NONE));
+    }
+
+    private ArchiveWriter newWriter(
+            Optional<String> checksumAlgorithm, ArchiveWriter.Compression compression) {
+        return new ArchiveWriter(4, 1, checksumAlgorithm, compression, logger);
+    }
+}
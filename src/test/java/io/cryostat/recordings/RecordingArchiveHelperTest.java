@@ -51,6 +51,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
@@ -116,12 +117,14 @@ class RecordingArchiveHelperTest {
     @Mock IFlightRecorderService service;
     @Mock Vertx vertx;
     @Mock io.vertx.core.file.FileSystem vertxFs;
+    @Mock ArchiveWriter archiveWriter;
+    @Mock ArchiveBlobStore blobStore;
 
     String targetId = "fooTarget";
     String recordingName = "someRecording";
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
         lenient().when(notificationFactory.createBuilder()).thenReturn(notificationBuilder);
         lenient()
                 .when(notificationBuilder.metaCategory(Mockito.any()))
@@ -156,6 +159,9 @@ class RecordingArchiveHelperTest {
                         });
 
         lenient().when(vertx.fileSystem()).thenReturn(vertxFs);
+        lenient()
+                .when(archiveWriter.write(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(new ArchiveWriter.Result(0, Optional.empty()));
 
         this.recordingArchiveHelper =
                 new RecordingArchiveHelper(
@@ -171,7 +177,9 @@ class RecordingArchiveHelperTest {
                         notificationFactory,
                         jvmIdHelper,
                         null,
-                        base32);
+                        base32,
+                        archiveWriter,
+                        blobStore);
     }
 
     @Test
@@ -285,7 +293,12 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(archiveWriter)
+                .write(
+                        Mockito.isA(BufferedInputStream.class),
+                        Mockito.eq(destination),
+                        Mockito.any());
+        Mockito.verify(blobStore).deduplicate(destination, Optional.empty());
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -367,7 +380,11 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(archiveWriter)
+                .write(
+                        Mockito.isA(BufferedInputStream.class),
+                        Mockito.eq(destination),
+                        Mockito.any());
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -461,7 +478,11 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(archiveWriter)
+                .write(
+                        Mockito.isA(BufferedInputStream.class),
+                        Mockito.eq(destination),
+                        Mockito.any());
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -542,7 +563,11 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(archiveWriter)
+                .write(
+                        Mockito.isA(BufferedInputStream.class),
+                        Mockito.eq(destination),
+                        Mockito.any());
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -630,7 +655,11 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(archiveWriter)
+                .write(
+                        Mockito.isA(BufferedInputStream.class),
+                        Mockito.eq(destination),
+                        Mockito.any());
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -771,7 +800,11 @@ class RecordingArchiveHelperTest {
                         .get();
 
         MatcherAssert.assertThat(info.getName(), Matchers.equalTo(savedName));
-        Mockito.verify(fs).copy(Mockito.isA(BufferedInputStream.class), Mockito.eq(destination));
+        Mockito.verify(archiveWriter)
+                .write(
+                        Mockito.isA(BufferedInputStream.class),
+                        Mockito.eq(destination),
+                        Mockito.any());
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ActiveRecordingSaved");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -844,6 +877,8 @@ class RecordingArchiveHelperTest {
                 .thenReturn(tempSubdirectory);
         Mockito.when(fs.deleteIfExists(Mockito.any())).thenReturn(true);
         ;
+        Path blob = Path.of("blob");
+        Mockito.when(blobStore.findBlob(Mockito.any(Path.class))).thenReturn(Optional.of(blob));
 
         ArchivedRecordingInfo deleted = recordingArchiveHelper.deleteRecording(recordingName).get();
 
@@ -857,6 +892,13 @@ class RecordingArchiveHelperTest {
                                 .toAbsolutePath());
 
         Mockito.verify(fs).deleteIfExists(destinationFile);
+        Mockito.verify(blobStore)
+                .findBlob(
+                        archivedRecordingsPath
+                                .resolve(subdirectories.get(1))
+                                .resolve(recordingName)
+                                .toAbsolutePath());
+        Mockito.verify(blobStore).release(blob);
         Mockito.verify(notificationFactory).createBuilder();
         Mockito.verify(notificationBuilder).metaCategory("ArchivedRecordingDeleted");
         Mockito.verify(notificationBuilder).metaType(HttpMimeType.JSON);
@@ -964,10 +1006,18 @@ class RecordingArchiveHelperTest {
                             }
                         });
 
-        Mockito.when(recordingMetadataManager.getMetadata(Mockito.any(), Mockito.anyString()))
+        Mockito.when(jvmIdHelper.subdirectoryNameToJvmId(Mockito.anyString()))
+                .thenAnswer(invocation -> "jvm-" + invocation.getArgument(0));
+        Mockito.when(
+                        recordingMetadataManager.getMetadataFromPathIfExists(
+                                Mockito.anyString(), Mockito.anyString()))
                 .thenReturn(new Metadata());
 
         List<ArchivedRecordingInfo> result = recordingArchiveHelper.getRecordings().get();
+        Mockito.verify(recordingMetadataManager)
+                .getMetadataFromPathIfExists("jvm-encodedJvmIdA", "recordingA");
+        Mockito.verify(recordingMetadataManager)
+                .getMetadataFromPathIfExists("jvm-encodedJvmId123", "123recording");
         List<ArchivedRecordingInfo> expected =
                 List.of(
                         new ArchivedRecordingInfo(
@@ -1045,7 +1095,9 @@ class RecordingArchiveHelperTest {
                             }
                         });
 
-        Mockito.when(recordingMetadataManager.getMetadata(Mockito.any(), Mockito.anyString()))
+        Mockito.when(
+                        recordingMetadataManager.getMetadataFromPathIfExists(
+                                Mockito.anyString(), Mockito.anyString()))
                 .thenReturn(new Metadata());
 
         Mockito.when(jvmIdHelper.jvmIdToSubdirectoryName(Mockito.anyString()))
@@ -41,12 +41,14 @@ import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.io.BufferedReader;
-import java.io.StringReader;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 import javax.inject.Provider;
 
@@ -94,6 +96,7 @@ public class RecordingMetadataManagerTest {
     @Mock FileSystem fs;
     @Mock Provider<RecordingArchiveHelper> archiveHelperProvider;
     @Mock Base32 base32;
+    @Mock ArchiveMigrationCheckpoint migrationCheckpoint;
     @Mock Logger logger;
     @Mock TargetConnectionManager targetConnectionManager;
     @Mock CredentialsManager credentialsManager;
@@ -148,6 +151,8 @@ public class RecordingMetadataManagerTest {
                         jvmIdHelper,
                         gson,
                         base32,
+                        new StartupMigrationProgress(),
+                        migrationCheckpoint,
                         logger);
         this.recordingMetadataManager.init(vertx, null);
     }
@@ -216,19 +221,98 @@ public class RecordingMetadataManagerTest {
         when(mockPath.getParent()).thenReturn(parentPath);
 
         when(fs.deleteIfExists(mockPath)).thenReturn(true);
-        when(fs.isRegularFile(mockPath)).thenReturn(true);
-        when(fs.readFile(mockPath))
-                .thenReturn(new BufferedReader(new StringReader("{\"labels\":{}}")));
 
         recordingMetadataManager
                 .setRecordingMetadata(connectionDescriptor, recordingName, metadata)
                 .get();
 
-        recordingMetadataManager.deleteRecordingMetadataIfExists(jvmId, recordingName);
+        Metadata deleted =
+                recordingMetadataManager.deleteRecordingMetadataIfExists(jvmId, recordingName);
 
+        Assertions.assertEquals(metadata, deleted);
         verify(fs).deleteIfExists(Mockito.any(Path.class));
     }
 
+    @Test
+    void shouldNotTouchFilesystemWhenReadingMissingMetadata() throws Exception {
+        when(jvmIdHelper.getJvmId(Mockito.any(ConnectionDescriptor.class))).thenReturn("id");
+        when(connectionDescriptor.getTargetId()).thenReturn("someTarget");
+
+        Metadata metadata =
+                recordingMetadataManager.getMetadata(connectionDescriptor, "someRecording");
+
+        Assertions.assertEquals(new Metadata(), metadata);
+        Mockito.verifyNoInteractions(fs);
+    }
+
+    @Test
+    void shouldServeStoredMetadataFromMemory() throws Exception {
+        String recordingName = "someRecording";
+        Metadata metadata = new Metadata(Map.of("KEY", "value"));
+        when(jvmIdHelper.getJvmId(Mockito.any(ConnectionDescriptor.class))).thenReturn("id");
+        when(connectionDescriptor.getTargetId()).thenReturn("someTarget");
+        Path mockPath = Mockito.mock(Path.class);
+        when(recordingMetadataDir.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(mockPath.resolve(Mockito.anyString())).thenReturn(mockPath);
+
+        recordingMetadataManager
+                .setRecordingMetadata(connectionDescriptor, recordingName, metadata)
+                .get();
+
+        Metadata stored = recordingMetadataManager.getMetadata(connectionDescriptor, recordingName);
+
+        Assertions.assertEquals(metadata, stored);
+        Mockito.verify(fs, Mockito.never()).readFile(Mockito.any(Path.class));
+    }
+
+    @Test
+    void shouldMatchUnlabelledRecordingsAgainstNegatedSelectors() throws Exception {
+        when(jvmIdHelper.getJvmId(Mockito.any(ConnectionDescriptor.class))).thenReturn("id");
+        when(connectionDescriptor.getTargetId()).thenReturn("target");
+        Path mockPath = Mockito.mock(Path.class);
+        when(recordingMetadataDir.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(mockPath.resolve(Mockito.anyString())).thenReturn(mockPath);
+        recordingMetadataManager
+                .setRecordingMetadata(connectionDescriptor, "other", new Metadata(Map.of("a", "b")))
+                .get();
+        recordingMetadataManager
+                .setRecordingMetadata(
+                        connectionDescriptor, "labelled", new Metadata(Map.of("KEY", "v")))
+                .get();
+
+        BiPredicate<String, String> matcher =
+                recordingMetadataManager.getLabelMatcher(
+                        List.<Predicate<Map<String, String>>>of(
+                                labels -> !labels.containsKey("KEY")));
+
+        Assertions.assertTrue(matcher.test("id", "other"));
+        Assertions.assertTrue(matcher.test("id", "unlabelled"));
+        Assertions.assertFalse(matcher.test("id", "labelled"));
+        Assertions.assertTrue(matcher.test("otherJvm", "labelled"));
+    }
+
+    @Test
+    void shouldMatchLabelsOfRecordingsByJvmId() throws Exception {
+        when(jvmIdHelper.getJvmId(Mockito.any(ConnectionDescriptor.class))).thenReturn("id");
+        when(connectionDescriptor.getTargetId()).thenReturn("target");
+        Path mockPath = Mockito.mock(Path.class);
+        when(recordingMetadataDir.resolve(Mockito.anyString())).thenReturn(mockPath);
+        when(mockPath.resolve(Mockito.anyString())).thenReturn(mockPath);
+        recordingMetadataManager
+                .setRecordingMetadata(
+                        connectionDescriptor, "labelled", new Metadata(Map.of("KEY", "v")))
+                .get();
+
+        BiPredicate<String, String> matcher =
+                recordingMetadataManager.getLabelMatcher(
+                        List.<Predicate<Map<String, String>>>of(
+                                labels -> Set.of("v", "w").contains(labels.get("KEY"))));
+
+        Assertions.assertTrue(matcher.test("id", "labelled"));
+        Assertions.assertFalse(matcher.test("otherJvm", "labelled"));
+        Assertions.assertFalse(matcher.test("id", "unlabelled"));
+    }
+
     @Test
     void shouldOverwriteLabelsForExistingLabelEntries() throws Exception {
         String recordingName = "someRecording";
@@ -231,10 +231,7 @@ public class RecordingTargetHelperTest {
         ArgumentCaptor<ConnectionDescriptor> connectionDescriptorCaptor =
                 ArgumentCaptor.forClass(ConnectionDescriptor.class);
         Mockito.verify(reportService)
-                .delete(
-                        connectionDescriptorCaptor.capture(),
-                        Mockito.eq(recordingName),
-                        Mockito.eq(true));
+                .delete(connectionDescriptorCaptor.capture(), Mockito.eq(recordingName));
         MatcherAssert.assertThat(
                 connectionDescriptorCaptor.getValue().getTargetId(),
                 Matchers.equalTo(connectionDescriptor.getTargetId()));
@@ -284,10 +281,7 @@ public class RecordingTargetHelperTest {
         ArgumentCaptor<ConnectionDescriptor> connectionDescriptorCaptor =
                 ArgumentCaptor.forClass(ConnectionDescriptor.class);
         Mockito.verify(reportService)
-                .delete(
-                        connectionDescriptorCaptor.capture(),
-                        Mockito.eq(recordingName),
-                        Mockito.eq(true));
+                .delete(connectionDescriptorCaptor.capture(), Mockito.eq(recordingName));
         MatcherAssert.assertThat(
                 connectionDescriptorCaptor.getValue().getTargetId(),
                 Matchers.equalTo(connectionDescriptor.getTargetId()));
@@ -0,0 +1,204 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import io.cryostat.core.log.Logger;
+import io.cryostat.core.sys.Clock;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArchivalSchedulerTest {
+
+    static final URI TARGET_A = URI.create("service:jmx:rmi:///jndi/rmi://a:9091/jmxrmi");
+    static final URI TARGET_B = URI.create("service:jmx:rmi:///jndi/rmi://b:9091/jmxrmi");
+    static final URI TARGET_C = URI.create("service:jmx:rmi:///jndi/rmi://c:9091/jmxrmi");
+
+    ArchivalScheduler scheduler;
+    @Mock Vertx vertx;
+    @Mock Clock clock;
+    @Mock Logger logger;
+
+    long now;
+    List<Handler<AsyncResult<Void>>> running;
+
+    @BeforeEach
+    void setup() {
+        this.scheduler = new ArchivalScheduler(vertx, clock, 2, logger);
+        this.running = new ArrayList<>();
+        Mockito.lenient().when(clock.getMonotonicTime()).thenAnswer(invocation -> now);
+        Mockito.lenient()
+                .doAnswer(
+                        invocation -> {
+                            Handler<Promise<Void>> blocking = invocation.getArgument(0);
+                            blocking.handle(Promise.promise());
+                            running.add(invocation.getArgument(2));
+                            return null;
+                        })
+                .when(vertx)
+                .executeBlocking(Mockito.any(), Mockito.anyBoolean(), Mockito.any());
+    }
+
+    Handler<Long> ticker() {
+        ArgumentCaptor<Handler<Long>> captor = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(vertx)
+                .setPeriodic(Mockito.eq(ArchivalScheduler.TICK.toMillis()), captor.capture());
+        return captor.getValue();
+    }
+
+    void advanceTo(Handler<Long> ticker, long seconds) {
+        now = Duration.ofSeconds(seconds).toNanos();
+        ticker.handle(1L);
+    }
+
+    void finishAll() {
+        List<Handler<AsyncResult<Void>>> finished = new ArrayList<>(running);
+        running.clear();
+        finished.forEach(handler -> handler.handle(Future.succeededFuture()));
+    }
+
+    static long jitter(URI target, String ruleName, long periodSeconds) {
+        return Math.floorMod(Objects.hash(target, ruleName), periodSeconds);
+    }
+
+    @Test
+    void shouldRunAfterExactInitialDelayThenJitteredThenEveryPeriod() {
+        Runnable task = Mockito.mock(Runnable.class);
+        scheduler.schedule(TARGET_A, "rule", Duration.ofSeconds(5), Duration.ofSeconds(10), task);
+        Handler<Long> ticker = ticker();
+        long second = 5 + 10 - jitter(TARGET_A, "rule", 10);
+
+        advanceTo(ticker, 4);
+        Mockito.verify(task, Mockito.never()).run();
+
+        advanceTo(ticker, 5);
+        Mockito.verify(task, Mockito.times(1)).run();
+        finishAll();
+
+        advanceTo(ticker, second - 1);
+        Mockito.verify(task, Mockito.times(1)).run();
+
+        advanceTo(ticker, second);
+        Mockito.verify(task, Mockito.times(2)).run();
+        finishAll();
+
+        advanceTo(ticker, second + 9);
+        Mockito.verify(task, Mockito.times(2)).run();
+
+        advanceTo(ticker, second + 10);
+        Mockito.verify(task, Mockito.times(3)).run();
+    }
+
+    @Test
+    void shouldLimitConcurrencyAndSerializePerTarget() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (URI target : List.of(TARGET_A, TARGET_A, TARGET_B, TARGET_C)) {
+            Runnable task = Mockito.mock(Runnable.class);
+            tasks.add(task);
+            scheduler.schedule(
+                    target, "rule" + tasks.size(), Duration.ZERO, Duration.ofSeconds(1), task);
+        }
+        Handler<Long> ticker = ticker();
+
+        advanceTo(ticker, 1);
+
+        MatcherAssert.assertThat(running, Matchers.hasSize(2));
+        Mockito.verify(tasks.get(0)).run();
+        Mockito.verify(tasks.get(1), Mockito.never()).run();
+        Mockito.verify(tasks.get(2)).run();
+        Mockito.verify(tasks.get(3), Mockito.never()).run();
+        MatcherAssert.assertThat(scheduler.getStats().backlog(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(scheduler.getStats().running(), Matchers.equalTo(2));
+
+        now = Duration.ofMillis(1500).toNanos();
+        finishAll();
+
+        Mockito.verify(tasks.get(1)).run();
+        Mockito.verify(tasks.get(3)).run();
+        MatcherAssert.assertThat(scheduler.getStats().backlog(), Matchers.equalTo(0));
+        MatcherAssert.assertThat(
+                scheduler.getStats().maxLag(), Matchers.equalTo(Duration.ofMillis(500)));
+    }
+
+    @Test
+    void shouldSkipRunsOfJobsWhichAreStillRunning() {
+        Runnable task = Mockito.mock(Runnable.class);
+        scheduler.schedule(TARGET_A, "rule", Duration.ZERO, Duration.ofSeconds(1), task);
+        Handler<Long> ticker = ticker();
+
+        advanceTo(ticker, 1);
+        advanceTo(ticker, 2);
+
+        Mockito.verify(task, Mockito.times(1)).run();
+        MatcherAssert.assertThat(scheduler.getStats().skipped(), Matchers.equalTo(1L));
+    }
+
+    @Test
+    void shouldStopRunningCancelledJobs() {
+        Mockito.when(vertx.setPeriodic(Mockito.anyLong(), Mockito.any())).thenReturn(7L);
+        Runnable task = Mockito.mock(Runnable.class);
+        long id = scheduler.schedule(TARGET_A, "rule", Duration.ZERO, Duration.ofSeconds(1), task);
+        Handler<Long> ticker = ticker();
+
+        scheduler.cancel(id);
+        advanceTo(ticker, 5);
+
+        Mockito.verify(task, Mockito.never()).run();
+        Mockito.verify(vertx).cancelTimer(7L);
+        MatcherAssert.assertThat(scheduler.getStats().scheduled(), Matchers.equalTo(0));
+    }
+}
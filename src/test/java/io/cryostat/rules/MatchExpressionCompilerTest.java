@@ -0,0 +1,289 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import io.cryostat.MainModule;
+import io.cryostat.configuration.CredentialsManager;
+import io.cryostat.core.log.Logger;
+import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.ServiceRef.AnnotationKey;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class MatchExpressionCompilerTest {
+
+    MatchExpressionCompiler compiler;
+    ScriptEngine scriptEngine;
+    MatchExpressionEvaluator evaluator;
+    @Mock ServiceRef serviceRef;
+    @Mock MatchExpressionCompiler.Interpreter interpreter;
+    @Mock CredentialsManager credentialsManager;
+    @Mock RuleRegistry ruleRegistry;
+    @Mock PlatformClient platformClient;
+    @Mock Logger logger;
+
+    @BeforeEach
+    void setup() throws Exception {
+        this.compiler = new MatchExpressionCompiler();
+        this.scriptEngine = MainModule.provideScriptEngine();
+        this.evaluator =
+                new MatchExpressionEvaluator(
+                        scriptEngine,
+                        compiler,
+                        credentialsManager,
+                        ruleRegistry,
+                        platformClient,
+                        16,
+                        logger);
+
+        Mockito.lenient()
+                .when(serviceRef.getServiceUri())
+                .thenReturn(new URI("service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi"));
+        Mockito.lenient().when(serviceRef.getJvmId()).thenReturn("-some1234HashId=");
+        Mockito.lenient().when(serviceRef.getAlias()).thenReturn(Optional.empty());
+        Mockito.lenient()
+                .when(serviceRef.getLabels())
+                .thenReturn(Map.of("app", "cryostat", "empty", ""));
+        Mockito.lenient()
+                .when(serviceRef.getPlatformAnnotations())
+                .thenReturn(Map.of("annotation1", "someAnnotation"));
+        Mockito.lenient()
+                .when(serviceRef.getCryostatAnnotations())
+                .thenReturn(Map.of(AnnotationKey.JAVA_MAIN, "io.cryostat.Cryostat"));
+    }
+
+    boolean interpret(String matchExpression) throws ScriptException {
+        return (Boolean)
+                scriptEngine.eval(matchExpression, evaluator.createBindings(serviceRef));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "true",
+                "false",
+                "target.alias == null",
+                "target.alias != 'someAlias'",
+                "target.jvmId === '-some1234HashId='",
+                "target.jvmId !== 'other'",
+                "target.labels.app == 'cryostat'",
+                "target.labels['app'] == 'cryostat'",
+                "target.labels.missing == null",
+                "target.labels.app == 'cryostat' && target.labels.missing != 'x'",
+                "target.labels.missing == 'x' || target.labels.app == 'cryostat'",
+                "target.labels.missing || target.labels.app == 'cryostat'",
+                "target.labels.missing ? false : true",
+                "target.annotations.platform.annotation1 == 'someAnnotation'",
+                "target.annotations.cryostat.JAVA_MAIN == 'io.cryostat.Cryostat'",
+                "/^service:jmx:rmi:.*:9091\\/jmxrmi$/.test(target.connectUrl)",
+                "/CRYOSTAT/i.test(target.labels.app)",
+                "/^null$/.test(target.alias)",
+                "/^[a-c&]+$/.test('a&b')",
+                "/^a.c$/.test('a\\nc')",
+                "/^a$/.test('a\\n')",
+                "/^(?:ab){2,}$/.test('ababab')",
+                "/\\x41\\u0042/.test('AB')",
+            })
+    void shouldAgreeWithScriptEngine(String matchExpression) throws Exception {
+        Predicate<ServiceRef> predicate = compiler.compile(matchExpression, interpreter);
+
+        MatcherAssert.assertThat(
+                predicate.test(serviceRef), Matchers.equalTo(interpret(matchExpression)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "true",
+                "target.alias == null",
+                "target.labels.app == 'cryostat' && /cryo/.test(target.jvmId)",
+                "/^[a-z]+$/i.test(target.labels.app)",
+            })
+    void shouldNotUseScriptEngineForCompiledExpressions(String matchExpression) throws Exception {
+        compiler.compile(matchExpression, interpreter).test(serviceRef);
+
+        Mockito.verifyNoInteractions(interpreter);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "target.labels.app.length == 8",
+                "target.labels.empty == ''",
+                "target.labels.app == 1",
+                "target.alias === null",
+                "/undefined/.test(target.labels.missing)",
+                "target.labels == 'x'",
+                "/\\s/.test(target.jvmId)",
+                "/(a)\\1/.test(target.jvmId)",
+                "true; false",
+            })
+    void shouldFallBackToScriptEngine(String matchExpression) throws Exception {
+        Mockito.when(interpreter.evaluate(matchExpression, serviceRef)).thenReturn(true);
+
+        Assertions.assertTrue(compiler.compile(matchExpression, interpreter).test(serviceRef));
+
+        Mockito.verify(interpreter).evaluate(matchExpression, serviceRef);
+    }
+
+    @Test
+    void shouldThrowOnNonBooleanResult() {
+        CompletionException ce =
+                Assertions.assertThrows(
+                        CompletionException.class,
+                        () -> compiler.compile("target.jvmId", interpreter).test(serviceRef));
+
+        MatcherAssert.assertThat(ce.getCause(), Matchers.instanceOf(ScriptException.class));
+    }
+
+    @Test
+    void shouldThrowOnNullResult() {
+        CompletionException ce =
+                Assertions.assertThrows(
+                        CompletionException.class,
+                        () -> compiler.compile("target.alias", interpreter).test(serviceRef));
+
+        MatcherAssert.assertThat(ce.getCause(), Matchers.instanceOf(ScriptException.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a{", "[]", "[^]", "\\b[\\b]", "(?<name>a)", "a++", "\\v", "\\0"})
+    void shouldNotTranslateRegExpWithDifferentSemantics(String source) {
+        MatcherAssert.assertThat(
+                MatchExpressionCompiler.translateRegExp(source, ""),
+                Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldNotTranslateMultilineRegExp() {
+        MatcherAssert.assertThat(
+                MatchExpressionCompiler.translateRegExp("^a$", "m"),
+                Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldTranslateRegExp() {
+        Pattern pattern = MatchExpressionCompiler.translateRegExp("^a.[b-d&&]$", "").get();
+
+        MatcherAssert.assertThat(pattern.matcher("ax&").find(), Matchers.equalTo(true));
+        MatcherAssert.assertThat(pattern.matcher("ax&\n").find(), Matchers.equalTo(false));
+        MatcherAssert.assertThat(pattern.matcher("a\n&").find(), Matchers.equalTo(false));
+    }
+
+    @Test
+    void shouldRequireComparedAttributes() {
+        MatcherAssert.assertThat(
+                compiler.requiredAttributes(
+                        "target.alias == 'foo' && target.labels.app === 'cryostat'"),
+                Matchers.equalTo(
+                        Optional.of(
+                                Set.of(
+                                        Set.of(
+                                                new TargetAttribute(
+                                                        TargetAttribute.Kind.ALIAS, null, "foo"),
+                                                new TargetAttribute(
+                                                        TargetAttribute.Kind.LABEL,
+                                                        "app",
+                                                        "cryostat"))))));
+    }
+
+    @Test
+    void shouldRequireEitherAlternative() {
+        MatcherAssert.assertThat(
+                compiler.requiredAttributes(
+                        "target.jvmId == 'abc' || 'bar' =="
+                                + " target.annotations.cryostat.JAVA_MAIN"),
+                Matchers.equalTo(
+                        Optional.of(
+                                Set.of(
+                                        Set.of(
+                                                new TargetAttribute(
+                                                        TargetAttribute.Kind.JVM_ID,
+                                                        null,
+                                                        "abc")),
+                                        Set.of(
+                                                new TargetAttribute(
+                                                        TargetAttribute.Kind.CRYOSTAT_ANNOTATION,
+                                                        "JAVA_MAIN",
+                                                        "bar"))))));
+    }
+
+    @Test
+    void shouldRequireNothingForFalse() {
+        MatcherAssert.assertThat(
+                compiler.requiredAttributes("false"), Matchers.equalTo(Optional.of(Set.of())));
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "true",
+                "target.alias != 'foo'",
+                "!(target.alias == 'foo')",
+                "target.alias == 'foo' || /bar/.test(target.alias)",
+                "target.labels.size == 'foo'",
+                "target.alias ==",
+            })
+    void shouldNotRequireAttributesOfUnconstrainedExpressions(String matchExpression) {
+        MatcherAssert.assertThat(
+                compiler.requiredAttributes(matchExpression), Matchers.equalTo(Optional.empty()));
+    }
+}
@@ -42,6 +42,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import javax.script.Bindings;
 import javax.script.ScriptException;
@@ -49,8 +51,11 @@ import javax.script.ScriptException;
 import io.cryostat.MainModule;
 import io.cryostat.configuration.CredentialsManager;
 import io.cryostat.core.log.Logger;
+import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
+import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
 import io.cryostat.platform.ServiceRef.AnnotationKey;
+import io.cryostat.platform.TargetDiscoveryEvent;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -62,6 +67,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -74,6 +80,7 @@ class MatchExpressionEvaluatorTest {
     @Mock Logger logger;
     @Mock CredentialsManager credentials;
     @Mock RuleRegistry rules;
+    @Mock PlatformClient platformClient;
 
     URI serviceUri;
     String jvmId;
@@ -86,7 +93,13 @@ class MatchExpressionEvaluatorTest {
     void setup() throws Exception {
         this.ruleMatcher =
                 new MatchExpressionEvaluator(
-                        MainModule.provideScriptEngine(), credentials, rules, logger);
+                        MainModule.provideScriptEngine(),
+                        new MatchExpressionCompiler(),
+                        credentials,
+                        rules,
+                        platformClient,
+                        16,
+                        logger);
 
         this.serviceUri = new URI("service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi");
         this.jvmId = "-some1234HashId=";
@@ -95,12 +108,17 @@ class MatchExpressionEvaluatorTest {
         this.platformAnnotations = Map.of("annotation1", "someAnnotation");
         this.cryostatAnnotations = Map.of(AnnotationKey.JAVA_MAIN, "io.cryostat.Cryostat");
 
-        Mockito.when(serviceRef.getServiceUri()).thenReturn(this.serviceUri);
-        Mockito.when(serviceRef.getJvmId()).thenReturn(this.jvmId);
-        Mockito.when(serviceRef.getAlias()).thenReturn(Optional.of(this.alias));
-        Mockito.when(serviceRef.getLabels()).thenReturn(this.labels);
-        Mockito.when(serviceRef.getPlatformAnnotations()).thenReturn(this.platformAnnotations);
-        Mockito.when(serviceRef.getCryostatAnnotations()).thenReturn(this.cryostatAnnotations);
+        // compiled expressions only read the properties of the target which they refer to
+        Mockito.lenient().when(serviceRef.getServiceUri()).thenReturn(this.serviceUri);
+        Mockito.lenient().when(serviceRef.getJvmId()).thenReturn(this.jvmId);
+        Mockito.lenient().when(serviceRef.getAlias()).thenReturn(Optional.of(this.alias));
+        Mockito.lenient().when(serviceRef.getLabels()).thenReturn(this.labels);
+        Mockito.lenient()
+                .when(serviceRef.getPlatformAnnotations())
+                .thenReturn(this.platformAnnotations);
+        Mockito.lenient()
+                .when(serviceRef.getCryostatAnnotations())
+                .thenReturn(this.cryostatAnnotations);
     }
 
     @Nested
@@ -271,6 +289,71 @@ class MatchExpressionEvaluatorTest {
             Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
         }
 
+        @Test
+        void shouldMatchOnRegExp() throws Exception {
+            String expr = "/^some[A-Z]lias$/.test(target.alias) && /cryostat/.test(target.jvmId)";
+            Assertions.assertFalse(ruleMatcher.applies(expr, serviceRef));
+            expr = "/^some[A-Z]lias$/.test(target.alias) || /cryostat/.test(target.jvmId)";
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+        }
+
+        @Test
+        void shouldMatchOnExpressionLeftToScriptEngine() throws Exception {
+            String expr = "target.labels.label1.length == 9";
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+        }
+
+        @Test
+        void shouldCacheResultPerTarget() throws Exception {
+            String expr = "target.alias == 'someAlias'";
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+
+            Mockito.verify(serviceRef, Mockito.times(1)).getAlias();
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"MODIFIED", "LOST"})
+        void shouldInvalidateResultsWhenTargetChanges(String kind) throws Exception {
+            ArgumentCaptor<Consumer<TargetDiscoveryEvent>> listener =
+                    ArgumentCaptor.forClass(Consumer.class);
+            Mockito.verify(platformClient).addTargetDiscoveryListener(listener.capture());
+
+            String expr = "target.alias == 'someAlias'";
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+            listener.getValue()
+                    .accept(new TargetDiscoveryEvent(EventKind.valueOf(kind), serviceRef));
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+
+            Mockito.verify(serviceRef, Mockito.times(2)).getAlias();
+        }
+
+        @Test
+        void shouldNotCacheResultForTargetLostWhileEvaluating() throws Exception {
+            ArgumentCaptor<Consumer<TargetDiscoveryEvent>> listener =
+                    ArgumentCaptor.forClass(Consumer.class);
+            Mockito.verify(platformClient).addTargetDiscoveryListener(listener.capture());
+            AtomicBoolean lost = new AtomicBoolean();
+            Mockito.doAnswer(
+                            invocation -> {
+                                if (!lost.getAndSet(true)) {
+                                    listener.getValue()
+                                            .accept(
+                                                    new TargetDiscoveryEvent(
+                                                            EventKind.LOST, serviceRef));
+                                }
+                                return Optional.of(alias);
+                            })
+                    .when(serviceRef)
+                    .getAlias();
+
+            String expr = "target.alias == 'someAlias'";
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+            Assertions.assertTrue(ruleMatcher.applies(expr, serviceRef));
+
+            Mockito.verify(serviceRef, Mockito.times(2)).getAlias();
+        }
+
         @ParameterizedTest
         @ValueSource(strings = {"1", "null", "target.alias", "\"a string\""})
         void shouldThrowExceptionOnNonBooleanExpressionEval(String expr) throws Exception {
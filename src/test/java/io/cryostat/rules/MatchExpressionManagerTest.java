@@ -39,13 +39,11 @@ package io.cryostat.rules;
 
 import java.net.URI;
 import java.nio.file.Path;
-import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import io.cryostat.MainModule;
 import io.cryostat.core.log.Logger;
-import io.cryostat.platform.PlatformClient;
 import io.cryostat.platform.ServiceRef;
 
 import com.google.gson.Gson;
@@ -67,7 +65,7 @@ class MatchExpressionManagerTest {
     @Mock Path credentialsDir;
     @Mock MatchExpressionValidator matchExpressionValidator;
     @Mock MatchExpressionEvaluator matchExpressionEvaluator;
-    @Mock PlatformClient platformClient;
+    @Mock TargetAttributeIndex targetAttributeIndex;
     @Mock MatchExpressionDao dao;
     @Mock Logger logger;
     Gson gson = MainModule.provideGson(logger);
@@ -79,7 +77,7 @@ class MatchExpressionManagerTest {
                 new MatchExpressionManager(
                         matchExpressionValidator,
                         () -> matchExpressionEvaluator,
-                        platformClient,
+                        targetAttributeIndex,
                         dao,
                         gson,
                         logger);
@@ -132,7 +130,8 @@ class MatchExpressionManagerTest {
                         URI.create("service:jmx:rmi:///jndi/rmi://cryostat:9091/jmxrmi"),
                         "mytarget");
 
-        Mockito.when(platformClient.listDiscoverableServices()).thenReturn(List.of(serviceRef));
+        Mockito.when(targetAttributeIndex.getCandidates(matchExpression))
+                .thenReturn(Set.of(serviceRef));
         Mockito.when(matchExpressionEvaluator.applies(matchExpression, serviceRef))
                 .thenReturn(true);
 
@@ -40,6 +40,7 @@ package io.cryostat.rules;
 import static org.mockito.Mockito.never;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
@@ -70,7 +71,6 @@ import io.cryostat.recordings.RecordingTargetHelper;
 import io.cryostat.util.events.Event;
 import io.cryostat.util.events.EventListener;
 
-import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.apache.commons.lang3.tuple.Pair;
 import org.hamcrest.MatcherAssert;
@@ -101,6 +101,7 @@ class RuleProcessorTest {
     @Mock RecordingTargetHelper recordingTargetHelper;
     @Mock RecordingMetadataManager metadataManager;
     @Mock PeriodicArchiverFactory periodicArchiverFactory;
+    @Mock ArchivalScheduler archivalScheduler;
     @Mock Logger logger;
 
     @Mock JFRConnection connection;
@@ -121,6 +122,7 @@ class RuleProcessorTest {
                         recordingTargetHelper,
                         metadataManager,
                         periodicArchiverFactory,
+                        archivalScheduler,
                         logger);
     }
 
@@ -254,17 +256,13 @@ class RuleProcessorTest {
 
         MatcherAssert.assertThat(metadataCaptor.getValue(), Matchers.equalTo(new Metadata()));
 
-        ArgumentCaptor<Handler<Long>> handlerCaptor = ArgumentCaptor.forClass(Handler.class);
-        Mockito.verify(vertx).setTimer(Mockito.eq(67_000L), handlerCaptor.capture());
-
-        Mockito.verify(periodicArchiver, Mockito.times(0)).run();
-        handlerCaptor.getValue().handle(1234L);
-        Mockito.verify(periodicArchiver, Mockito.times(1)).run();
-
-        Mockito.verify(vertx).setPeriodic(Mockito.eq(67_000L), handlerCaptor.capture());
-
-        handlerCaptor.getValue().handle(1234L);
-        Mockito.verify(periodicArchiver, Mockito.times(2)).run();
+        Mockito.verify(archivalScheduler)
+                .schedule(
+                        serviceRef.getServiceUri(),
+                        rule.getName(),
+                        Duration.ofSeconds(67),
+                        Duration.ofSeconds(67),
+                        periodicArchiver);
     }
 
     @Test
@@ -365,9 +363,16 @@ class RuleProcessorTest {
                                 Mockito.any()))
                 .thenReturn(periodicArchiver);
 
-        processor.accept(tde);
+        Mockito.when(
+                        archivalScheduler.schedule(
+                                Mockito.any(),
+                                Mockito.any(),
+                                Mockito.any(),
+                                Mockito.any(),
+                                Mockito.any()))
+                .thenReturn(42L);
 
-        Mockito.verify(vertx).setTimer(Mockito.eq(67_000L), Mockito.any());
+        processor.accept(tde);
 
         ArgumentCaptor<Function<Pair<ServiceRef, Rule>, Void>> functionCaptor =
                 ArgumentCaptor.forClass(Function.class);
@@ -379,11 +384,11 @@ class RuleProcessorTest {
                         Mockito.any(),
                         functionCaptor.capture());
         Function<Pair<ServiceRef, Rule>, Void> failureFunction = functionCaptor.getValue();
-        Mockito.verify(vertx, Mockito.never()).cancelTimer(MockVertx.TIMER_ID);
+        Mockito.verify(archivalScheduler, Mockito.never()).cancel(Mockito.anyLong());
 
         failureFunction.apply(Pair.of(serviceRef, rule));
 
-        Mockito.verify(vertx).cancelTimer(MockVertx.TIMER_ID);
+        Mockito.verify(archivalScheduler).cancel(42L);
     }
 
     @Test
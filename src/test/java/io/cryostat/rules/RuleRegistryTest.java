@@ -85,7 +85,13 @@ class RuleRegistryTest {
     @BeforeEach
     void setup() throws Exception {
         this.registry =
-                new RuleRegistry(rulesDir, () -> matchExpressionEvaluator, fs, gson, logger);
+                new RuleRegistry(
+                        rulesDir,
+                        () -> matchExpressionEvaluator,
+                        new MatchExpressionCompiler(),
+                        fs,
+                        gson,
+                        logger);
         this.testRule =
                 new Rule.Builder()
                         .name("test rule")
@@ -244,6 +250,20 @@ class RuleRegistryTest {
                 Matchers.equalTo(Set.of(testRule)));
     }
 
+    @Test
+    void testGetRulesByServiceRefSkipsRulesForOtherAttributes() throws Exception {
+        registry.addRule(testRule);
+
+        MatcherAssert.assertThat(
+                registry.getRules(
+                        new ServiceRef(
+                                "id",
+                                URI.create("service:jmx:rmi:///jndi/rmi://other:9091/jmxrmi"),
+                                "com.example.Other")),
+                Matchers.equalTo(Set.of()));
+        Mockito.verifyNoInteractions(matchExpressionEvaluator);
+    }
+
     @Test
     void testGetRulesByServiceRefIgnoresArchivers() throws Exception {
         Rule archiverRule =
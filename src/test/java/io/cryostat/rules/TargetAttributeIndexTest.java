@@ -0,0 +1,142 @@
+/*
+ * Copyright The Cryostat Authors
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or data
+ * (collectively the "Software"), free of charge and under any and all copyright
+ * rights in the Software, and any and all patent rights owned or freely
+ * licensable by each licensor hereunder covering either (i) the unmodified
+ * Software as contributed to or provided by such licensor, or (ii) the Larger
+ * Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software (each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ * The above copyright notice and either this complete permission notice or at
+ * a minimum a reference to the UPL must be included in all copies or
+ * substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.cryostat.rules;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import io.cryostat.core.net.discovery.JvmDiscoveryClient.EventKind;
+import io.cryostat.platform.PlatformClient;
+import io.cryostat.platform.ServiceRef;
+import io.cryostat.platform.TargetDiscoveryEvent;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TargetAttributeIndexTest {
+
+    TargetAttributeIndex index;
+    @Mock PlatformClient platformClient;
+    Consumer<TargetDiscoveryEvent> listener;
+
+    ServiceRef foo;
+    ServiceRef bar;
+
+    @BeforeEach
+    void setup() throws Exception {
+        this.index = new TargetAttributeIndex(platformClient, new MatchExpressionCompiler());
+
+        ArgumentCaptor<Consumer<TargetDiscoveryEvent>> captor =
+                ArgumentCaptor.forClass(Consumer.class);
+        Mockito.verify(platformClient).addTargetDiscoveryListener(captor.capture());
+        this.listener = captor.getValue();
+
+        this.foo = new ServiceRef("id1", new URI("service:jmx:rmi:///jndi/rmi://foo:9091"), "foo");
+        foo.setLabels(Map.of("app", "cryostat"));
+        this.bar = new ServiceRef("id2", new URI("service:jmx:rmi:///jndi/rmi://bar:9091"), "bar");
+        bar.setLabels(Map.of("app", "cryostat"));
+
+        Mockito.when(platformClient.listDiscoverableServices()).thenReturn(List.of(foo, bar));
+    }
+
+    @Test
+    void shouldReturnTargetsHavingRequiredAttributes() {
+        MatcherAssert.assertThat(
+                index.getCandidates("target.alias == 'foo' && target.labels.app == 'cryostat'"),
+                Matchers.equalTo(Set.of(foo)));
+        MatcherAssert.assertThat(
+                index.getCandidates("target.labels.app == 'cryostat'"),
+                Matchers.equalTo(Set.of(foo, bar)));
+        MatcherAssert.assertThat(
+                index.getCandidates("target.alias == 'bar' || target.alias == 'baz'"),
+                Matchers.equalTo(Set.of(bar)));
+        MatcherAssert.assertThat(
+                index.getCandidates("target.alias == 'baz'"), Matchers.equalTo(Set.of()));
+    }
+
+    @Test
+    void shouldReturnAllTargetsForUnconstrainedExpression() {
+        MatcherAssert.assertThat(
+                index.getCandidates("/fo+/.test(target.alias)"),
+                Matchers.equalTo(Set.of(foo, bar)));
+    }
+
+    @Test
+    void shouldLookUpTargetByConnectUrl() {
+        MatcherAssert.assertThat(
+                index.getTarget("service:jmx:rmi:///jndi/rmi://bar:9091"),
+                Matchers.equalTo(Optional.of(bar)));
+        MatcherAssert.assertThat(
+                index.getTarget("service:jmx:rmi:///jndi/rmi://baz:9091"),
+                Matchers.equalTo(Optional.empty()));
+    }
+
+    @Test
+    void shouldFollowDiscoveryEvents() throws Exception {
+        index.getCandidates("true");
+
+        ServiceRef modified = new ServiceRef(foo);
+        modified.setLabels(Map.of("app", "other"));
+        listener.accept(new TargetDiscoveryEvent(EventKind.MODIFIED, modified));
+        listener.accept(new TargetDiscoveryEvent(EventKind.LOST, bar));
+        ServiceRef baz =
+                new ServiceRef("id3", new URI("service:jmx:rmi:///jndi/rmi://baz:9091"), "baz");
+        baz.setLabels(Map.of("app", "cryostat"));
+        listener.accept(new TargetDiscoveryEvent(EventKind.FOUND, baz));
+
+        MatcherAssert.assertThat(
+                index.getCandidates("target.labels.app == 'cryostat'"),
+                Matchers.equalTo(Set.of(baz)));
+        MatcherAssert.assertThat(
+                index.getCandidates("target.labels.app == 'other'"),
+                Matchers.equalTo(Set.of(modified)));
+        Mockito.verify(platformClient, Mockito.times(1)).listDiscoverableServices();
+    }
+}